@@ -1,14 +1,20 @@
 package com.quiotix.html.example;
+import java.io.BufferedWriter;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
+import com.quiotix.html.parser.DeflaterWriter;
 import com.quiotix.html.parser.HtmlCollector;
 import com.quiotix.html.parser.HtmlDocument;
 import com.quiotix.html.parser.HtmlDumper;
 import com.quiotix.html.parser.HtmlFormatter;
+import com.quiotix.html.parser.HtmlMinifier;
 import com.quiotix.html.parser.HtmlParser;
 import com.quiotix.html.parser.HtmlScrubber;
+import com.quiotix.html.parser.StreamingHtmlFormatter;
 
 
 /**
@@ -23,8 +29,9 @@ public class HtmlFormat {
    * Runnable.
    */
   public static void main (String args[]) throws IOException {
-    boolean compress=false, format=false, quote=false;
-    int i, rightMargin=-1, indentIncrement=-1;
+    boolean compress=false, format=false, quote=false, stream=false,
+            minify=false;
+    int i, rightMargin=-1, indentIncrement=-1, deflate=0;
     InputStream r;
     HtmlDocument document;
     HtmlFormatter v;
@@ -52,6 +59,18 @@ public class HtmlFormat {
         indentIncrement = (int) Integer.parseInt(args[i+1]);
         i++;
       }
+      else if (args[i].equals("-stream")) {
+        stream = true;
+      }
+      else if (args[i].equals("-minify")) {
+        minify = true;
+      }
+      else if (args[i].equals("-gzip")) {
+        deflate = DeflaterWriter.GZIP;
+      }
+      else if (args[i].equals("-deflate")) {
+        deflate = DeflaterWriter.DEFLATE;
+      }
       else if (args[i].equals("-margin")
                && i+1 < args.length) {
         rightMargin = (int) Integer.parseInt(args[i+1]);
@@ -61,14 +80,27 @@ public class HtmlFormat {
 
     int scrubberFlags = HtmlScrubber.DEFAULT_OPTIONS 
                         | HtmlScrubber.TRIM_SPACES;
+    // Compressed output is all one stream, written as it is formatted
+    Writer w = deflate != 0 
+      ? (Writer) new DeflaterWriter(System.out, deflate)
+      : new BufferedWriter(new OutputStreamWriter(System.out));
     for (; i < args.length; i++) { 
       r = new FileInputStream(args[i]);
     
       try { 
+        if (minify) {
+          minify(r, w);
+          continue;
+        }
+        if (stream) {
+          stream(r, w, compress, format, quote, scrubberFlags, 
+                 rightMargin, indentIncrement);
+          continue;
+        }
         document = new HtmlParser(r).HtmlDocument();
         if (compress) {
           document.accept(new HtmlScrubber(scrubberFlags));
-          document.accept(new HtmlDumper(System.out));
+          document.accept(new HtmlDumper(w));
         }
         else if (format) {
           document.accept(new HtmlCollector());
@@ -76,7 +108,7 @@ public class HtmlFormat {
             scrubberFlags = scrubberFlags | HtmlScrubber.QUOTE_ATTRS;
           }
           document.accept(new HtmlScrubber(scrubberFlags));
-          v = new HtmlFormatter(System.out);
+          v = new HtmlFormatter(w);
           if (rightMargin != -1)     v.setRightMargin(rightMargin);
           if (indentIncrement != -1) v.setIndent(indentIncrement);
           document.accept(v);
@@ -84,7 +116,7 @@ public class HtmlFormat {
         else {
           document.accept(new HtmlCollector());
           document.accept(new HtmlScrubber(scrubberFlags));
-          v = new HtmlFormatter(System.out);
+          v = new HtmlFormatter(w);
           v.setRightMargin(1024);
           v.setIndent(0);
           document.accept(v);
@@ -97,6 +129,63 @@ public class HtmlFormat {
         r.close();
       }
     }
+    if (w instanceof DeflaterWriter)
+      ((DeflaterWriter) w).finish();
+    else
+      w.flush();
     
   }
+
+  /**
+   * Format a document an element at a time, without building it, 
+   * for documents too large to hold in memory.
+   */
+  private static void stream(InputStream r, Writer w, 
+                             boolean compress, boolean format,
+                             boolean quote, int scrubberFlags, 
+                             int rightMargin, int indentIncrement) 
+      throws Exception {
+    HtmlParser parser = new HtmlParser(r);
+    if (compress) {
+      HtmlScrubber scrubber = new HtmlScrubber(scrubberFlags);
+      HtmlDumper dumper = new HtmlDumper(w);
+      scrubber.start();
+      dumper.start();
+      for (HtmlDocument.HtmlElement e; (e = parser.nextElement()) != null;) {
+        e.accept(scrubber);
+        e.accept(dumper);
+      }
+      dumper.finish();
+      return;
+    }
+    StreamingHtmlFormatter v = new StreamingHtmlFormatter(w);
+    if (format) {
+      if (quote)
+        scrubberFlags = scrubberFlags | HtmlScrubber.QUOTE_ATTRS;
+      if (rightMargin != -1)     v.setRightMargin(rightMargin);
+      if (indentIncrement != -1) v.setIndent(indentIncrement);
+    }
+    else {
+      v.setRightMargin(1024);
+      v.setIndent(0);
+    }
+    v.format(parser, scrubberFlags);
+  }
+
+  /**
+   * Write a document out as small as it will go, an element at a time.
+   */
+  private static void minify(InputStream r, Writer w) throws Exception {
+    HtmlParser parser = new HtmlParser(r);
+    HtmlScrubber scrubber = new HtmlScrubber(HtmlScrubber.TAGS_DOWNCASE
+                                             | HtmlScrubber.ATTR_DOWNCASE);
+    HtmlMinifier minifier = new HtmlMinifier(w, HtmlMinifier.DEFAULT_OPTIONS);
+    scrubber.start();
+    minifier.start();
+    for (HtmlDocument.HtmlElement e; (e = parser.nextElement()) != null;) {
+      e.accept(scrubber);
+      e.accept(minifier);
+    }
+    minifier.finish();
+  }
 }
@@ -0,0 +1,569 @@
+/*
+ * CompactHtmlDocument.java -- an HtmlDocument packed into arrays.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable copy of an HtmlDocument, held in a handful of primitive
+ * arrays rather than an object per element, for keeping many documents
+ * in memory.
+ * <p>
+ * Elements are numbered in document order, a TagBlock before the
+ * elements of its body.  For each element there is a kind, the number
+ * of its enclosing TagBlock, and the number of the element following it
+ * and its body; tag and attribute names are numbers into a table of
+ * distinct names, and texts are ranges of a single char array.
+ * </p>
+ * <p>
+ * Any HtmlVisitor can visit a CompactHtmlDocument.  The elements it is
+ * shown are flyweights, refilled from the arrays as the traversal moves
+ * on: one of each kind for each level of nesting.  So visitors which
+ * only look at each element as it is visited, such as HtmlDumper or
+ * HtmlFormatter, run unchanged; but changes a visitor makes are not
+ * kept, and visitors which hold on to elements, such as HtmlCollector
+ * or HtmlQuery, should be run on the result of toHtmlDocument() instead.
+ * </p>
+ */
+public final class CompactHtmlDocument implements Visitable, Sized {
+
+    /** Kind of an HtmlDocument.Tag. */
+    public static final int TAG = 0;
+    /** Kind of an HtmlDocument.EndTag. */
+    public static final int END_TAG = 1;
+    /** Kind of an HtmlDocument.TagBlock. */
+    public static final int TAG_BLOCK = 2;
+    /** Kind of an HtmlDocument.Comment. */
+    public static final int COMMENT = 3;
+    /** Kind of an HtmlDocument.Text. */
+    public static final int TEXT = 4;
+    /** Kind of an HtmlDocument.Newline. */
+    public static final int NEWLINE = 5;
+    /** Kind of an HtmlDocument.Annotation. */
+    public static final int ANNOTATION = 6;
+
+    private static final int KIND_MASK = 0x0f;
+    /** Set on the kind of an empty (eg &lt;br/&gt;) tag. */
+    private static final int EMPTY = 0x10;
+
+    private final int count;
+    private final byte[] kinds;
+    private final int[] parents;
+    /** The number of the element after this one's body. */
+    private final int[] ends;
+    /** The tag name, or an annotation's type. */
+    private final int[] names;
+    /** 
+     * The start of the text, or a Newline's whitespace; 
+     * for a TagBlock, the name of its end tag. 
+     */
+    private final int[] offsets;
+    private final int[] lengths;
+    /** Element i has attributes firstAttributes[i] to firstAttributes[i+1]. */
+    private final int[] firstAttributes;
+    private final int[] attributeNames;
+    /** The start of the value, including quotes, or -1 for none. */
+    private final int[] valueOffsets;
+    private final int[] valueLengths;
+    private final String[] nameTable;
+    private final char[] chars;
+    private final int length;
+    private final String encoding;
+
+    /**
+     * Pack a document, collected or not.
+     */
+    public CompactHtmlDocument(HtmlDocument document) {
+        Builder b = new Builder();
+        b.visit(document.elements);
+        count = b.count;
+        kinds = new byte[count];
+        System.arraycopy(b.kinds, 0, kinds, 0, count);
+        parents = trim(b.parents, count);
+        ends = trim(b.ends, count);
+        names = trim(b.names, count);
+        offsets = trim(b.offsets, count);
+        lengths = trim(b.lengths, count);
+        b.firstAttributes[count] = b.attributeCount;
+        firstAttributes = trim(b.firstAttributes, count + 1);
+        attributeNames = trim(b.attributeNames, b.attributeCount);
+        valueOffsets = trim(b.valueOffsets, b.attributeCount);
+        valueLengths = trim(b.valueLengths, b.attributeCount);
+        nameTable = (String[]) b.nameList.toArray(new String[b.nameList.size()]);
+        chars = new char[b.charCount];
+        System.arraycopy(b.chars, 0, chars, 0, b.charCount);
+        length = b.length;
+        encoding = document.getEncoding();
+    }
+
+    private static int[] trim(int[] a, int n) {
+        int[] b = new int[n];
+        System.arraycopy(a, 0, b, 0, n);
+        return b;
+    }
+
+    /**
+     * Visit the elements, as HtmlDocument.accept() would.
+     * Each call has its own flyweights, so a CompactHtmlDocument
+     * may be visited by several threads at once.
+     */
+    public void accept(HtmlVisitor v) {
+        Sequence top = new Cursor().sequence(0);
+        top.from = 0;
+        top.to = count;
+        v.start();
+        v.visit(top);
+        v.finish();
+    }
+
+    /**
+     * @return a new HtmlDocument with the same elements
+     */
+    public HtmlDocument toHtmlDocument() {
+        HtmlDocument d = new HtmlDocument(inflate(0, count));
+        d.setEncoding(encoding);
+        return d;
+    }
+
+    /**
+     * @return the length of the document's text
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return the character encoding of the document packed, or null
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * @return the number of elements, counting those in TagBlock bodies
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the kind of element i, one of TAG, END_TAG, TAG_BLOCK,
+     * COMMENT, TEXT, NEWLINE or ANNOTATION
+     */
+    public int getKind(int i) {
+        return kinds[i] & KIND_MASK;
+    }
+
+    /**
+     * @return the number of the TagBlock whose body contains element i,
+     * or -1 if it is at the top level
+     */
+    public int getParent(int i) {
+        return parents[i];
+    }
+
+    /**
+     * @return the tag name of element i, or null if it is not a tag
+     */
+    public String getTagName(int i) {
+        int kind = getKind(i);
+        return kind == TAG || kind == END_TAG || kind == TAG_BLOCK
+            ? nameTable[names[i]] : null;
+    }
+
+    /**
+     * @return the text of a Text, Comment or Annotation, otherwise null
+     */
+    public String getText(int i) {
+        int kind = getKind(i);
+        return kind == TEXT || kind == COMMENT || kind == ANNOTATION
+            ? string(i) : null;
+    }
+
+    private String string(int i) {
+        return new String(chars, offsets[i], lengths[i]);
+    }
+
+    private HtmlDocument.ElementSequence inflate(int from, int to) {
+        int n = 0;
+        for (int i = from; i < to; i = ends[i])
+            n++;
+        HtmlDocument.ElementSequence s = new HtmlDocument.ElementSequence(n);
+        for (int i = from; i < to; i = ends[i])
+            s.addElement(inflate(i));
+        return s;
+    }
+
+    private HtmlDocument.HtmlElement inflate(int i) {
+        switch (getKind(i)) {
+        case TAG:
+            HtmlDocument.Tag t = new HtmlDocument.Tag(nameTable[names[i]],
+                    attributes(i, new HtmlDocument.AttributeList(), null));
+            t.setEmpty((kinds[i] & EMPTY) != 0);
+            return t;
+        case END_TAG:
+            return new HtmlDocument.EndTag(nameTable[names[i]]);
+        case TAG_BLOCK:
+            HtmlDocument.TagBlock b = new HtmlDocument.TagBlock(nameTable[names[i]],
+                    attributes(i, new HtmlDocument.AttributeList(), null),
+                    inflate(i + 1, ends[i]));
+            b.startTag.setEmpty((kinds[i] & EMPTY) != 0);
+            b.endTag.tagName = nameTable[offsets[i]];
+            return b;
+        case COMMENT:
+            return new HtmlDocument.Comment(getText(i));
+        case TEXT:
+            return new HtmlDocument.Text(getText(i));
+        case NEWLINE:
+            return lengths[i] == 0 ? HtmlDocument.Newline.SHARED
+                : new HtmlDocument.Newline(string(i));
+        default:
+            return new HtmlDocument.Annotation(nameTable[names[i]], getText(i));
+        }
+    }
+
+    /**
+     * Fill l with the attributes of element i, taking Attributes from
+     * pool if it is not null.
+     */
+    private HtmlDocument.AttributeList attributes(int i, HtmlDocument.AttributeList l,
+                                                  HtmlDocument.Attribute[] pool) {
+        for (int a = firstAttributes[i], p = 0; a < firstAttributes[i + 1]; a++, p++) {
+            String name = nameTable[attributeNames[a]];
+            String value = valueOffsets[a] < 0 ? null
+                : new String(chars, valueOffsets[a], valueLengths[a]);
+            HtmlDocument.Attribute attribute;
+            if (pool == null)
+                attribute = new HtmlDocument.Attribute(name, value);
+            else {
+                attribute = pool[p];
+                attribute.name = name;
+                attribute.setValue(value);
+            }
+            l.addAttribute(attribute);
+        }
+        return l;
+    }
+
+    /**
+     * The flyweights for one traversal.
+     */
+    private final class Cursor {
+        private Level[] levels = new Level[8];
+
+        Sequence sequence(int depth) {
+            return level(depth).sequence;
+        }
+
+        Level level(int depth) {
+            if (depth == levels.length) {
+                Level[] grown = new Level[depth * 2];
+                System.arraycopy(levels, 0, grown, 0, depth);
+                levels = grown;
+            }
+            if (levels[depth] == null)
+                levels[depth] = new Level(this, depth);
+            return levels[depth];
+        }
+    }
+
+    /**
+     * The flyweights for the elements at one depth of nesting.
+     */
+    private final class Level {
+        final Sequence sequence;
+        final HtmlDocument.Tag tag =
+            new HtmlDocument.Tag(null, new HtmlDocument.AttributeList());
+        final HtmlDocument.EndTag endTag = new HtmlDocument.EndTag(null);
+        final HtmlDocument.TagBlock block;
+        final HtmlDocument.Comment comment = new HtmlDocument.Comment(null);
+        final HtmlDocument.Text text = new HtmlDocument.Text(null);
+        final HtmlDocument.Newline newline = new HtmlDocument.Newline();
+        final HtmlDocument.Annotation annotation =
+            new HtmlDocument.Annotation(null, null);
+        HtmlDocument.Attribute[] tagAttributes = new HtmlDocument.Attribute[0];
+        HtmlDocument.Attribute[] blockAttributes = new HtmlDocument.Attribute[0];
+
+        Level(Cursor cursor, int depth) {
+            sequence = new Sequence(cursor, depth);
+            block = new HtmlDocument.TagBlock(null,
+                    new HtmlDocument.AttributeList(), new Sequence(cursor, depth + 1));
+        }
+
+        HtmlDocument.HtmlElement element(int i) {
+            switch (getKind(i)) {
+            case TAG:
+                tagAttributes = fill(tag, i, tagAttributes);
+                return tag;
+            case END_TAG:
+                endTag.tagName = nameTable[names[i]];
+                return endTag;
+            case TAG_BLOCK:
+                blockAttributes = fill(block.startTag, i, blockAttributes);
+                block.endTag.tagName = nameTable[offsets[i]];
+                Sequence body = (Sequence) block.body;
+                body.from = i + 1;
+                body.to = ends[i];
+                return block;
+            case COMMENT:
+                comment.comment = getText(i);
+                return comment;
+            case TEXT:
+                text.text = getText(i);
+                return text;
+            case NEWLINE:
+                if (lengths[i] == 0)
+                    return HtmlDocument.Newline.SHARED;
+                newline.setWhitespace(string(i));
+                return newline;
+            default:
+                annotation.type = nameTable[names[i]];
+                annotation.text = getText(i);
+                return annotation;
+            }
+        }
+
+        private HtmlDocument.Attribute[] fill(HtmlDocument.Tag t, int i,
+                                              HtmlDocument.Attribute[] pool) {
+            int n = firstAttributes[i + 1] - firstAttributes[i];
+            if (n > pool.length) {
+                HtmlDocument.Attribute[] grown = new HtmlDocument.Attribute[n];
+                System.arraycopy(pool, 0, grown, 0, pool.length);
+                for (int p = pool.length; p < n; p++)
+                    grown[p] = new HtmlDocument.Attribute(null);
+                pool = grown;
+            }
+            t.tagName = nameTable[names[i]];
+            t.emptyTag = (kinds[i] & EMPTY) != 0;
+            t.attributeList.clear();
+            attributes(i, t.attributeList, pool);
+            return pool;
+        }
+    }
+
+    /**
+     * The elements from..to-1 at one depth, as an ElementSequence.
+     * Elements fetched from it are flyweights, good until the next
+     * element of the same kind at the same depth is fetched.
+     */
+    private final class Sequence extends HtmlDocument.ElementSequence {
+        private final Cursor cursor;
+        private final int depth;
+        int from;
+        int to;
+
+        Sequence(Cursor cursor, int depth) {
+            super(0);
+            this.cursor = cursor;
+            this.depth = depth;
+        }
+
+        public int size() {
+            int n = 0;
+            for (int i = from; i < to; i = ends[i])
+                n++;
+            return n;
+        }
+
+        public HtmlDocument.HtmlElement get(int index) {
+            int i = from;
+            for (int n = index; n > 0 && i < to; n--)
+                i = ends[i];
+            if (index < 0 || i >= to)
+                throw new IndexOutOfBoundsException("Index: " + index);
+            return cursor.level(depth).element(i);
+        }
+
+        public Iterator iterator() {
+            final Level level = cursor.level(depth);
+            return new Iterator() {
+                private int next = from;
+                public boolean hasNext() {
+                    return next < to;
+                }
+                public Object next() {
+                    if (next >= to)
+                        throw new NoSuchElementException();
+                    int i = next;
+                    next = ends[i];
+                    return level.element(i);
+                }
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        public void addElement(HtmlDocument.HtmlElement o) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void setElements(List collection) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Appends each element visited to growing arrays.
+     */
+    private static final class Builder extends HtmlVisitor {
+        int count;
+        byte[] kinds = new byte[64];
+        int[] parents = new int[64];
+        int[] ends = new int[64];
+        int[] names = new int[64];
+        int[] offsets = new int[64];
+        int[] lengths = new int[64];
+        int[] firstAttributes = new int[65];
+        int attributeCount;
+        int[] attributeNames = new int[64];
+        int[] valueOffsets = new int[64];
+        int[] valueLengths = new int[64];
+        char[] chars = new char[1024];
+        int charCount;
+        Map nameIds = new HashMap();
+        List nameList = new ArrayList();
+        int parent = -1;
+        int length;
+
+        public void visit(HtmlDocument.Tag t) {
+            int i = add(TAG | (t.emptyTag ? EMPTY : 0));
+            names[i] = name(t.tagName);
+            attributes(t.attributeList);
+            length += t.getLength();
+        }
+
+        public void visit(HtmlDocument.EndTag t) {
+            int i = add(END_TAG);
+            names[i] = name(t.tagName);
+            length += t.getLength();
+        }
+
+        public void visit(HtmlDocument.TagBlock bl) {
+            int i = add(TAG_BLOCK | (bl.startTag.emptyTag ? EMPTY : 0));
+            names[i] = name(bl.startTag.tagName);
+            offsets[i] = name(bl.endTag.tagName);
+            attributes(bl.startTag.attributeList);
+            length += bl.startTag.getLength() + bl.endTag.getLength();
+            int enclosing = parent;
+            parent = i;
+            visit(bl.body);
+            parent = enclosing;
+            ends[i] = count;
+        }
+
+        public void visit(HtmlDocument.Comment c) {
+            text(add(COMMENT), c.comment);
+            length += c.getLength();
+        }
+
+        public void visit(HtmlDocument.Text t) {
+            text(add(TEXT), t.text);
+            length += t.getLength();
+        }
+
+        public void visit(HtmlDocument.Newline n) {
+            text(add(NEWLINE), n.getWhitespace());
+            length += n.getLength();
+        }
+
+        public void visit(HtmlDocument.Annotation a) {
+            int i = add(ANNOTATION);
+            names[i] = name(a.type);
+            text(i, a.text);
+            length += a.getLength();
+        }
+
+        private int add(int kind) {
+            if (count == kinds.length) {
+                int n = count * 2;
+                byte[] k = new byte[n];
+                System.arraycopy(kinds, 0, k, 0, count);
+                kinds = k;
+                parents = grow(parents, n);
+                ends = grow(ends, n);
+                names = grow(names, n);
+                offsets = grow(offsets, n);
+                lengths = grow(lengths, n);
+                firstAttributes = grow(firstAttributes, n + 1);
+            }
+            int i = count++;
+            kinds[i] = (byte) kind;
+            parents[i] = parent;
+            ends[i] = count;
+            firstAttributes[i] = attributeCount;
+            return i;
+        }
+
+        private void attributes(HtmlDocument.AttributeList l) {
+            int n = l.size();
+            if (attributeCount + n > attributeNames.length) {
+                int size = Math.max(attributeNames.length * 2, attributeCount + n);
+                attributeNames = grow(attributeNames, size);
+                valueOffsets = grow(valueOffsets, size);
+                valueLengths = grow(valueLengths, size);
+            }
+            for (int a = 0; a < n; a++) {
+                HtmlDocument.Attribute attribute = l.get(a);
+                attributeNames[attributeCount] = name(attribute.name);
+                if (attribute.hasValue) {
+                    valueOffsets[attributeCount] = chars(attribute.value);
+                    valueLengths[attributeCount] = attribute.value.length();
+                } else
+                    valueOffsets[attributeCount] = -1;
+                attributeCount++;
+            }
+        }
+
+        private void text(int i, String s) {
+            offsets[i] = chars(s);
+            lengths[i] = s.length();
+        }
+
+        /** Append s to the chars, returning where it starts. */
+        private int chars(String s) {
+            int n = s.length();
+            if (charCount + n > chars.length) {
+                char[] grown = new char[Math.max(chars.length * 2, charCount + n)];
+                System.arraycopy(chars, 0, grown, 0, charCount);
+                chars = grown;
+            }
+            s.getChars(0, n, chars, charCount);
+            charCount += n;
+            return charCount - n;
+        }
+
+        private int name(String s) {
+            Integer id = (Integer) nameIds.get(s);
+            if (id == null) {
+                id = new Integer(nameList.size());
+                nameIds.put(s, id);
+                nameList.add(s);
+            }
+            return id.intValue();
+        }
+
+        private static int[] grow(int[] a, int n) {
+            int[] b = new int[n];
+            System.arraycopy(a, 0, b, 0, a.length);
+            return b;
+        }
+    }
+}
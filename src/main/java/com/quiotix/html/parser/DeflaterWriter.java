@@ -0,0 +1,250 @@
+/*
+ * DeflaterWriter.java -- a Writer which compresses as it writes.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A Writer which encodes characters straight into a Deflater, and writes
+ * the compressed bytes to an output stream, in gzip or zlib ("deflate")
+ * format.  Given to HtmlDumper, HtmlFormatter and the rest, it formats
+ * and compresses in one pass, with no copy of the uncompressed output:
+ * <pre>
+ *   DeflaterWriter w = new DeflaterWriter(os, DeflaterWriter.GZIP, "UTF-8");
+ *   document.accept(new HtmlDumper(w));
+ *   w.finish();
+ * </pre>
+ * The characters, their encoding and the compressed bytes each go
+ * through one buffer, allocated once, and it does its own buffering, so
+ * needs no BufferedWriter.  flush() passes what has been written to the
+ * Deflater, but the Deflater may hold on to some of it until finish()
+ * or close(); the compressed stream is not complete until then.
+ *
+ * @see java.util.zip.GZIPOutputStream
+ */
+public class DeflaterWriter extends Writer {
+
+    /** The gzip format, as GZIPOutputStream writes. */
+    public static final int GZIP = 1;
+    /** The zlib format, as DeflaterOutputStream writes. */
+    public static final int DEFLATE = 2;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final OutputStream out;
+    private final int format;
+    private final CharsetEncoder encoder;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE * 2);
+    private final byte[] deflated = new byte[BUFFER_SIZE];
+    // The number of uncompressed bytes, for the gzip trailer
+    private long length;
+    private boolean finished;
+
+    /**
+     * Constructor, encoding characters in the platform's default encoding.
+     *
+     * @param format GZIP or DEFLATE
+     */
+    public DeflaterWriter(OutputStream os, int format) throws IOException {
+        this(os, format, System.getProperty("file.encoding"));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param format GZIP or DEFLATE
+     * @param encoding the name of the encoding to write characters in
+     */
+    public DeflaterWriter(OutputStream os, int format, String encoding)
+            throws IOException {
+        if (format != GZIP && format != DEFLATE)
+            throw new IllegalArgumentException("Unknown format " + format);
+        this.out = os;
+        this.format = format;
+        this.encoder = encoder(encoding);
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION,
+                format == GZIP);
+        if (format == GZIP)
+            writeHeader();
+    }
+
+    private static CharsetEncoder encoder(String encoding)
+            throws UnsupportedEncodingException {
+        try {
+            // Unencodable characters are replaced, as by OutputStreamWriter
+            return Charset.forName(encoding).newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        } catch (IllegalCharsetNameException e) {
+            throw new UnsupportedEncodingException(encoding);
+        } catch (UnsupportedCharsetException e) {
+            throw new UnsupportedEncodingException(encoding);
+        }
+    }
+
+    /**
+     * @param level the compression level, from 0 to 9, or
+     * Deflater.DEFAULT_COMPRESSION
+     */
+    public void setLevel(int level) {
+        deflater.setLevel(level);
+    }
+
+    public void write(int c) throws IOException {
+        ensureOpen();
+        if (!chars.hasRemaining())
+            encode(false);
+        chars.put((char) c);
+    }
+
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (!chars.hasRemaining())
+                encode(false);
+            int n = Math.min(len, chars.remaining());
+            chars.put(cbuf, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    public void write(String str, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (!chars.hasRemaining())
+                encode(false);
+            int n = Math.min(len, chars.remaining());
+            chars.put(str, off, off + n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Pass what has been written on to the Deflater, and flush the
+     * output stream.
+     */
+    public void flush() throws IOException {
+        if (finished)
+            return;
+        encode(false);
+        out.flush();
+    }
+
+    /**
+     * Complete the compressed stream, without closing the output stream.
+     * Nothing more may be written.
+     */
+    public void finish() throws IOException {
+        if (finished)
+            return;
+        encode(true);
+        deflater.finish();
+        while (!deflater.finished())
+            deflate();
+        if (format == GZIP) {
+            writeInt((int) crc.getValue());
+            writeInt((int) length);
+        }
+        deflater.end();
+        finished = true;
+        out.flush();
+    }
+
+    /** Complete the compressed stream, and close the output stream. */
+    public void close() throws IOException {
+        finish();
+        out.close();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished)
+            throw new IOException("Stream finished");
+    }
+
+    /**
+     * Encode the characters buffered, and deflate the bytes.  A high
+     * surrogate at the end is kept back until its low surrogate comes.
+     */
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        for (;;) {
+            CoderResult r = encoder.encode(chars, bytes, endOfInput);
+            if (r.isOverflow())
+                compress();
+            else if (r.isUnderflow())
+                break;
+            else
+                r.throwException();
+        }
+        if (endOfInput)
+            while (encoder.flush(bytes).isOverflow())
+                compress();
+        compress();
+        chars.compact();
+    }
+
+    /** Give the encoded bytes to the Deflater, and write what it gives back. */
+    private void compress() throws IOException {
+        int n = bytes.position();
+        if (n == 0)
+            return;
+        if (format == GZIP)
+            crc.update(bytes.array(), 0, n);
+        length += n;
+        deflater.setInput(bytes.array(), 0, n);
+        while (!deflater.needsInput())
+            deflate();
+        bytes.clear();
+    }
+
+    private void deflate() throws IOException {
+        int n = deflater.deflate(deflated, 0, deflated.length);
+        if (n > 0)
+            out.write(deflated, 0, n);
+    }
+
+    private void writeHeader() throws IOException {
+        // Magic number, deflate method, no flags, no time, no extra flags,
+        // and an unknown operating system
+        out.write(new byte[] {
+            (byte) 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff });
+    }
+
+    /** Write an int in the little endian order gzip uses. */
+    private void writeInt(int i) throws IOException {
+        out.write(i & 0xff);
+        out.write((i >>> 8) & 0xff);
+        out.write((i >>> 16) & 0xff);
+        out.write((i >>> 24) & 0xff);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * ElementIndex.java -- looks up a document's elements by name, id and class.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The indexes behind HtmlDocument's getElementsByTagName, getElementById
+ * and getElementsByClassName, built by a single traversal of the document.
+ * As with HtmlQuery, a collected block is indexed as its TagBlock and any
+ * other start tag as its Tag.
+ */
+final class ElementIndex extends HtmlVisitor {
+
+    /** Upper cased tag name to List of elements. */
+    final Map byTagName = new HashMap();
+    /** Id to the first element with that id. */
+    final Map byId = new HashMap();
+    /** Class name to List of elements. */
+    final Map byClassName = new HashMap();
+
+    ElementIndex(HtmlDocument document) {
+        visit(document.elements);
+    }
+
+    public void visit(HtmlDocument.Tag t) {
+        add(t, t);
+    }
+
+    public void visit(HtmlDocument.TagBlock bl) {
+        add(bl.startTag, bl);
+        visit(bl.body);
+    }
+
+    private void add(HtmlDocument.Tag t, HtmlDocument.HtmlElement e) {
+        add(byTagName, t.tagName.toUpperCase(), e);
+        String id = t.getAttributeValue("id");
+        if (id != null) {
+            id = HtmlEntities.decode(id);
+            if (!byId.containsKey(id))
+                byId.put(id, e);
+        }
+        String classes = t.getAttributeValue("class");
+        if (classes != null) {
+            classes = HtmlEntities.decode(classes);
+            int i = 0, n = classes.length();
+            while (i < n) {
+                while (i < n && HtmlSelector.isSpace(classes.charAt(i)))
+                    i++;
+                int start = i;
+                while (i < n && !HtmlSelector.isSpace(classes.charAt(i)))
+                    i++;
+                if (i > start) {
+                    List list = add(byClassName, classes.substring(start, i), e);
+                    // class="a a" lists the element once
+                    if (list.size() > 1 && list.get(list.size() - 2) == e)
+                        list.remove(list.size() - 1);
+                }
+            }
+        }
+    }
+
+    private static List add(Map map, String key, HtmlDocument.HtmlElement e) {
+        List list = (List) map.get(key);
+        if (list == null) {
+            list = new ArrayList(4);
+            map.put(key, list);
+        }
+        list.add(e);
+        return list;
+    }
+}
@@ -28,6 +28,14 @@ import java.util.Vector;
  * elements.  Typically, an HtmlDocument is created by the parser, which
  * simply returns a flat list of elements.  The HtmlCollector takes this
  * flat list and gives it the structure that is implied by the HTML content.
+ * <p>
+ * A linking collector also points each element back at the sequence 
+ * containing it, and each block body at its TagBlock, so that 
+ * HtmlElement.getParent(), nextSibling() and previousSibling() 
+ * take constant time.  The links cost two fields on every element
+ * whether they are used or not; setting them costs one more pass over
+ * each sequence as it is finished.
+ * </p>
  *
  * @author Brian Goetz, Quiotix
  */
@@ -37,6 +45,8 @@ public class HtmlCollector extends HtmlVisitor {
     protected ElementStack tagStack = new ElementStack();
     protected ElementStack elements;
     protected boolean collected;
+    protected boolean linking;
+    protected int maxDepth = ParseLimits.UNLIMITED;
     protected static Set dontMatch = new HashSet();
     protected static String[] dontMatchStrings
     = {"AREA", "BASE", "BASEFONT", "BR", "COL", "HR", "IMG", "INPUT",
@@ -68,11 +78,60 @@ public class HtmlCollector extends HtmlVisitor {
         }
     }
 
+    /** 
+     * Create an HtmlCollector which does not link elements to their 
+     * containers.
+     */
+    public HtmlCollector() {
+        this(false);
+    }
+
+    /**
+     * @param linking whether to link elements to their containers
+     * @see HtmlDocument.HtmlElement#getParent()
+     */
+    public HtmlCollector(boolean linking) {
+        this.linking = linking;
+    }
+
+    /**
+     * Nest tag blocks no deeper than the limits' maximum depth.  A start
+     * tag which would go deeper is left unmatched, as an empty tag is,
+     * so the document never gets too deep for visitors to recurse into.
+     * @see ParseLimits#getMaxDepth()
+     */
+    public void setLimits(ParseLimits limits) {
+        maxDepth = limits.getMaxDepth();
+    }
+
+    /** 
+     * Point each element of s at s, and s at its owner.  The shared 
+     * Newline cannot point anywhere, so is replaced by one of its own.
+     */
+    protected void link(HtmlDocument.ElementSequence s, 
+                        HtmlDocument.TagBlock owner) {
+        s.owner = owner;
+        for (int i = 0; i < s.size(); i++) {
+            HtmlDocument.HtmlElement e = s.get(i);
+            if (e == HtmlDocument.Newline.SHARED) {
+                e = new HtmlDocument.Newline("", true);
+                s.set(i, e);
+            }
+            e.container = s;
+            e.index = i;
+        }
+    }
+
     protected int pushNode(HtmlDocument.HtmlElement e) {
         elements.addElement(e);
         return elements.size() - 1;
     }
 
+    public void visit(HtmlDocument d) {
+        d.invalidateIndex();
+        super.visit(d);
+    }
+
     public void visit(HtmlDocument.Comment c) {
         pushNode(c);
     }
@@ -93,7 +152,8 @@ public class HtmlCollector extends HtmlVisitor {
         // stack if it's a tag we care about matching
         index = pushNode(t);
         if (!t.emptyTag
-                && !dontMatch.contains(t.tagName.toUpperCase())) {
+                && !dontMatch.contains(t.tagName.toUpperCase())
+                && tagStack.size() < maxDepth) {
             ts.tagName = t.tagName;
             ts.index = index;
             tagStack.addElement(ts);
@@ -108,6 +168,7 @@ public class HtmlCollector extends HtmlVisitor {
                 HtmlDocument.TagBlock block;
                 HtmlDocument.ElementSequence blockElements;
                 HtmlDocument.Tag tag;
+                HtmlDocument.EndTag end;
 
                 // Create a new ElementSequence and copy the elements to it
                 blockElements =
@@ -116,8 +177,15 @@ public class HtmlCollector extends HtmlVisitor {
                     blockElements.addElement((HtmlDocument.HtmlElement)
                             elements.elementAt(j));
                 tag = (HtmlDocument.Tag) elements.elementAt(ts.index);
-                block = new HtmlDocument.TagBlock(tag.tagName,
-                        tag.attributeList, blockElements);
+                // The block ends with the start tag's name, whatever the 
+                // case of the end tag, but covers the end tag's text
+                end = t.tagName.equals(tag.tagName) 
+                    ? t : new HtmlDocument.EndTag(tag.tagName);
+                block = new HtmlDocument.TagBlock(tag, blockElements, end);
+                if (end != t && tag.beginOffset >= 0 && t.endOffset >= 0)
+                    block.setOffsets(tag.beginOffset, t.endOffset);
+                if (linking)
+                    link(blockElements, block);
 
                 // Pop the elements off the stack, push the new block
                 elements.popN(elements.size() - ts.index);
@@ -137,11 +205,15 @@ public class HtmlCollector extends HtmlVisitor {
     }
 
     public void visit(HtmlDocument.TagBlock bl) {
-        HtmlCollector c = new HtmlCollector();
+        HtmlCollector c = new HtmlCollector(linking);
 
+        // The block is one deeper than the tags open around it
+        c.maxDepth = Math.max(0, maxDepth - tagStack.size() - 1);
         c.start();
         c.visit(bl.body);
         c.finish();
+        if (linking)
+            bl.body.owner = bl;
         pushNode(bl);
     }
 
@@ -155,6 +227,8 @@ public class HtmlCollector extends HtmlVisitor {
         }
         if (collected)
             s.setElements(elements);
+        if (linking)
+            link(s, null);
     }
 
     /**
@@ -15,9 +15,15 @@
 
 package com.quiotix.html.parser;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents an HTML document as a sequence of elements.  The defined
@@ -31,8 +37,10 @@ import java.util.List;
  * @see com.quiotix.html.parser.HtmlVisitor
  */
 
-public class HtmlDocument implements Visitable {
+public class HtmlDocument implements Visitable, Sized {
     ElementSequence elements;
+    String encoding;
+    private ElementIndex index;
 
     /** Constructor. */
     public HtmlDocument(ElementSequence s) {
@@ -43,14 +51,113 @@ public class HtmlDocument implements Visitable {
         v.visit(this);
     }
 
-    private static String dequote(String s) {
-        if (s == null)
-            return "";
-        if ((s.startsWith("\"") && s.endsWith("\"")) || 
-            (s.startsWith("'") && s.endsWith("'")))
-            return s.substring(1, s.length()-1);
-        else
-            return s;
+    /**
+     * @return the length of the document's text, as HtmlDumper would 
+     * write it
+     */
+    public int getLength() {
+        int length = 0;
+        for (Iterator it = elements.iterator(); it.hasNext();)
+            length += ((HtmlElement) it.next()).getLength();
+        return length;
+    }
+
+    /**
+     * @return the character encoding the document was decoded with, 
+     * if known, or null
+     * @see HtmlReader
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * @param encoding the character encoding the document was decoded with
+     */
+    public void setEncoding(String encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * Write the document in a compact binary form, which readFrom() 
+     * turns back into a document much faster than it could be parsed.
+     * The structure is kept as it is, collected or not; links made by 
+     * a linking HtmlCollector are not.
+     * 
+     * @param out the stream to write to, which is not flushed
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        HtmlDocumentCodec.write(this, out);
+    }
+
+    /**
+     * Read a document written by writeTo(), leaving the buffer 
+     * positioned after it.
+     * 
+     * @param in a buffer positioned at the start of the document
+     * @return the document read
+     * @throws IllegalArgumentException if the buffer does not hold 
+     * a document in a form this version understands
+     * @throws java.nio.BufferUnderflowException if it is cut short
+     */
+    public static HtmlDocument readFrom(ByteBuffer in) {
+        return HtmlDocumentCodec.read(in);
+    }
+
+    /**
+     * The elements with the given tag name, in document order.  
+     * A block collected by HtmlCollector is returned as its TagBlock, 
+     * any other start tag as its Tag.
+     * <p>
+     * This and the other lookups share indexes which are built by one 
+     * traversal on first use, and kept until invalidateIndex() is called.
+     * </p>
+     * 
+     * @param name the tag name, in any case
+     * @return an unmodifiable List of HtmlElements, empty if none match
+     */
+    public List getElementsByTagName(String name) {
+        return lookup(index().byTagName, name.toUpperCase());
+    }
+
+    /**
+     * @param id the value of an id attribute
+     * @return the first element with the given id, or null
+     * @see #getElementsByTagName(String)
+     */
+    public HtmlElement getElementById(String id) {
+        return (HtmlElement) index().byId.get(id);
+    }
+
+    /**
+     * @param className one of the space separated names in a class attribute
+     * @return an unmodifiable List of the elements in that class
+     * @see #getElementsByTagName(String)
+     */
+    public List getElementsByClassName(String className) {
+        return lookup(index().byClassName, className);
+    }
+
+    /**
+     * Discard the element indexes, which will be rebuilt when next needed.
+     * Visitors which restructure or rename elements, such as 
+     * HtmlCollector and HtmlScrubber, call this for you; code which 
+     * alters the tree directly should call it itself.
+     */
+    public void invalidateIndex() {
+        index = null;
+    }
+
+    private ElementIndex index() {
+        if (index == null)
+            index = new ElementIndex(this);
+        return index;
+    }
+
+    private static List lookup(Map map, String key) {
+        List list = (List) map.get(key);
+        return list == null 
+            ? Collections.EMPTY_LIST : Collections.unmodifiableList(list);
     }
 
     // The various elements of the HtmlDocument (Tag, EndTag, etc) are included
@@ -66,7 +173,101 @@ public class HtmlDocument implements Visitable {
      * Abstract class for HTML elements.  Enforces support for Visitors.
      */
     public static abstract class HtmlElement implements Visitable, Sized {
+        // Links back into the tree, set by a linking HtmlCollector
+        ElementSequence container;
+        int index;
+        // Where in the parser's input the element came from
+        int beginOffset = -1;
+        int endOffset = -1;
+        // Whether the element has been changed through its setters
+        boolean dirty;
+
         public abstract void accept(HtmlVisitor v);
+
+        /**
+         * @return the offset in the parser's input of the first character 
+         * the element was parsed from, or -1 if it was not parsed
+         */
+        public int getBeginOffset() {
+            return beginOffset;
+        }
+
+        /**
+         * @return the offset in the parser's input just past the last 
+         * character the element was parsed from, or -1 if it was not parsed
+         */
+        public int getEndOffset() {
+            return endOffset;
+        }
+
+        /**
+         * Record where in the parser's input the element came from.  The
+         * element is taken to match that input, so is no longer dirty.
+         */
+        public void setOffsets(int begin, int end) {
+            beginOffset = begin;
+            endOffset = end;
+            setDirty(false);
+        }
+
+        /**
+         * @return whether the element has been changed since it was 
+         * parsed.  Changes made through setters are noticed; changes made 
+         * directly to public fields are not, unless setDirty() is called.
+         * @see PatchingDumper
+         */
+        public boolean isDirty() {
+            return dirty;
+        }
+
+        /**
+         * Mark the element as changed, or as matching its source again.
+         */
+        public void setDirty(boolean dirty) {
+            this.dirty = dirty;
+        }
+
+        /** Move the element's offsets, and any within it, by delta. */
+        void moveOffsets(int delta) {
+            if (beginOffset >= 0) {
+                beginOffset += delta;
+                endOffset += delta;
+            }
+        }
+
+        /**
+         * @return the TagBlock whose body contains this element, 
+         * or null if it is at the top level or the tree is not linked
+         * @see HtmlCollector#HtmlCollector(boolean)
+         */
+        public TagBlock getParent() {
+            return isLinked() ? container.owner : null;
+        }
+
+        /**
+         * @return the element after this one in its ElementSequence, 
+         * or null if it is the last or the tree is not linked
+         * @see HtmlCollector#HtmlCollector(boolean)
+         */
+        public HtmlElement nextSibling() {
+            return isLinked() && index + 1 < container.size() 
+                ? container.get(index + 1) : null;
+        }
+
+        /**
+         * @return the element before this one in its ElementSequence, 
+         * or null if it is the first or the tree is not linked
+         * @see HtmlCollector#HtmlCollector(boolean)
+         */
+        public HtmlElement previousSibling() {
+            return isLinked() && index > 0 ? container.get(index - 1) : null;
+        }
+
+        /** Links which a later change to the tree has outdated are ignored. */
+        private boolean isLinked() {
+            return container != null && index < container.size() 
+                && container.get(index) == this;
+        }
     }
 
     /**
@@ -92,9 +293,31 @@ public class HtmlDocument implements Visitable {
 
         /** Set Tag type to Empty. */
         public void setEmpty(boolean b) {
+            if (emptyTag != b)
+                dirty = true;
             emptyTag = b;
         }
 
+        /** Set the name of the tag. */
+        public void setTagName(String name) {
+            if (!name.equals(tagName))
+                dirty = true;
+            tagName = name;
+        }
+
+        /** 
+         * @return whether the tag or any of its attributes has been changed
+         */
+        public boolean isDirty() {
+            return dirty || attributeList.isDirty();
+        }
+
+        /** Mark the tag and its attributes as changed or unchanged. */
+        public void setDirty(boolean dirty) {
+            this.dirty = dirty;
+            attributeList.setDirty(dirty);
+        }
+
         public void accept(HtmlVisitor v) {
             v.visit(this);
         }
@@ -121,10 +344,8 @@ public class HtmlDocument implements Visitable {
 
         public int getLength() {
             int length = 0;
-            for (Iterator iterator = attributeList.attributes.iterator(); iterator.hasNext();) {
-                Attribute attribute = (Attribute) iterator.next();
-                length += 1 + (attribute.getLength());
-            }
+            for (int i = 0; i < attributeList.size(); i++)
+                length += 1 + attributeList.get(i).getLength();
             return length + tagName.length() + 2 + (emptyTag ? 1 : 0);
         }
 
@@ -132,10 +353,9 @@ public class HtmlDocument implements Visitable {
             StringBuffer s = new StringBuffer();
             s.append("<");
             s.append(tagName);
-            for (Iterator iterator = attributeList.attributes.iterator(); iterator.hasNext();) {
-                Attribute attribute = (Attribute) iterator.next();
+            for (int i = 0; i < attributeList.size(); i++) {
                 s.append(" ");
-                s.append(attribute.toString());
+                s.append(attributeList.get(i).toString());
             }
             if (emptyTag) s.append("/");
             s.append(">");
@@ -156,6 +376,13 @@ public class HtmlDocument implements Visitable {
             tagName = t;
         }
 
+        /** Set the name of the tag. */
+        public void setTagName(String name) {
+            if (!name.equals(tagName))
+                dirty = true;
+            tagName = name;
+        }
+
         public void accept(HtmlVisitor v) {
             v.visit(this);
         }
@@ -188,10 +415,31 @@ public class HtmlDocument implements Visitable {
             body = b;
         }
 
+        /** 
+         * Constructor, keeping the tags themselves.  The block is located 
+         * from the start of the one to the end of the other, if they were 
+         * both parsed.
+         */
+        public TagBlock(Tag start, ElementSequence b, EndTag end) {
+            startTag = start;
+            endTag = end;
+            body = b;
+            if (start.beginOffset >= 0 && end.endOffset >= 0)
+                setOffsets(start.beginOffset, end.endOffset);
+        }
+
         public void accept(HtmlVisitor v) {
             v.visit(this);
         }
         
+        void moveOffsets(int delta) {
+            super.moveOffsets(delta);
+            startTag.moveOffsets(delta);
+            endTag.moveOffsets(delta);
+            for (int i = 0; i < body.size(); i++)
+                body.get(i).moveOffsets(delta);
+        }
+
         public int getLength() { 
             int bodyLength = 0;
             for (Iterator iterator = body.iterator(); iterator.hasNext();) {
@@ -242,6 +490,13 @@ public class HtmlDocument implements Visitable {
             comment = c;
         }
 
+        /** Set the text of the comment, between the angle brackets. */
+        public void setComment(String c) {
+            if (!c.equals(comment))
+                dirty = true;
+            comment = c;
+        }
+
         public void accept(HtmlVisitor v) {
             v.visit(this);
         }
@@ -262,11 +517,83 @@ public class HtmlDocument implements Visitable {
         /** The text. */
         public String text;
 
+        private String decoded;
+        private String decodedFrom;
+        private ElementSequence lines;
+        private String linesFrom;
+
         /** Constructor. */
         public Text(String t) {
             text = t;
         }
 
+        /** Set the text. */
+        public void setText(String t) {
+            if (!t.equals(text))
+                dirty = true;
+            text = t;
+        }
+
+        /**
+         * The text with its character references decoded.  The result is 
+         * kept for as long as the text is not changed, and is the text 
+         * itself if it contains no references.
+         * 
+         * @return the decoded text
+         * @see HtmlEntities#decode(String)
+         */
+        public String decoded() {
+            if (text != decodedFrom) {
+                decoded = HtmlEntities.decode(text);
+                decodedFrom = text;
+            }
+            return decoded;
+        }
+
+        /**
+         * The text split at its line ends, as the parser splits other 
+         * text: a Text for each line, located if this is, and the shared
+         * Newline for each line end.  The parser gives the contents of a 
+         * script, style, textarea, title or xmp block as one Text, 
+         * however many lines it runs to, and leaves those who care about 
+         * lines to ask for them.  The result is kept for as long as the 
+         * text is not changed.
+         * 
+         * @return the lines, or null if the text has no line ends
+         */
+        public ElementSequence lines() {
+            if (text != linesFrom) {
+                lines = null;
+                linesFrom = text;
+                int start = 0;
+                for (int i = 0; i < text.length(); i++) {
+                    char c = text.charAt(i);
+                    if (c != '\n' && c != '\r')
+                        continue;
+                    if (lines == null)
+                        lines = new ElementSequence();
+                    addLine(start, i);
+                    lines.addElement(Newline.SHARED);
+                    if (c == '\r' && i + 1 < text.length()
+                            && text.charAt(i + 1) == '\n')
+                        i++;
+                    start = i + 1;
+                }
+                if (lines != null)
+                    addLine(start, text.length());
+            }
+            return lines;
+        }
+
+        private void addLine(int start, int end) {
+            if (start == end)
+                return;
+            Text line = new Text(text.substring(start, end));
+            if (beginOffset >= 0 && !dirty)
+                line.setOffsets(beginOffset + start, beginOffset + end);
+            lines.addElement(line);
+        }
+
         public void accept(HtmlVisitor v) {
             v.visit(this);
         }
@@ -287,16 +614,89 @@ public class HtmlDocument implements Visitable {
         /** The system specific newline String. */
         public static final String NL = System.getProperty("line.separator");
 
+        /** 
+         * A Newline with no whitespace before it.  Being shared it has no
+         * links to its container; the parser uses it for every line end 
+         * not preceded by spaces or tabs, and a linking HtmlCollector 
+         * gives each of those a Newline of its own.
+         */
+        public static final Newline SHARED = new Newline("", true);
+
+        private String whitespace;
+        // Whether this stands for a bare line end the parser read, which 
+        // is located only by the elements either side of it
+        final boolean bare;
+
+        /** Constructor. */
+        public Newline() {
+            this("");
+        }
+
+        /** 
+         * @param whitespace the spaces and tabs before the line end 
+         */
+        public Newline(String whitespace) {
+            this(whitespace, false);
+        }
+
+        Newline(String whitespace, boolean bare) {
+            this.whitespace = whitespace;
+            this.bare = bare;
+        }
+
         public void accept(HtmlVisitor v) {
             v.visit(this);
         }
 
+        /**
+         * @return the spaces and tabs before the line end, perhaps empty
+         */
+        public String getWhitespace() {
+            return whitespace;
+        }
+
+        /**
+         * @param whitespace the spaces and tabs to go before the line end
+         * @throws UnsupportedOperationException if this is the SHARED 
+         * Newline and the whitespace is not empty
+         */
+        public void setWhitespace(String whitespace) {
+            if (this == SHARED && whitespace.length() > 0)
+                throw new UnsupportedOperationException(
+                        "The shared Newline has no whitespace");
+            if (!whitespace.equals(this.whitespace))
+                dirty = true;
+            this.whitespace = whitespace;
+        }
+
+        /**
+         * @throws UnsupportedOperationException if this is the SHARED 
+         * Newline, which is not from any one place
+         */
+        public void setOffsets(int begin, int end) {
+            if (this == SHARED)
+                throw new UnsupportedOperationException(
+                        "The shared Newline has no offsets");
+            super.setOffsets(begin, end);
+        }
+
+        /**
+         * @throws UnsupportedOperationException if this is the SHARED 
+         * Newline, which is in every document, and dirty is true
+         */
+        public void setDirty(boolean dirty) {
+            if (this == SHARED && dirty)
+                throw new UnsupportedOperationException(
+                        "The shared Newline cannot be changed");
+            super.setDirty(dirty);
+        }
+
         public int getLength() {
-            return NL.length();
+            return whitespace.length() + NL.length();
         }
 
         public String toString() {
-            return NL;
+            return whitespace + NL;
         }
     }
 
@@ -305,6 +705,8 @@ public class HtmlDocument implements Visitable {
      */
     public static class ElementSequence {
         private List elements;
+        // The TagBlock this is the body of, set by a linking HtmlCollector
+        TagBlock owner;
 
         /** Constructor. */
         public ElementSequence(int n) {
@@ -321,6 +723,11 @@ public class HtmlDocument implements Visitable {
             elements.add(o);
         }
 
+        /** Replace the element at position i. */
+        void set(int i, HtmlElement o) {
+            elements.set(i, o);
+        }
+
         /**
          * @return the number of elements in this list.
          */
@@ -328,6 +735,22 @@ public class HtmlDocument implements Visitable {
             return elements.size();
         }
 
+        /**
+         * @return the element at position i
+         */
+        public HtmlElement get(int i) {
+            return (HtmlElement) elements.get(i);
+        }
+
+        /**
+         * @return the TagBlock this is the body of, or null if it is 
+         * the top level of the document or the tree is not linked
+         * @see HtmlCollector#HtmlCollector(boolean)
+         */
+        public TagBlock getOwner() {
+            return owner;
+        }
+
         /**
          * @return an iterator over the elements in this list in proper sequence.
          */
@@ -335,6 +758,17 @@ public class HtmlDocument implements Visitable {
             return elements.iterator();
         }
 
+        /**
+         * Replace the elements from position <code>from</code> up to, 
+         * but not including, <code>to</code> with the elements of 
+         * another sequence.
+         */
+        public void replace(int from, int to, ElementSequence with) {
+            List range = elements.subList(from, to);
+            range.clear();
+            range.addAll(with.elements);
+        }
+
         /**
          * Clear current elements and replace with given Collection.
          * 
@@ -364,6 +798,16 @@ public class HtmlDocument implements Visitable {
             this.text = text;
         }
 
+        /** @return what sort of annotation this is */
+        public String getType() {
+            return type;
+        }
+
+        /** @return what the annotation says */
+        public String getText() {
+            return text;
+        }
+
         public void accept(HtmlVisitor v) {
             v.visit(this);
         }
@@ -381,13 +825,28 @@ public class HtmlDocument implements Visitable {
      * A Tag Attribute.
      */
     public static class Attribute implements Sized {
-        /** The name of this Attribute. */
+        /** 
+         * The name of this Attribute.  Once the Attribute is in a list, 
+         * rename it with setName(), so that the list's index follows.
+         */
         public String name;
         /** The value of this Attribute, including any surrounding quotes. */
         public String value;
         /** Whether the Attribute has a value. */
         public boolean hasValue;
 
+        // The dequoted value and quote character are worked out once, 
+        // and stay good for as long as value is the String they came from. 
+        private String unquoted = "";
+        private char quote;
+        private String analysed;
+        private String decoded;
+        private String decodedFrom;
+        private boolean dirty;
+        // The list the attribute was last put into, whose index setName()
+        // discards
+        private AttributeList owner;
+
         /** Constructor. */
         public Attribute(String n) {
             name = n;
@@ -421,13 +880,97 @@ public class HtmlDocument implements Visitable {
          * @return the value with quotes removed
          */
         public String getValue() { 
-            return dequote(value);
+            if (value != analysed)
+                analyse();
+            return unquoted;
+        }
+
+        /**
+         * @return the value with quotes removed and character 
+         * references decoded
+         * @see HtmlEntities#decode(String)
+         */
+        public String getDecodedValue() {
+            String v = getValue();
+            if (v != decodedFrom) {
+                decoded = HtmlEntities.decode(v);
+                decodedFrom = v;
+            }
+            return decoded;
+        }
+
+        /**
+         * @return the character the value is quoted with, 
+         * or 0 if it is not quoted
+         */
+        public char getQuote() {
+            if (value != analysed)
+                analyse();
+            return quote;
+        }
+
+        /**
+         * Change the quotes around the value, keeping its content.  
+         * Removing quotes reuses the already dequoted value.
+         * 
+         * @param q the quote character to use, or 0 for none
+         */
+        public void setQuote(char q) {
+            if (!hasValue || getQuote() == q)
+                return;
+            value = (q == 0 ? unquoted : q + unquoted + q);
+            quote = q;
+            analysed = value;
+            dirty = true;
+        }
+
+        /** 
+         * Set the name, discarding the name index of the list the 
+         * attribute was last put into.
+         * @see AttributeList#invalidateIndex()
+         */
+        public void setName(String n) {
+            if (!n.equals(name)) {
+                dirty = true;
+                if (owner != null)
+                    owner.index = null;
+            }
+            name = n;
+        }
+
+        /**
+         * @return whether the attribute has been changed through its setters
+         */
+        public boolean isDirty() {
+            return dirty;
+        }
+
+        /** Mark the attribute as changed or unchanged. */
+        public void setDirty(boolean dirty) {
+            this.dirty = dirty;
+        }
+
+        private void analyse() {
+            String v = value;
+            analysed = v;
+            if (v != null && v.length() >= 2) {
+                char c = v.charAt(0);
+                if ((c == '"' || c == '\'') && v.charAt(v.length() - 1) == c) {
+                    quote = c;
+                    unquoted = v.substring(1, v.length() - 1);
+                    return;
+                }
+            }
+            quote = 0;
+            unquoted = (v == null ? "" : v);
         }
         
         /**
          * @param v the value to set, may be null
          */
         public void setValue(String v) {
+            if (v == null ? hasValue : !v.equals(value))
+                dirty = true;
             value = v;
             if (v == null)  
                 hasValue = false;
@@ -438,24 +981,70 @@ public class HtmlDocument implements Visitable {
 
     /**
      * A List of Attributes.
+     * <p>
+     * The attributes are held in an array sized for the common case of a
+     * handful of attributes; tags with none share a single empty array.
+     * Once a list grows beyond INDEX_THRESHOLD attributes, lookups by name
+     * go through a case-insensitive hash index, built on the first lookup
+     * after the list was last changed.  Attribute.setName() discards the
+     * index; if the name field of an attribute in the list is assigned
+     * directly, other than only to change its case, call 
+     * invalidateIndex().
+     * </p>
      */
     public static class AttributeList {
-        /** The backing List. */
-        public List attributes = new ArrayList();
+        /** Backing array shared by all lists which have no attributes. */
+        private static final Attribute[] NO_ATTRIBUTES = new Attribute[0];
+        /** Lists with more attributes than this are looked up by hash. */
+        static final int INDEX_THRESHOLD = 8;
+
+        private Attribute[] items = NO_ATTRIBUTES;
+        private int count;
+        /** Open addressed table of position + 1, or null if not built. */
+        private int[] index;
+        /** Whether attributes have been added, removed or replaced. */
+        private boolean dirty;
+
+        /** 
+         * The attributes as a List.  This is a view of the list's own 
+         * storage, so changes made through it are reflected in lookups;
+         * it cannot be replaced with another List.
+         */
+        public final List attributes = new AttributeView();
 
         /** Add. */
         public void addAttribute(Attribute a) {
-            attributes.add(a);
+            insert(count, a);
+        }
+
+        /**
+         * @return the number of attributes
+         */
+        public int size() {
+            return count;
+        }
+
+        /**
+         * @return the Attribute at position i
+         */
+        public Attribute get(int i) {
+            if (i >= count)
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + count);
+            return items[i];
+        }
+
+        /**
+         * @param name the name of the Attribute, in any case
+         * @return the first Attribute with the given name, or null
+         */
+        public Attribute getAttribute(String name) {
+            int i = indexOf(name);
+            return i < 0 ? null : items[i];
         }
 
         /** Whether the List contains an Attribute with the given name. */
         public boolean contains(String name) {
-            for (Iterator iterator = attributes.iterator(); iterator.hasNext();) {
-                Attribute attribute = (Attribute) iterator.next();
-                if (attribute.name.equalsIgnoreCase(name))
-                    return true;
-            }
-            return false;
+            return indexOf(name) >= 0;
         }
 
         /** 
@@ -463,12 +1052,7 @@ public class HtmlDocument implements Visitable {
          * and that Attribute has a non-null value. 
          */
         public boolean hasValue(String name) {
-            for (Iterator iterator = attributes.iterator(); iterator.hasNext();) {
-                Attribute attribute = (Attribute) iterator.next();
-                if (attribute.name.equalsIgnoreCase(name) && attribute.hasValue)
-                    return true;
-            }
-            return false;
+            return indexOfValued(name) >= 0;
         }
 
         /**
@@ -476,12 +1060,160 @@ public class HtmlDocument implements Visitable {
          * @return the value of the Attribute with the given name or null
          */
         public String getValue(String name) {
-            for (Iterator iterator = attributes.iterator(); iterator.hasNext();) {
-                Attribute attribute = (Attribute) iterator.next();
-                if (attribute.name.equalsIgnoreCase(name) && attribute.hasValue)
-                    return dequote(attribute.value);
+            int i = indexOfValued(name);
+            return i < 0 ? null : items[i].getValue();
+        }
+
+        /**
+         * @return whether attributes have been added, removed or replaced,
+         * or any of them changed
+         */
+        public boolean isDirty() {
+            for (int i = 0; !dirty && i < count; i++)
+                if (items[i].dirty)
+                    return true;
+            return dirty;
+        }
+
+        /** Mark the list and its attributes as changed or unchanged. */
+        public void setDirty(boolean dirty) {
+            this.dirty = dirty;
+            for (int i = 0; i < count; i++)
+                items[i].dirty = dirty;
+        }
+
+        /**
+         * Discard the name index; it will be rebuilt when next needed.
+         */
+        public void invalidateIndex() {
+            index = null;
+        }
+
+        /** Remove all the attributes, keeping the storage for reuse. */
+        void clear() {
+            for (int i = 0; i < count; i++)
+                items[i] = null;
+            count = 0;
+            index = null;
+        }
+
+        private int indexOfValued(String name) {
+            int i = indexOf(name);
+            if (i < 0 || items[i].hasValue)
+                return i;
+            // A repeated attribute, the first of which has no value
+            for (i++; i < count; i++)
+                if (items[i].hasValue && items[i].name.equalsIgnoreCase(name))
+                    return i;
+            return -1;
+        }
+
+        private int indexOf(String name) {
+            if (count <= INDEX_THRESHOLD) {
+                for (int i = 0; i < count; i++)
+                    if (items[i].name.equalsIgnoreCase(name))
+                        return i;
+                return -1;
+            }
+            if (index == null)
+                buildIndex();
+            int mask = index.length - 1;
+            for (int slot = hash(name) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+                int i = index[slot] - 1;
+                if (items[i].name.equalsIgnoreCase(name))
+                    return i;
+            }
+            return -1;
+        }
+
+        private void buildIndex() {
+            int size = 4;
+            while (size < count * 2)
+                size <<= 1;
+            index = new int[size];
+            int mask = size - 1;
+            outer:
+            for (int i = 0; i < count; i++) {
+                String name = items[i].name;
+                int slot = hash(name) & mask;
+                for (; index[slot] != 0; slot = (slot + 1) & mask) {
+                    // Only the first of a repeated name is indexed
+                    if (items[index[slot] - 1].name.equalsIgnoreCase(name))
+                        continue outer;
+                }
+                index[slot] = i + 1;
+            }
+        }
+
+        /** A hash which agrees with String.equalsIgnoreCase. */
+        private static int hash(String name) {
+            int h = 0;
+            for (int i = 0; i < name.length(); i++)
+                h = 31 * h + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+            return h ^ (h >>> 16);
+        }
+
+        private void insert(int i, Attribute a) {
+            if (a == null)
+                throw new NullPointerException();
+            if (count == items.length) {
+                Attribute[] grown = new Attribute[count == 0 ? 4 : count * 2];
+                System.arraycopy(items, 0, grown, 0, count);
+                items = grown;
+            }
+            System.arraycopy(items, i, items, i + 1, count - i);
+            items[i] = a;
+            count++;
+            a.owner = this;
+            index = null;
+            dirty = true;
+        }
+
+        private Attribute remove(int i) {
+            Attribute a = items[i];
+            System.arraycopy(items, i + 1, items, i, count - i - 1);
+            items[--count] = null;
+            index = null;
+            dirty = true;
+            return a;
+        }
+
+        /**
+         * The List view of the attributes.
+         */
+        private class AttributeView extends AbstractList {
+            public int size() {
+                return count;
+            }
+
+            public Object get(int i) {
+                return AttributeList.this.get(i);
+            }
+
+            public Object set(int i, Object o) {
+                Attribute a = (Attribute) o;
+                Attribute old = AttributeList.this.get(i);
+                if (a == null)
+                    throw new NullPointerException();
+                items[i] = a;
+                a.owner = AttributeList.this;
+                index = null;
+                dirty = true;
+                return old;
+            }
+
+            public void add(int i, Object o) {
+                if (i < 0 || i > count)
+                    throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + count);
+                modCount++;
+                insert(i, (Attribute) o);
+            }
+
+            public Object remove(int i) {
+                AttributeList.this.get(i);
+                modCount++;
+                return AttributeList.this.remove(i);
             }
-            return null;
         }
     }
 }
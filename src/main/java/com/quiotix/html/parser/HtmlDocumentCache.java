@@ -0,0 +1,218 @@
+/*
+ * HtmlDocumentCache.java -- remembers parsed documents by their content.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of parsed documents, keyed by the bytes they were parsed from
+ * and the processing asked for, and bounded by the total length of the
+ * documents held.  When a new document would take the total over the
+ * limit, the least recently used documents are dropped to make room.
+ * <pre>
+ *   HtmlDocumentCache cache = new HtmlDocumentCache(10 * 1024 * 1024);
+ *   HtmlDocument d = cache.parse(bytes, HtmlDocumentCache.COLLECT);
+ * </pre>
+ * Documents are held in the binary form of HtmlDocument.writeTo(), and
+ * every call returns a new copy, so callers may change what they are
+ * given, with an HtmlScrubber for instance, without affecting anyone
+ * else.
+ * <p>
+ * Inputs are identified by their length and a 64 bit FNV-1a hash of
+ * their bytes, rather than being kept for comparison.  Two different
+ * inputs of the same length are vanishingly unlikely to collide by
+ * accident; but FNV is not a cryptographic hash, so one cache should
+ * not be shared between inputs from parties who do not trust each other.
+ * </p>
+ * <p>
+ * The methods are synchronized, but parsing is done outside the lock.
+ * </p>
+ */
+public class HtmlDocumentCache {
+
+    /** Option to collect the document into TagBlocks with an HtmlCollector. */
+    public static final int COLLECT = 0x10000;
+
+    /** Options below this bit are HtmlScrubber flags. */
+    private static final int SCRUBBER_FLAGS = COLLECT - 1;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long maxWeight;
+    private long weight;
+    private long hits;
+    private long misses;
+    private final LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true);
+
+    /**
+     * @param maxWeight the most total document length to hold
+     */
+    public HtmlDocumentCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Parse the input as HtmlParser.parse(InputStream) would, and
+     * collect it.
+     *
+     * @see #parse(byte[], int)
+     */
+    public HtmlDocument parse(byte[] input) throws IOException, ParseException {
+        return parse(input, COLLECT);
+    }
+
+    /**
+     * Parse the input as HtmlParser.parse(InputStream) would, then
+     * scrub and collect it as the options say, or return a copy of the
+     * result of doing so earlier.
+     *
+     * @param input the bytes of the document
+     * @param options HtmlScrubber flags, to scrub with if any are set,
+     *                and COLLECT, to collect the document after that
+     * @return a document of the caller's own
+     */
+    public HtmlDocument parse(byte[] input, int options)
+            throws IOException, ParseException {
+        Key key = new Key(hash(input), input.length, options);
+        Entry entry;
+        synchronized (this) {
+            entry = (Entry) entries.get(key);
+            if (entry != null)
+                hits++;
+            else
+                misses++;
+        }
+        if (entry != null)
+            return HtmlDocument.readFrom(ByteBuffer.wrap(entry.binary));
+
+        HtmlDocument document = HtmlParser.parse(new ByteArrayInputStream(input));
+        if ((options & SCRUBBER_FLAGS) != 0)
+            document.accept(new HtmlScrubber(options & SCRUBBER_FLAGS));
+        if ((options & COLLECT) != 0)
+            document.accept(new HtmlCollector());
+        int length = document.getLength();
+        if (length <= maxWeight) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.writeTo(out);
+            put(key, new Entry(out.toByteArray(), length));
+        }
+        return document;
+    }
+
+    private synchronized void put(Key key, Entry entry) {
+        Entry old = (Entry) entries.put(key, entry);
+        if (old != null)
+            weight -= old.weight;
+        weight += entry.weight;
+        for (Iterator it = entries.entrySet().iterator();
+                weight > maxWeight && it.hasNext();) {
+            Entry eldest = (Entry) ((Map.Entry) it.next()).getValue();
+            weight -= eldest.weight;
+            it.remove();
+        }
+    }
+
+    /** Drop all the documents held. */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * @return the number of documents held
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the total length of the documents held
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return the number of calls answered from the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of calls which had to parse
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the 64 bit FNV-1a hash of the bytes
+     */
+    static long hash(byte[] input) {
+        long h = FNV_OFFSET_BASIS;
+        for (int i = 0; i < input.length; i++) {
+            h ^= input[i] & 0xff;
+            h *= FNV_PRIME;
+        }
+        return h;
+    }
+
+    /**
+     * A document's binary form, and its weight.
+     */
+    private static final class Entry {
+        final byte[] binary;
+        final int weight;
+
+        Entry(byte[] binary, int weight) {
+            this.binary = binary;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * What identifies an input and its processing.
+     */
+    private static final class Key {
+        final long hash;
+        final int length;
+        final int options;
+
+        Key(long hash, int length, int options) {
+            this.hash = hash;
+            this.length = length;
+            this.options = options;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return hash == k.hash && length == k.length && options == k.options;
+        }
+
+        public int hashCode() {
+            return (int) (hash ^ (hash >>> 32)) ^ length * 31 ^ options;
+        }
+    }
+}
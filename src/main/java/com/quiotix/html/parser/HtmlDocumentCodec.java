@@ -0,0 +1,349 @@
+/*
+ * HtmlDocumentCodec.java -- a binary form for HtmlDocuments.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The binary form behind HtmlDocument.writeTo() and readFrom().
+ * <pre>
+ *   document  := MAGIC VERSION (0 | 1 string(encoding)) sequence
+ *   sequence  := count element*
+ *   element   := kind data
+ *   TAG       := name attributes          (kind | EMPTY if empty)
+ *   END_TAG   := name
+ *   TAG_BLOCK := name attributes name(end tag) sequence
+ *   COMMENT, TEXT := string
+ *   NEWLINE   := string(whitespace)
+ *   ANNOTATION := name(type) string
+ *   attributes := count (name (0 | length + 1) char*)*
+ *   string    := length char*
+ *   name      := 0 string | index + 1   (the index of an earlier name)
+ * </pre>
+ * Counts, lengths and chars are unsigned varints, seven bits to a byte,
+ * so ASCII text takes a byte a character.  Each distinct tag, attribute
+ * or annotation name is written out once, and referred to by number
+ * after that.  The kinds are those of CompactHtmlDocument.
+ */
+final class HtmlDocumentCodec {
+
+    private static final int MAGIC = 0x48444f43; // "HDOC"
+    private static final int VERSION = 1;
+    private static final int EMPTY = 0x10;
+
+    private HtmlDocumentCodec() {
+    }
+
+    static void write(HtmlDocument document, OutputStream out) throws IOException {
+        Writer w = new Writer();
+        for (int shift = 24; shift >= 0; shift -= 8)
+            w.write(MAGIC >>> shift);
+        w.write(VERSION);
+        if (document.getEncoding() == null)
+            w.write(0);
+        else {
+            w.write(1);
+            w.string(document.getEncoding());
+        }
+        w.sequence(document.elements);
+        out.write(w.bytes, 0, w.count);
+    }
+
+    static HtmlDocument read(ByteBuffer in) {
+        Reader r = new Reader(in);
+        int magic = 0;
+        for (int i = 0; i < 4; i++)
+            magic = magic << 8 | r.read();
+        if (magic != MAGIC)
+            throw new IllegalArgumentException("Not a serialised HtmlDocument");
+        int version = r.read();
+        if (version != VERSION)
+            throw new IllegalArgumentException(
+                    "Unsupported serialised HtmlDocument version " + version);
+        String encoding = r.read() == 0 ? null : r.string();
+        HtmlDocument d = new HtmlDocument(r.sequence());
+        d.setEncoding(encoding);
+        r.finish();
+        return d;
+    }
+
+    /**
+     * Writes elements to a growing byte array.
+     */
+    private static final class Writer extends HtmlVisitor {
+        byte[] bytes = new byte[4096];
+        int count;
+        private final Map names = new HashMap();
+
+        void write(int b) {
+            if (count == bytes.length) {
+                byte[] grown = new byte[count * 2];
+                System.arraycopy(bytes, 0, grown, 0, count);
+                bytes = grown;
+            }
+            bytes[count++] = (byte) b;
+        }
+
+        void varint(int v) {
+            while ((v & ~0x7f) != 0) {
+                write((v & 0x7f) | 0x80);
+                v >>>= 7;
+            }
+            write(v);
+        }
+
+        void chars(String s, int n) {
+            if (count + n > bytes.length) {
+                byte[] grown = new byte[Math.max(bytes.length * 2, count + n + 16)];
+                System.arraycopy(bytes, 0, grown, 0, count);
+                bytes = grown;
+            }
+            for (int i = 0; i < n; i++) {
+                char c = s.charAt(i);
+                if (c < 0x80 && count < bytes.length)
+                    bytes[count++] = (byte) c;
+                else
+                    varint(c);
+            }
+        }
+
+        void string(String s) {
+            varint(s.length());
+            chars(s, s.length());
+        }
+
+        void name(String s) {
+            Integer index = (Integer) names.get(s);
+            if (index != null) {
+                varint(index.intValue() + 1);
+                return;
+            }
+            names.put(s, new Integer(names.size()));
+            write(0);
+            string(s);
+        }
+
+        void sequence(HtmlDocument.ElementSequence s) {
+            varint(s.size());
+            visit(s);
+        }
+
+        void attributes(HtmlDocument.AttributeList l) {
+            varint(l.size());
+            for (int i = 0; i < l.size(); i++) {
+                HtmlDocument.Attribute a = l.get(i);
+                name(a.name);
+                if (a.hasValue) {
+                    varint(a.value.length() + 1);
+                    chars(a.value, a.value.length());
+                } else
+                    write(0);
+            }
+        }
+
+        public void visit(HtmlDocument.Tag t) {
+            write(CompactHtmlDocument.TAG | (t.emptyTag ? EMPTY : 0));
+            name(t.tagName);
+            attributes(t.attributeList);
+        }
+
+        public void visit(HtmlDocument.EndTag t) {
+            write(CompactHtmlDocument.END_TAG);
+            name(t.tagName);
+        }
+
+        public void visit(HtmlDocument.TagBlock bl) {
+            write(CompactHtmlDocument.TAG_BLOCK | (bl.startTag.emptyTag ? EMPTY : 0));
+            name(bl.startTag.tagName);
+            attributes(bl.startTag.attributeList);
+            name(bl.endTag.tagName);
+            sequence(bl.body);
+        }
+
+        public void visit(HtmlDocument.Comment c) {
+            write(CompactHtmlDocument.COMMENT);
+            string(c.comment);
+        }
+
+        public void visit(HtmlDocument.Text t) {
+            write(CompactHtmlDocument.TEXT);
+            string(t.text);
+        }
+
+        public void visit(HtmlDocument.Newline n) {
+            write(CompactHtmlDocument.NEWLINE);
+            string(n.getWhitespace());
+        }
+
+        public void visit(HtmlDocument.Annotation a) {
+            write(CompactHtmlDocument.ANNOTATION);
+            name(a.type);
+            string(a.text);
+        }
+    }
+
+    /**
+     * Reads elements from the bytes of a ByteBuffer.
+     */
+    private static final class Reader {
+        private final ByteBuffer buffer;
+        private final byte[] bytes;
+        private final int start;
+        private final int limit;
+        private int pos;
+        private char[] chars = new char[256];
+        private final List names = new ArrayList();
+
+        Reader(ByteBuffer in) {
+            buffer = in;
+            if (in.hasArray()) {
+                bytes = in.array();
+                start = in.arrayOffset() + in.position();
+            } else {
+                bytes = new byte[in.remaining()];
+                in.duplicate().get(bytes);
+                start = 0;
+            }
+            limit = start + in.remaining();
+            pos = start;
+        }
+
+        /** Move the buffer past what has been read. */
+        void finish() {
+            buffer.position(buffer.position() + pos - start);
+        }
+
+        int read() {
+            if (pos >= limit)
+                throw new BufferUnderflowException();
+            return bytes[pos++] & 0xff;
+        }
+
+        int varint() {
+            int b = read();
+            if (b < 0x80)
+                return b;
+            int v = b & 0x7f;
+            for (int shift = 7; ; shift += 7) {
+                b = read();
+                v |= (b & 0x7f) << shift;
+                if (b < 0x80)
+                    return v;
+                if (shift > 28)
+                    throw new IllegalArgumentException("Malformed serialised HtmlDocument");
+            }
+        }
+
+        /** A count or length, which cannot be more than the bytes left. */
+        int count() {
+            int n = varint();
+            if (n > limit - pos)
+                throw new BufferUnderflowException();
+            return n;
+        }
+
+        String chars(int n) {
+            if (n > chars.length)
+                chars = new char[Math.max(n, chars.length * 2)];
+            for (int i = 0; i < n; i++) {
+                int b = pos < limit ? bytes[pos] : -1;
+                if (b >= 0) {
+                    pos++;
+                    chars[i] = (char) b;
+                } else
+                    chars[i] = (char) varint();
+            }
+            return new String(chars, 0, n);
+        }
+
+        String string() {
+            return chars(count());
+        }
+
+        String name() {
+            int index = varint();
+            if (index > 0) {
+                if (index > names.size())
+                    throw new IllegalArgumentException("Malformed serialised HtmlDocument");
+                return (String) names.get(index - 1);
+            }
+            String s = string();
+            names.add(s);
+            return s;
+        }
+
+        HtmlDocument.ElementSequence sequence() {
+            int n = count();
+            HtmlDocument.ElementSequence s = new HtmlDocument.ElementSequence(n);
+            for (int i = 0; i < n; i++)
+                s.addElement(element());
+            return s;
+        }
+
+        HtmlDocument.AttributeList attributes() {
+            HtmlDocument.AttributeList l = new HtmlDocument.AttributeList();
+            for (int n = count(); n > 0; n--) {
+                String name = name();
+                int length = count();
+                l.addAttribute(length == 0 ? new HtmlDocument.Attribute(name)
+                        : new HtmlDocument.Attribute(name, chars(length - 1)));
+            }
+            return l;
+        }
+
+        HtmlDocument.HtmlElement element() {
+            int kind = read();
+            boolean empty = (kind & EMPTY) != 0;
+            switch (kind & ~EMPTY) {
+            case CompactHtmlDocument.TAG:
+                HtmlDocument.Tag t = new HtmlDocument.Tag(name(), attributes());
+                t.setEmpty(empty);
+                return t;
+            case CompactHtmlDocument.END_TAG:
+                return new HtmlDocument.EndTag(name());
+            case CompactHtmlDocument.TAG_BLOCK:
+                String name = name();
+                HtmlDocument.AttributeList l = attributes();
+                String endName = name();
+                HtmlDocument.TagBlock b =
+                    new HtmlDocument.TagBlock(name, l, sequence());
+                b.startTag.setEmpty(empty);
+                b.endTag.tagName = endName;
+                return b;
+            case CompactHtmlDocument.COMMENT:
+                return new HtmlDocument.Comment(string());
+            case CompactHtmlDocument.TEXT:
+                return new HtmlDocument.Text(string());
+            case CompactHtmlDocument.NEWLINE:
+                String whitespace = string();
+                return whitespace.length() == 0 ? HtmlDocument.Newline.SHARED
+                    : new HtmlDocument.Newline(whitespace);
+            case CompactHtmlDocument.ANNOTATION:
+                String type = name();
+                return new HtmlDocument.Annotation(type, string());
+            default:
+                throw new IllegalArgumentException(
+                        "Malformed serialised HtmlDocument: element kind " + kind);
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 
 /**
  * Simple HtmlVisitor which dumps out the document to the specified
@@ -41,6 +42,14 @@ public class HtmlDumper extends HtmlVisitor {
         out = new PrintWriter(new OutputStreamWriter(os, encoding));
     }
 
+    /**
+     * Constructor, writing to a Writer, such as a DeflaterWriter, which
+     * does its own buffering.
+     */
+    public HtmlDumper(Writer w) {
+        out = new PrintWriter(w);
+    }
+
     public void finish() {
         out.flush();
     }
@@ -62,6 +71,7 @@ public class HtmlDumper extends HtmlVisitor {
     }
 
     public void visit(HtmlDocument.Newline n) {
+        out.print(n.getWhitespace());
         out.println();
     }
 
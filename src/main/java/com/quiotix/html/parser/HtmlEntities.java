@@ -0,0 +1,259 @@
+/*
+ * HtmlEntities.java -- decodes HTML character references.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as 
+ * published by the Free Software Foundation.  
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+/**
+ * Decodes the character references in HTML text: the named entities of
+ * HTML 4.01 (plus <tt>&amp;apos;</tt>), and decimal and hexadecimal 
+ * numeric references.  Named references must be terminated by a 
+ * semicolon; anything which is not a recognised reference is left as it 
+ * stands.
+ * <p>
+ * Names are found through an open addressed hash table, hashing the 
+ * characters in place, so decoding allocates nothing beyond the result, 
+ * and a String with no <tt>&amp;</tt> in it is returned as it is.
+ * </p>
+ * 
+ * @see HtmlDocument.Text#decoded()
+ * @see HtmlDocument.Attribute#getDecodedValue()
+ */
+public final class HtmlEntities {
+
+    /** The longest entity name. */
+    private static final int MAX_NAME_LENGTH = 8;
+
+    private static final String[] NAMES = {
+        "quot", "amp", "apos", "lt", "gt", "nbsp", "iexcl", "cent",
+        "pound", "curren", "yen", "brvbar", "sect", "uml", "copy", "ordf",
+        "laquo", "not", "shy", "reg", "macr", "deg", "plusmn", "sup2",
+        "sup3", "acute", "micro", "para", "middot", "cedil", "sup1", "ordm",
+        "raquo", "frac14", "frac12", "frac34", "iquest", "Agrave", "Aacute", "Acirc",
+        "Atilde", "Auml", "Aring", "AElig", "Ccedil", "Egrave", "Eacute", "Ecirc",
+        "Euml", "Igrave", "Iacute", "Icirc", "Iuml", "ETH", "Ntilde", "Ograve",
+        "Oacute", "Ocirc", "Otilde", "Ouml", "times", "Oslash", "Ugrave", "Uacute",
+        "Ucirc", "Uuml", "Yacute", "THORN", "szlig", "agrave", "aacute", "acirc",
+        "atilde", "auml", "aring", "aelig", "ccedil", "egrave", "eacute", "ecirc",
+        "euml", "igrave", "iacute", "icirc", "iuml", "eth", "ntilde", "ograve",
+        "oacute", "ocirc", "otilde", "ouml", "divide", "oslash", "ugrave", "uacute",
+        "ucirc", "uuml", "yacute", "thorn", "yuml", "OElig", "oelig", "Scaron",
+        "scaron", "Yuml", "fnof", "circ", "tilde", "Alpha", "Beta", "Gamma",
+        "Delta", "Epsilon", "Zeta", "Eta", "Theta", "Iota", "Kappa", "Lambda",
+        "Mu", "Nu", "Xi", "Omicron", "Pi", "Rho", "Sigma", "Tau",
+        "Upsilon", "Phi", "Chi", "Psi", "Omega", "alpha", "beta", "gamma",
+        "delta", "epsilon", "zeta", "eta", "theta", "iota", "kappa", "lambda",
+        "mu", "nu", "xi", "omicron", "pi", "rho", "sigmaf", "sigma",
+        "tau", "upsilon", "phi", "chi", "psi", "omega", "thetasym", "upsih",
+        "piv", "ensp", "emsp", "thinsp", "zwnj", "zwj", "lrm", "rlm",
+        "ndash", "mdash", "lsquo", "rsquo", "sbquo", "ldquo", "rdquo", "bdquo",
+        "dagger", "Dagger", "bull", "hellip", "permil", "prime", "Prime", "lsaquo",
+        "rsaquo", "oline", "frasl", "euro", "image", "weierp", "real", "trade",
+        "alefsym", "larr", "uarr", "rarr", "darr", "harr", "crarr", "lArr",
+        "uArr", "rArr", "dArr", "hArr", "forall", "part", "exist", "empty",
+        "nabla", "isin", "notin", "ni", "prod", "sum", "minus", "lowast",
+        "radic", "prop", "infin", "ang", "and", "or", "cap", "cup",
+        "int", "there4", "sim", "cong", "asymp", "ne", "equiv", "le",
+        "ge", "sub", "sup", "nsub", "sube", "supe", "oplus", "otimes",
+        "perp", "sdot", "lceil", "rceil", "lfloor", "rfloor", "lang", "rang",
+        "loz", "spades", "clubs", "hearts", "diams"
+    };
+
+    private static final char[] CODES = {
+        34, 38, 39, 60, 62, 160, 161, 162,
+        163, 164, 165, 166, 167, 168, 169, 170,
+        171, 172, 173, 174, 175, 176, 177, 178,
+        179, 180, 181, 182, 183, 184, 185, 186,
+        187, 188, 189, 190, 191, 192, 193, 194,
+        195, 196, 197, 198, 199, 200, 201, 202,
+        203, 204, 205, 206, 207, 208, 209, 210,
+        211, 212, 213, 214, 215, 216, 217, 218,
+        219, 220, 221, 222, 223, 224, 225, 226,
+        227, 228, 229, 230, 231, 232, 233, 234,
+        235, 236, 237, 238, 239, 240, 241, 242,
+        243, 244, 245, 246, 247, 248, 249, 250,
+        251, 252, 253, 254, 255, 338, 339, 352,
+        353, 376, 402, 710, 732, 913, 914, 915,
+        916, 917, 918, 919, 920, 921, 922, 923,
+        924, 925, 926, 927, 928, 929, 931, 932,
+        933, 934, 935, 936, 937, 945, 946, 947,
+        948, 949, 950, 951, 952, 953, 954, 955,
+        956, 957, 958, 959, 960, 961, 962, 963,
+        964, 965, 966, 967, 968, 969, 977, 978,
+        982, 8194, 8195, 8201, 8204, 8205, 8206, 8207,
+        8211, 8212, 8216, 8217, 8218, 8220, 8221, 8222,
+        8224, 8225, 8226, 8230, 8240, 8242, 8243, 8249,
+        8250, 8254, 8260, 8364, 8465, 8472, 8476, 8482,
+        8501, 8592, 8593, 8594, 8595, 8596, 8629, 8656,
+        8657, 8658, 8659, 8660, 8704, 8706, 8707, 8709,
+        8711, 8712, 8713, 8715, 8719, 8721, 8722, 8727,
+        8730, 8733, 8734, 8736, 8743, 8744, 8745, 8746,
+        8747, 8756, 8764, 8773, 8776, 8800, 8801, 8804,
+        8805, 8834, 8835, 8836, 8838, 8839, 8853, 8855,
+        8869, 8901, 8968, 8969, 8970, 8971, 9001, 9002,
+        9674, 9824, 9827, 9829, 9830
+    };
+
+    /** Position + 1 of each name in NAMES, by hash. */
+    private static final int[] TABLE = new int[1024];
+
+    static {
+        int mask = TABLE.length - 1;
+        for (int i = 0; i < NAMES.length; i++) {
+            int slot = hash(NAMES[i], 0, NAMES[i].length()) & mask;
+            while (TABLE[slot] != 0)
+                slot = (slot + 1) & mask;
+            TABLE[slot] = i + 1;
+        }
+    }
+
+    private HtmlEntities() {
+    }
+
+    private static int hash(String s, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++)
+            h = 31 * h + s.charAt(i);
+        return h ^ (h >>> 7);
+    }
+
+    /**
+     * Look up a named entity.
+     * 
+     * @param s the String containing the name
+     * @param start the index of the first character of the name
+     * @param end the index after the last character of the name
+     * @return the character named, or -1 if there is no such entity
+     */
+    public static int lookup(String s, int start, int end) {
+        int length = end - start;
+        if (length <= 0 || length > MAX_NAME_LENGTH)
+            return -1;
+        int mask = TABLE.length - 1;
+        for (int slot = hash(s, start, end) & mask; TABLE[slot] != 0; 
+             slot = (slot + 1) & mask) {
+            String name = NAMES[TABLE[slot] - 1];
+            if (name.length() == length && s.regionMatches(start, name, 0, length))
+                return CODES[TABLE[slot] - 1];
+        }
+        return -1;
+    }
+
+    /**
+     * Decode the character references in a String.
+     * 
+     * @param s the String to decode, may be null
+     * @return the decoded String, which is <code>s</code> itself if 
+     * there was nothing to decode
+     */
+    public static String decode(String s) {
+        if (s == null)
+            return null;
+        int amp = s.indexOf('&');
+        if (amp < 0)
+            return s;
+        StringBuffer sb = null;
+        int copied = 0;
+        for (; amp >= 0; amp = s.indexOf('&', amp + 1)) {
+            int end = referenceEnd(s, amp);
+            if (end < 0)
+                continue;
+            int c = referenceValue(s, amp, end);
+            if (sb == null)
+                sb = new StringBuffer(s.length());
+            sb.append(s.substring(copied, amp));
+            appendCodePoint(sb, c);
+            copied = end;
+            amp = end - 1;
+        }
+        if (sb == null)
+            return s;
+        sb.append(s.substring(copied));
+        return sb.toString();
+    }
+
+    /**
+     * @return the index after the reference starting at <code>amp</code>,
+     * or -1 if there is no valid reference there
+     */
+    private static int referenceEnd(String s, int amp) {
+        int i = amp + 1;
+        int length = s.length();
+        if (i < length && s.charAt(i) == '#') {
+            i++;
+            boolean hex = i < length && (s.charAt(i) == 'x' || s.charAt(i) == 'X');
+            if (hex)
+                i++;
+            int digits = i;
+            while (i < length && digit(s.charAt(i), hex ? 16 : 10) >= 0)
+                i++;
+            if (i == digits)
+                return -1;
+            return (i < length && s.charAt(i) == ';') ? i + 1 : i;
+        }
+        while (i < length && i - amp <= MAX_NAME_LENGTH 
+               && Character.isLetterOrDigit(s.charAt(i)))
+            i++;
+        if (i < length && s.charAt(i) == ';' && lookup(s, amp + 1, i) >= 0)
+            return i + 1;
+        return -1;
+    }
+
+    private static int referenceValue(String s, int amp, int end) {
+        int last = s.charAt(end - 1) == ';' ? end - 1 : end;
+        if (s.charAt(amp + 1) != '#')
+            return lookup(s, amp + 1, last);
+        int i = amp + 2;
+        int radix = 10;
+        if (s.charAt(i) == 'x' || s.charAt(i) == 'X') {
+            radix = 16;
+            i++;
+        }
+        int c = 0;
+        for (; i < last; i++) {
+            c = c * radix + digit(s.charAt(i), radix);
+            if (c > 0x10FFFF)
+                return 0xFFFD;
+        }
+        if (c == 0 || (c >= 0xD800 && c <= 0xDFFF))
+            return 0xFFFD;
+        return c;
+    }
+
+    /**
+     * @return the value of an ASCII digit, or a-f or A-F in hex, or -1.
+     * Unlike Character.digit(), other scripts' digits are not digits here,
+     * as they are not to browsers.
+     */
+    private static int digit(char c, int radix) {
+        if (c >= '0' && c <= '9')
+            return c - '0';
+        if (radix == 16) {
+            if (c >= 'a' && c <= 'f')
+                return c - 'a' + 10;
+            if (c >= 'A' && c <= 'F')
+                return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static void appendCodePoint(StringBuffer sb, int c) {
+        if (c < 0x10000)
+            sb.append((char) c);
+        else {
+            c -= 0x10000;
+            sb.append((char) (0xD800 + (c >> 10)));
+            sb.append((char) (0xDC00 + (c & 0x3FF)));
+        }
+    }
+}
@@ -20,9 +20,9 @@ import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.io.Writer;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * HtmlFormatter is a Visitor which traverses an HtmlDocument, dumping the
@@ -35,6 +35,11 @@ import java.util.Set;
  * <p>
  * The right margin and indent increment can be specified as properties.
  * </p>
+ * <p>
+ * Text is wrapped a word at a time by printing ranges of it, and tags
+ * are printed a part at a time, so that formatting allocates nothing for
+ * each word or tag.  The tag name sets ignore case.
+ * </p>
  * 
  * @author Brian Goetz, Quiotix
  * @see com.quiotix.html.parser.HtmlVisitor
@@ -46,16 +51,16 @@ public class HtmlFormatter extends HtmlVisitor {
     protected MarginWriter out;
     protected int rightMargin = 80;
     protected int indentSize = 2;
-    protected static Set tagsIndentBlock = new HashSet();
-    protected static Set tagsNewlineBefore = new HashSet();
-    protected static Set tagsPreformatted = new HashSet();
-    protected static Set tagsTryMatch = new HashSet();
+    protected static Set tagsIndentBlock = new TreeSet(String.CASE_INSENSITIVE_ORDER);
+    protected static Set tagsNewlineBefore = new TreeSet(String.CASE_INSENSITIVE_ORDER);
+    protected static Set tagsPreformatted = new TreeSet(String.CASE_INSENSITIVE_ORDER);
+    protected static Set tagsTryMatch = new TreeSet(String.CASE_INSENSITIVE_ORDER);
     protected static final String[] tagsIndentStrings
             = {"TABLE", "TR", "TD", "TH", "FORM", "HTML", "HEAD", "BODY", "SELECT", "OL", "UL", "LI"};
     protected static final String[] tagsNewlineBeforeStrings
             = {"P", "H1", "H2", "H3", "H4", "H5", "H6", "BR"};
     protected static final String[] tagsPreformattedStrings
-            = {"PRE", "SCRIPT", "STYLE"};
+            = {"PRE", "SCRIPT", "STYLE", "TEXTAREA", "XMP"};
     protected static final String[] tagsTryMatchStrings
             = {"A", "TD", "TH", "TR", "I", "B", "EM", "FONT", "TT", "UL", "OL", "LI"};
 
@@ -79,6 +84,15 @@ public class HtmlFormatter extends HtmlVisitor {
         out.setRightMargin(rightMargin);
     }
 
+    /**
+     * Constructor, writing to a Writer, such as a DeflaterWriter, which
+     * does its own buffering.
+     */
+    public HtmlFormatter(Writer w) {
+        out = new MarginWriter(new PrintWriter(w));
+        out.setRightMargin(rightMargin);
+    }
+
     /**
      * @param margin the right margin column to wrap at
      */
@@ -99,13 +113,14 @@ public class HtmlFormatter extends HtmlVisitor {
         boolean preformat;
         int wasMargin = 0;
 
-        if (tagsTryMatch.contains(block.startTag.tagName.toUpperCase())) {
+        if (tagsTryMatch.contains(block.startTag.tagName)) {
             blockRenderer.start();
             blockRenderer.setTargetWidth(out.getRightMargin() - out.getLeftMargin());
             blockRenderer.visit(block);
             blockRenderer.finish();
             if (!blockRenderer.hasBlownTarget()) {
-                out.printAutoWrap(blockRenderer.getString());
+                CharSequence s = blockRenderer.getString();
+                out.printAutoWrap(s, 0, s.length());
                 previousElement = block.endTag;
                 return;
             } 
@@ -113,8 +128,8 @@ public class HtmlFormatter extends HtmlVisitor {
         }
 
         // Only will get here if we've failed the try-block test
-        indent = tagsIndentBlock.contains(block.startTag.tagName.toUpperCase());
-        preformat = tagsPreformatted.contains(block.startTag.tagName.toUpperCase());
+        indent = tagsIndentBlock.contains(block.startTag.tagName);
+        preformat = tagsPreformatted.contains(block.startTag.tagName);
         if (preformat) {
             inPreBlock = true;
             visit(block.startTag);
@@ -142,18 +157,24 @@ public class HtmlFormatter extends HtmlVisitor {
     }
 
     public void visit(HtmlDocument.Tag t) {
-        String s = t.toString();
         int hanging;
 
-        if (tagsNewlineBefore.contains(t.tagName.toUpperCase())
-                || out.getCurPosition() + s.length() > out.getRightMargin())
+        if (tagsNewlineBefore.contains(t.tagName)
+                || out.getCurPosition() + t.getLength() > out.getRightMargin())
             out.printlnSoft();
 
-        out.print("<" + t.tagName);
+        out.print("<");
+        out.print(t.tagName);
         hanging = t.tagName.length() + 1;
-        for (Iterator it = t.attributeList.attributes.iterator(); it.hasNext();) {
-            HtmlDocument.Attribute a = (HtmlDocument.Attribute) it.next();
-            out.printAutoWrap(" " + a.toString(), hanging);
+        for (int i = 0; i < t.attributeList.size(); i++) {
+            HtmlDocument.Attribute a = t.attributeList.get(i);
+            out.wrap(1 + a.getLength(), hanging);
+            out.print(" ");
+            out.print(a.name);
+            if (a.hasValue) {
+                out.print("=");
+                out.print(a.value);
+            }
         }
         if (t.emptyTag) out.print("/");
         out.print(">");
@@ -161,8 +182,11 @@ public class HtmlFormatter extends HtmlVisitor {
     }
 
     public void visit(HtmlDocument.EndTag t) {
-        out.printAutoWrap(t.toString());
-        if (tagsNewlineBefore.contains(t.tagName.toUpperCase())) {
+        out.wrap(t.getLength());
+        out.print("</");
+        out.print(t.tagName);
+        out.print(">");
+        if (tagsNewlineBefore.contains(t.tagName)) {
             out.printlnSoft();
             out.println();
         }
@@ -170,20 +194,30 @@ public class HtmlFormatter extends HtmlVisitor {
     }
 
     public void visit(HtmlDocument.Comment c) {
-        out.print(c.toString());
+        out.print("<!");
+        out.print(c.comment);
+        out.print(">");
         previousElement = c;
     }
 
     public void visit(HtmlDocument.Text t) {
+        // Raw text, from a script block or the like, a line at a time
+        HtmlDocument.ElementSequence lines = t.lines();
+        if (lines != null) {
+            visit(lines);
+            return;
+        }
+        String text = t.text;
         if (inPreBlock)
-            out.print(t.text);
+            out.print(text);
         else {
+            // Wrap a word, and the space after it, at a time
             int start = 0;
-            while (start < t.text.length()) {
-                int index = t.text.indexOf(' ', start) + 1;
+            while (start < text.length()) {
+                int index = text.indexOf(' ', start) + 1;
                 if (index == 0)
-                    index = t.text.length();
-                out.printAutoWrap(t.text.substring(start, index));
+                    index = text.length();
+                out.printAutoWrap(text, start, index);
                 start = index;
             }
         }
@@ -232,164 +266,3 @@ public class HtmlFormatter extends HtmlVisitor {
         }
     }
 }
-
-
-/**
- * Utility class, used by HtmlFormatter, which adds some word-wrapping
- * and hanging indent functionality to a PrintWriter.
- */
-
-class MarginWriter {
-    protected int tabStop;
-    protected int curPosition;
-    protected int leftMargin;
-    protected int rightMargin;
-    protected java.io.PrintWriter out;
-    protected char[] spaces = new char[256];
-
-    /** Constructor. */
-    MarginWriter(java.io.PrintWriter out) {
-        this.out = out;
-        for (int i = 0; i < spaces.length; i++)
-            spaces[i] = ' ';
-    }
-
-    void flush() {
-        out.flush();
-    }
-
-    void close() {
-        out.close();
-    }
-
-    void print(String s) {
-        if (curPosition == 0 && leftMargin > 0) {
-            out.write(spaces, 0, leftMargin);
-            curPosition = leftMargin;
-        }
-        out.print(s);
-        curPosition += s.length();
-    }
-
-    void printAutoWrap(String s) {
-        if (curPosition > leftMargin
-                && curPosition + s.length() > rightMargin)
-            println();
-        print(s);
-    }
-
-    void printAutoWrap(String s, int hanging) {
-        if (curPosition > leftMargin
-                && curPosition + s.length() > rightMargin) {
-            println();
-            out.write(spaces, 0, hanging + leftMargin);
-            curPosition = leftMargin + hanging;
-        };
-        print(s);
-    }
-
-    void println() {
-        curPosition = 0;
-        out.println();
-    }
-
-    void printlnSoft() {
-        if (curPosition > 0)
-            println();
-    }
-
-    void setLeftMargin(int leftMargin) {
-        this.leftMargin = leftMargin;
-    }
-
-    int getLeftMargin() {
-        return leftMargin;
-    }
-
-    void setRightMargin(int rightMargin) {
-        this.rightMargin = rightMargin;
-    }
-
-    int getRightMargin() {
-        return rightMargin;
-    }
-
-    int getCurPosition() {
-        return (curPosition == 0 ? leftMargin : curPosition);
-    }
-}
-
-/**
- * Utility class, used by HtmlFormatter, which tentatively tries to format
- * the contents of an HtmlDocument.TagBlock to see if the entire block can
- * fit on the rest of the line.  If it cannot, it gives up and indicates
- * failure through the hasBlownTarget method; if it can, the contents can
- * be retrieved through the getString method.
- */
-
-class TagBlockRenderer extends HtmlVisitor {
-    protected String s;
-    protected boolean multiLine;
-    protected boolean blownTarget;
-    protected int targetWidth = 80;
-
-    public void start() {
-        s = "";
-        multiLine = false;
-        blownTarget = false;
-    }
-
-    public void finish() {
-    }
-
-    void setTargetWidth(int w) {
-        targetWidth = w;
-    }
-
-    String getString() {
-        return s;
-    }
-
-    boolean isMultiLine() {
-        return multiLine;
-    }
-
-    boolean hasBlownTarget() {
-        return blownTarget;
-    }
-
-    public void visit(HtmlDocument.Tag t) {
-        if (s.length() < targetWidth)
-            s += t.toString();
-        else
-            blownTarget = true;
-    }
-
-    public void visit(HtmlDocument.EndTag t) {
-        if (s.length() < targetWidth)
-            s += t.toString();
-        else
-            blownTarget = true;
-    }
-
-    public void visit(HtmlDocument.Comment c) {
-        if (s.length() < targetWidth)
-            s += c.toString();
-        else
-            blownTarget = true;
-    }
-
-    public void visit(HtmlDocument.Text t) {
-        if (s.length() < targetWidth)
-            s += t.toString();
-        else
-            blownTarget = true;
-    }
-
-    public void visit(HtmlDocument.Newline n) {
-        multiLine = true;
-        s += " ";
-    }
-}
-
-
@@ -0,0 +1,357 @@
+/*
+ * HtmlMinifier.java -- writes out HTML in as few bytes as it will go.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * An HtmlVisitor which writes the document out, like HtmlDumper, but
+ * leaving out whatever a browser does not need:
+ * <ul>
+ * <li>runs of whitespace become a single space, and whitespace next to
+ *     block level tags goes altogether, except within PRE, SCRIPT, STYLE,
+ *     TEXTAREA and XMP;</li>
+ * <li>comments go, but for conditional comments and any others whose
+ *     text begins as one on the keep list;</li>
+ * <li>quotes go from attribute values HtmlScrubber would unquote, and
+ *     the spaces within tags are reduced to one between attributes;</li>
+ * <li>end tags HTML allows to be left out are left out, where the next
+ *     element closes the element anyway.</li>
+ * </ul>
+ * The document is not changed.  It works an element at a time, looking
+ * no further ahead than the next element, so it may be fed the flat
+ * elements of HtmlParser.nextElement() as well as a whole document,
+ * collected or not.  The output is meant for browsers: with end tags
+ * left out, HtmlCollector will not give it the structure of the original.
+ *
+ * @see HtmlScrubber
+ */
+public class HtmlMinifier extends HtmlVisitor {
+
+    /** Collapse whitespace. */
+    public static final int COLLAPSE_SPACES = 1;
+    /** Remove comments. */
+    public static final int STRIP_COMMENTS  = 2;
+    /** Remove quotes where they are not needed. */
+    public static final int STRIP_QUOTES    = 4;
+    /** Leave out optional end tags. */
+    public static final int OMIT_END_TAGS   = 8;
+    /** Defaults: all of the above. */
+    public static final int DEFAULT_OPTIONS =
+            COLLAPSE_SPACES | STRIP_COMMENTS | STRIP_QUOTES | OMIT_END_TAGS;
+
+    /** Tags whose contents are written as they are. */
+    protected static Set tagsRaw = caseless(new String[] {
+        "PRE", "SCRIPT", "STYLE", "TEXTAREA", "XMP"});
+    /** Tags next to which whitespace is not displayed. */
+    protected static Set tagsBlock = caseless(new String[] {
+        "ADDRESS", "ARTICLE", "ASIDE", "BASE", "BLOCKQUOTE", "BODY", "BR",
+        "CAPTION", "CENTER", "COL", "COLGROUP", "DD", "DIV", "DL", "DT",
+        "FIELDSET", "FOOTER", "FORM", "FRAME", "FRAMESET", "H1", "H2", "H3",
+        "H4", "H5", "H6", "HEAD", "HEADER", "HR", "HTML", "LEGEND", "LI",
+        "LINK", "MENU", "META", "NAV", "NOSCRIPT", "OL", "OPTGROUP", "OPTION",
+        "P", "PRE", "SECTION", "TABLE", "TBODY", "TD", "TFOOT", "TH", "THEAD",
+        "TITLE", "TR", "UL"});
+    /** Start tags which end a P element. */
+    protected static Set tagsCloseP = caseless(new String[] {
+        "ADDRESS", "ARTICLE", "ASIDE", "BLOCKQUOTE", "DIV", "DL", "FIELDSET",
+        "FOOTER", "FORM", "H1", "H2", "H3", "H4", "H5", "H6", "HEADER", "HR",
+        "MENU", "NAV", "OL", "P", "PRE", "SECTION", "TABLE", "UL"});
+    /** End tags of elements a P may be the last thing in. */
+    protected static Set tagsParentOfP = caseless(new String[] {
+        "ARTICLE", "ASIDE", "BLOCKQUOTE", "BODY", "DD", "DIV", "FIELDSET",
+        "FOOTER", "FORM", "HEADER", "HTML", "LI", "NAV", "SECTION", "TD",
+        "TH"});
+    /** Tags whose end tags may be left out, given what follows. */
+    protected static Set tagsOptionalEnd = caseless(new String[] {
+        "BODY", "DD", "DT", "HEAD", "HTML", "LI", "OPTION", "P", "TBODY", "TD",
+        "TFOOT", "TH", "THEAD", "TR"});
+
+    protected PrintWriter out;
+    protected int flags;
+    private final List keep = new ArrayList();
+
+    // The name of the raw text element being written, if any
+    private String raw;
+    // Whitespace has been seen since the last thing written
+    private boolean space;
+    // The last thing written, or left out, was a block level tag
+    private boolean afterBlock;
+    // An end tag which may be left out, depending on what comes next
+    private HtmlDocument.EndTag pendingEnd;
+
+    /** Constructor, with the default options. */
+    public HtmlMinifier(OutputStream os) {
+        this(os, DEFAULT_OPTIONS);
+    }
+
+    /**
+     * Constructor.
+     * @param flags a bitmask of the options wanted
+     */
+    public HtmlMinifier(OutputStream os, int flags) {
+        this(new BufferedWriter(new OutputStreamWriter(os)), flags);
+    }
+
+    /**
+     * Constructor.
+     * @param flags a bitmask of the options wanted
+     */
+    public HtmlMinifier(OutputStream os, String encoding, int flags)
+            throws UnsupportedEncodingException {
+        this(new BufferedWriter(new OutputStreamWriter(os, encoding)), flags);
+    }
+
+    /**
+     * Constructor, writing to a Writer, such as a DeflaterWriter, which
+     * does its own buffering.
+     * @param flags a bitmask of the options wanted
+     */
+    public HtmlMinifier(Writer w, int flags) {
+        this.out = new PrintWriter(w);
+        this.flags = flags;
+        keepComments("[if");
+        keepComments("<![endif]");
+    }
+
+    private static Set caseless(String[] names) {
+        Set s = new TreeSet(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < names.length; i++)
+            s.add(names[i]);
+        return s;
+    }
+
+    /**
+     * Keep comments whose text, after the opening "&lt;!--", begins
+     * with the prefix.  Conditional comments, beginning "[if" or
+     * "&lt;![endif]", are kept to begin with.
+     */
+    public void keepComments(String prefix) {
+        keep.add(prefix);
+    }
+
+    public void start() {
+        raw = null;
+        space = false;
+        afterBlock = true;
+        pendingEnd = null;
+    }
+
+    public void finish() {
+        settle(null);
+        out.flush();
+    }
+
+    public void visit(HtmlDocument.Tag t) {
+        settle(t);
+        out.write('<');
+        out.write(t.tagName);
+        int n = t.attributeList.size();
+        for (int i = 0; i < n; i++) {
+            HtmlDocument.Attribute a = t.attributeList.get(i);
+            out.write(' ');
+            out.write(a.name);
+            if (a.hasValue) {
+                out.write('=');
+                // A "/" straight after an unquoted value would be read 
+                // as part of it
+                if ((flags & STRIP_QUOTES) != 0 && a.getQuote() != 0
+                        && !(t.emptyTag && i == n - 1)
+                        && HtmlScrubber.safeToUnquote(a.getValue()))
+                    out.write(a.getValue());
+                else
+                    out.write(a.value);
+            }
+        }
+        if (t.emptyTag)
+            out.write('/');
+        out.write('>');
+        if (raw == null && !t.emptyTag && tagsRaw.contains(t.tagName))
+            raw = t.tagName;
+    }
+
+    public void visit(HtmlDocument.EndTag t) {
+        if (raw != null && raw.equalsIgnoreCase(t.tagName))
+            raw = null;
+        if ((flags & OMIT_END_TAGS) != 0 && raw == null
+                && tagsOptionalEnd.contains(t.tagName)) {
+            // Block level, so whitespace either side of it cannot show
+            settle(t);
+            pendingEnd = t;
+            return;
+        }
+        settle(t);
+        writeEndTag(t);
+    }
+
+    /**
+     * Leave out the line end the parser adds to the end of a script or
+     * style block, which was never in the source.
+     */
+    public void visit(HtmlDocument.TagBlock bl) {
+        bl.startTag.accept(this);
+        int n = bl.body.size();
+        HtmlDocument.HtmlElement last = n > 0 ? bl.body.get(n - 1) : null;
+        if (last instanceof HtmlDocument.Newline && last.getBeginOffset() >= 0
+                && last.getBeginOffset() == last.getEndOffset())
+            n--;
+        for (int i = 0; i < n; i++)
+            bl.body.get(i).accept(this);
+        bl.endTag.accept(this);
+    }
+
+    public void visit(HtmlDocument.Comment c) {
+        if ((flags & STRIP_COMMENTS) != 0 && c.comment.startsWith("--")) {
+            for (int i = 0; i < keep.size(); i++)
+                if (c.comment.startsWith((String) keep.get(i), 2)) {
+                    settle(c);
+                    out.print(c);
+                    return;
+                }
+            return;
+        }
+        settle(c);
+        out.print(c);
+    }
+
+    public void visit(HtmlDocument.Text t) {
+        String text = t.text;
+        if (raw != null || (flags & COLLAPSE_SPACES) == 0) {
+            if (text.length() > 0) {
+                settle(t);
+                out.write(text);
+            }
+            return;
+        }
+        // Write each word, with a single space for the whitespace before it
+        int i = 0;
+        while (i < text.length()) {
+            int start = i;
+            while (i < text.length() && isSpace(text.charAt(i)))
+                i++;
+            if (i > start)
+                space = true;
+            start = i;
+            while (i < text.length() && !isSpace(text.charAt(i)))
+                i++;
+            if (i > start) {
+                settle(t);
+                out.write(text, start, i - start);
+            }
+        }
+    }
+
+    public void visit(HtmlDocument.Newline n) {
+        if (raw != null || (flags & COLLAPSE_SPACES) == 0) {
+            settle(n);
+            out.write(n.getWhitespace());
+            out.println();
+        } else
+            space = true;
+    }
+
+    /**
+     * Write out what is owed before an element: the end tag held back,
+     * if the element does not make it unnecessary, and a space, if there
+     * was whitespace which can show.
+     *
+     * @param next the element about to be written, or null at the end
+     */
+    private void settle(HtmlDocument.HtmlElement next) {
+        boolean block = false;
+        if (next instanceof HtmlDocument.Tag)
+            block = tagsBlock.contains(((HtmlDocument.Tag) next).tagName);
+        else if (next instanceof HtmlDocument.EndTag)
+            block = tagsBlock.contains(((HtmlDocument.EndTag) next).tagName);
+
+        if (pendingEnd != null) {
+            if (!omittable(pendingEnd.tagName, next))
+                writeEndTag(pendingEnd);
+            pendingEnd = null;
+            afterBlock = true;
+        }
+        if (space && raw == null && !afterBlock && !block && next != null)
+            out.write(' ');
+        space = false;
+        afterBlock = block;
+    }
+
+    private void writeEndTag(HtmlDocument.EndTag t) {
+        out.write("</");
+        out.write(t.tagName);
+        out.write('>');
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    /**
+     * @return whether HTML lets the end tag be left out when followed by
+     * the element given, or by nothing at all
+     */
+    private static boolean omittable(String name, HtmlDocument.HtmlElement next) {
+        String start = null, end = null;
+        if (next instanceof HtmlDocument.Tag)
+            start = ((HtmlDocument.Tag) next).tagName;
+        else if (next instanceof HtmlDocument.EndTag)
+            end = ((HtmlDocument.EndTag) next).tagName;
+        else if (next != null)
+            return false;
+
+        if (is(name, "HTML") || is(name, "BODY"))
+            return next == null || is(end, "HTML");
+        if (is(name, "HEAD"))
+            return is(start, "BODY");
+        if (is(name, "P"))
+            return start != null ? tagsCloseP.contains(start)
+                : end != null && tagsParentOfP.contains(end);
+        if (is(name, "LI"))
+            return is(start, "LI") || is(end, "UL") || is(end, "OL");
+        if (is(name, "DT"))
+            return is(start, "DT") || is(start, "DD");
+        if (is(name, "DD"))
+            return is(start, "DT") || is(start, "DD") || is(end, "DL");
+        if (is(name, "OPTION"))
+            return is(start, "OPTION") || is(start, "OPTGROUP")
+                || is(end, "SELECT") || is(end, "OPTGROUP");
+        if (is(name, "TR"))
+            return is(start, "TR") || is(end, "TABLE") || is(end, "TBODY")
+                || is(end, "THEAD") || is(end, "TFOOT");
+        if (is(name, "TD") || is(name, "TH"))
+            return is(start, "TD") || is(start, "TH") || is(end, "TR")
+                || is(end, "TABLE") || is(end, "TBODY");
+        if (is(name, "THEAD"))
+            return is(start, "TBODY") || is(start, "TFOOT");
+        if (is(name, "TBODY"))
+            return is(start, "TBODY") || is(start, "TFOOT") || is(end, "TABLE");
+        if (is(name, "TFOOT"))
+            return is(end, "TABLE");
+        return false;
+    }
+
+    private static boolean is(String name, String upper) {
+        return name != null && name.equalsIgnoreCase(upper);
+    }
+}
@@ -27,6 +27,17 @@ public class HtmlParser implements HtmlParserConstants {
 
   final static String NL = System.getProperty("line.separator");
 
+  /** The type of the Annotations noting recoveries from malformed markup. */
+  public static final String RECOVERED = "recovered";
+
+  private ParseLimits limits = new ParseLimits();
+  // Where to record figures for the document, if anywhere
+  private ParseMetrics metrics;
+  // Whether to note each recovery with an Annotation
+  private boolean annotating;
+  // The Annotation noting the last recovery, until it is returned
+  private HtmlDocument.Annotation recovery;
+
   private static String getTokenText(Token first, Token cur) {
     Token t;
     StringBuffer sb = new StringBuffer();
@@ -44,6 +55,363 @@ public class HtmlParser implements HtmlParserConstants {
     return sb.toString();
   }
 
+  /**
+   * Recover from a malformed construct without throwing.  The offending
+   * token has already been fetched as the next token; it is consumed, and
+   * everything from <code>first</code> up to and including it is returned
+   * as Text, with the lexer put back into its DEFAULT state.
+   */
+  private HtmlDocument.Text recover(Token first) {
+    token_source.SwitchTo(DEFAULT);
+    Token t = getNextToken();
+    recovered(t.kind, t.beginOffset);
+    return new HtmlDocument.Text(getTokenText(first, t));
+  }
+
+  /**
+   * Count a recovery in the metrics, if any, and note it with an 
+   * Annotation, if annotating.
+   * @param kind the kind of token which could not be parsed
+   * @param offset where that token begins
+   */
+  private void recovered(int kind, int offset) {
+    if (metrics != null)
+      metrics.recovered(kind);
+    if (annotating)
+      recovery = new HtmlDocument.Annotation(RECOVERED,
+          tokenImage[kind] + " at " + offset);
+  }
+
+  /**
+   * @return a Newline keeping the spaces and tabs which came before 
+   * the line end in <code>image</code>
+   */
+  private static HtmlDocument.Newline newline(String image) {
+    int end = image.length() - 1;
+    if (end > 0 && image.charAt(end) == '\n' && image.charAt(end - 1) == '\r')
+      end--;
+    return new HtmlDocument.Newline(image.substring(0, end));
+  }
+
+  /**
+   * Parse a document from a byte stream.  The stream is decoded once, in 
+   * the encoding given by its byte order mark or meta tag, or else the 
+   * platform default, and that encoding is recorded on the document.
+   * @see HtmlReader
+   */
+  public static HtmlDocument parse(java.io.InputStream in)
+      throws java.io.IOException, ParseException {
+    HtmlReader reader = new HtmlReader(in);
+    HtmlDocument document = new HtmlParser(reader).HtmlDocument();
+    document.setEncoding(reader.getEncoding());
+    return document;
+  }
+
+  /**
+   * Parse the next element of the input, so that a document can be 
+   * handled an element at a time, in constant memory, rather than built
+   * whole.  Elements come as they would in the document: flat, but for
+   * raw text blocks: script, style, textarea, title and xmp.
+   * @return the element, or null at the end of the input
+   */
+  public HtmlDocument.HtmlElement nextElement() throws ParseException {
+    if (recovery != null) {
+      HtmlDocument.HtmlElement e = recovery;
+      recovery = null;
+      return e;
+    }
+    if (getToken(1).kind == EOF) {
+      checkInput();
+      return null;
+    }
+    if (!admit())
+      return null;
+    if (metrics == null)
+      return Element();
+    metrics.startParse();
+    HtmlDocument.HtmlElement e = Element();
+    metrics.endParse(token_source.input_stream.getEndOffset());
+    return e;
+  }
+
+  /**
+   * Limit what the parser takes from its input.  Set them before parsing.
+   * @see ParseLimits
+   */
+  public void setLimits(ParseLimits limits) {
+    this.limits = limits;
+    token_source.input_stream.setLimits(limits.getMaxTokenLength(),
+                                        limits.getMaxInput());
+  }
+
+  /**
+   * Record figures for the document in <code>metrics</code>, starting 
+   * them afresh.  Set them before parsing.  With none, as by default, 
+   * the lexer is not timed.
+   * @see ParseMetrics
+   */
+  public void setMetrics(ParseMetrics metrics) {
+    this.metrics = metrics;
+    if (metrics != null) {
+      metrics.reset();
+      if (!(token_source instanceof MeteredTokenManager))
+        token_source = new MeteredTokenManager(token_source.input_stream);
+    }
+    if (token_source instanceof MeteredTokenManager)
+      ((MeteredTokenManager) token_source).metrics = metrics;
+  }
+
+  /**
+   * Note each recovery from malformed markup with an Annotation of type 
+   * RECOVERED, straight after the element recovered, saying which kind of
+   * token could not be parsed, and where.  It is located as taking no 
+   * room in the source just after the element, so PatchingDumper leaves
+   * it out.  Set it before parsing.  By default, recoveries go unnoted.
+   * @see ParseMetrics#getRecovered(int)
+   */
+  public void setAnnotating(boolean annotating) {
+    this.annotating = annotating;
+  }
+
+  /** A token manager which times and counts the tokens it makes. */
+  private static class MeteredTokenManager extends HtmlParserTokenManager {
+    ParseMetrics metrics;
+
+    MeteredTokenManager(SimpleCharStream stream) {
+      super(stream);
+    }
+
+    public Token getNextToken() {
+      if (metrics == null)
+        return super.getNextToken();
+      long start = metrics.now();
+      Token t = super.getNextToken();
+      metrics.lexed(metrics.now() - start);
+      metrics.token(t);
+      return t;
+    }
+  }
+
+  /** 
+   * @return whether anything has been left out of what was parsed, 
+   * because it exceeded limits which truncate
+   */
+  public boolean isTruncated() {
+    SimpleCharStream in = token_source.input_stream;
+    return in.truncated || in.getStopped() != null;
+  }
+
+  /** Fail if a limit has cut the input short, unless truncating. */
+  private void checkInput() throws ParseLimitException {
+    String why = token_source.input_stream.getStopped();
+    if (why != null && !limits.isTruncating())
+      throw new ParseLimitException(why);
+  }
+
+  /** Fail, unless truncating, because a limit has been exceeded. */
+  private void exceeded(String why) throws ParseLimitException {
+    if (!limits.isTruncating())
+      throw new ParseLimitException(why);
+    token_source.input_stream.truncated = true;
+  }
+
+  /** 
+   * Count an element against the limit, and check the input.
+   * @return whether there is room for the element, if not failing
+   */
+  private boolean admit() throws ParseLimitException {
+    checkInput();
+    SimpleCharStream in = token_source.input_stream;
+    if (in.elements < limits.getMaxElements()) {
+      in.elements++;
+      return true;
+    }
+    String why = "More than " + limits.getMaxElements() + " elements";
+    exceeded(why);
+    // Read no further
+    in.stop(why);
+    return false;
+  }
+
+  /** 
+   * Fail, or read no further, if text gathered from many tokens, as in a
+   * comment, is longer than a single token may be.
+   */
+  private void checkLength(StringBuffer s) throws ParseLimitException {
+    if (s.length() > limits.getMaxTokenLength()
+        && token_source.input_stream.getStopped() == null) {
+      String why = "Token longer than " + limits.getMaxTokenLength()
+        + " characters";
+      exceeded(why);
+      token_source.input_stream.stop(why);
+    }
+  }
+
+  /**
+   * @return the line end put at the end of a script or style block's 
+   * contents, located as taking no room in the source just before the 
+   * end tag
+   */
+  private static HtmlDocument.Newline blockEnd(int offset) {
+    HtmlDocument.Newline n = new HtmlDocument.Newline();
+    n.setOffsets(offset, offset);
+    return n;
+  }
+
+  /**
+   * Read the contents of a raw text block straight from the input, up to
+   * the end tag which matches <code>name</code> in any case, without the 
+   * lexer, which would make a token of every "&lt;".  The contents come
+   * as a single Text, however many lines they run to; Text.lines() splits 
+   * them for those who ask.  Script and style blocks are named in upper 
+   * case, and their contents end with a Newline, as they always have.
+   * <p>
+   * If the input ends first, a script or style block is recovered as Text
+   * running to the end of the input.  The end of any other tag is looked 
+   * for no further than RAW_LOOKAHEAD characters ahead, nor past the 
+   * maximum token length; if it is not found, the tag is left unmatched,
+   * and what came after it is parsed as markup after all.  Its end is 
+   * not looked for again for later tags of the same name within what has 
+   * been searched, so that many unclosed tags take no longer to parse 
+   * than they are long.
+   * </p>
+   * @param tagEnd the start tag's TAG_END, the last token consumed
+   * @return a TagBlock, a Tag, or Text
+   */
+  private HtmlDocument.HtmlElement rawBlock(String name,
+      HtmlDocument.AttributeList alist, Token first, Token tagEnd) {
+    SimpleCharStream in = token_source.input_stream;
+    boolean script = isScript(name);
+    int begin = tagEnd.endOffset;
+    if (in.searched == null)
+      in.searched = new int[RAW_TAGS.length];
+    int kind = rawIndex(name);
+    int endLength = 0;
+    if (begin >= in.searched[kind]) {
+      boolean stopped = in.getStopped() != null;
+      long start = metrics == null ? 0 : metrics.now();
+      endLength = scanToEndTag(name,
+          script ? Integer.MAX_VALUE : RAW_LOOKAHEAD);
+      if (metrics != null)
+        metrics.lexed(metrics.now() - start);
+      if (endLength == 0) {
+        in.searched[kind] = in.getEndOffset();
+        // Running into the token limit only ends the search
+        if (!script && !stopped)
+          in.resume();
+      }
+    }
+    int read = in.getEndOffset() - begin;
+    if (endLength == 0) {
+      recovered(EOF, in.getEndOffset());
+      if (!script) {
+        in.backup(read);
+        return new HtmlDocument.Tag(name, alist);
+      }
+      String text = getTokenText(first, tagEnd);
+      if (read > 0)
+        text += in.GetImage();
+      consumed(in.getEndOffset(), "");
+      return new HtmlDocument.Text(text);
+    }
+
+    int end = in.getEndOffset() - endLength;
+    HtmlDocument.ElementSequence body = new HtmlDocument.ElementSequence();
+    if (end > begin) {
+      HtmlDocument.Text text = new HtmlDocument.Text(in.GetImage(endLength));
+      text.setOffsets(begin, end);
+      body.addElement(text);
+    }
+    if (script) {
+      body.addElement(blockEnd(end));
+      name = name.toUpperCase();
+    }
+    HtmlDocument.Tag startTag = new HtmlDocument.Tag(name, alist);
+    startTag.setOffsets(first.beginOffset, tagEnd.endOffset);
+    String image = new String(in.GetSuffix(endLength));
+    HtmlDocument.EndTag endTag = new HtmlDocument.EndTag(
+        script ? name : image.substring(2, 2 + name.length()));
+    endTag.setOffsets(end, in.getEndOffset());
+    consumed(end, image);
+    return new HtmlDocument.TagBlock(startTag, body, endTag);
+  }
+
+  /** 
+   * How many characters ahead the end of a textarea, title or xmp tag is
+   * looked for, so that an unclosed one is not held in full.
+   */
+  static final int RAW_LOOKAHEAD = 1 << 16;
+
+  /** The tags whose contents are raw text, in lower case. */
+  private static final String[] RAW_TAGS = {
+    "script", "style", "textarea", "title", "xmp" };
+
+  /** @return the index of a raw text tag's name in RAW_TAGS */
+  private static int rawIndex(String name) {
+    for (int i = 0; i < RAW_TAGS.length - 1; i++)
+      if (name.equalsIgnoreCase(RAW_TAGS[i]))
+        return i;
+    return RAW_TAGS.length - 1;
+  }
+
+  /** @return whether the tag begins a script or style block */
+  private static boolean isScript(String name) {
+    return name.equalsIgnoreCase("SCRIPT") || name.equalsIgnoreCase("STYLE");
+  }
+
+  /**
+   * Read on, as a single token, to just past the next end tag named 
+   * <code>name</code> in any case, with any white space before its 
+   * "&gt;".
+   * @param most how many characters to read at most
+   * @return the length of the end tag, or 0 if the input ended, or the
+   * most characters were read, first
+   */
+  private int scanToEndTag(String name, int most) {
+    SimpleCharStream in = token_source.input_stream;
+    String lower = name.toLowerCase();
+    int length = lower.length() + 2;
+    // How much of the end tag has been matched
+    int matched = 0;
+    int n = 0;
+    try {
+      for (char c = in.BeginToken();; c = in.readChar()) {
+        if (++n > most)
+          return 0;
+        if (c == '<')
+          matched = 1;
+        else if (matched == 0)
+          continue;
+        else if (matched == 1)
+          matched = c == '/' ? 2 : 0;
+        else if (matched < length)
+          matched = Character.toLowerCase(c) == lower.charAt(matched - 2)
+            ? matched + 1 : 0;
+        else if (c == '>')
+          return matched + 1;
+        else if (c == ' ' || c == '\t' || c == '\n' || c == '\r')
+          matched++;
+        else
+          matched = 0;
+      }
+    } catch (java.io.IOException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Stand a token in for what was read from <code>begin</code> without 
+   * the lexer, as the last consumed, so that the element is taken to 
+   * end where it does.
+   */
+  private void consumed(int begin, String image) {
+    Token t = new Token(TAG_END, image);
+    t.beginOffset = begin;
+    t.endOffset = token_source.input_stream.getEndOffset();
+    token.next = t;
+    token = t;
+  }
+
   /** Runnable. */
   public static void main(String[] args) throws ParseException {
     HtmlParser parser = new HtmlParser(System.in);
@@ -55,8 +423,17 @@ public class HtmlParser implements HtmlParserConstants {
 /** Constructor. */
   final public HtmlDocument HtmlDocument() throws ParseException {
   HtmlDocument.ElementSequence s;
+    if (metrics != null)
+      metrics.startParse();
     s = ElementSequence();
+    // Skip what is left after the most elements
+    if (token_source.input_stream.elements == limits.getMaxElements())
+      while (getToken(1).kind != EOF)
+        getNextToken();
     jj_consume_token(0);
+    checkInput();
+    if (metrics != null)
+      metrics.endParse(token_source.input_stream.getEndOffset());
     {if (true) return new HtmlDocument(s);}
     throw new Error("Missing return statement in function");
   }
@@ -67,77 +444,123 @@ public class HtmlParser implements HtmlParserConstants {
   HtmlDocument.HtmlElement h;
     label_1:
     while (true) {
-      switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
-      case EOL:
-      case TAG_START:
-      case ENDTAG_START:
-      case COMMENT_START:
-      case DECL_START:
-      case PCDATA:
+      if (getToken(1).kind != EOF && admit()) {
         ;
-        break;
-      default:
-        jj_la1[0] = jj_gen;
+      } else {
         break label_1;
       }
       h = Element();
-                  s.addElement(h);
+      s.addElement(h);
+      if (recovery != null) {
+        s.addElement(recovery);
+        recovery = null;
+      }
     }
     {if (true) return s;}
     throw new Error("Missing return statement in function");
   }
 
-/** @return an element */
+/** 
+ * @return an element, with the offsets of the text it was parsed from,
+ * unless it is the shared Newline
+ */
   final public HtmlDocument.HtmlElement Element() throws ParseException {
   HtmlDocument.HtmlElement e;
   Token text;
-    if (jj_2_1(2)) {
-      e = Tag();
-                            {if (true) return e;}
-    } else {
+  int begin = getToken(1).beginOffset;
+    switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
+    case TAG_START:
+      e = StartTag();
+      break;
+    case ENDTAG_START:
+      e = EndTag();
+      break;
+    case COMMENT_START:
+      e = CommentTag();
+      break;
+    case DECL_START:
+      e = DeclTag();
+      break;
+    case PCDATA:
+      text = jj_consume_token(PCDATA);
+                            e = new HtmlDocument.Text(text.image);
+      break;
+    case EOL:
+    case EOL_CR:
+    case EOL_CRLF:
       switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
-      case ENDTAG_START:
-        e = EndTag();
-                            {if (true) return e;}
+      case EOL:
+        jj_consume_token(EOL);
         break;
-      case COMMENT_START:
-        e = CommentTag();
-                            {if (true) return e;}
+      case EOL_CR:
+        jj_consume_token(EOL_CR);
         break;
-      case DECL_START:
-        e = DeclTag();
-                            {if (true) return e;}
+      case EOL_CRLF:
+        jj_consume_token(EOL_CRLF);
         break;
       default:
-        jj_la1[1] = jj_gen;
-        if (jj_2_2(2)) {
-          e = ScriptBlock();
-                             {if (true) return e;}
-        } else if (jj_2_3(2)) {
-          e = StyleBlock();
-                             {if (true) return e;}
-        } else if (jj_2_4(2)) {
-          jj_consume_token(TAG_START);
-          text = jj_consume_token(LST_ERROR);
-                            {if (true) return new HtmlDocument.Text("<" + text.image);}
-        } else {
-          switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
-          case PCDATA:
-            text = jj_consume_token(PCDATA);
-                            {if (true) return new HtmlDocument.Text(text.image);}
-            break;
-          case EOL:
-            jj_consume_token(EOL);
-                            {if (true) return new HtmlDocument.Newline();}
-            break;
-          default:
-            jj_la1[2] = jj_gen;
-            jj_consume_token(-1);
-            throw new ParseException();
-          }
-        }
+        jj_la1[0] = jj_gen;
+        jj_consume_token(-1);
+        throw new ParseException();
+      }
+                            {if (true) return HtmlDocument.Newline.SHARED;}
+      break;
+    case SPACED_EOL:
+      text = jj_consume_token(SPACED_EOL);
+                            e = newline(text.image);
+      break;
+    default:
+      jj_la1[1] = jj_gen;
+      jj_consume_token(-1);
+      throw new ParseException();
+    }
+    e.setOffsets(begin, token.endOffset);
+    if (recovery != null)
+      recovery.setOffsets(token.endOffset, token.endOffset);
+    {if (true) return e;}
+    throw new Error("Missing return statement in function");
+  }
+
+/** 
+ * Everything which begins with "&lt;".  The lexer has already decided, 
+ * by the kind of token it returns after it, whether this is an ordinary 
+ * tag, a raw text block, or not a tag at all, so a single token of 
+ * lookahead is enough to choose.
+ * @return a tag, a raw text block, or Text 
+ */
+  final public HtmlDocument.HtmlElement StartTag() throws ParseException {
+  HtmlDocument.HtmlElement e = null;
+  Token first, text;
+    first = jj_consume_token(TAG_START);
+    switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
+    case TAG_RAW:
+    case TAG_NAME:
+    case LST_ERROR:
+      switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
+      case TAG_NAME:
+        e = Tag(first);
+        break;
+      case TAG_RAW:
+        e = RawBlock(first);
+        break;
+      case LST_ERROR:
+        text = jj_consume_token(LST_ERROR);
+                            recovered(LST_ERROR, text.beginOffset);
+                            e = new HtmlDocument.Text("<" + text.image);
+        break;
+      default:
+        jj_la1[2] = jj_gen;
+        jj_consume_token(-1);
+        throw new ParseException();
       }
+      break;
+    default:
+      jj_la1[3] = jj_gen;
+      ;
     }
+    if (e == null)
+      {if (true) return recover(first);}
+    {if (true) return e;}
     throw new Error("Missing return statement in function");
   }
 
@@ -148,10 +571,17 @@ public class HtmlParser implements HtmlParserConstants {
     switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
     case ATTR_EQ:
       jj_consume_token(ATTR_EQ);
-      t2 = jj_consume_token(ATTR_VAL);
+      switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
+      case ATTR_VAL:
+        t2 = jj_consume_token(ATTR_VAL);
+        break;
+      default:
+        jj_la1[4] = jj_gen;
+        ;
+      }
       break;
     default:
-      jj_la1[3] = jj_gen;
+      jj_la1[5] = jj_gen;
       ;
     }
     if (t2 == null)
@@ -172,25 +602,35 @@ public class HtmlParser implements HtmlParserConstants {
         ;
         break;
       default:
-        jj_la1[4] = jj_gen;
+        jj_la1[6] = jj_gen;
         break label_2;
       }
       a = Attribute();
-                   alist.addAttribute(a);
+      if (alist.size() < limits.getMaxAttributes())
+        alist.addAttribute(a);
+      else
+        exceeded("More than " + limits.getMaxAttributes() + " attributes");
     }
     {if (true) return alist;}
     throw new Error("Missing return statement in function");
   }
 
-/** @return a tag */
-  final public HtmlDocument.HtmlElement Tag() throws ParseException {
-  Token t, et;
+/** 
+ * A start tag.  A malformed tag is not a parse error: the optional 
+ * expansions simply fail to match and the tokens are recovered as Text.
+ * (An "=" without a value is always followed by an error token or EOF, 
+ * so that ends up recovered too.)
+ * @param firstToken the TAG_START which has already been consumed
+ * @return a tag 
+ */
+  final public HtmlDocument.HtmlElement Tag(Token firstToken) throws ParseException {
+  Token t, et = null;
   HtmlDocument.AttributeList alist;
-  Token firstToken = getToken(1);
-    try {
-      jj_consume_token(TAG_START);
-      t = jj_consume_token(TAG_NAME);
-      alist = AttributeList();
+    t = jj_consume_token(TAG_NAME);
+    alist = AttributeList();
+    switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
+    case TAG_END:
+    case TAG_SLASHEND:
       switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
       case TAG_END:
         et = jj_consume_token(TAG_END);
@@ -199,126 +639,107 @@ public class HtmlParser implements HtmlParserConstants {
         et = jj_consume_token(TAG_SLASHEND);
         break;
       default:
-        jj_la1[5] = jj_gen;
+        jj_la1[7] = jj_gen;
         jj_consume_token(-1);
         throw new ParseException();
       }
-      HtmlDocument.Tag tag = new HtmlDocument.Tag(t.image, alist);
-      if (et.kind == TAG_SLASHEND) tag.setEmpty(true);
-      {if (true) return tag;}
-    } catch (ParseException ex) {
-    token_source.SwitchTo(DEFAULT);
-    String s = getTokenText(firstToken, getNextToken());
-    {if (true) return new HtmlDocument.Text(s);}
+      break;
+    default:
+      jj_la1[8] = jj_gen;
+      ;
     }
+    if (et == null)
+      {if (true) return recover(firstToken);}
+    HtmlDocument.Tag tag = new HtmlDocument.Tag(t.image, alist);
+    if (et.kind == TAG_SLASHEND) tag.emptyTag = true;
+    {if (true) return tag;}
     throw new Error("Missing return statement in function");
   }
 
-/** @return the contents of a block */
-  final public HtmlDocument.ElementSequence BlockContents() throws ParseException {
-  Token t;
-  StringBuffer s = new StringBuffer();
-  HtmlDocument.ElementSequence e = new HtmlDocument.ElementSequence();
-    label_3:
-    while (true) {
-      switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
-      case BLOCK_EOL:
-      case BLOCK_LBR:
-      case BLOCK_WORD:
-        ;
-        break;
-      default:
-        jj_la1[6] = jj_gen;
-        break label_3;
-      }
+/** 
+ * A script, style, textarea, title or xmp tag, whose contents are raw 
+ * text rather than markup.  Unless it is an empty tag, or the lexer has
+ * already read on past it, its contents are read by rawBlock() rather 
+ * than the lexer.  A script or style tag is never empty, so is recovered
+ * as Text if it seems to be.
+ * @param firstToken the TAG_START which has already been consumed
+ * @return a raw text block, a tag, or Text
+ */
+  final public HtmlDocument.HtmlElement RawBlock(Token firstToken) throws ParseException {
+  Token t, et = null;
+  HtmlDocument.AttributeList alist;
+    t = jj_consume_token(TAG_RAW);
+    alist = AttributeList();
+    switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
+    case TAG_END:
+    case TAG_SLASHEND:
       switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
-      case BLOCK_EOL:
-        jj_consume_token(BLOCK_EOL);
-      if (s.length() > 0) {
-        e.addElement(new HtmlDocument.Text(s.toString()));
-        s.setLength(0);
-      };
-      e.addElement(new HtmlDocument.Newline());
-        break;
-      case BLOCK_WORD:
-        t = jj_consume_token(BLOCK_WORD);
-                       s.append(t.image);
+      case TAG_END:
+        et = jj_consume_token(TAG_END);
         break;
-      case BLOCK_LBR:
-        t = jj_consume_token(BLOCK_LBR);
-                       s.append(t.image);
+      case TAG_SLASHEND:
+        et = jj_consume_token(TAG_SLASHEND);
         break;
       default:
-        jj_la1[7] = jj_gen;
+        jj_la1[9] = jj_gen;
         jj_consume_token(-1);
         throw new ParseException();
       }
+      break;
+    default:
+      jj_la1[10] = jj_gen;
+      ;
     }
-    if (s.length() > 0)
-      e.addElement(new HtmlDocument.Text(s.toString()));
-    e.addElement(new HtmlDocument.Newline());
-    {if (true) return e;}
-    throw new Error("Missing return statement in function");
-  }
-
-/** @return the contents of a script block */
-  final public HtmlDocument.HtmlElement ScriptBlock() throws ParseException {
-  HtmlDocument.AttributeList alist;
-  HtmlDocument.ElementSequence e;
-  Token firstToken = getToken(1);
-    try {
-      jj_consume_token(TAG_START);
-      jj_consume_token(TAG_SCRIPT);
-      alist = AttributeList();
-      jj_consume_token(TAG_END);
-      token_source.SwitchTo(LexScript);
-      e = BlockContents();
-      jj_consume_token(SCRIPT_END);
-      {if (true) return new HtmlDocument.TagBlock("SCRIPT", alist, e);}
-    } catch (ParseException ex) {
-    token_source.SwitchTo(DEFAULT);
-    String s = getTokenText(firstToken, getNextToken());
-    {if (true) return new HtmlDocument.Text(s);}
-    }
-    throw new Error("Missing return statement in function");
-  }
-
-/** @return the contents of a style block */
-  final public HtmlDocument.HtmlElement StyleBlock() throws ParseException {
-  HtmlDocument.AttributeList alist;
-  HtmlDocument.ElementSequence e;
-  Token firstToken = getToken(1);
-    try {
-      jj_consume_token(TAG_START);
-      jj_consume_token(TAG_STYLE);
-      alist = AttributeList();
-      jj_consume_token(TAG_END);
-      token_source.SwitchTo(LexStyle);
-      e = BlockContents();
-      jj_consume_token(STYLE_END);
-      {if (true) return new HtmlDocument.TagBlock("STYLE", alist, e);}
-    } catch (ParseException ex) {
-    token_source.SwitchTo(DEFAULT);
-    String s = getTokenText(firstToken, getNextToken());
-    {if (true) return new HtmlDocument.Text(s);}
+    if (et == null)
+      {if (true) return recover(firstToken);}
+    if (et.kind == TAG_SLASHEND && isScript(t.image)) {
+      recovered(TAG_SLASHEND, et.beginOffset);
+      {if (true) return new HtmlDocument.Text(getTokenText(firstToken, et));}
     }
+    if (et.kind == TAG_END && et.next == null)
+      {if (true) return rawBlock(t.image, alist, firstToken, et);}
+    HtmlDocument.Tag tag = new HtmlDocument.Tag(t.image, alist);
+    if (et.kind == TAG_SLASHEND) tag.emptyTag = true;
+    {if (true) return tag;}
     throw new Error("Missing return statement in function");
   }
 
 /** @return the end of a tag */
   final public HtmlDocument.HtmlElement EndTag() throws ParseException {
-  Token t;
+  Token t = null, et = null;
   Token firstToken = getToken(1);
-    try {
-      jj_consume_token(ENDTAG_START);
-      t = jj_consume_token(TAG_NAME);
-      jj_consume_token(TAG_END);
-      {if (true) return new HtmlDocument.EndTag(t.image);}
-    } catch (ParseException ex) {
-    token_source.SwitchTo(DEFAULT);
-    String s = getTokenText(firstToken, getNextToken());
-    {if (true) return new HtmlDocument.Text(s);}
+    jj_consume_token(ENDTAG_START);
+    switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
+    case TAG_RAW:
+    case TAG_NAME:
+      switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
+      case TAG_NAME:
+        t = jj_consume_token(TAG_NAME);
+        break;
+      case TAG_RAW:
+        t = jj_consume_token(TAG_RAW);
+        break;
+      default:
+        jj_la1[11] = jj_gen;
+        jj_consume_token(-1);
+        throw new ParseException();
+      }
+      switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
+      case TAG_END:
+        et = jj_consume_token(TAG_END);
+        break;
+      default:
+        jj_la1[12] = jj_gen;
+        ;
+      }
+      break;
+    default:
+      jj_la1[13] = jj_gen;
+      ;
     }
+    if (et == null)
+      {if (true) return recover(firstToken);}
+    {if (true) return new HtmlDocument.EndTag(t.image);}
     throw new Error("Missing return statement in function");
   }
 
@@ -327,7 +748,7 @@ public class HtmlParser implements HtmlParserConstants {
   Token t;
   StringBuffer s = new StringBuffer("--");
     jj_consume_token(COMMENT_START);
-    label_4:
+    label_3:
     while (true) {
       switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
       case DASH:
@@ -336,27 +757,28 @@ public class HtmlParser implements HtmlParserConstants {
         ;
         break;
       default:
-        jj_la1[8] = jj_gen;
-        break label_4;
+        jj_la1[14] = jj_gen;
+        break label_3;
       }
       switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
       case DASH:
         t = jj_consume_token(DASH);
-               s.append(t.image);
+                 s.append(t.image);
         break;
       case COMMENT_EOL:
         jj_consume_token(COMMENT_EOL);
-                       s.append(NL);
+                         s.append(NL);
         break;
       case COMMENT_WORD:
         t = jj_consume_token(COMMENT_WORD);
-                         s.append(t.image);
+                           s.append(t.image);
         break;
       default:
-        jj_la1[9] = jj_gen;
+        jj_la1[15] = jj_gen;
         jj_consume_token(-1);
         throw new ParseException();
       }
+      checkLength(s);
     }
     switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
     case 0:
@@ -366,7 +788,7 @@ public class HtmlParser implements HtmlParserConstants {
       jj_consume_token(COMMENT_END);
       break;
     default:
-      jj_la1[10] = jj_gen;
+      jj_la1[16] = jj_gen;
       jj_consume_token(-1);
       throw new ParseException();
     }
@@ -374,83 +796,30 @@ public class HtmlParser implements HtmlParserConstants {
     throw new Error("Missing return statement in function");
   }
 
-/** @return the start of a declaration */
-  final public HtmlDocument.Comment DeclTag() throws ParseException {
-  Token t;
+/** 
+ * A declaration.  One the input ends in, as when a limit has cut it 
+ * short, is recovered as Text.
+ * @return the start of a declaration, or Text 
+ */
+  final public HtmlDocument.HtmlElement DeclTag() throws ParseException {
+  Token t, et = null;
+  Token firstToken = getToken(1);
     jj_consume_token(DECL_START);
     t = jj_consume_token(DECL_ANY);
-    jj_consume_token(DECL_END);
+    switch ((jj_ntk==-1)?jj_ntk():jj_ntk) {
+    case DECL_END:
+      et = jj_consume_token(DECL_END);
+      break;
+    default:
+      jj_la1[17] = jj_gen;
+      ;
+    }
+    if (et == null)
+      {if (true) return recover(firstToken);}
     {if (true) return new HtmlDocument.Comment(t.image);}
     throw new Error("Missing return statement in function");
   }
 
-  private boolean jj_2_1(int xla) {
-    jj_la = xla; jj_lastpos = jj_scanpos = token;
-    try { return !jj_3_1(); }
-    catch(LookaheadSuccess ls) { return true; }
-    finally { jj_save(0, xla); }
-  }
-
-  private boolean jj_2_2(int xla) {
-    jj_la = xla; jj_lastpos = jj_scanpos = token;
-    try { return !jj_3_2(); }
-    catch(LookaheadSuccess ls) { return true; }
-    finally { jj_save(1, xla); }
-  }
-
-  private boolean jj_2_3(int xla) {
-    jj_la = xla; jj_lastpos = jj_scanpos = token;
-    try { return !jj_3_3(); }
-    catch(LookaheadSuccess ls) { return true; }
-    finally { jj_save(2, xla); }
-  }
-
-  private boolean jj_2_4(int xla) {
-    jj_la = xla; jj_lastpos = jj_scanpos = token;
-    try { return !jj_3_4(); }
-    catch(LookaheadSuccess ls) { return true; }
-    finally { jj_save(3, xla); }
-  }
-
-  private boolean jj_3_1() {
-    if (jj_3R_5()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_6() {
-    if (jj_scan_token(TAG_START)) return true;
-    if (jj_scan_token(TAG_SCRIPT)) return true;
-    return false;
-  }
-
-  private boolean jj_3_4() {
-    if (jj_scan_token(TAG_START)) return true;
-    if (jj_scan_token(LST_ERROR)) return true;
-    return false;
-  }
-
-  private boolean jj_3_3() {
-    if (jj_3R_7()) return true;
-    return false;
-  }
-
-  private boolean jj_3_2() {
-    if (jj_3R_6()) return true;
-    return false;
-  }
-
-  private boolean jj_3R_7() {
-    if (jj_scan_token(TAG_START)) return true;
-    if (jj_scan_token(TAG_STYLE)) return true;
-    return false;
-  }
-
-  private boolean jj_3R_5() {
-    if (jj_scan_token(TAG_START)) return true;
-    if (jj_scan_token(TAG_NAME)) return true;
-    return false;
-  }
-
   /** Generated Token Manager. */
   public HtmlParserTokenManager token_source;
   SimpleCharStream jj_input_stream;
@@ -459,14 +828,8 @@ public class HtmlParser implements HtmlParserConstants {
   /** Next token. */
   public Token jj_nt;
   private int jj_ntk;
-  private Token jj_scanpos, jj_lastpos;
-  private int jj_la;
-  /** Whether we are looking ahead. */
-  public boolean lookingAhead = false;
-  // Manually commented out
-  // private boolean jj_semLA;
   private int jj_gen;
-  final private int[] jj_la1 = new int[11];
+  final private int[] jj_la1 = new int[18];
   static private int[] jj_la1_0;
   static private int[] jj_la1_1;
   static {
@@ -474,14 +837,11 @@ public class HtmlParser implements HtmlParserConstants {
       jj_la1_init_1();
    }
    private static void jj_la1_init_0() {
-      jj_la1_0 = new int[] {0xfc000,0x70000,0x84000,0x10000000,0x2000000,0xc000000,0x0,0x0,0x0,0x0,0x1,};
+      jj_la1_0 = new int[] {0x1c000,0x7fc000,0x3800000,0x3800000,0x0,0x40000000,0x8000000,0x30000000,0x30000000,0x30000000,0x30000000,0x1800000,0x10000000,0x1800000,0x0,0x0,0x1,0x0,};
    }
    private static void jj_la1_init_1() {
-      jj_la1_1 = new int[] {0x0,0x0,0x0,0x0,0x0,0x0,0x1c00,0x1c00,0x38,0x38,0x4,};
+      jj_la1_1 = new int[] {0x0,0x0,0x0,0x0,0x4,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0xe0,0xe0,0x10,0x200,};
    }
-  final private JJCalls[] jj_2_rtns = new JJCalls[4];
-  private boolean jj_rescan = false;
-  private int jj_gc = 0;
 
   /** Constructor with InputStream. */
   public HtmlParser(java.io.InputStream stream) {
@@ -494,8 +854,7 @@ public class HtmlParser implements HtmlParserConstants {
     token = new Token();
     jj_ntk = -1;
     jj_gen = 0;
-    for (int i = 0; i < 11; i++) jj_la1[i] = -1;
-    for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
+    for (int i = 0; i < 18; i++) jj_la1[i] = -1;
   }
 
   /** Reinitialise. */
@@ -509,8 +868,7 @@ public class HtmlParser implements HtmlParserConstants {
     token = new Token();
     jj_ntk = -1;
     jj_gen = 0;
-    for (int i = 0; i < 11; i++) jj_la1[i] = -1;
-    for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
+    for (int i = 0; i < 18; i++) jj_la1[i] = -1;
   }
 
   /** Constructor. */
@@ -520,8 +878,7 @@ public class HtmlParser implements HtmlParserConstants {
     token = new Token();
     jj_ntk = -1;
     jj_gen = 0;
-    for (int i = 0; i < 11; i++) jj_la1[i] = -1;
-    for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
+    for (int i = 0; i < 18; i++) jj_la1[i] = -1;
   }
 
   /** Reinitialise. */
@@ -531,8 +888,7 @@ public class HtmlParser implements HtmlParserConstants {
     token = new Token();
     jj_ntk = -1;
     jj_gen = 0;
-    for (int i = 0; i < 11; i++) jj_la1[i] = -1;
-    for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
+    for (int i = 0; i < 18; i++) jj_la1[i] = -1;
   }
 
   /** Constructor with generated Token Manager. */
@@ -541,8 +897,7 @@ public class HtmlParser implements HtmlParserConstants {
     token = new Token();
     jj_ntk = -1;
     jj_gen = 0;
-    for (int i = 0; i < 11; i++) jj_la1[i] = -1;
-    for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
+    for (int i = 0; i < 18; i++) jj_la1[i] = -1;
   }
 
   /** Reinitialise. */
@@ -551,8 +906,7 @@ public class HtmlParser implements HtmlParserConstants {
     token = new Token();
     jj_ntk = -1;
     jj_gen = 0;
-    for (int i = 0; i < 11; i++) jj_la1[i] = -1;
-    for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
+    for (int i = 0; i < 18; i++) jj_la1[i] = -1;
   }
 
   private Token jj_consume_token(int kind) throws ParseException {
@@ -562,16 +916,6 @@ public class HtmlParser implements HtmlParserConstants {
     jj_ntk = -1;
     if (token.kind == kind) {
       jj_gen++;
-      if (++jj_gc > 100) {
-        jj_gc = 0;
-        for (int i = 0; i < jj_2_rtns.length; i++) {
-          JJCalls c = jj_2_rtns[i];
-          while (c != null) {
-            if (c.gen < jj_gen) c.first = null;
-            c = c.next;
-          }
-        }
-      }
       return token;
     }
     token = oldToken;
@@ -579,31 +923,6 @@ public class HtmlParser implements HtmlParserConstants {
     throw generateParseException();
   }
 
-  static private final class LookaheadSuccess extends java.lang.Error {
-    private static final long serialVersionUID = 8768692583578964521L; 
-  }
-  final private LookaheadSuccess jj_ls = new LookaheadSuccess();
-  private boolean jj_scan_token(int kind) {
-    if (jj_scanpos == jj_lastpos) {
-      jj_la--;
-      if (jj_scanpos.next == null) {
-        jj_lastpos = jj_scanpos = jj_scanpos.next = token_source.getNextToken();
-      } else {
-        jj_lastpos = jj_scanpos = jj_scanpos.next;
-      }
-    } else {
-      jj_scanpos = jj_scanpos.next;
-    }
-    if (jj_rescan) {
-      int i = 0; Token tok = token;
-      while (tok != null && tok != jj_scanpos) { i++; tok = tok.next; }
-      if (tok != null) jj_add_error_token(kind, i);
-    }
-    if (jj_scanpos.kind != kind) return true;
-    if (jj_la == 0 && jj_scanpos == jj_lastpos) throw jj_ls;
-    return false;
-  }
-
 
 /** Get the next Token. */
   final public Token getNextToken() {
@@ -616,7 +935,7 @@ public class HtmlParser implements HtmlParserConstants {
 
 /** Get the specific Token. */
   final public Token getToken(int index) {
-    Token t = lookingAhead ? jj_scanpos : token;
+    Token t = token;
     for (int i = 0; i < index; i++) {
       if (t.next != null) t = t.next;
       else t = t.next = token_source.getNextToken();
@@ -634,46 +953,16 @@ public class HtmlParser implements HtmlParserConstants {
   private java.util.List jj_expentries = new java.util.ArrayList();
   private int[] jj_expentry;
   private int jj_kind = -1;
-  private int[] jj_lasttokens = new int[100];
-  private int jj_endpos;
-
-  private void jj_add_error_token(int kind, int pos) {
-    if (pos >= 100) return;
-    if (pos == jj_endpos + 1) {
-      jj_lasttokens[jj_endpos++] = kind;
-    } else if (jj_endpos != 0) {
-      jj_expentry = new int[jj_endpos];
-      for (int i = 0; i < jj_endpos; i++) {
-        jj_expentry[i] = jj_lasttokens[i];
-      }
-      boolean exists = false;
-      for (java.util.Iterator it = jj_expentries.iterator(); it.hasNext();) {
-        int[] oldentry = (int[])(it.next());
-        if (oldentry.length == jj_expentry.length) {
-          exists = true;
-          for (int i = 0; i < jj_expentry.length; i++) {
-            if (oldentry[i] != jj_expentry[i]) {
-              exists = false;
-              break;
-            }
-          }
-          if (exists) break;
-        }
-      }
-      if (!exists) jj_expentries.add(jj_expentry);
-      if (pos != 0) jj_lasttokens[(jj_endpos = pos) - 1] = kind;
-    }
-  }
 
   /** Generate ParseException. */
   public ParseException generateParseException() {
     jj_expentries.clear();
-    boolean[] la1tokens = new boolean[45];
+    boolean[] la1tokens = new boolean[42];
     if (jj_kind >= 0) {
       la1tokens[jj_kind] = true;
       jj_kind = -1;
     }
-    for (int i = 0; i < 11; i++) {
+    for (int i = 0; i < 18; i++) {
       if (jj_la1[i] == jj_gen) {
         for (int j = 0; j < 32; j++) {
           if ((jj_la1_0[i] & (1<<j)) != 0) {
@@ -685,16 +974,13 @@ public class HtmlParser implements HtmlParserConstants {
         }
       }
     }
-    for (int i = 0; i < 45; i++) {
+    for (int i = 0; i < 42; i++) {
       if (la1tokens[i]) {
         jj_expentry = new int[1];
         jj_expentry[0] = i;
         jj_expentries.add(jj_expentry);
       }
     }
-    jj_endpos = 0;
-    jj_rescan_token();
-    jj_add_error_token(0, 0);
     int[][] exptokseq = new int[jj_expentries.size()][];
     for (int i = 0; i < jj_expentries.size(); i++) {
       exptokseq[i] = (int[])jj_expentries.get(i);
@@ -710,42 +996,4 @@ public class HtmlParser implements HtmlParserConstants {
   final public void disable_tracing() {
   }
 
-  private void jj_rescan_token() {
-    jj_rescan = true;
-    for (int i = 0; i < 4; i++) {
-    try {
-      JJCalls p = jj_2_rtns[i];
-      do {
-        if (p.gen > jj_gen) {
-          jj_la = p.arg; jj_lastpos = jj_scanpos = p.first;
-          switch (i) {
-            case 0: jj_3_1(); break;
-            case 1: jj_3_2(); break;
-            case 2: jj_3_3(); break;
-            case 3: jj_3_4(); break;
-          }
-        }
-        p = p.next;
-      } while (p != null);
-      } catch(LookaheadSuccess ls) { }
-    }
-    jj_rescan = false;
-  }
-
-  private void jj_save(int index, int xla) {
-    JJCalls p = jj_2_rtns[index];
-    while (p.gen > jj_gen) {
-      if (p.next == null) { p = p.next = new JJCalls(); break; }
-      p = p.next;
-    }
-    p.gen = jj_gen + xla - jj_la; p.first = token; p.arg = xla;
-  }
-
-  static final class JJCalls {
-    int gen;
-    Token first;
-    int arg;
-    JJCalls next;
-  }
-
 }
@@ -33,78 +33,68 @@ public interface HtmlParserConstants {
   /** RegularExpression Id. */
   int EOL = 14;
   /** RegularExpression Id. */
-  int TAG_START = 15;
+  int EOL_CR = 15;
   /** RegularExpression Id. */
-  int ENDTAG_START = 16;
+  int EOL_CRLF = 16;
   /** RegularExpression Id. */
-  int COMMENT_START = 17;
+  int SPACED_EOL = 17;
   /** RegularExpression Id. */
-  int DECL_START = 18;
+  int TAG_START = 18;
   /** RegularExpression Id. */
-  int PCDATA = 19;
+  int ENDTAG_START = 19;
   /** RegularExpression Id. */
-  int TAG_SCRIPT = 20;
+  int COMMENT_START = 20;
   /** RegularExpression Id. */
-  int TAG_STYLE = 21;
+  int DECL_START = 21;
   /** RegularExpression Id. */
-  int TAG_NAME = 22;
+  int PCDATA = 22;
   /** RegularExpression Id. */
-  int LST_ERROR = 23;
+  int TAG_RAW = 23;
   /** RegularExpression Id. */
-  int ATTR_NAME = 25;
+  int TAG_NAME = 24;
   /** RegularExpression Id. */
-  int TAG_END = 26;
+  int LST_ERROR = 25;
   /** RegularExpression Id. */
-  int TAG_SLASHEND = 27;
+  int ATTR_NAME = 27;
   /** RegularExpression Id. */
-  int ATTR_EQ = 28;
+  int TAG_END = 28;
   /** RegularExpression Id. */
-  int IMPLICIT_TAG_END = 29;
+  int TAG_SLASHEND = 29;
   /** RegularExpression Id. */
-  int LIT_ERROR = 30;
+  int ATTR_EQ = 30;
   /** RegularExpression Id. */
-  int ATTR_VAL = 32;
+  int IMPLICIT_TAG_END = 31;
   /** RegularExpression Id. */
-  int LAV_ERROR = 33;
+  int LIT_ERROR = 32;
   /** RegularExpression Id. */
-  int COMMENT_END = 34;
+  int ATTR_VAL = 34;
   /** RegularExpression Id. */
-  int DASH = 35;
+  int LAV_ERROR = 35;
   /** RegularExpression Id. */
-  int COMMENT_EOL = 36;
+  int COMMENT_END = 36;
   /** RegularExpression Id. */
-  int COMMENT_WORD = 37;
+  int DASH = 37;
   /** RegularExpression Id. */
-  int DECL_ANY = 38;
+  int COMMENT_EOL = 38;
   /** RegularExpression Id. */
-  int DECL_END = 39;
+  int COMMENT_WORD = 39;
   /** RegularExpression Id. */
-  int SCRIPT_END = 40;
+  int DECL_ANY = 40;
   /** RegularExpression Id. */
-  int STYLE_END = 41;
-  /** RegularExpression Id. */
-  int BLOCK_EOL = 42;
-  /** RegularExpression Id. */
-  int BLOCK_LBR = 43;
-  /** RegularExpression Id. */
-  int BLOCK_WORD = 44;
+  int DECL_END = 41;
 
   /** Lexical state. */
-  int LexStyle = 0;
+  int LexDecl = 0;
   /** Lexical state. */
-  int LexScript = 1;
+  int LexComment = 1;
   /** Lexical state. */
-  int LexDecl = 2;
+  int LexAttrVal = 2;
   /** Lexical state. */
-  int LexComment = 3;
+  int LexInTag = 3;
   /** Lexical state. */
-  int LexAttrVal = 4;
+  int LexStartTag = 4;
   /** Lexical state. */
-  int LexInTag = 5;
-  /** Lexical state. */
-  int LexStartTag = 6;
-  /** Lexical state. */
-  int DEFAULT = 7;
+  int DEFAULT = 5;
 
   /** Literal token values. */
   String[] tokenImage = {
@@ -122,24 +112,26 @@ public interface HtmlParserConstants {
     "<WHITESPACE>",
     "<NEWLINE>",
     "<QUOTE>",
-    "<EOL>",
+    "\"\\n\"",
+    "\"\\r\"",
+    "\"\\r\\n\"",
+    "<SPACED_EOL>",
     "\"<\"",
     "\"</\"",
     "\"<!--\"",
     "\"<!\"",
     "<PCDATA>",
-    "\"SCRIPT\"",
-    "\"STYLE\"",
+    "<TAG_RAW>",
     "<TAG_NAME>",
     "<LST_ERROR>",
-    "<token of kind 24>",
+    "<token of kind 26>",
     "<ATTR_NAME>",
     "\">\"",
     "\"/>\"",
     "\"=\"",
     "\"<\"",
     "<LIT_ERROR>",
-    "<token of kind 31>",
+    "<token of kind 33>",
     "<ATTR_VAL>",
     "<LAV_ERROR>",
     "<COMMENT_END>",
@@ -148,11 +140,6 @@ public interface HtmlParserConstants {
     "<COMMENT_WORD>",
     "<DECL_ANY>",
     "\">\"",
-    "\"</SCRIPT>\"",
-    "\"</STYLE>\"",
-    "<BLOCK_EOL>",
-    "\"<\"",
-    "<BLOCK_WORD>",
   };
 
 }
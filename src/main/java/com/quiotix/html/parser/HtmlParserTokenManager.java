@@ -4,19 +4,27 @@ package com.quiotix.html.parser;
 /** Token Manager. */
 public class HtmlParserTokenManager implements HtmlParserConstants
 {
+  /** Record where in the input each token was found. */
+  void CommonTokenAction(Token t) {
+    // The IMPLICIT_TAG_END action has already placed its pair of tokens
+    if (t.next == null) {
+      t.beginOffset = input_stream.getBeginOffset();
+      t.endOffset = input_stream.getEndOffset();
+    }
+  }
 
   /** Debug output. */
   public  java.io.PrintStream debugStream = System.out;
   /** Set debug output. */
   public  void setDebugStream(java.io.PrintStream ds) { debugStream = ds; }
-private final int jjStopStringLiteralDfa_7(int pos, long active0)
+private final int jjStopStringLiteralDfa_5(int pos, long active0)
 {
    switch (pos)
    {
       case 0:
          if ((active0 & 0xeL) != 0L)
          {
-            jjmatchedKind = 19;
+            jjmatchedKind = 22;
             return 4;
          }
          return -1;
@@ -24,9 +32,9 @@ private final int jjStopStringLiteralDfa_7(int pos, long active0)
          return -1;
    }
 }
-private final int jjStartNfa_7(int pos, long active0)
+private final int jjStartNfa_5(int pos, long active0)
 {
-   return jjMoveNfa_7(jjStopStringLiteralDfa_7(pos, active0), pos + 1);
+   return jjMoveNfa_5(jjStopStringLiteralDfa_5(pos, active0), pos + 1);
 }
 private int jjStopAtPos(int pos, int kind)
 {
@@ -34,24 +42,29 @@ private int jjStopAtPos(int pos, int kind)
    jjmatchedPos = pos;
    return pos + 1;
 }
-private int jjMoveStringLiteralDfa0_7()
+private int jjMoveStringLiteralDfa0_5()
 {
    switch(curChar)
    {
-      case 60:
+      case 10:
+         return jjStopAtPos(0, 14);
+      case 13:
          jjmatchedKind = 15;
-         return jjMoveStringLiteralDfa1_7(0x70000L);
+         return jjMoveStringLiteralDfa1_5(0x10000L);
+      case 60:
+         jjmatchedKind = 18;
+         return jjMoveStringLiteralDfa1_5(0x380000L);
       case 61:
-         return jjMoveStringLiteralDfa1_7(0xeL);
+         return jjMoveStringLiteralDfa1_5(0xeL);
       default :
-         return jjMoveNfa_7(5, 0);
+         return jjMoveNfa_5(5, 0);
    }
 }
-private int jjMoveStringLiteralDfa1_7(long active0)
+private int jjMoveStringLiteralDfa1_5(long active0)
 {
    try { curChar = input_stream.readChar(); }
    catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_7(0, active0);
+      jjStopStringLiteralDfa_5(0, active0);
       return 1;
    }
    switch(curChar)
@@ -59,6 +72,8 @@ private int jjMoveStringLiteralDfa1_7(long active0)
       case 10:
          if ((active0 & 0x2L) != 0L)
             return jjStopAtPos(1, 1);
+         else if ((active0 & 0x10000L) != 0L)
+            return jjStopAtPos(1, 16);
          break;
       case 13:
          if ((active0 & 0x8L) != 0L)
@@ -66,30 +81,30 @@ private int jjMoveStringLiteralDfa1_7(long active0)
             jjmatchedKind = 3;
             jjmatchedPos = 1;
          }
-         return jjMoveStringLiteralDfa2_7(active0, 0x4L);
+         return jjMoveStringLiteralDfa2_5(active0, 0x4L);
       case 33:
-         if ((active0 & 0x40000L) != 0L)
+         if ((active0 & 0x200000L) != 0L)
          {
-            jjmatchedKind = 18;
+            jjmatchedKind = 21;
             jjmatchedPos = 1;
          }
-         return jjMoveStringLiteralDfa2_7(active0, 0x20000L);
+         return jjMoveStringLiteralDfa2_5(active0, 0x100000L);
       case 47:
-         if ((active0 & 0x10000L) != 0L)
-            return jjStopAtPos(1, 16);
+         if ((active0 & 0x80000L) != 0L)
+            return jjStopAtPos(1, 19);
          break;
       default :
          break;
    }
-   return jjStartNfa_7(0, active0);
+   return jjStartNfa_5(0, active0);
 }
-private int jjMoveStringLiteralDfa2_7(long old0, long active0)
+private int jjMoveStringLiteralDfa2_5(long old0, long active0)
 {
    if (((active0 &= old0)) == 0L)
-      return jjStartNfa_7(0, old0); 
+      return jjStartNfa_5(0, old0);
    try { curChar = input_stream.readChar(); }
    catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_7(1, active0);
+      jjStopStringLiteralDfa_5(1, active0);
       return 2;
    }
    switch(curChar)
@@ -99,43 +114,41 @@ private int jjMoveStringLiteralDfa2_7(long old0, long active0)
             return jjStopAtPos(2, 2);
          break;
       case 45:
-         return jjMoveStringLiteralDfa3_7(active0, 0x20000L);
+         return jjMoveStringLiteralDfa3_5(active0, 0x100000L);
       default :
          break;
    }
-   return jjStartNfa_7(1, active0);
+   return jjStartNfa_5(1, active0);
 }
-private int jjMoveStringLiteralDfa3_7(long old0, long active0)
+private int jjMoveStringLiteralDfa3_5(long old0, long active0)
 {
    if (((active0 &= old0)) == 0L)
-      return jjStartNfa_7(1, old0); 
+      return jjStartNfa_5(1, old0);
    try { curChar = input_stream.readChar(); }
    catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_7(2, active0);
+      jjStopStringLiteralDfa_5(2, active0);
       return 3;
    }
    switch(curChar)
    {
       case 45:
-         if ((active0 & 0x20000L) != 0L)
-            return jjStopAtPos(3, 17);
+         if ((active0 & 0x100000L) != 0L)
+            return jjStopAtPos(3, 20);
          break;
       default :
          break;
    }
-   return jjStartNfa_7(2, active0);
+   return jjStartNfa_5(2, active0);
 }
 static final long[] jjbitVec0 = {
    0x0L, 0x0L, 0xffffffffffffffffL, 0xffffffffffffffffL
 };
-private int jjMoveNfa_7(int startState, int curPos)
+private int jjMoveNfa_5(int startState, int curPos)
 {
-   //int[] nextStates; // not used
    int startsAt = 0;
    jjnewStateCnt = 5;
    int i = 1;
    jjstateSet[0] = startState;
-   //int j; // not used
    int kind = 0x7fffffff;
    for (;;)
    {
@@ -151,41 +164,34 @@ private int jjMoveNfa_7(int startState, int curPos)
                case 5:
                   if ((0xefffffffffffdbffL & l) != 0L)
                   {
-                     if (kind > 19)
-                        kind = 19;
+                     if (kind > 22)
+                        kind = 22;
                      jjCheckNAdd(4);
                   }
-                  else if ((0x2400L & l) != 0L)
-                  {
-                     if (kind > 14)
-                        kind = 14;
-                  }
                   if ((0x100000200L & l) != 0L)
                      jjCheckNAddStates(0, 2);
-                  else if (curChar == 13)
-                     jjstateSet[jjnewStateCnt++] = 1;
                   break;
                case 0:
                   if ((0x100000200L & l) != 0L)
                      jjCheckNAddStates(0, 2);
                   break;
                case 1:
-                  if (curChar == 10 && kind > 14)
-                     kind = 14;
+                  if (curChar == 10 && kind > 17)
+                     kind = 17;
                   break;
                case 2:
                   if (curChar == 13)
                      jjstateSet[jjnewStateCnt++] = 1;
                   break;
                case 3:
-                  if ((0x2400L & l) != 0L && kind > 14)
-                     kind = 14;
+                  if ((0x2400L & l) != 0L && kind > 17)
+                     kind = 17;
                   break;
                case 4:
                   if ((0xefffffffffffdbffL & l) == 0L)
                      break;
-                  if (kind > 19)
-                     kind = 19;
+                  if (kind > 22)
+                     kind = 22;
                   jjCheckNAdd(4);
                   break;
                default : break;
@@ -194,13 +200,14 @@ private int jjMoveNfa_7(int startState, int curPos)
       }
       else if (curChar < 128)
       {
+         long l = 1L << (curChar & 077);
          do
          {
             switch(jjstateSet[--i])
             {
                case 5:
                case 4:
-                  kind = 19;
+                  kind = 22;
                   jjCheckNAdd(4);
                   break;
                default : break;
@@ -219,8 +226,8 @@ private int jjMoveNfa_7(int startState, int curPos)
                case 4:
                   if ((jjbitVec0[i2] & l2) == 0L)
                      break;
-                  if (kind > 19)
-                     kind = 19;
+                  if (kind > 22)
+                     kind = 22;
                   jjCheckNAdd(4);
                   break;
                default : break;
@@ -240,7 +247,7 @@ private int jjMoveNfa_7(int startState, int curPos)
       catch(java.io.IOException e) { return curPos; }
    }
 }
-private final int jjStopStringLiteralDfa_5(int pos, long active0)
+private final int jjStopStringLiteralDfa_3(int pos, long active0)
 {
    switch (pos)
    {
@@ -248,32 +255,32 @@ private final int jjStopStringLiteralDfa_5(int pos, long active0)
          return -1;
    }
 }
-private final int jjStartNfa_5(int pos, long active0)
+private final int jjStartNfa_3(int pos, long active0)
 {
-   return jjMoveNfa_5(jjStopStringLiteralDfa_5(pos, active0), pos + 1);
+   return jjMoveNfa_3(jjStopStringLiteralDfa_3(pos, active0), pos + 1);
 }
-private int jjMoveStringLiteralDfa0_5()
+private int jjMoveStringLiteralDfa0_3()
 {
    switch(curChar)
    {
       case 47:
-         return jjMoveStringLiteralDfa1_5(0x8000000L);
+         return jjMoveStringLiteralDfa1_3(0x20000000L);
       case 60:
-         return jjStopAtPos(0, 29);
+         return jjStopAtPos(0, 31);
       case 61:
-         jjmatchedKind = 28;
-         return jjMoveStringLiteralDfa1_5(0xeL);
+         jjmatchedKind = 30;
+         return jjMoveStringLiteralDfa1_3(0xeL);
       case 62:
-         return jjStopAtPos(0, 26);
+         return jjStopAtPos(0, 28);
       default :
-         return jjMoveNfa_5(1, 0);
+         return jjMoveNfa_3(1, 0);
    }
 }
-private int jjMoveStringLiteralDfa1_5(long active0)
+private int jjMoveStringLiteralDfa1_3(long active0)
 {
    try { curChar = input_stream.readChar(); }
    catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_5(0, active0);
+      jjStopStringLiteralDfa_3(0, active0);
       return 1;
    }
    switch(curChar)
@@ -288,23 +295,23 @@ private int jjMoveStringLiteralDfa1_5(long active0)
             jjmatchedKind = 3;
             jjmatchedPos = 1;
          }
-         return jjMoveStringLiteralDfa2_5(active0, 0x4L);
+         return jjMoveStringLiteralDfa2_3(active0, 0x4L);
       case 62:
-         if ((active0 & 0x8000000L) != 0L)
-            return jjStopAtPos(1, 27);
+         if ((active0 & 0x20000000L) != 0L)
+            return jjStopAtPos(1, 29);
          break;
       default :
          break;
    }
-   return jjStartNfa_5(0, active0);
+   return jjStartNfa_3(0, active0);
 }
-private int jjMoveStringLiteralDfa2_5(long old0, long active0)
+private int jjMoveStringLiteralDfa2_3(long old0, long active0)
 {
    if (((active0 &= old0)) == 0L)
-      return jjStartNfa_5(0, old0); 
+      return jjStartNfa_3(0, old0);
    try { curChar = input_stream.readChar(); }
    catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_5(1, active0);
+      jjStopStringLiteralDfa_3(1, active0);
       return 2;
    }
    switch(curChar)
@@ -316,16 +323,14 @@ private int jjMoveStringLiteralDfa2_5(long old0, long active0)
       default :
          break;
    }
-   return jjStartNfa_5(1, active0);
+   return jjStartNfa_3(1, active0);
 }
-private int jjMoveNfa_5(int startState, int curPos)
+private int jjMoveNfa_3(int startState, int curPos)
 {
-   //int[] nextStates; // not used
    int startsAt = 0;
    jjnewStateCnt = 3;
    int i = 1;
    jjstateSet[0] = startState;
-   //int j; // not used
    int kind = 0x7fffffff;
    for (;;)
    {
@@ -342,13 +347,13 @@ private int jjMoveNfa_5(int startState, int curPos)
                case 0:
                   if ((0x100002600L & l) == 0L)
                      break;
-                  kind = 24;
+                  kind = 26;
                   jjCheckNAdd(0);
                   break;
                case 2:
                   if ((0x7ff600000000000L & l) == 0L)
                      break;
-                  kind = 25;
+                  kind = 27;
                   jjstateSet[jjnewStateCnt++] = 2;
                   break;
                default : break;
@@ -365,15 +370,15 @@ private int jjMoveNfa_5(int startState, int curPos)
                case 1:
                   if ((0x7fffffe07fffffeL & l) == 0L)
                      break;
-                  if (kind > 25)
-                     kind = 25;
+                  if (kind > 27)
+                     kind = 27;
                   jjCheckNAdd(2);
                   break;
                case 2:
                   if ((0x7fffffe87fffffeL & l) == 0L)
                      break;
-                  if (kind > 25)
-                     kind = 25;
+                  if (kind > 27)
+                     kind = 27;
                   jjCheckNAdd(2);
                   break;
                default : break;
@@ -382,6 +387,8 @@ private int jjMoveNfa_5(int startState, int curPos)
       }
       else
       {
+         int i2 = (curChar & 0xff) >> 6;
+         long l2 = 1L << (curChar & 077);
          do
          {
             switch(jjstateSet[--i])
@@ -403,14 +410,14 @@ private int jjMoveNfa_5(int startState, int curPos)
       catch(java.io.IOException e) { return curPos; }
    }
 }
-private final int jjStopStringLiteralDfa_4(int pos, long active0)
+private final int jjStopStringLiteralDfa_2(int pos, long active0)
 {
    switch (pos)
    {
       case 0:
          if ((active0 & 0xeL) != 0L)
          {
-            jjmatchedKind = 32;
+            jjmatchedKind = 34;
             return 1;
          }
          return -1;
@@ -418,25 +425,25 @@ private final int jjStopStringLiteralDfa_4(int pos, long active0)
          return -1;
    }
 }
-private final int jjStartNfa_4(int pos, long active0)
+private final int jjStartNfa_2(int pos, long active0)
 {
-   return jjMoveNfa_4(jjStopStringLiteralDfa_4(pos, active0), pos + 1);
+   return jjMoveNfa_2(jjStopStringLiteralDfa_2(pos, active0), pos + 1);
 }
-private int jjMoveStringLiteralDfa0_4()
+private int jjMoveStringLiteralDfa0_2()
 {
    switch(curChar)
    {
       case 61:
-         return jjMoveStringLiteralDfa1_4(0xeL);
+         return jjMoveStringLiteralDfa1_2(0xeL);
       default :
-         return jjMoveNfa_4(0, 0);
+         return jjMoveNfa_2(0, 0);
    }
 }
-private int jjMoveStringLiteralDfa1_4(long active0)
+private int jjMoveStringLiteralDfa1_2(long active0)
 {
    try { curChar = input_stream.readChar(); }
    catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_4(0, active0);
+      jjStopStringLiteralDfa_2(0, active0);
       return 1;
    }
    switch(curChar)
@@ -451,19 +458,19 @@ private int jjMoveStringLiteralDfa1_4(long active0)
             jjmatchedKind = 3;
             jjmatchedPos = 1;
          }
-         return jjMoveStringLiteralDfa2_4(active0, 0x4L);
+         return jjMoveStringLiteralDfa2_2(active0, 0x4L);
       default :
          break;
    }
-   return jjStartNfa_4(0, active0);
+   return jjStartNfa_2(0, active0);
 }
-private int jjMoveStringLiteralDfa2_4(long old0, long active0)
+private int jjMoveStringLiteralDfa2_2(long old0, long active0)
 {
    if (((active0 &= old0)) == 0L)
-      return jjStartNfa_4(0, old0); 
+      return jjStartNfa_2(0, old0);
    try { curChar = input_stream.readChar(); }
    catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_4(1, active0);
+      jjStopStringLiteralDfa_2(1, active0);
       return 2;
    }
    switch(curChar)
@@ -475,16 +482,14 @@ private int jjMoveStringLiteralDfa2_4(long old0, long active0)
       default :
          break;
    }
-   return jjStartNfa_4(1, active0);
+   return jjStartNfa_2(1, active0);
 }
-private int jjMoveNfa_4(int startState, int curPos)
+private int jjMoveNfa_2(int startState, int curPos)
 {
-   //int[] nextStates; // not used
    int startsAt = 0;
    jjnewStateCnt = 8;
    int i = 1;
    jjstateSet[0] = startState;
-   //int j; // not used
    int kind = 0x7fffffff;
    for (;;)
    {
@@ -500,14 +505,14 @@ private int jjMoveNfa_4(int startState, int curPos)
                case 0:
                   if ((0xbfffff7affffd9ffL & l) != 0L)
                   {
-                     if (kind > 32)
-                        kind = 32;
+                     if (kind > 34)
+                        kind = 34;
                      jjCheckNAdd(1);
                   }
                   else if ((0x100002600L & l) != 0L)
                   {
-                     if (kind > 31)
-                        kind = 31;
+                     if (kind > 33)
+                        kind = 33;
                   }
                   else if (curChar == 39)
                      jjCheckNAddTwoStates(6, 7);
@@ -517,8 +522,8 @@ private int jjMoveNfa_4(int startState, int curPos)
                case 1:
                   if ((0xbfffff7affffd9ffL & l) == 0L)
                      break;
-                  if (kind > 32)
-                     kind = 32;
+                  if (kind > 34)
+                     kind = 34;
                   jjCheckNAdd(1);
                   break;
                case 2:
@@ -530,8 +535,8 @@ private int jjMoveNfa_4(int startState, int curPos)
                      jjCheckNAddTwoStates(3, 4);
                   break;
                case 4:
-                  if (curChar == 34 && kind > 32)
-                     kind = 32;
+                  if (curChar == 34 && kind > 34)
+                     kind = 34;
                   break;
                case 5:
                   if (curChar == 39)
@@ -542,8 +547,8 @@ private int jjMoveNfa_4(int startState, int curPos)
                      jjCheckNAddTwoStates(6, 7);
                   break;
                case 7:
-                  if (curChar == 39 && kind > 32)
-                     kind = 32;
+                  if (curChar == 39 && kind > 34)
+                     kind = 34;
                   break;
                default : break;
             }
@@ -551,14 +556,15 @@ private int jjMoveNfa_4(int startState, int curPos)
       }
       else if (curChar < 128)
       {
+         long l = 1L << (curChar & 077);
          do
          {
             switch(jjstateSet[--i])
             {
                case 0:
                case 1:
-                  if (kind > 32)
-                     kind = 32;
+                  if (kind > 34)
+                     kind = 34;
                   jjCheckNAdd(1);
                   break;
                case 3:
@@ -583,8 +589,8 @@ private int jjMoveNfa_4(int startState, int curPos)
                case 1:
                   if ((jjbitVec0[i2] & l2) == 0L)
                      break;
-                  if (kind > 32)
-                     kind = 32;
+                  if (kind > 34)
+                     kind = 34;
                   jjCheckNAdd(1);
                   break;
                case 3:
@@ -612,88 +618,33 @@ private int jjMoveNfa_4(int startState, int curPos)
       catch(java.io.IOException e) { return curPos; }
    }
 }
-private final int jjStopStringLiteralDfa_6(int pos, long active0)
+private final int jjStopStringLiteralDfa_4(int pos, long active0)
 {
    switch (pos)
    {
-      case 0:
-         if ((active0 & 0x300000L) != 0L)
-         {
-            jjmatchedKind = 22;
-            return 1;
-         }
-         return -1;
-      case 1:
-         if ((active0 & 0x300000L) != 0L)
-         {
-            if (jjmatchedPos != 1)
-            {
-               jjmatchedKind = 22;
-               jjmatchedPos = 1;
-            }
-            return 1;
-         }
-         return -1;
-      case 2:
-         if ((active0 & 0x300000L) != 0L)
-         {
-            jjmatchedKind = 22;
-            jjmatchedPos = 2;
-            return 1;
-         }
-         return -1;
-      case 3:
-         if ((active0 & 0x300000L) != 0L)
-         {
-            jjmatchedKind = 22;
-            jjmatchedPos = 3;
-            return 1;
-         }
-         return -1;
-      case 4:
-         if ((active0 & 0x200000L) != 0L)
-            return 1;
-         if ((active0 & 0x100000L) != 0L)
-         {
-            jjmatchedKind = 22;
-            jjmatchedPos = 4;
-            return 1;
-         }
-         return -1;
       default :
          return -1;
    }
 }
-private final int jjStartNfa_6(int pos, long active0)
-{
-   return jjMoveNfa_6(jjStopStringLiteralDfa_6(pos, active0), pos + 1);
-}
-private int jjStartNfaWithStates_6(int pos, int kind, int state)
+private final int jjStartNfa_4(int pos, long active0)
 {
-   jjmatchedKind = kind;
-   jjmatchedPos = pos;
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) { return pos + 1; }
-   return jjMoveNfa_6(state, pos + 1);
+   return jjMoveNfa_4(jjStopStringLiteralDfa_4(pos, active0), pos + 1);
 }
-private int jjMoveStringLiteralDfa0_6()
+private int jjMoveStringLiteralDfa0_4()
 {
    switch(curChar)
    {
       case 61:
-         return jjMoveStringLiteralDfa1_6(0xeL);
-      case 83:
-      case 115:
-         return jjMoveStringLiteralDfa1_6(0x300000L);
+         return jjMoveStringLiteralDfa1_4(0xeL);
       default :
-         return jjMoveNfa_6(0, 0);
+         return jjMoveNfa_4(2, 0);
    }
 }
-private int jjMoveStringLiteralDfa1_6(long active0)
+private int jjMoveStringLiteralDfa1_4(long active0)
 {
    try { curChar = input_stream.readChar(); }
    catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_6(0, active0);
+      jjStopStringLiteralDfa_4(0, active0);
       return 1;
    }
    switch(curChar)
@@ -708,25 +659,19 @@ private int jjMoveStringLiteralDfa1_6(long active0)
             jjmatchedKind = 3;
             jjmatchedPos = 1;
          }
-         return jjMoveStringLiteralDfa2_6(active0, 0x4L);
-      case 67:
-      case 99:
-         return jjMoveStringLiteralDfa2_6(active0, 0x100000L);
-      case 84:
-      case 116:
-         return jjMoveStringLiteralDfa2_6(active0, 0x200000L);
+         return jjMoveStringLiteralDfa2_4(active0, 0x4L);
       default :
          break;
    }
-   return jjStartNfa_6(0, active0);
+   return jjStartNfa_4(0, active0);
 }
-private int jjMoveStringLiteralDfa2_6(long old0, long active0)
+private int jjMoveStringLiteralDfa2_4(long old0, long active0)
 {
    if (((active0 &= old0)) == 0L)
-      return jjStartNfa_6(0, old0); 
+      return jjStartNfa_4(0, old0);
    try { curChar = input_stream.readChar(); }
    catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_6(1, active0);
+      jjStopStringLiteralDfa_4(1, active0);
       return 2;
    }
    switch(curChar)
@@ -735,92 +680,17 @@ private int jjMoveStringLiteralDfa2_6(long old0, long active0)
          if ((active0 & 0x4L) != 0L)
             return jjStopAtPos(2, 2);
          break;
-      case 82:
-      case 114:
-         return jjMoveStringLiteralDfa3_6(active0, 0x100000L);
-      case 89:
-      case 121:
-         return jjMoveStringLiteralDfa3_6(active0, 0x200000L);
-      default :
-         break;
-   }
-   return jjStartNfa_6(1, active0);
-}
-private int jjMoveStringLiteralDfa3_6(long old0, long active0)
-{
-   if (((active0 &= old0)) == 0L)
-      return jjStartNfa_6(1, old0); 
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_6(2, active0);
-      return 3;
-   }
-   switch(curChar)
-   {
-      case 73:
-      case 105:
-         return jjMoveStringLiteralDfa4_6(active0, 0x100000L);
-      case 76:
-      case 108:
-         return jjMoveStringLiteralDfa4_6(active0, 0x200000L);
-      default :
-         break;
-   }
-   return jjStartNfa_6(2, active0);
-}
-private int jjMoveStringLiteralDfa4_6(long old0, long active0)
-{
-   if (((active0 &= old0)) == 0L)
-      return jjStartNfa_6(2, old0); 
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_6(3, active0);
-      return 4;
-   }
-   switch(curChar)
-   {
-      case 69:
-      case 101:
-         if ((active0 & 0x200000L) != 0L)
-            return jjStartNfaWithStates_6(4, 21, 1);
-         break;
-      case 80:
-      case 112:
-         return jjMoveStringLiteralDfa5_6(active0, 0x100000L);
-      default :
-         break;
-   }
-   return jjStartNfa_6(3, active0);
-}
-private int jjMoveStringLiteralDfa5_6(long old0, long active0)
-{
-   if (((active0 &= old0)) == 0L)
-      return jjStartNfa_6(3, old0); 
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_6(4, active0);
-      return 5;
-   }
-   switch(curChar)
-   {
-      case 84:
-      case 116:
-         if ((active0 & 0x100000L) != 0L)
-            return jjStartNfaWithStates_6(5, 20, 1);
-         break;
       default :
          break;
    }
-   return jjStartNfa_6(4, active0);
+   return jjStartNfa_4(1, active0);
 }
-private int jjMoveNfa_6(int startState, int curPos)
+private int jjMoveNfa_4(int startState, int curPos)
 {
-   //int[] nextStates; // not used
    int startsAt = 0;
-   jjnewStateCnt = 2;
+   jjnewStateCnt = 26;
    int i = 1;
    jjstateSet[0] = startState;
-   //int j; // not used
    int kind = 0x7fffffff;
    for (;;)
    {
@@ -833,11 +703,11 @@ private int jjMoveNfa_6(int startState, int curPos)
          {
             switch(jjstateSet[--i])
             {
-               case 1:
+               case 4:
                   if ((0x7ff600000000000L & l) == 0L)
                      break;
-                  kind = 22;
-                  jjstateSet[jjnewStateCnt++] = 1;
+                  kind = 24;
+                  jjstateSet[jjnewStateCnt++] = 4;
                   break;
                default : break;
             }
@@ -850,19 +720,122 @@ private int jjMoveNfa_6(int startState, int curPos)
          {
             switch(jjstateSet[--i])
             {
+               case 2:
+                  if ((0x7fffffe07fffffeL & l) != 0L)
+                  {
+                     if (kind > 24)
+                        kind = 24;
+                     jjCheckNAdd(4);
+                  }
+                  if ((0x10000000100000L & l) != 0L)
+                     jjAddStates(7, 8);
+                  else if ((0x8000000080000L & l) != 0L)
+                     jjAddStates(9, 10);
+                  else if ((0x100000001000000L & l) != 0L)
+                     jjstateSet[jjnewStateCnt++] = 1;
+                  break;
                case 0:
+                  if ((0x1000000010000L & l) != 0L && kind > 23)
+                     kind = 23;
+                  break;
+               case 1:
+                  if ((0x200000002000L & l) != 0L)
+                     jjstateSet[jjnewStateCnt++] = 0;
+                  break;
+               case 3:
                   if ((0x7fffffe07fffffeL & l) == 0L)
                      break;
-                  if (kind > 22)
-                     kind = 22;
-                  jjCheckNAdd(1);
+                  if (kind > 24)
+                     kind = 24;
+                  jjCheckNAdd(4);
                   break;
-               case 1:
+               case 4:
                   if ((0x7fffffe87fffffeL & l) == 0L)
                      break;
-                  if (kind > 22)
-                     kind = 22;
-                  jjCheckNAdd(1);
+                  if (kind > 24)
+                     kind = 24;
+                  jjCheckNAdd(4);
+                  break;
+               case 5:
+                  if ((0x8000000080000L & l) != 0L)
+                     jjAddStates(9, 10);
+                  break;
+               case 6:
+                  if ((0x10000000100000L & l) != 0L && kind > 23)
+                     kind = 23;
+                  break;
+               case 7:
+                  if ((0x1000000010000L & l) != 0L)
+                     jjstateSet[jjnewStateCnt++] = 6;
+                  break;
+               case 8:
+                  if ((0x20000000200L & l) != 0L)
+                     jjstateSet[jjnewStateCnt++] = 7;
+                  break;
+               case 9:
+                  if ((0x4000000040000L & l) != 0L)
+                     jjstateSet[jjnewStateCnt++] = 8;
+                  break;
+               case 10:
+                  if ((0x800000008L & l) != 0L)
+                     jjstateSet[jjnewStateCnt++] = 9;
+                  break;
+               case 11:
+                  if ((0x2000000020L & l) != 0L && kind > 23)
+                     kind = 23;
+                  break;
+               case 12:
+               case 23:
+                  if ((0x100000001000L & l) != 0L)
+                     jjCheckNAdd(11);
+                  break;
+               case 13:
+                  if ((0x200000002000000L & l) != 0L)
+                     jjstateSet[jjnewStateCnt++] = 12;
+                  break;
+               case 14:
+                  if ((0x10000000100000L & l) != 0L)
+                     jjstateSet[jjnewStateCnt++] = 13;
+                  break;
+               case 15:
+                  if ((0x10000000100000L & l) != 0L)
+                     jjAddStates(7, 8);
+                  break;
+               case 16:
+                  if ((0x200000002L & l) != 0L && kind > 23)
+                     kind = 23;
+                  break;
+               case 17:
+                  if ((0x2000000020L & l) != 0L)
+                     jjstateSet[jjnewStateCnt++] = 16;
+                  break;
+               case 18:
+                  if ((0x4000000040000L & l) != 0L)
+                     jjstateSet[jjnewStateCnt++] = 17;
+                  break;
+               case 19:
+                  if ((0x200000002L & l) != 0L)
+                     jjstateSet[jjnewStateCnt++] = 18;
+                  break;
+               case 20:
+                  if ((0x10000000100000L & l) != 0L)
+                     jjstateSet[jjnewStateCnt++] = 19;
+                  break;
+               case 21:
+                  if ((0x100000001000000L & l) != 0L)
+                     jjstateSet[jjnewStateCnt++] = 20;
+                  break;
+               case 22:
+                  if ((0x2000000020L & l) != 0L)
+                     jjstateSet[jjnewStateCnt++] = 21;
+                  break;
+               case 24:
+                  if ((0x10000000100000L & l) != 0L)
+                     jjstateSet[jjnewStateCnt++] = 23;
+                  break;
+               case 25:
+                  if ((0x20000000200L & l) != 0L)
+                     jjstateSet[jjnewStateCnt++] = 24;
                   break;
                default : break;
             }
@@ -870,6 +843,8 @@ private int jjMoveNfa_6(int startState, int curPos)
       }
       else
       {
+         int i2 = (curChar & 0xff) >> 6;
+         long l2 = 1L << (curChar & 077);
          do
          {
             switch(jjstateSet[--i])
@@ -885,598 +860,27 @@ private int jjMoveNfa_6(int startState, int curPos)
          kind = 0x7fffffff;
       }
       ++curPos;
-      if ((i = jjnewStateCnt) == (startsAt = 2 - (jjnewStateCnt = startsAt)))
+      if ((i = jjnewStateCnt) == (startsAt = 26 - (jjnewStateCnt = startsAt)))
          return curPos;
       try { curChar = input_stream.readChar(); }
       catch(java.io.IOException e) { return curPos; }
    }
 }
-private final int jjStopStringLiteralDfa_1(int pos, long active0)
+private final int jjStopStringLiteralDfa_0(int pos, long active0)
 {
    switch (pos)
    {
       case 0:
          if ((active0 & 0xeL) != 0L)
          {
-            jjmatchedKind = 44;
-            return 3;
-         }
-         return -1;
-      default :
-         return -1;
-   }
-}
-private final int jjStartNfa_1(int pos, long active0)
-{
-   return jjMoveNfa_1(jjStopStringLiteralDfa_1(pos, active0), pos + 1);
-}
-private int jjMoveStringLiteralDfa0_1()
-{
-   switch(curChar)
-   {
-      case 60:
-         jjmatchedKind = 43;
-         return jjMoveStringLiteralDfa1_1(0x10000000000L);
-      case 61:
-         return jjMoveStringLiteralDfa1_1(0xeL);
-      default :
-         return jjMoveNfa_1(1, 0);
-   }
-}
-private int jjMoveStringLiteralDfa1_1(long active0)
-{
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_1(0, active0);
-      return 1;
-   }
-   switch(curChar)
-   {
-      case 10:
-         if ((active0 & 0x2L) != 0L)
-            return jjStopAtPos(1, 1);
-         break;
-      case 13:
-         if ((active0 & 0x8L) != 0L)
-         {
-            jjmatchedKind = 3;
-            jjmatchedPos = 1;
-         }
-         return jjMoveStringLiteralDfa2_1(active0, 0x4L);
-      case 47:
-         return jjMoveStringLiteralDfa2_1(active0, 0x10000000000L);
-      default :
-         break;
-   }
-   return jjStartNfa_1(0, active0);
-}
-private int jjMoveStringLiteralDfa2_1(long old0, long active0)
-{
-   if (((active0 &= old0)) == 0L)
-      return jjStartNfa_1(0, old0); 
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_1(1, active0);
-      return 2;
-   }
-   switch(curChar)
-   {
-      case 10:
-         if ((active0 & 0x4L) != 0L)
-            return jjStopAtPos(2, 2);
-         break;
-      case 83:
-      case 115:
-         return jjMoveStringLiteralDfa3_1(active0, 0x10000000000L);
-      default :
-         break;
-   }
-   return jjStartNfa_1(1, active0);
-}
-private int jjMoveStringLiteralDfa3_1(long old0, long active0)
-{
-   if (((active0 &= old0)) == 0L)
-      return jjStartNfa_1(1, old0); 
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_1(2, active0);
-      return 3;
-   }
-   switch(curChar)
-   {
-      case 67:
-      case 99:
-         return jjMoveStringLiteralDfa4_1(active0, 0x10000000000L);
-      default :
-         break;
-   }
-   return jjStartNfa_1(2, active0);
-}
-private int jjMoveStringLiteralDfa4_1(long old0, long active0)
-{
-   if (((active0 &= old0)) == 0L)
-      return jjStartNfa_1(2, old0); 
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_1(3, active0);
-      return 4;
-   }
-   switch(curChar)
-   {
-      case 82:
-      case 114:
-         return jjMoveStringLiteralDfa5_1(active0, 0x10000000000L);
-      default :
-         break;
-   }
-   return jjStartNfa_1(3, active0);
-}
-private int jjMoveStringLiteralDfa5_1(long old0, long active0)
-{
-   if (((active0 &= old0)) == 0L)
-      return jjStartNfa_1(3, old0); 
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_1(4, active0);
-      return 5;
-   }
-   switch(curChar)
-   {
-      case 73:
-      case 105:
-         return jjMoveStringLiteralDfa6_1(active0, 0x10000000000L);
-      default :
-         break;
-   }
-   return jjStartNfa_1(4, active0);
-}
-private int jjMoveStringLiteralDfa6_1(long old0, long active0)
-{
-   if (((active0 &= old0)) == 0L)
-      return jjStartNfa_1(4, old0); 
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_1(5, active0);
-      return 6;
-   }
-   switch(curChar)
-   {
-      case 80:
-      case 112:
-         return jjMoveStringLiteralDfa7_1(active0, 0x10000000000L);
-      default :
-         break;
-   }
-   return jjStartNfa_1(5, active0);
-}
-private int jjMoveStringLiteralDfa7_1(long old0, long active0)
-{
-   if (((active0 &= old0)) == 0L)
-      return jjStartNfa_1(5, old0); 
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_1(6, active0);
-      return 7;
-   }
-   switch(curChar)
-   {
-      case 84:
-      case 116:
-         return jjMoveStringLiteralDfa8_1(active0, 0x10000000000L);
-      default :
-         break;
-   }
-   return jjStartNfa_1(6, active0);
-}
-private int jjMoveStringLiteralDfa8_1(long old0, long active0)
-{
-   if (((active0 &= old0)) == 0L)
-      return jjStartNfa_1(6, old0); 
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_1(7, active0);
-      return 8;
-   }
-   switch(curChar)
-   {
-      case 62:
-         if ((active0 & 0x10000000000L) != 0L)
-            return jjStopAtPos(8, 40);
-         break;
-      default :
-         break;
-   }
-   return jjStartNfa_1(7, active0);
-}
-private int jjMoveNfa_1(int startState, int curPos)
-{
-   //int[] nextStates; // not used
-   int startsAt = 0;
-   jjnewStateCnt = 11;
-   int i = 1;
-   jjstateSet[0] = startState;
-   //int j; // not used
-   int kind = 0x7fffffff;
-   for (;;)
-   {
-      if (++jjround == 0x7fffffff)
-         ReInitRounds();
-      if (curChar < 64)
-      {
-         long l = 1L << curChar;
-         do
-         {
-            switch(jjstateSet[--i])
-            {
-               case 1:
-                  if ((0xefffff7bffffdbffL & l) != 0L)
-                  {
-                     if (kind > 44)
-                        kind = 44;
-                     jjCheckNAdd(3);
-                  }
-                  else if ((0x8400000000L & l) != 0L)
-                  {
-                     if (kind > 44)
-                        kind = 44;
-                  }
-                  else if ((0x2400L & l) != 0L)
-                  {
-                     if (kind > 42)
-                        kind = 42;
-                  }
-                  if (curChar == 39)
-                     jjCheckNAddTwoStates(8, 9);
-                  else if (curChar == 34)
-                     jjCheckNAddTwoStates(5, 6);
-                  else if (curChar == 13)
-                     jjstateSet[jjnewStateCnt++] = 0;
-                  break;
-               case 0:
-                  if (curChar == 10 && kind > 42)
-                     kind = 42;
-                  break;
-               case 2:
-                  if ((0x2400L & l) != 0L && kind > 42)
-                     kind = 42;
-                  break;
-               case 3:
-                  if ((0xefffff7bffffdbffL & l) == 0L)
-                     break;
-                  if (kind > 44)
-                     kind = 44;
-                  jjCheckNAdd(3);
-                  break;
-               case 4:
-                  if (curChar == 34)
-                     jjCheckNAddTwoStates(5, 6);
-                  break;
-               case 5:
-                  if ((0xfffffffbffffdbffL & l) != 0L)
-                     jjCheckNAddTwoStates(5, 6);
-                  break;
-               case 6:
-                  if (curChar == 34 && kind > 44)
-                     kind = 44;
-                  break;
-               case 7:
-                  if (curChar == 39)
-                     jjCheckNAddTwoStates(8, 9);
-                  break;
-               case 8:
-                  if ((0xffffff7fffffdbffL & l) != 0L)
-                     jjCheckNAddTwoStates(8, 9);
-                  break;
-               case 9:
-                  if (curChar == 39 && kind > 44)
-                     kind = 44;
-                  break;
-               case 10:
-                  if ((0x8400000000L & l) != 0L && kind > 44)
-                     kind = 44;
-                  break;
-               default : break;
-            }
-         } while(i != startsAt);
-      }
-      else if (curChar < 128)
-      {
-         do
-         {
-            switch(jjstateSet[--i])
-            {
-               case 1:
-               case 3:
-                  if (kind > 44)
-                     kind = 44;
-                  jjCheckNAdd(3);
-                  break;
-               case 5:
-                  jjAddStates(7, 8);
-                  break;
-               case 8:
-                  jjAddStates(9, 10);
-                  break;
-               default : break;
-            }
-         } while(i != startsAt);
-      }
-      else
-      {
-         int i2 = (curChar & 0xff) >> 6;
-         long l2 = 1L << (curChar & 077);
-         do
-         {
-            switch(jjstateSet[--i])
-            {
-               case 1:
-               case 3:
-                  if ((jjbitVec0[i2] & l2) == 0L)
-                     break;
-                  if (kind > 44)
-                     kind = 44;
-                  jjCheckNAdd(3);
-                  break;
-               case 5:
-                  if ((jjbitVec0[i2] & l2) != 0L)
-                     jjAddStates(7, 8);
-                  break;
-               case 8:
-                  if ((jjbitVec0[i2] & l2) != 0L)
-                     jjAddStates(9, 10);
-                  break;
-               default : break;
-            }
-         } while(i != startsAt);
-      }
-      if (kind != 0x7fffffff)
-      {
-         jjmatchedKind = kind;
-         jjmatchedPos = curPos;
-         kind = 0x7fffffff;
-      }
-      ++curPos;
-      if ((i = jjnewStateCnt) == (startsAt = 11 - (jjnewStateCnt = startsAt)))
-         return curPos;
-      try { curChar = input_stream.readChar(); }
-      catch(java.io.IOException e) { return curPos; }
-   }
-}
-private final int jjStopStringLiteralDfa_2(int pos, long active0)
-{
-   switch (pos)
-   {
-      case 0:
-         if ((active0 & 0xeL) != 0L)
-         {
-            jjmatchedKind = 38;
-            return 7;
-         }
-         return -1;
-      case 1:
-         if ((active0 & 0xeL) != 0L)
-            return 7;
-         return -1;
-      default :
-         return -1;
-   }
-}
-private final int jjStartNfa_2(int pos, long active0)
-{
-   return jjMoveNfa_2(jjStopStringLiteralDfa_2(pos, active0), pos + 1);
-}
-private int jjStartNfaWithStates_2(int pos, int kind, int state)
-{
-   jjmatchedKind = kind;
-   jjmatchedPos = pos;
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) { return pos + 1; }
-   return jjMoveNfa_2(state, pos + 1);
-}
-private int jjMoveStringLiteralDfa0_2()
-{
-   switch(curChar)
-   {
-      case 61:
-         return jjMoveStringLiteralDfa1_2(0xeL);
-      case 62:
-         return jjStopAtPos(0, 39);
-      default :
-         return jjMoveNfa_2(7, 0);
-   }
-}
-private int jjMoveStringLiteralDfa1_2(long active0)
-{
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_2(0, active0);
-      return 1;
-   }
-   switch(curChar)
-   {
-      case 10:
-         if ((active0 & 0x2L) != 0L)
-            return jjStartNfaWithStates_2(1, 1, 7);
-         break;
-      case 13:
-         if ((active0 & 0x8L) != 0L)
-         {
-            jjmatchedKind = 3;
-            jjmatchedPos = 1;
-         }
-         return jjMoveStringLiteralDfa2_2(active0, 0x4L);
-      default :
-         break;
-   }
-   return jjStartNfa_2(0, active0);
-}
-private int jjMoveStringLiteralDfa2_2(long old0, long active0)
-{
-   if (((active0 &= old0)) == 0L)
-      return jjStartNfa_2(0, old0); 
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_2(1, active0);
-      return 2;
-   }
-   switch(curChar)
-   {
-      case 10:
-         if ((active0 & 0x4L) != 0L)
-            return jjStartNfaWithStates_2(2, 2, 7);
-         break;
-      default :
-         break;
-   }
-   return jjStartNfa_2(1, active0);
-}
-private int jjMoveNfa_2(int startState, int curPos)
-{
-   //int[] nextStates; // not used
-   int startsAt = 0;
-   jjnewStateCnt = 7;
-   int i = 1;
-   jjstateSet[0] = startState;
-   //int j; // not used
-   int kind = 0x7fffffff;
-   for (;;)
-   {
-      if (++jjround == 0x7fffffff)
-         ReInitRounds();
-      if (curChar < 64)
-      {
-         long l = 1L << curChar;
-         do
-         {
-            switch(jjstateSet[--i])
-            {
-               case 7:
-                  if ((0xbfffffffffffffffL & l) != 0L)
-                  {
-                     if (kind > 38)
-                        kind = 38;
-                     jjCheckNAddStates(11, 13);
-                  }
-                  if (curChar == 39)
-                     jjCheckNAddTwoStates(5, 6);
-                  else if (curChar == 34)
-                     jjCheckNAddTwoStates(2, 3);
-                  break;
-               case 0:
-                  if ((0xbfffffffffffffffL & l) == 0L)
-                     break;
-                  if (kind > 38)
-                     kind = 38;
-                  jjCheckNAddStates(11, 13);
-                  break;
-               case 1:
-                  if (curChar == 34)
-                     jjCheckNAddTwoStates(2, 3);
-                  break;
-               case 2:
-                  if ((0xfffffffbffffdbffL & l) != 0L)
-                     jjCheckNAddTwoStates(2, 3);
-                  break;
-               case 3:
-                  if (curChar != 34)
-                     break;
-                  if (kind > 38)
-                     kind = 38;
-                  jjCheckNAddStates(11, 13);
-                  break;
-               case 4:
-                  if (curChar == 39)
-                     jjCheckNAddTwoStates(5, 6);
-                  break;
-               case 5:
-                  if ((0xffffff7fffffdbffL & l) != 0L)
-                     jjCheckNAddTwoStates(5, 6);
-                  break;
-               case 6:
-                  if (curChar != 39)
-                     break;
-                  if (kind > 38)
-                     kind = 38;
-                  jjCheckNAddStates(11, 13);
-                  break;
-               default : break;
-            }
-         } while(i != startsAt);
-      }
-      else if (curChar < 128)
-      {
-         do
-         {
-            switch(jjstateSet[--i])
-            {
-               case 7:
-               case 0:
-                  if (kind > 38)
-                     kind = 38;
-                  jjCheckNAddStates(11, 13);
-                  break;
-               case 2:
-                  jjAddStates(14, 15);
-                  break;
-               case 5:
-                  jjAddStates(7, 8);
-                  break;
-               default : break;
-            }
-         } while(i != startsAt);
-      }
-      else
-      {
-         int i2 = (curChar & 0xff) >> 6;
-         long l2 = 1L << (curChar & 077);
-         do
-         {
-            switch(jjstateSet[--i])
-            {
-               case 7:
-               case 0:
-                  if ((jjbitVec0[i2] & l2) == 0L)
-                     break;
-                  if (kind > 38)
-                     kind = 38;
-                  jjCheckNAddStates(11, 13);
-                  break;
-               case 2:
-                  if ((jjbitVec0[i2] & l2) != 0L)
-                     jjAddStates(14, 15);
-                  break;
-               case 5:
-                  if ((jjbitVec0[i2] & l2) != 0L)
-                     jjAddStates(7, 8);
-                  break;
-               default : break;
-            }
-         } while(i != startsAt);
-      }
-      if (kind != 0x7fffffff)
-      {
-         jjmatchedKind = kind;
-         jjmatchedPos = curPos;
-         kind = 0x7fffffff;
-      }
-      ++curPos;
-      if ((i = jjnewStateCnt) == (startsAt = 7 - (jjnewStateCnt = startsAt)))
-         return curPos;
-      try { curChar = input_stream.readChar(); }
-      catch(java.io.IOException e) { return curPos; }
-   }
-}
-private final int jjStopStringLiteralDfa_0(int pos, long active0)
-{
-   switch (pos)
-   {
-      case 0:
-         if ((active0 & 0xeL) != 0L)
-         {
-            jjmatchedKind = 44;
-            return 3;
+            jjmatchedKind = 40;
+            return 7;
          }
          return -1;
+      case 1:
+         if ((active0 & 0xeL) != 0L)
+            return 7;
+         return -1;
       default :
          return -1;
    }
@@ -1489,13 +893,12 @@ private int jjMoveStringLiteralDfa0_0()
 {
    switch(curChar)
    {
-      case 60:
-         jjmatchedKind = 43;
-         return jjMoveStringLiteralDfa1_0(0x20000000000L);
       case 61:
          return jjMoveStringLiteralDfa1_0(0xeL);
+      case 62:
+         return jjStopAtPos(0, 41);
       default :
-         return jjMoveNfa_0(1, 0);
+         return jjMoveNfa_0(7, 0);
    }
 }
 private int jjMoveStringLiteralDfa1_0(long active0)
@@ -1509,7 +912,7 @@ private int jjMoveStringLiteralDfa1_0(long active0)
    {
       case 10:
          if ((active0 & 0x2L) != 0L)
-            return jjStopAtPos(1, 1);
+            return jjStartNfaWithStates_0(1, 1, 7);
          break;
       case 13:
          if ((active0 & 0x8L) != 0L)
@@ -1518,8 +921,6 @@ private int jjMoveStringLiteralDfa1_0(long active0)
             jjmatchedPos = 1;
          }
          return jjMoveStringLiteralDfa2_0(active0, 0x4L);
-      case 47:
-         return jjMoveStringLiteralDfa2_0(active0, 0x20000000000L);
       default :
          break;
    }
@@ -1528,7 +929,7 @@ private int jjMoveStringLiteralDfa1_0(long active0)
 private int jjMoveStringLiteralDfa2_0(long old0, long active0)
 {
    if (((active0 &= old0)) == 0L)
-      return jjStartNfa_0(0, old0); 
+      return jjStartNfa_0(0, old0);
    try { curChar = input_stream.readChar(); }
    catch(java.io.IOException e) {
       jjStopStringLiteralDfa_0(1, active0);
@@ -1538,120 +939,27 @@ private int jjMoveStringLiteralDfa2_0(long old0, long active0)
    {
       case 10:
          if ((active0 & 0x4L) != 0L)
-            return jjStopAtPos(2, 2);
+            return jjStartNfaWithStates_0(2, 2, 7);
          break;
-      case 83:
-      case 115:
-         return jjMoveStringLiteralDfa3_0(active0, 0x20000000000L);
       default :
          break;
    }
    return jjStartNfa_0(1, active0);
 }
-private int jjMoveStringLiteralDfa3_0(long old0, long active0)
-{
-   if (((active0 &= old0)) == 0L)
-      return jjStartNfa_0(1, old0); 
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_0(2, active0);
-      return 3;
-   }
-   switch(curChar)
-   {
-      case 84:
-      case 116:
-         return jjMoveStringLiteralDfa4_0(active0, 0x20000000000L);
-      default :
-         break;
-   }
-   return jjStartNfa_0(2, active0);
-}
-private int jjMoveStringLiteralDfa4_0(long old0, long active0)
-{
-   if (((active0 &= old0)) == 0L)
-      return jjStartNfa_0(2, old0); 
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_0(3, active0);
-      return 4;
-   }
-   switch(curChar)
-   {
-      case 89:
-      case 121:
-         return jjMoveStringLiteralDfa5_0(active0, 0x20000000000L);
-      default :
-         break;
-   }
-   return jjStartNfa_0(3, active0);
-}
-private int jjMoveStringLiteralDfa5_0(long old0, long active0)
-{
-   if (((active0 &= old0)) == 0L)
-      return jjStartNfa_0(3, old0); 
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_0(4, active0);
-      return 5;
-   }
-   switch(curChar)
-   {
-      case 76:
-      case 108:
-         return jjMoveStringLiteralDfa6_0(active0, 0x20000000000L);
-      default :
-         break;
-   }
-   return jjStartNfa_0(4, active0);
-}
-private int jjMoveStringLiteralDfa6_0(long old0, long active0)
-{
-   if (((active0 &= old0)) == 0L)
-      return jjStartNfa_0(4, old0); 
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_0(5, active0);
-      return 6;
-   }
-   switch(curChar)
-   {
-      case 69:
-      case 101:
-         return jjMoveStringLiteralDfa7_0(active0, 0x20000000000L);
-      default :
-         break;
-   }
-   return jjStartNfa_0(5, active0);
-}
-private int jjMoveStringLiteralDfa7_0(long old0, long active0)
+private int jjStartNfaWithStates_0(int pos, int kind, int state)
 {
-   if (((active0 &= old0)) == 0L)
-      return jjStartNfa_0(5, old0); 
+   jjmatchedKind = kind;
+   jjmatchedPos = pos;
    try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_0(6, active0);
-      return 7;
-   }
-   switch(curChar)
-   {
-      case 62:
-         if ((active0 & 0x20000000000L) != 0L)
-            return jjStopAtPos(7, 41);
-         break;
-      default :
-         break;
-   }
-   return jjStartNfa_0(6, active0);
+   catch(java.io.IOException e) { return pos + 1; }
+   return jjMoveNfa_0(state, pos + 1);
 }
 private int jjMoveNfa_0(int startState, int curPos)
 {
-   //int[] nextStates; // not used
    int startsAt = 0;
-   jjnewStateCnt = 11;
+   jjnewStateCnt = 7;
    int i = 1;
    jjstateSet[0] = startState;
-   //int j; // not used
    int kind = 0x7fffffff;
    for (;;)
    {
@@ -1664,72 +972,54 @@ private int jjMoveNfa_0(int startState, int curPos)
          {
             switch(jjstateSet[--i])
             {
-               case 1:
-                  if ((0xefffff7bffffdbffL & l) != 0L)
-                  {
-                     if (kind > 44)
-                        kind = 44;
-                     jjCheckNAdd(3);
-                  }
-                  else if ((0x8400000000L & l) != 0L)
-                  {
-                     if (kind > 44)
-                        kind = 44;
-                  }
-                  else if ((0x2400L & l) != 0L)
+               case 7:
+                  if ((0xbfffffffffffffffL & l) != 0L)
                   {
-                     if (kind > 42)
-                        kind = 42;
+                     if (kind > 40)
+                        kind = 40;
+                     jjCheckNAddStates(11, 13);
                   }
                   if (curChar == 39)
-                     jjCheckNAddTwoStates(8, 9);
-                  else if (curChar == 34)
                      jjCheckNAddTwoStates(5, 6);
-                  else if (curChar == 13)
-                     jjstateSet[jjnewStateCnt++] = 0;
+                  else if (curChar == 34)
+                     jjCheckNAddTwoStates(2, 3);
                   break;
                case 0:
-                  if (curChar == 10 && kind > 42)
-                     kind = 42;
+                  if ((0xbfffffffffffffffL & l) == 0L)
+                     break;
+                  if (kind > 40)
+                     kind = 40;
+                  jjCheckNAddStates(11, 13);
+                  break;
+               case 1:
+                  if (curChar == 34)
+                     jjCheckNAddTwoStates(2, 3);
                   break;
                case 2:
-                  if ((0x2400L & l) != 0L && kind > 42)
-                     kind = 42;
+                  if ((0xfffffffbffffdbffL & l) != 0L)
+                     jjCheckNAddTwoStates(2, 3);
                   break;
                case 3:
-                  if ((0xefffff7bffffdbffL & l) == 0L)
+                  if (curChar != 34)
                      break;
-                  if (kind > 44)
-                     kind = 44;
-                  jjCheckNAdd(3);
+                  if (kind > 40)
+                     kind = 40;
+                  jjCheckNAddStates(11, 13);
                   break;
                case 4:
-                  if (curChar == 34)
+                  if (curChar == 39)
                      jjCheckNAddTwoStates(5, 6);
                   break;
                case 5:
-                  if ((0xfffffffbffffdbffL & l) != 0L)
+                  if ((0xffffff7fffffdbffL & l) != 0L)
                      jjCheckNAddTwoStates(5, 6);
                   break;
                case 6:
-                  if (curChar == 34 && kind > 44)
-                     kind = 44;
-                  break;
-               case 7:
-                  if (curChar == 39)
-                     jjCheckNAddTwoStates(8, 9);
-                  break;
-               case 8:
-                  if ((0xffffff7fffffdbffL & l) != 0L)
-                     jjCheckNAddTwoStates(8, 9);
-                  break;
-               case 9:
-                  if (curChar == 39 && kind > 44)
-                     kind = 44;
-                  break;
-               case 10:
-                  if ((0x8400000000L & l) != 0L && kind > 44)
-                     kind = 44;
+                  if (curChar != 39)
+                     break;
+                  if (kind > 40)
+                     kind = 40;
+                  jjCheckNAddStates(11, 13);
                   break;
                default : break;
             }
@@ -1737,21 +1027,22 @@ private int jjMoveNfa_0(int startState, int curPos)
       }
       else if (curChar < 128)
       {
+         long l = 1L << (curChar & 077);
          do
          {
             switch(jjstateSet[--i])
             {
-               case 1:
-               case 3:
-                  if (kind > 44)
-                     kind = 44;
-                  jjCheckNAdd(3);
+               case 7:
+               case 0:
+                  if (kind > 40)
+                     kind = 40;
+                  jjCheckNAddStates(11, 13);
                   break;
-               case 5:
-                  jjAddStates(7, 8);
+               case 2:
+                  jjAddStates(14, 15);
                   break;
-               case 8:
-                  jjAddStates(9, 10);
+               case 5:
+                  jjAddStates(16, 17);
                   break;
                default : break;
             }
@@ -1765,21 +1056,21 @@ private int jjMoveNfa_0(int startState, int curPos)
          {
             switch(jjstateSet[--i])
             {
-               case 1:
-               case 3:
+               case 7:
+               case 0:
                   if ((jjbitVec0[i2] & l2) == 0L)
                      break;
-                  if (kind > 44)
-                     kind = 44;
-                  jjCheckNAdd(3);
+                  if (kind > 40)
+                     kind = 40;
+                  jjCheckNAddStates(11, 13);
                   break;
-               case 5:
+               case 2:
                   if ((jjbitVec0[i2] & l2) != 0L)
-                     jjAddStates(7, 8);
+                     jjAddStates(14, 15);
                   break;
-               case 8:
+               case 5:
                   if ((jjbitVec0[i2] & l2) != 0L)
-                     jjAddStates(9, 10);
+                     jjAddStates(16, 17);
                   break;
                default : break;
             }
@@ -1792,22 +1083,22 @@ private int jjMoveNfa_0(int startState, int curPos)
          kind = 0x7fffffff;
       }
       ++curPos;
-      if ((i = jjnewStateCnt) == (startsAt = 11 - (jjnewStateCnt = startsAt)))
+      if ((i = jjnewStateCnt) == (startsAt = 7 - (jjnewStateCnt = startsAt)))
          return curPos;
       try { curChar = input_stream.readChar(); }
       catch(java.io.IOException e) { return curPos; }
    }
 }
-private final int jjStopStringLiteralDfa_3(int pos, long active0)
+private final int jjStopStringLiteralDfa_1(int pos, long active0)
 {
    switch (pos)
    {
       case 0:
-         if ((active0 & 0x800000000L) != 0L)
+         if ((active0 & 0x2000000000L) != 0L)
             return 12;
          if ((active0 & 0xeL) != 0L)
          {
-            jjmatchedKind = 37;
+            jjmatchedKind = 39;
             return 3;
          }
          return -1;
@@ -1815,35 +1106,27 @@ private final int jjStopStringLiteralDfa_3(int pos, long active0)
          return -1;
    }
 }
-private final int jjStartNfa_3(int pos, long active0)
-{
-   return jjMoveNfa_3(jjStopStringLiteralDfa_3(pos, active0), pos + 1);
-}
-private int jjStartNfaWithStates_3(int pos, int kind, int state)
+private final int jjStartNfa_1(int pos, long active0)
 {
-   jjmatchedKind = kind;
-   jjmatchedPos = pos;
-   try { curChar = input_stream.readChar(); }
-   catch(java.io.IOException e) { return pos + 1; }
-   return jjMoveNfa_3(state, pos + 1);
+   return jjMoveNfa_1(jjStopStringLiteralDfa_1(pos, active0), pos + 1);
 }
-private int jjMoveStringLiteralDfa0_3()
+private int jjMoveStringLiteralDfa0_1()
 {
    switch(curChar)
    {
       case 45:
-         return jjStartNfaWithStates_3(0, 35, 12);
+         return jjStartNfaWithStates_1(0, 37, 12);
       case 61:
-         return jjMoveStringLiteralDfa1_3(0xeL);
+         return jjMoveStringLiteralDfa1_1(0xeL);
       default :
-         return jjMoveNfa_3(1, 0);
+         return jjMoveNfa_1(1, 0);
    }
 }
-private int jjMoveStringLiteralDfa1_3(long active0)
+private int jjMoveStringLiteralDfa1_1(long active0)
 {
    try { curChar = input_stream.readChar(); }
    catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_3(0, active0);
+      jjStopStringLiteralDfa_1(0, active0);
       return 1;
    }
    switch(curChar)
@@ -1858,19 +1141,19 @@ private int jjMoveStringLiteralDfa1_3(long active0)
             jjmatchedKind = 3;
             jjmatchedPos = 1;
          }
-         return jjMoveStringLiteralDfa2_3(active0, 0x4L);
+         return jjMoveStringLiteralDfa2_1(active0, 0x4L);
       default :
          break;
    }
-   return jjStartNfa_3(0, active0);
+   return jjStartNfa_1(0, active0);
 }
-private int jjMoveStringLiteralDfa2_3(long old0, long active0)
+private int jjMoveStringLiteralDfa2_1(long old0, long active0)
 {
    if (((active0 &= old0)) == 0L)
-      return jjStartNfa_3(0, old0); 
+      return jjStartNfa_1(0, old0);
    try { curChar = input_stream.readChar(); }
    catch(java.io.IOException e) {
-      jjStopStringLiteralDfa_3(1, active0);
+      jjStopStringLiteralDfa_1(1, active0);
       return 2;
    }
    switch(curChar)
@@ -1882,16 +1165,22 @@ private int jjMoveStringLiteralDfa2_3(long old0, long active0)
       default :
          break;
    }
-   return jjStartNfa_3(1, active0);
+   return jjStartNfa_1(1, active0);
 }
-private int jjMoveNfa_3(int startState, int curPos)
+private int jjStartNfaWithStates_1(int pos, int kind, int state)
+{
+   jjmatchedKind = kind;
+   jjmatchedPos = pos;
+   try { curChar = input_stream.readChar(); }
+   catch(java.io.IOException e) { return pos + 1; }
+   return jjMoveNfa_1(state, pos + 1);
+}
+private int jjMoveNfa_1(int startState, int curPos)
 {
-   //int[] nextStates; // not used
    int startsAt = 0;
    jjnewStateCnt = 16;
    int i = 1;
    jjstateSet[0] = startState;
-   //int j; // not used
    int kind = 0x7fffffff;
    for (;;)
    {
@@ -1907,8 +1196,8 @@ private int jjMoveNfa_3(int startState, int curPos)
                case 12:
                   if (curChar == 62)
                   {
-                     if (kind > 34)
-                        kind = 34;
+                     if (kind > 36)
+                        kind = 36;
                   }
                   else if (curChar == 45)
                      jjCheckNAddTwoStates(13, 14);
@@ -1916,22 +1205,22 @@ private int jjMoveNfa_3(int startState, int curPos)
                case 1:
                   if ((0xffffdf7bffffdbffL & l) != 0L)
                   {
-                     if (kind > 37)
-                        kind = 37;
+                     if (kind > 39)
+                        kind = 39;
                      jjCheckNAdd(3);
                   }
                   else if ((0x8400000000L & l) != 0L)
                   {
-                     if (kind > 37)
-                        kind = 37;
+                     if (kind > 39)
+                        kind = 39;
                   }
                   else if ((0x2400L & l) != 0L)
                   {
-                     if (kind > 36)
-                        kind = 36;
+                     if (kind > 38)
+                        kind = 38;
                   }
                   else if (curChar == 45)
-                     jjAddStates(16, 17);
+                     jjAddStates(18, 19);
                   if (curChar == 39)
                      jjCheckNAddTwoStates(8, 9);
                   else if (curChar == 34)
@@ -1940,18 +1229,18 @@ private int jjMoveNfa_3(int startState, int curPos)
                      jjstateSet[jjnewStateCnt++] = 0;
                   break;
                case 0:
-                  if (curChar == 10 && kind > 36)
-                     kind = 36;
+                  if (curChar == 10 && kind > 38)
+                     kind = 38;
                   break;
                case 2:
-                  if ((0x2400L & l) != 0L && kind > 36)
-                     kind = 36;
+                  if ((0x2400L & l) != 0L && kind > 38)
+                     kind = 38;
                   break;
                case 3:
                   if ((0xffffdf7bffffdbffL & l) == 0L)
                      break;
-                  if (kind > 37)
-                     kind = 37;
+                  if (kind > 39)
+                     kind = 39;
                   jjCheckNAdd(3);
                   break;
                case 4:
@@ -1963,8 +1252,8 @@ private int jjMoveNfa_3(int startState, int curPos)
                      jjCheckNAddTwoStates(5, 6);
                   break;
                case 6:
-                  if (curChar == 34 && kind > 37)
-                     kind = 37;
+                  if (curChar == 34 && kind > 39)
+                     kind = 39;
                   break;
                case 7:
                   if (curChar == 39)
@@ -1975,28 +1264,28 @@ private int jjMoveNfa_3(int startState, int curPos)
                      jjCheckNAddTwoStates(8, 9);
                   break;
                case 9:
-                  if (curChar == 39 && kind > 37)
-                     kind = 37;
+                  if (curChar == 39 && kind > 39)
+                     kind = 39;
                   break;
                case 10:
-                  if ((0x8400000000L & l) != 0L && kind > 37)
-                     kind = 37;
+                  if ((0x8400000000L & l) != 0L && kind > 39)
+                     kind = 39;
                   break;
                case 11:
                   if (curChar == 45)
-                     jjAddStates(16, 17);
+                     jjAddStates(18, 19);
                   break;
                case 13:
                   if (curChar == 32)
                      jjCheckNAddTwoStates(13, 14);
                   break;
                case 14:
-                  if (curChar == 62 && kind > 34)
-                     kind = 34;
+                  if (curChar == 62 && kind > 36)
+                     kind = 36;
                   break;
                case 15:
-                  if (curChar == 62 && kind > 34)
-                     kind = 34;
+                  if (curChar == 62 && kind > 36)
+                     kind = 36;
                   break;
                default : break;
             }
@@ -2004,21 +1293,22 @@ private int jjMoveNfa_3(int startState, int curPos)
       }
       else if (curChar < 128)
       {
+         long l = 1L << (curChar & 077);
          do
          {
             switch(jjstateSet[--i])
             {
                case 1:
                case 3:
-                  if (kind > 37)
-                     kind = 37;
+                  if (kind > 39)
+                     kind = 39;
                   jjCheckNAdd(3);
                   break;
                case 5:
-                  jjAddStates(7, 8);
+                  jjAddStates(16, 17);
                   break;
                case 8:
-                  jjAddStates(9, 10);
+                  jjAddStates(20, 21);
                   break;
                default : break;
             }
@@ -2036,17 +1326,17 @@ private int jjMoveNfa_3(int startState, int curPos)
                case 3:
                   if ((jjbitVec0[i2] & l2) == 0L)
                      break;
-                  if (kind > 37)
-                     kind = 37;
+                  if (kind > 39)
+                     kind = 39;
                   jjCheckNAdd(3);
                   break;
                case 5:
                   if ((jjbitVec0[i2] & l2) != 0L)
-                     jjAddStates(7, 8);
+                     jjAddStates(16, 17);
                   break;
                case 8:
                   if ((jjbitVec0[i2] & l2) != 0L)
-                     jjAddStates(9, 10);
+                     jjAddStates(20, 21);
                   break;
                default : break;
             }
@@ -2066,49 +1356,48 @@ private int jjMoveNfa_3(int startState, int curPos)
    }
 }
 static final int[] jjnextStates = {
-   0, 2, 3, 3, 4, 6, 7, 5, 6, 8, 9, 0, 1, 4, 2, 3, 
-   12, 15, 
+   0, 2, 3, 3, 4, 6, 7, 22, 25, 10, 14, 0, 1, 4, 2, 3, 
+   5, 6, 12, 15, 8, 9, 
 };
 
 /** Token literal values. */
 public static final String[] jjstrLiteralImages = {
 "", null, null, null, null, null, null, null, null, null, null, null, null, 
-null, null, "\74", "\74\57", "\74\41\55\55", "\74\41", null, null, null, null, null, 
-null, null, "\76", "\57\76", "\75", "\74", null, null, null, null, null, "\55", null, 
-null, null, "\76", null, null, null, "\74", null, };
+null, "\12", "\15", "\15\12", null, "\74", "\74\57", "\74\41\55\55", "\74\41", null, 
+null, null, null, null, null, "\76", "\57\76", "\75", "\74", null, null, null, null, 
+null, "\55", null, null, null, "\76", };
 
 /** Lexer state names. */
 public static final String[] lexStateNames = {
-   "LexStyle", 
-   "LexScript", 
-   "LexDecl", 
-   "LexComment", 
-   "LexAttrVal", 
-   "LexInTag", 
-   "LexStartTag", 
-   "DEFAULT", 
+   "LexDecl",
+   "LexComment",
+   "LexAttrVal",
+   "LexInTag",
+   "LexStartTag",
+   "DEFAULT",
 };
 
 /** Lex State array. */
 public static final int[] jjnewLexState = {
-   -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 6, 6, 3, 2, -1, 5, 5, 5, 7, -1, 
-   -1, 7, 7, 4, 6, -1, -1, 5, -1, 7, -1, -1, -1, -1, 7, 7, 7, -1, -1, -1, 
+   -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 4, 4, 1, 0, -1, 3, 3, 
+   5, -1, -1, 5, 5, 2, 4, -1, -1, 3, -1, 5, -1, -1, -1, -1, 5, 
 };
 static final long[] jjtoToken = {
-   0x1fff7effc001L, 
+   0x3fdfbffc001L, 
 };
 static final long[] jjtoSkip = {
-   0x8100000eL, 
+   0x20400000eL, 
 };
 static final long[] jjtoSpecial = {
-   0x81000000L, 
+   0x204000000L, 
 };
 protected SimpleCharStream input_stream;
-private final int[] jjrounds = new int[16];
-private final int[] jjstateSet = new int[32];
-StringBuffer image;
-int jjimageLen;
-int lengthOfMatch;
+private final int[] jjrounds = new int[26];
+private final int[] jjstateSet = new int[52];
+private final StringBuffer jjimage = new StringBuffer();
+private StringBuffer image = jjimage;
+private int jjimageLen;
+private int lengthOfMatch;
 protected char curChar;
 /** Constructor. */
 public HtmlParserTokenManager(SimpleCharStream stream){
@@ -2135,7 +1424,7 @@ private void ReInitRounds()
 {
    int i;
    jjround = 0x80000001;
-   for (i = 16; i-- > 0;)
+   for (i = 26; i-- > 0;)
       jjrounds[i] = 0x80000000;
 }
 
@@ -2149,7 +1438,7 @@ public void ReInit(SimpleCharStream stream, int lexState)
 /** Switch to specified lex state. */
 public void SwitchTo(int lexState)
 {
-   if (lexState >= 8 || lexState < 0)
+   if (lexState >= 6 || lexState < 0)
       throw new TokenMgrError("Error: Ignoring invalid lexical state : " + lexState + ". State unchanged.", TokenMgrError.INVALID_LEXICAL_STATE);
    else
       curLexState = lexState;
@@ -2158,18 +1447,18 @@ public void SwitchTo(int lexState)
 protected Token jjFillToken()
 {
    final Token t;
-   final String tokenImage;
+   final String curTokenImage;
    final int beginLine;
    final int endLine;
    final int beginColumn;
    final int endColumn;
    String im = jjstrLiteralImages[jjmatchedKind];
-   tokenImage = (im == null) ? input_stream.GetImage() : im;
+   curTokenImage = (im == null) ? input_stream.GetImage() : im;
    beginLine = input_stream.getBeginLine();
    beginColumn = input_stream.getBeginColumn();
    endLine = input_stream.getEndLine();
    endColumn = input_stream.getEndColumn();
-   t = Token.newToken(jjmatchedKind, tokenImage);
+   t = Token.newToken(jjmatchedKind, curTokenImage);
 
    t.beginLine = beginLine;
    t.endLine = endLine;
@@ -2179,8 +1468,8 @@ protected Token jjFillToken()
    return t;
 }
 
-int curLexState = 7;
-int defaultLexState = 7;
+int curLexState = 5;
+int defaultLexState = 5;
 int jjnewStateCnt;
 int jjround;
 int jjmatchedPos;
@@ -2189,26 +1478,27 @@ int jjmatchedKind;
 /** Get the next Token. */
 public Token getNextToken() 
 {
-  //int kind;
   Token specialToken = null;
   Token matchedToken;
   int curPos = 0;
 
   EOFLoop :
   for (;;)
-  {   
-   try   
-   {     
+  {
+   try
+   {
       curChar = input_stream.BeginToken();
-   }     
+   }
    catch(java.io.IOException e)
-   {        
+   {
       jjmatchedKind = 0;
       matchedToken = jjFillToken();
       matchedToken.specialToken = specialToken;
+      CommonTokenAction(matchedToken);
       return matchedToken;
    }
-   image = null;
+   image = jjimage;
+   image.setLength(0);
    jjimageLen = 0;
 
    switch(curLexState)
@@ -2227,43 +1517,33 @@ public Token getNextToken()
        jjmatchedKind = 0x7fffffff;
        jjmatchedPos = 0;
        curPos = jjMoveStringLiteralDfa0_2();
+       if (jjmatchedPos == 0 && jjmatchedKind > 35)
+       {
+          jjmatchedKind = 35;
+       }
        break;
      case 3:
        jjmatchedKind = 0x7fffffff;
        jjmatchedPos = 0;
        curPos = jjMoveStringLiteralDfa0_3();
+       if (jjmatchedPos == 0 && jjmatchedKind > 32)
+       {
+          jjmatchedKind = 32;
+       }
        break;
      case 4:
        jjmatchedKind = 0x7fffffff;
        jjmatchedPos = 0;
        curPos = jjMoveStringLiteralDfa0_4();
-       if (jjmatchedPos == 0 && jjmatchedKind > 33)
+       if (jjmatchedPos == 0 && jjmatchedKind > 25)
        {
-          jjmatchedKind = 33;
+          jjmatchedKind = 25;
        }
        break;
      case 5:
        jjmatchedKind = 0x7fffffff;
        jjmatchedPos = 0;
        curPos = jjMoveStringLiteralDfa0_5();
-       if (jjmatchedPos == 0 && jjmatchedKind > 30)
-       {
-          jjmatchedKind = 30;
-       }
-       break;
-     case 6:
-       jjmatchedKind = 0x7fffffff;
-       jjmatchedPos = 0;
-       curPos = jjMoveStringLiteralDfa0_6();
-       if (jjmatchedPos == 0 && jjmatchedKind > 23)
-       {
-          jjmatchedKind = 23;
-       }
-       break;
-     case 7:
-       jjmatchedKind = 0x7fffffff;
-       jjmatchedPos = 0;
-       curPos = jjMoveStringLiteralDfa0_7();
        break;
    }
      if (jjmatchedKind != 0x7fffffff)
@@ -2277,6 +1557,7 @@ public Token getNextToken()
            TokenLexicalActions(matchedToken);
        if (jjnewLexState[jjmatchedKind] != -1)
          curLexState = jjnewLexState[jjmatchedKind];
+           CommonTokenAction(matchedToken);
            return matchedToken;
         }
         else
@@ -2293,7 +1574,7 @@ public Token getNextToken()
               }
               SkipLexicalActions(matchedToken);
            }
-           else 
+           else
               SkipLexicalActions(null);
          if (jjnewLexState[jjmatchedKind] != -1)
            curLexState = jjnewLexState[jjmatchedKind];
@@ -2328,8 +1609,6 @@ void SkipLexicalActions(Token matchedToken)
    switch(jjmatchedKind)
    {
       case 3 :
-         if (image == null)
-            image = new StringBuffer();
          image.append(input_stream.GetSuffix(jjimageLen + (lengthOfMatch = jjmatchedPos + 1)));
   System.err.println("Skipping");
          break;
@@ -2341,10 +1620,9 @@ void TokenLexicalActions(Token matchedToken)
 {
    switch(jjmatchedKind)
    {
-      case 29 :
-        if (image == null)
-            image = new StringBuffer();
-            image.append(jjstrLiteralImages[29]);
+      case 31 :
+        image.append(jjstrLiteralImages[31]);
+        lengthOfMatch = jjstrLiteralImages[31].length();
     Token t = new Token();
     t.image       = "<";
     t.kind        = TAG_START;
@@ -2353,11 +1631,14 @@ void TokenLexicalActions(Token matchedToken)
     t.beginColumn = matchedToken.beginColumn;
     t.endLine     = matchedToken.endLine;
     t.endColumn   = matchedToken.endColumn;
+    t.beginOffset = input_stream.getBeginOffset();
+    t.endOffset   = input_stream.getEndOffset();
+    matchedToken.beginOffset = matchedToken.endOffset = t.beginOffset;
     matchedToken.next  = t;
     matchedToken.kind  = TAG_END;
     matchedToken.image = ">";
          break;
-      default : 
+      default :
          break;
    }
 }
@@ -0,0 +1,186 @@
+/*
+ * HtmlQuery.java -- finds the elements matching a set of selectors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An HtmlVisitor which finds the elements matching any number of
+ * {@link HtmlSelector}s in a single traversal of the document.
+ * <pre>
+ *   HtmlQuery q = new HtmlQuery();
+ *   int links = q.add("a[href]");
+ *   int cells = q.add("table.data &gt; tr &gt; td");
+ *   document.accept(q);
+ *   List found = q.getMatches(links);
+ * </pre>
+ * The document should first have been through an {@link HtmlCollector},
+ * as descendant and child selectors are matched against the nesting of
+ * TagBlocks.  A matching block is reported as its TagBlock; a tag which
+ * was not collected into a block is reported as its Tag.
+ * <p>
+ * Each selector is filed under the tag name it requires of the element
+ * itself, so an element is only tested against the selectors which
+ * could match it, however many have been added.
+ * </p>
+ *
+ * @see HtmlSelector
+ */
+public class HtmlQuery extends HtmlVisitor {
+
+    private final List selectors = new ArrayList();
+    private List[] matches = new List[0];
+
+    /** Tag name to candidate (selector, chain) pairs, built by start(). */
+    private Map byTagName;
+    /** Candidates whose rightmost step accepts any tag name. */
+    private int[] anyTagName;
+    /** The serial number of the element each selector last matched. */
+    private int[] lastMatched;
+    private int serial;
+
+    private HtmlDocument.Tag[] path = new HtmlDocument.Tag[16];
+    private int depth;
+
+    /**
+     * @param selector the text of a selector
+     * @return the number by which to ask for its matches
+     * @throws IllegalArgumentException if the selector is not understood
+     */
+    public int add(String selector) {
+        return add(HtmlSelector.compile(selector));
+    }
+
+    /**
+     * @param selector a compiled selector
+     * @return the number by which to ask for its matches
+     */
+    public int add(HtmlSelector selector) {
+        selectors.add(selector);
+        byTagName = null;
+        return selectors.size() - 1;
+    }
+
+    /**
+     * @param selector the number returned when the selector was added
+     * @return the elements it matched in the last document visited,
+     *         in document order
+     */
+    public List getMatches(int selector) {
+        return selector < matches.length ? matches[selector] : new ArrayList();
+    }
+
+    /**
+     * Find the elements matching a single selector.
+     */
+    public static List select(HtmlDocument document, String selector) {
+        HtmlQuery q = new HtmlQuery();
+        int i = q.add(selector);
+        document.accept(q);
+        return q.getMatches(i);
+    }
+
+    public void start() {
+        if (byTagName == null)
+            compile();
+        matches = new List[selectors.size()];
+        for (int i = 0; i < matches.length; i++)
+            matches[i] = new ArrayList();
+        lastMatched = new int[selectors.size()];
+        serial = 0;
+        depth = 0;
+    }
+
+    public void visit(HtmlDocument.Tag t) {
+        at(t, t);
+    }
+
+    public void visit(HtmlDocument.TagBlock bl) {
+        at(bl.startTag, bl);
+        depth++;
+        visit(bl.body);
+        depth--;
+    }
+
+    /** Put the tag at the current depth and test the candidates. */
+    private void at(HtmlDocument.Tag t, HtmlDocument.HtmlElement e) {
+        if (byTagName == null)
+            start();
+        if (depth == path.length) {
+            HtmlDocument.Tag[] grown = new HtmlDocument.Tag[depth * 2];
+            System.arraycopy(path, 0, grown, 0, depth);
+            path = grown;
+        }
+        path[depth] = t;
+        serial++;
+        int[] named = (int[]) byTagName.get(t.tagName);
+        if (named != null)
+            test(named, e);
+        test(anyTagName, e);
+    }
+
+    private void test(int[] candidates, HtmlDocument.HtmlElement e) {
+        for (int i = 0; i < candidates.length; i += 2) {
+            int s = candidates[i];
+            if (lastMatched[s] == serial)
+                continue;
+            HtmlSelector selector = (HtmlSelector) selectors.get(s);
+            if (selector.chains[candidates[i + 1]].matches(path, depth)) {
+                lastMatched[s] = serial;
+                matches[s].add(e);
+            }
+        }
+    }
+
+    private void compile() {
+        Map named = new TreeMap(String.CASE_INSENSITIVE_ORDER);
+        List any = new ArrayList();
+        for (int s = 0; s < selectors.size(); s++) {
+            HtmlSelector selector = (HtmlSelector) selectors.get(s);
+            for (int c = 0; c < selector.chains.length; c++) {
+                String key = selector.chains[c].key();
+                List list = any;
+                if (key != null) {
+                    list = (List) named.get(key);
+                    if (list == null) {
+                        list = new ArrayList();
+                        named.put(key, list);
+                    }
+                }
+                list.add(new int[] {s, c});
+            }
+        }
+        byTagName = new TreeMap(String.CASE_INSENSITIVE_ORDER);
+        for (Iterator it = named.entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry) it.next();
+            byTagName.put(entry.getKey(), pairs((List) entry.getValue()));
+        }
+        anyTagName = pairs(any);
+    }
+
+    private static int[] pairs(List list) {
+        int[] a = new int[list.size() * 2];
+        for (int i = 0; i < list.size(); i++) {
+            int[] pair = (int[]) list.get(i);
+            a[2 * i] = pair[0];
+            a[2 * i + 1] = pair[1];
+        }
+        return a;
+    }
+}
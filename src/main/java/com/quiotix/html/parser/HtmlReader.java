@@ -0,0 +1,279 @@
+/*
+ * HtmlReader.java -- decodes an HTML byte stream in its declared encoding.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as 
+ * published by the Free Software Foundation.  
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+
+/**
+ * A Reader which works out the character encoding of an HTML byte stream
+ * before decoding it.  The first PRESCAN_LENGTH bytes are read and 
+ * examined for a byte order mark, or failing that for a 
+ * <tt>&lt;meta charset&gt;</tt> or 
+ * <tt>&lt;meta http-equiv="Content-Type" content="...; charset=..."&gt;</tt>
+ * tag, by a scan over the raw bytes.  The stream is then decoded once, 
+ * in the encoding found or else the default encoding.
+ * 
+ * @see HtmlParser#parse(InputStream)
+ */
+public class HtmlReader extends Reader {
+
+    /** How many bytes are examined for an encoding declaration. */
+    public static final int PRESCAN_LENGTH = 4096;
+
+    private Reader in;
+    private String encoding;
+
+    /**
+     * Constructor, defaulting to the platform encoding.
+     * 
+     * @param is the byte stream to decode
+     */
+    public HtmlReader(InputStream is) throws IOException {
+        this(is, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param is the byte stream to decode
+     * @param defaultEncoding the encoding to use if none is declared, 
+     * or null for the platform default
+     * @throws java.io.UnsupportedEncodingException if the default 
+     * encoding is not supported
+     */
+    public HtmlReader(InputStream is, String defaultEncoding) 
+            throws IOException {
+        byte[] prefix = new byte[PRESCAN_LENGTH];
+        int length = 0;
+        int n;
+        while (length < prefix.length
+                && (n = is.read(prefix, length, prefix.length - length)) > 0)
+            length += n;
+
+        int skip = 0;
+        String declared = null;
+        if (length >= 3 && (prefix[0] & 0xFF) == 0xEF 
+                && (prefix[1] & 0xFF) == 0xBB && (prefix[2] & 0xFF) == 0xBF) {
+            declared = "UTF-8";
+            skip = 3;
+        } else if (length >= 2 && (prefix[0] & 0xFF) == 0xFE 
+                && (prefix[1] & 0xFF) == 0xFF) {
+            declared = "UTF-16BE";
+            skip = 2;
+        } else if (length >= 2 && (prefix[0] & 0xFF) == 0xFF 
+                && (prefix[1] & 0xFF) == 0xFE) {
+            declared = "UTF-16LE";
+            skip = 2;
+        } else 
+            declared = sniff(prefix, length);
+        if (declared == null)
+            declared = defaultEncoding;
+
+        InputStream whole = new SequenceInputStream(
+                new ByteArrayInputStream(prefix, skip, length - skip), is);
+        InputStreamReader reader = (declared == null) 
+                ? new InputStreamReader(whole)
+                : new InputStreamReader(whole, declared);
+        in = reader;
+        encoding = canonical(declared == null ? reader.getEncoding() : declared);
+    }
+
+    /**
+     * @return the canonical name of the encoding the stream is being 
+     * decoded with
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        return in.read(cbuf, off, len);
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Look for a supported encoding declared by a meta tag.  Comments are 
+     * skipped; a declared UTF-16 is taken to mean UTF-8, as the bytes 
+     * were evidently readable as ASCII.
+     * 
+     * @param b the start of the document
+     * @param length the number of bytes of b to examine
+     * @return the name of the encoding, or null if none was found
+     */
+    public static String sniff(byte[] b, int length) {
+        int i = 0;
+        while (i < length) {
+            if (b[i] != '<') {
+                i++;
+            } else if (matches(b, i, length, "<!--")) {
+                i = indexOf(b, i + 4, length, "-->");
+                if (i < 0)
+                    return null;
+                i += 3;
+            } else if (matches(b, i, length, "<meta") && i + 5 < length 
+                       && (isSpace(b[i + 5]) || b[i + 5] == '/')) {
+                String found = sniffMeta(b, i + 5, length);
+                if (found != null)
+                    return found;
+                i += 5;
+            } else 
+                i++;
+        }
+        return null;
+    }
+
+    /** The attributes of one meta tag, starting after its name. */
+    private static String sniffMeta(byte[] b, int i, int length) {
+        String charset = null, content = null;
+        boolean contentType = false;
+
+        while (i < length) {
+            while (i < length && (isSpace(b[i]) || b[i] == '/'))
+                i++;
+            if (i >= length || b[i] == '>')
+                break;
+            int nameStart = i;
+            while (i < length && !isSpace(b[i]) && b[i] != '=' 
+                   && b[i] != '>' && b[i] != '/')
+                i++;
+            int nameEnd = i;
+            while (i < length && isSpace(b[i]))
+                i++;
+            String value = null;
+            if (i < length && b[i] == '=') {
+                i++;
+                while (i < length && isSpace(b[i]))
+                    i++;
+                if (i >= length)
+                    break;
+                int valueStart, valueEnd;
+                if (b[i] == '"' || b[i] == '\'') {
+                    byte q = b[i];
+                    valueStart = ++i;
+                    while (i < length && b[i] != q)
+                        i++;
+                    valueEnd = i++;
+                } else {
+                    valueStart = i;
+                    while (i < length && !isSpace(b[i]) && b[i] != '>')
+                        i++;
+                    valueEnd = i;
+                }
+                value = ascii(b, valueStart, Math.min(valueEnd, length));
+            }
+            if (value == null)
+                continue;
+            if (matchesWhole(b, nameStart, nameEnd, "charset"))
+                charset = value.trim();
+            else if (matchesWhole(b, nameStart, nameEnd, "content"))
+                content = value;
+            else if (matchesWhole(b, nameStart, nameEnd, "http-equiv"))
+                contentType = value.trim().equalsIgnoreCase("content-type");
+        }
+        if (charset == null && contentType && content != null)
+            charset = fromContent(content);
+        return supported(charset);
+    }
+
+    /** The charset parameter of a Content-Type value. */
+    private static String fromContent(String content) {
+        int i = content.toLowerCase().indexOf("charset");
+        if (i < 0)
+            return null;
+        i += 7;
+        while (i < content.length() && content.charAt(i) <= ' ')
+            i++;
+        if (i >= content.length() || content.charAt(i) != '=')
+            return null;
+        i++;
+        while (i < content.length() && content.charAt(i) <= ' ')
+            i++;
+        if (i >= content.length())
+            return null;
+        char q = content.charAt(i);
+        int start = (q == '"' || q == '\'') ? ++i : i;
+        while (i < content.length() && content.charAt(i) != ';' 
+               && content.charAt(i) > ' ' && content.charAt(i) != '"' 
+               && content.charAt(i) != '\'')
+            i++;
+        return content.substring(start, i);
+    }
+
+    private static String supported(String name) {
+        if (name == null || name.length() == 0)
+            return null;
+        if (name.toUpperCase().startsWith("UTF-16"))
+            return "UTF-8";
+        try {
+            return Charset.isSupported(name) ? name : null;
+        } catch (IllegalArgumentException e) {
+            // An illegal charset name
+            return null;
+        }
+    }
+
+    private static String canonical(String name) {
+        try {
+            return Charset.forName(name).name();
+        } catch (IllegalArgumentException e) {
+            return name;
+        }
+    }
+
+    private static boolean isSpace(byte c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private static byte lower(byte c) {
+        return (c >= 'A' && c <= 'Z') ? (byte) (c + ('a' - 'A')) : c;
+    }
+
+    /** Whether the bytes at i start with s, ignoring case. */
+    private static boolean matches(byte[] b, int i, int length, String s) {
+        if (i + s.length() > length)
+            return false;
+        for (int j = 0; j < s.length(); j++)
+            if (lower(b[i + j]) != s.charAt(j))
+                return false;
+        return true;
+    }
+
+    private static boolean matchesWhole(byte[] b, int start, int end, String s) {
+        return end - start == s.length() && matches(b, start, end, s);
+    }
+
+    private static int indexOf(byte[] b, int i, int length, String s) {
+        for (; i + s.length() <= length; i++)
+            if (matches(b, i, length, s))
+                return i;
+        return -1;
+    }
+
+    private static String ascii(byte[] b, int start, int end) {
+        char[] c = new char[end - start];
+        for (int i = start; i < end; i++)
+            c[i - start] = (char) (b[i] & 0xFF);
+        return new String(c);
+    }
+}
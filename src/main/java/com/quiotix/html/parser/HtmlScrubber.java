@@ -66,11 +66,11 @@ public class HtmlScrubber extends HtmlVisitor {
         this.flags = flags;
     };
 
-    private static boolean safeToUnquote(String qs) {
+    static boolean safeToUnquote(String s) {
         int upperCount=0, lowerCount=0, idCount=0;
 
-        for (int i=1; i < qs.length()-1; i++) {
-            char c = qs.charAt(i);
+        for (int i=0; i < s.length(); i++) {
+            char c = s.charAt(i);
             if (Character.isUnicodeIdentifierPart(c))
                 ++idCount;
             if (Character.isUpperCase(c))
@@ -78,27 +78,14 @@ public class HtmlScrubber extends HtmlVisitor {
             else if (Character.isLowerCase(c))
                 ++lowerCount;
         }
-        return (qs.length()-2 > 0
-                && (qs.length()-2 == idCount
+        return (s.length() > 0
+                && (s.length() == idCount
                 && (upperCount == 0 || lowerCount == 0)));
     }
 
-    private static boolean isSingleQuoted(String s) {
-      if (s.charAt(0) =='\'' && s.charAt(s.length()-1) == '\'') {
-        return true;
-      }
-      else return false;
-        
-    }
-    private static boolean isDoubleQuoted(String s) {
-      if (s.charAt(0) =='"' && s.charAt(s.length()-1) == '"') {
-        return true;
-      }
-      else return false;
-        
-    }
-    private static boolean isQuoted(String s) {
-      return isDoubleQuoted(s) || isSingleQuoted(s);
+    public void visit(HtmlDocument d) {
+        d.invalidateIndex();
+        super.visit(d);
     }
 
     public void start() {
@@ -108,30 +95,24 @@ public class HtmlScrubber extends HtmlVisitor {
 
     public void visit(HtmlDocument.Tag t) {
         if ((flags & TAGS_UPCASE) != 0)
-            t.tagName = t.tagName.toUpperCase();
+            t.setTagName(t.tagName.toUpperCase());
         else if ((flags & TAGS_DOWNCASE) != 0)
-            t.tagName = t.tagName.toLowerCase();
+            t.setTagName(t.tagName.toLowerCase());
         for (Iterator it=t.attributeList.attributes.iterator(); it.hasNext(); ) {
             HtmlDocument.Attribute a = (HtmlDocument.Attribute) it.next();
             if ((flags & ATTR_UPCASE) != 0)
-                a.name = a.name.toUpperCase();
+                a.setName(a.name.toUpperCase());
             else if ((flags & ATTR_DOWNCASE) != 0)
-                a.name = a.name.toLowerCase();
+                a.setName(a.name.toLowerCase());
             if (((flags & STRIP_QUOTES) != 0)
                 && a.hasValue
-                && isQuoted(a.value)
-                && safeToUnquote(a.value)) {
-              a.value = a.value.substring(1, a.value.length()-1);
+                && a.getQuote() != 0
+                && safeToUnquote(a.getValue())) {
+              a.setQuote((char) 0);
             }
             if (((flags & QUOTE_ATTRS) != 0)
                 && a.hasValue) {
-              if (!isDoubleQuoted(a.value)) {
-                if (isSingleQuoted(a.value)) {
-                  a.value = a.value.substring(1, a.value.length()-1);
-                } 
-                a.value = "\"" + a.value + "\"";
-              }
-              //System.err.println(a.value);
+              a.setQuote('"');
             }
         }
 
@@ -140,9 +121,9 @@ public class HtmlScrubber extends HtmlVisitor {
 
     public void visit(HtmlDocument.EndTag t) {
         if ((flags & TAGS_UPCASE) != 0)
-            t.tagName = t.tagName.toUpperCase();
+            t.setTagName(t.tagName.toUpperCase());
         else if ((flags & TAGS_DOWNCASE) != 0)
-            t.tagName = t.tagName.toLowerCase();
+            t.setTagName(t.tagName.toLowerCase());
 
         previousElement = t;
     }
@@ -160,18 +141,25 @@ public class HtmlScrubber extends HtmlVisitor {
                         && t.text.charAt(i) != '\t')
                     break;
             if (i > 0)
-                t.text = t.text.substring(i);
+                t.setText(t.text.substring(i));
         }
         previousElement = t;
     }
 
+    public void visit(HtmlDocument.Newline n) {
+        if (((flags & TRIM_SPACES) != 0) && !inPreBlock)
+            n.setWhitespace("");
+        previousElement = n;
+    }
+
     public void visit(HtmlDocument.Comment c)     { previousElement = c; }
-    public void visit(HtmlDocument.Newline n)     { previousElement = n; }
     public void visit(HtmlDocument.Annotation a)  { previousElement = a; }
     public void visit(HtmlDocument.TagBlock bl) {
         if (bl.startTag.tagName.equalsIgnoreCase("PRE")
                 || bl.startTag.tagName.equalsIgnoreCase("SCRIPT")
-                || bl.startTag.tagName.equalsIgnoreCase("STYLE")) {
+                || bl.startTag.tagName.equalsIgnoreCase("STYLE")
+                || bl.startTag.tagName.equalsIgnoreCase("TEXTAREA")
+                || bl.startTag.tagName.equalsIgnoreCase("XMP")) {
             inPreBlock = true;
             super.visit(bl);
             inPreBlock = false;
@@ -0,0 +1,318 @@
+/*
+ * HtmlSelector.java -- a compiled CSS style selector.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A CSS style selector, compiled once from its text and then matched
+ * against tags any number of times.  The supported subset is:
+ * <pre>
+ *   tag  *  #id  .class  [attr]  [attr=value]  [attr="value"]
+ *   a b   (b descendant of a)
+ *   a &gt; b (b child of a)
+ *   a, b  (either)
+ * </pre>
+ * Tag and attribute names are matched regardless of case; ids, classes
+ * and attribute values are matched exactly, against the attribute's
+ * dequoted, decoded value.
+ * <p>
+ * Selectors are run by an {@link HtmlQuery}, which evaluates any number
+ * of them in one traversal of a collected document.
+ * </p>
+ *
+ * @see HtmlQuery
+ */
+public final class HtmlSelector {
+
+    private final String text;
+    /** One chain for each comma separated alternative. */
+    final Chain[] chains;
+
+    private HtmlSelector(String text, Chain[] chains) {
+        this.text = text;
+        this.chains = chains;
+    }
+
+    /**
+     * @param selector the text of the selector
+     * @return the compiled selector
+     * @throws IllegalArgumentException if the selector is not understood
+     */
+    public static HtmlSelector compile(String selector) {
+        if (selector == null)
+            throw new IllegalArgumentException("Null selector");
+        return new HtmlSelector(selector, new Compiler(selector).compile());
+    }
+
+    /**
+     * Whether the tag matches this selector, given the path of tags
+     * leading to it.
+     *
+     * @param path the tags of the enclosing blocks, outermost first,
+     *             followed by the tag itself
+     * @param depth the position of the tag in path
+     */
+    public boolean matches(HtmlDocument.Tag[] path, int depth) {
+        for (int i = 0; i < chains.length; i++)
+            if (chains[i].matches(path, depth))
+                return true;
+        return false;
+    }
+
+    public String toString() {
+        return text;
+    }
+
+    /**
+     * A sequence of compound selectors joined by combinators,
+     * matched from the right.
+     */
+    static final class Chain {
+        final Compound[] steps;
+        /** Whether steps[i] must be the parent of steps[i + 1]. */
+        final boolean[] child;
+
+        Chain(Compound[] steps, boolean[] child) {
+            this.steps = steps;
+            this.child = child;
+        }
+
+        /** @return the tag name the element itself must have, or null */
+        String key() {
+            return steps[steps.length - 1].tagName;
+        }
+
+        boolean matches(HtmlDocument.Tag[] path, int depth) {
+            int last = steps.length - 1;
+            return steps[last].matches(path[depth])
+                && matches(last - 1, path, depth - 1);
+        }
+
+        /** Match steps[0..step] against path[0..depth]. */
+        private boolean matches(int step, HtmlDocument.Tag[] path, int depth) {
+            if (step < 0)
+                return true;
+            if (child[step])
+                return depth >= 0 && steps[step].matches(path[depth])
+                    && matches(step - 1, path, depth - 1);
+            for (int d = depth; d >= step; d--)
+                if (steps[step].matches(path[d])
+                        && matches(step - 1, path, d - 1))
+                    return true;
+            return false;
+        }
+    }
+
+    /**
+     * A tag name, id, classes and attribute tests, all of which
+     * must hold of a single tag.
+     */
+    static final class Compound {
+        /** Upper cased tag name, or null for any. */
+        String tagName;
+        String id;
+        String[] classes = NONE;
+        String[] attributeNames = NONE;
+        /** The required values, null where only presence is tested. */
+        String[] attributeValues = NONE;
+
+        private static final String[] NONE = new String[0];
+
+        boolean matches(HtmlDocument.Tag t) {
+            if (tagName != null && !tagName.equalsIgnoreCase(t.tagName))
+                return false;
+            if (id != null && !id.equals(value(t, "id")))
+                return false;
+            if (classes.length > 0) {
+                String c = value(t, "class");
+                if (c == null)
+                    return false;
+                for (int i = 0; i < classes.length; i++)
+                    if (!hasClass(c, classes[i]))
+                        return false;
+            }
+            for (int i = 0; i < attributeNames.length; i++) {
+                if (attributeValues[i] == null) {
+                    if (!t.hasAttribute(attributeNames[i]))
+                        return false;
+                } else if (!attributeValues[i].equals(value(t, attributeNames[i])))
+                    return false;
+            }
+            return true;
+        }
+
+        private static String value(HtmlDocument.Tag t, String name) {
+            String v = t.getAttributeValue(name);
+            return v == null ? null : HtmlEntities.decode(v);
+        }
+
+        /** Whether the space separated list contains name. */
+        static boolean hasClass(String list, String name) {
+            int n = name.length();
+            for (int i = list.indexOf(name); i >= 0; i = list.indexOf(name, i + 1)) {
+                if ((i == 0 || isSpace(list.charAt(i - 1)))
+                        && (i + n == list.length() || isSpace(list.charAt(i + n))))
+                    return true;
+            }
+            return false;
+        }
+
+        private static String[] append(String[] a, String s) {
+            String[] b = new String[a.length + 1];
+            System.arraycopy(a, 0, b, 0, a.length);
+            b[a.length] = s;
+            return b;
+        }
+    }
+
+    static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    /**
+     * Recursive descent over the selector text.
+     */
+    private static final class Compiler {
+        private final String s;
+        private int pos;
+
+        Compiler(String s) {
+            this.s = s;
+        }
+
+        Chain[] compile() {
+            List chains = new ArrayList();
+            do {
+                skipSpace();
+                chains.add(chain());
+            } while (accept(','));
+            if (pos < s.length())
+                throw error("Unexpected '" + s.charAt(pos) + "'");
+            return (Chain[]) chains.toArray(new Chain[chains.size()]);
+        }
+
+        private Chain chain() {
+            List steps = new ArrayList();
+            List child = new ArrayList();
+            steps.add(compound());
+            for (;;) {
+                boolean spaced = skipSpace();
+                if (accept('>')) {
+                    skipSpace();
+                    child.add(Boolean.TRUE);
+                } else if (spaced && pos < s.length() && s.charAt(pos) != ',') {
+                    child.add(Boolean.FALSE);
+                } else
+                    break;
+                steps.add(compound());
+            }
+            boolean[] c = new boolean[child.size()];
+            for (int i = 0; i < c.length; i++)
+                c[i] = ((Boolean) child.get(i)).booleanValue();
+            return new Chain((Compound[]) steps.toArray(new Compound[steps.size()]), c);
+        }
+
+        private Compound compound() {
+            Compound c = new Compound();
+            int start = pos;
+            if (!accept('*') && pos < s.length() && isNameChar(s.charAt(pos)))
+                c.tagName = name().toUpperCase();
+            for (;;) {
+                if (accept('#')) {
+                    if (c.id != null)
+                        throw error("Repeated id");
+                    c.id = name();
+                } else if (accept('.')) {
+                    c.classes = Compound.append(c.classes, name());
+                } else if (accept('[')) {
+                    skipSpace();
+                    c.attributeNames = Compound.append(c.attributeNames, name());
+                    skipSpace();
+                    String value = null;
+                    if (accept('=')) {
+                        skipSpace();
+                        value = value();
+                        skipSpace();
+                    }
+                    c.attributeValues = Compound.append(c.attributeValues, value);
+                    if (!accept(']'))
+                        throw error("Expected ']'");
+                } else
+                    break;
+            }
+            if (pos == start)
+                throw error(pos < s.length()
+                        ? "Unexpected '" + s.charAt(pos) + "'"
+                        : "Missing selector");
+            return c;
+        }
+
+        private String name() {
+            int start = pos;
+            while (pos < s.length() && isNameChar(s.charAt(pos)))
+                pos++;
+            if (pos == start)
+                throw error("Expected a name");
+            return s.substring(start, pos);
+        }
+
+        private String value() {
+            if (pos < s.length() && (s.charAt(pos) == '"' || s.charAt(pos) == '\'')) {
+                char q = s.charAt(pos);
+                int end = s.indexOf(q, pos + 1);
+                if (end < 0)
+                    throw error("Unterminated string");
+                String v = s.substring(pos + 1, end);
+                pos = end + 1;
+                return v;
+            }
+            // Unquoted, as in an HTML attribute
+            int start = pos;
+            while (pos < s.length() && s.charAt(pos) != ']'
+                    && !isSpace(s.charAt(pos)))
+                pos++;
+            if (pos == start)
+                throw error("Expected a value");
+            return s.substring(start, pos);
+        }
+
+        private boolean accept(char c) {
+            if (pos < s.length() && s.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean skipSpace() {
+            int start = pos;
+            while (pos < s.length() && isSpace(s.charAt(pos)))
+                pos++;
+            return pos > start;
+        }
+
+        private static boolean isNameChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '-' || c == '_'
+                || c == ':' || c > 0x7f;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position "
+                    + pos + " in selector \"" + s + "\"");
+        }
+    }
+}
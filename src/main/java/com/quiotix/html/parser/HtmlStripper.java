@@ -115,17 +115,16 @@ public class HtmlStripper extends HtmlDumper {
         // System.err.println("in comment" + comment.comment);
     }
 
-    boolean noButSpace(String in) {
-        String s = in.toLowerCase();
-        boolean plausible = true;
-        while (plausible)
-            if (s.startsWith("&nbsp;"))
-                s = s.substring(6);
-            else if (s.startsWith(" "))
-                s = s.substring(1);
+    boolean noButSpace(String s) {
+        int i = 0;
+        while (i < s.length())
+            if (s.charAt(i) == ' ')
+                i++;
+            else if (s.regionMatches(true, i, "&nbsp;", 0, 6))
+                i += 6;
             else
-                plausible = false;
-        return s.equals("");
+                return false;
+        return true;
     }
 
     /**
@@ -0,0 +1,246 @@
+/*
+ * IncrementalParser.java -- keeps a parse up to date as its source is edited.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Keeps the HtmlDocument parsed from a source text up to date as the
+ * text is edited, by parsing again only around each edit.
+ * <pre>
+ *   IncrementalParser p = new IncrementalParser(text);
+ *   p.edit(offset, removedLength, insertedText);
+ *   p.getDocument().accept(visitor);
+ * </pre>
+ * The parser remembers where in the source each top level element
+ * begins, whether the lexer was in its DEFAULT state there, and how far
+ * ahead the lexer looked while reading it.  An edit is parsed from the
+ * last restart point before any element which looked as far as the
+ * edit, one element at a time, until an element ends, after the edit, at
+ * a restart point of the old parse.  From there on the old elements are
+ * just what parsing would produce again, so the new elements are spliced
+ * in between the old ones, and parsing stops.  The result is always the
+ * same as parsing the whole of the edited text.
+ * <p>
+ * The document is changed in place, and the offsets of its elements kept
+ * up to date with the text, so it should not be changed in any other 
+ * way; to collect or scrub it, work on a copy.
+ * </p>
+ */
+public class IncrementalParser {
+
+    private String source;
+    private final HtmlDocument document;
+    // Where each top level element begins in source, whether that is a
+    // restart point, and how far the lexer had looked by the time the 
+    // element was read.  Element i runs on to where element i + 1 begins.
+    private int[] starts;
+    private boolean[] restarts;
+    private int[] reaches;
+    private int count;
+
+    /**
+     * Constructor.
+     *
+     * @param source the text to parse
+     */
+    public IncrementalParser(String source) throws ParseException {
+        this.source = source;
+        Parse p = new Parse(source, 0);
+        while (p.next())
+            ;
+        starts = p.starts;
+        restarts = p.restarts;
+        reaches = p.reaches;
+        count = p.count;
+        document = new HtmlDocument(p.elements);
+    }
+
+    /**
+     * @return the document, as of the last edit
+     */
+    public HtmlDocument getDocument() {
+        return document;
+    }
+
+    /**
+     * @return the text, as of the last edit
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Replace part of the text and bring the document up to date.  If
+     * the new text cannot be parsed, the text and document are left as
+     * they were.
+     *
+     * @param offset where in the text the edit is
+     * @param removed how many characters to remove from there
+     * @param inserted the text to put in their place
+     * @return the number of elements parsed again
+     * @throws IndexOutOfBoundsException if the range removed is not
+     * within the text
+     */
+    public int edit(int offset, int removed, String inserted)
+            throws ParseException {
+        if (offset < 0 || removed < 0 || offset + removed > source.length())
+            throw new IndexOutOfBoundsException("Edit of " + removed
+                    + " at " + offset + " in text of " + source.length());
+        String edited = source.substring(0, offset) + inserted
+            + source.substring(offset + removed);
+        int delta = inserted.length() - removed;
+        int editEnd = offset + inserted.length();
+
+        // Begin after the elements which were read without looking as far
+        // as the edit; text inserted just after a Text lengthens it, say
+        int first = count - 1;
+        while (first > 0 && (reaches[first - 1] > offset || !restarts[first]))
+            first--;
+        if (first < 0)
+            first = 0;
+        int from = count == 0 ? 0 : starts[first];
+
+        Parse p = new Parse(edited, from);
+        int last = first;
+        while (p.next()) {
+            if (!p.restartable || p.end < editEnd)
+                continue;
+            // Has it come back into step with the old parse?
+            int old = p.end - delta;
+            while (last < count && starts[last] < old)
+                last++;
+            if (last < count && starts[last] == old && restarts[last])
+                break;
+        }
+        if (p.atEnd())
+            last = count;
+
+        // Splice the new elements, and where they start, over the old ones
+        int newCount = first + p.count + count - last;
+        int[] newStarts = starts;
+        boolean[] newRestarts = restarts;
+        int[] newReaches = reaches;
+        if (newCount > starts.length) {
+            newStarts = new int[newCount + newCount / 2];
+            newRestarts = new boolean[newStarts.length];
+            newReaches = new int[newStarts.length];
+            System.arraycopy(starts, 0, newStarts, 0, first);
+            System.arraycopy(restarts, 0, newRestarts, 0, first);
+            System.arraycopy(reaches, 0, newReaches, 0, first);
+        }
+        int tail = first + p.count;
+        System.arraycopy(starts, last, newStarts, tail, count - last);
+        System.arraycopy(restarts, last, newRestarts, tail, count - last);
+        System.arraycopy(reaches, last, newReaches, tail, count - last);
+        System.arraycopy(p.starts, 0, newStarts, first, p.count);
+        System.arraycopy(p.restarts, 0, newRestarts, first, p.count);
+        System.arraycopy(p.reaches, 0, newReaches, first, p.count);
+        // Each reach is kept the furthest of any element up to there
+        int reach = first > 0 ? newReaches[first - 1] : 0;
+        for (int i = first; i < newCount; i++) {
+            if (i >= tail) {
+                newStarts[i] += delta;
+                newReaches[i] += delta;
+            }
+            if (newReaches[i] < reach)
+                newReaches[i] = reach;
+            else
+                reach = newReaches[i];
+        }
+        if (delta != 0)
+            for (int i = last; i < count; i++)
+                document.elements.get(i).moveOffsets(delta);
+        document.elements.replace(first, last, p.elements);
+        document.invalidateIndex();
+        starts = newStarts;
+        restarts = newRestarts;
+        reaches = newReaches;
+        count = newCount;
+        source = edited;
+        return p.count;
+    }
+
+    /**
+     * A parse of the text from one element onwards, an element at a time.
+     */
+    private static final class Parse {
+        final HtmlParser parser;
+        final HtmlDocument.ElementSequence elements =
+            new HtmlDocument.ElementSequence();
+        int[] starts = new int[16];
+        boolean[] restarts = new boolean[16];
+        int[] reaches = new int[16];
+        int count;
+        /** Where the last element parsed ended, in the whole text. */
+        int end;
+        /** Whether the lexer is in its DEFAULT state, with nothing read ahead. */
+        boolean restartable = true;
+
+        /**
+         * @param text the whole of the text
+         * @param from where to begin, which must be a restart point
+         */
+        Parse(String text, int from) {
+            StringReader reader = new StringReader(text);
+            try {
+                reader.skip(from);
+            } catch (IOException e) {
+                throw new IllegalStateException(e.toString());
+            }
+            parser = new HtmlParser(reader);
+            parser.token_source.input_stream.setStartOffset(from);
+            end = from;
+        }
+
+        /**
+         * Parse the next element.
+         *
+         * @return false if there are none left
+         */
+        boolean next() throws ParseException {
+            if (atEnd())
+                return false;
+            if (count == starts.length) {
+                int[] s = new int[count * 2];
+                boolean[] r = new boolean[s.length];
+                int[] f = new int[s.length];
+                System.arraycopy(starts, 0, s, 0, count);
+                System.arraycopy(restarts, 0, r, 0, count);
+                System.arraycopy(reaches, 0, f, 0, count);
+                starts = s;
+                restarts = r;
+                reaches = f;
+            }
+            starts[count] = end;
+            restarts[count] = restartable;
+            elements.addElement(parser.Element());
+            end = parser.token.endOffset;
+            reaches[count] = parser.token_source.input_stream.getFurthestOffset();
+            restartable = parser.token.next == null
+                && parser.token_source.curLexState == HtmlParserConstants.DEFAULT;
+            count++;
+            return true;
+        }
+
+        /**
+         * @return whether the text has all been parsed
+         */
+        boolean atEnd() {
+            return parser.getToken(1).kind == HtmlParserConstants.EOF;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * MarginWriter.java -- word-wrapping PrintWriter for HtmlFormatter
+ * Copyright (C) 1999 Quiotix Corporation.  
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as 
+ * published by the Free Software Foundation.  
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+/**
+ * Utility class, used by HtmlFormatter and StreamingHtmlFormatter, which
+ * adds some word-wrapping and hanging indent functionality to a
+ * PrintWriter.
+ */
+
+class MarginWriter {
+    protected int tabStop;
+    protected int curPosition;
+    protected int leftMargin;
+    protected int rightMargin;
+    protected java.io.PrintWriter out;
+    protected char[] spaces = new char[256];
+    // For copying out CharSequences other than Strings
+    private char[] chars = new char[256];
+
+    /** Constructor. */
+    MarginWriter(java.io.PrintWriter out) {
+        this.out = out;
+        for (int i = 0; i < spaces.length; i++)
+            spaces[i] = ' ';
+    }
+
+    void flush() {
+        out.flush();
+    }
+
+    void close() {
+        out.close();
+    }
+
+    /** Write n spaces, however many that is. */
+    private void indent(int n) {
+        for (; n > spaces.length; n -= spaces.length)
+            out.write(spaces, 0, spaces.length);
+        out.write(spaces, 0, n);
+    }
+
+    void print(String s) {
+        print(s, 0, s.length());
+    }
+
+    /** Print the characters of s from start up to end. */
+    void print(CharSequence s, int start, int end) {
+        if (curPosition == 0 && leftMargin > 0) {
+            indent(leftMargin);
+            curPosition = leftMargin;
+        }
+        int length = end - start;
+        if (s instanceof String)
+            out.write((String) s, start, length);
+        else if (s instanceof StringBuffer) {
+            if (length > chars.length)
+                chars = new char[Math.max(length, chars.length * 2)];
+            ((StringBuffer) s).getChars(start, end, chars, 0);
+            out.write(chars, 0, length);
+        } else
+            for (int i = start; i < end; i++)
+                out.write(s.charAt(i));
+        curPosition += length;
+    }
+
+    void printAutoWrap(String s) {
+        printAutoWrap(s, 0, s.length());
+    }
+
+    /** Print the characters of s from start up to end, on a new line if 
+     * they would not fit on this one. */
+    void printAutoWrap(CharSequence s, int start, int end) {
+        wrap(end - start);
+        print(s, start, end);
+    }
+
+    void printAutoWrap(String s, int hanging) {
+        wrap(s.length(), hanging);
+        print(s);
+    }
+
+    /** Start a new line if length more characters would not fit on this one. */
+    void wrap(int length) {
+        if (curPosition > leftMargin
+                && curPosition + length > rightMargin)
+            println();
+    }
+
+    /** 
+     * Start a new line, indented by hanging beyond the left margin, if 
+     * length more characters would not fit on this one.
+     */
+    void wrap(int length, int hanging) {
+        if (curPosition > leftMargin
+                && curPosition + length > rightMargin) {
+            println();
+            indent(hanging + leftMargin);
+            curPosition = leftMargin + hanging;
+        }
+    }
+
+    void println() {
+        curPosition = 0;
+        out.println();
+    }
+
+    void printlnSoft() {
+        if (curPosition > 0)
+            println();
+    }
+
+    void setLeftMargin(int leftMargin) {
+        this.leftMargin = leftMargin;
+    }
+
+    int getLeftMargin() {
+        return leftMargin;
+    }
+
+    void setRightMargin(int rightMargin) {
+        this.rightMargin = rightMargin;
+    }
+
+    int getRightMargin() {
+        return rightMargin;
+    }
+
+    int getCurPosition() {
+        return (curPosition == 0 ? leftMargin : curPosition);
+    }
+}
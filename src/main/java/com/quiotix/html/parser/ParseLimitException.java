@@ -0,0 +1,31 @@
+/*
+ * ParseLimitException.java -- thrown when input exceeds a ParseLimits limit.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+/**
+ * Thrown by HtmlParser when its input exceeds one of its limits, and
+ * the limits are not set to truncate.  It is a ParseException, so is
+ * caught where a malformed document would be.
+ *
+ * @see ParseLimits
+ */
+public class ParseLimitException extends ParseException {
+    private static final long serialVersionUID = 4503259823441337401L;
+
+    /** @param message which limit was exceeded */
+    public ParseLimitException(String message) {
+        super(message);
+    }
+}
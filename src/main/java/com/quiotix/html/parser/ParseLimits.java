@@ -0,0 +1,144 @@
+/*
+ * ParseLimits.java -- bounds on what a parse of untrusted input may use.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+/**
+ * Limits on the input an HtmlParser will take, and on how deeply an
+ * HtmlCollector will nest what it collects, so that one hostile page,
+ * such as one with a vast comment or an attribute value whose quote is
+ * never closed, cannot take all the heap:
+ * <pre>
+ *   HtmlParser parser = new HtmlParser(reader);
+ *   parser.setLimits(ParseLimits.forUntrustedInput());
+ *   HtmlDocument document = parser.HtmlDocument();
+ * </pre>
+ * By default a limit exceeded fails the parse with a ParseLimitException,
+ * as soon as it is found and before any more input is read.  If the
+ * limits are set to truncate instead, the parse stops reading where the
+ * limit was exceeded and returns what came before, less any attributes
+ * or elements over the limits, and HtmlParser.isTruncated() says so.
+ * HtmlCollector always truncates, leaving tags beyond the maximum depth
+ * unmatched.
+ * <p>
+ * Lengths are in characters.  The parser buffers at least a few thousand
+ * characters whatever the maximum token length.
+ * </p>
+ *
+ * @see HtmlParser#setLimits(ParseLimits)
+ * @see HtmlCollector#setLimits(ParseLimits)
+ */
+public class ParseLimits {
+
+    /** No limit. */
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private int maxTokenLength = UNLIMITED;
+    private int maxInput = UNLIMITED;
+    private int maxAttributes = UNLIMITED;
+    private int maxElements = UNLIMITED;
+    private int maxDepth = UNLIMITED;
+    private boolean truncating;
+
+    /** Constructor, with no limits. */
+    public ParseLimits() {
+    }
+
+    /**
+     * @return limits generous enough for any reasonable page, which fail
+     * the parse: tokens of a million characters, input of 16 million, 1024
+     * attributes to a tag, a million elements and nesting 512 deep
+     */
+    public static ParseLimits forUntrustedInput() {
+        ParseLimits limits = new ParseLimits();
+        limits.setMaxTokenLength(1 << 20);
+        limits.setMaxInput(1 << 24);
+        limits.setMaxAttributes(1024);
+        limits.setMaxElements(1 << 20);
+        limits.setMaxDepth(512);
+        return limits;
+    }
+
+    /** @return the longest token the parser will hold */
+    public int getMaxTokenLength() {
+        return maxTokenLength;
+    }
+
+    /** @param max the longest token the parser will hold */
+    public void setMaxTokenLength(int max) {
+        maxTokenLength = check(max);
+    }
+
+    /** @return the most characters the parser will read */
+    public int getMaxInput() {
+        return maxInput;
+    }
+
+    /** @param max the most characters the parser will read */
+    public void setMaxInput(int max) {
+        maxInput = check(max);
+    }
+
+    /** @return the most attributes the parser will give a tag */
+    public int getMaxAttributes() {
+        return maxAttributes;
+    }
+
+    /** @param max the most attributes the parser will give a tag */
+    public void setMaxAttributes(int max) {
+        maxAttributes = check(max);
+    }
+
+    /** @return the most elements the parser will return */
+    public int getMaxElements() {
+        return maxElements;
+    }
+
+    /** @param max the most elements the parser will return */
+    public void setMaxElements(int max) {
+        maxElements = check(max);
+    }
+
+    /** @return the most tag blocks HtmlCollector will nest */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /** @param max the most tag blocks HtmlCollector will nest */
+    public void setMaxDepth(int max) {
+        maxDepth = check(max);
+    }
+
+    /**
+     * @return whether the parser stops where a limit is exceeded, rather
+     * than failing
+     */
+    public boolean isTruncating() {
+        return truncating;
+    }
+
+    /**
+     * @param truncating whether the parser should stop where a limit is
+     * exceeded, rather than fail
+     */
+    public void setTruncating(boolean truncating) {
+        this.truncating = truncating;
+    }
+
+    private static int check(int max) {
+        if (max < 0)
+            throw new IllegalArgumentException("Negative limit " + max);
+        return max;
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * ParseMetrics.java -- where the time goes in handling a document.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+/**
+ * Figures for a document: how long it took to lex, parse, collect, scrub
+ * and format, how many tokens of each kind and elements of each type it
+ * came to, how deeply its blocks nest, how often the parser had to
+ * recover from malformed markup, on which kinds of token, and how many
+ * characters were read.
+ * <pre>
+ *   ParseMetrics metrics = new ParseMetrics(statistics);
+ *   HtmlParser parser = new HtmlParser(reader);
+ *   parser.setMetrics(metrics);
+ *   HtmlDocument document = parser.HtmlDocument();
+ *   metrics.time(ParseMetrics.COLLECT, document, new HtmlCollector());
+ *   metrics.time(ParseMetrics.FORMAT, document, new HtmlFormatter(out));
+ *   metrics.endDocument(document);
+ * </pre>
+ * A parser with no metrics, as by default, does no more than check that
+ * it has none now and then, and its lexer is left alone.  With them, the
+ * lexer is timed a token at a time, which slows it a little.  Times are
+ * in nanoseconds.
+ * <p>
+ * Giving the metrics to a parser starts them afresh.  endDocument() adds
+ * them to the ParseStatistics they were made with, if any; a subclass
+ * might override it to log them as well.  A ParseMetrics is for one
+ * thread at a time, but any number may share a ParseStatistics.
+ * </p>
+ *
+ * @see HtmlParser#setMetrics(ParseMetrics)
+ * @see ParseStatistics
+ */
+public class ParseMetrics {
+
+    /** Lexing: what the lexer takes, including raw text. */
+    public static final int LEX      = 0;
+    /** Parsing: what the parser takes, less the lexing. */
+    public static final int PARSE    = 1;
+    /** Matching tags into blocks, with an HtmlCollector. */
+    public static final int COLLECT  = 2;
+    /** Cleaning up, with an HtmlScrubber. */
+    public static final int SCRUB    = 3;
+    /** Writing out, with an HtmlFormatter, HtmlDumper or the like. */
+    public static final int FORMAT   = 4;
+    /** The names of the phases timed, in order. */
+    public static final String[] PHASES = {
+        "lex", "parse", "collect", "scrub", "format" };
+
+    /** Count of Tags. */
+    public static final int TAG        = 0;
+    /** Count of EndTags. */
+    public static final int END_TAG    = 1;
+    /** Count of Text. */
+    public static final int TEXT       = 2;
+    /** Count of Newlines. */
+    public static final int NEWLINE    = 3;
+    /** Count of Comments. */
+    public static final int COMMENT    = 4;
+    /** Count of Annotations. */
+    public static final int ANNOTATION = 5;
+    /** Count of TagBlocks. */
+    public static final int TAG_BLOCK  = 6;
+    /** The names of the types of element counted, in order. */
+    public static final String[] ELEMENTS = {
+        "Tag", "EndTag", "Text", "Newline", "Comment", "Annotation",
+        "TagBlock" };
+
+    private final ParseStatistics statistics;
+    private final long[] times = new long[PHASES.length];
+    private final long[] tokens =
+        new long[HtmlParserConstants.tokenImage.length];
+    private final long[] elements = new long[ELEMENTS.length];
+    // Recoveries, by the kind of token which could not be parsed
+    private final long[] recovered =
+        new long[HtmlParserConstants.tokenImage.length];
+    private int maxDepth;
+    private long characters;
+    // When the parser was last called, and the lexing time by then
+    private long parseStart;
+    private long parseLexed;
+
+    /** Constructor, for figures kept to the one document. */
+    public ParseMetrics() {
+        this(null);
+    }
+
+    /**
+     * @param statistics where to add the figures for each document,
+     * or null
+     */
+    public ParseMetrics(ParseStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return the time now, in nanoseconds from some fixed point.  It is
+     * only as fine as System.currentTimeMillis(), to run on Java 1.4; a
+     * subclass may override it with a finer clock where there is one.
+     */
+    protected long now() {
+        return System.currentTimeMillis() * 1000000L;
+    }
+
+    /** Start the figures afresh, for another document. */
+    public void reset() {
+        for (int i = 0; i < times.length; i++)
+            times[i] = 0;
+        for (int i = 0; i < tokens.length; i++)
+            tokens[i] = 0;
+        for (int i = 0; i < elements.length; i++)
+            elements[i] = 0;
+        for (int i = 0; i < recovered.length; i++)
+            recovered[i] = 0;
+        maxDepth = 0;
+        characters = 0;
+    }
+
+    /**
+     * Run a visitor over the document, timing it.
+     * @param phase which phase the time goes to, such as COLLECT
+     */
+    public void time(int phase, HtmlDocument document, HtmlVisitor v) {
+        long start = now();
+        document.accept(v);
+        times[phase] += now() - start;
+    }
+
+    /**
+     * Count the document's elements, and how deeply its blocks nest, and
+     * add the figures to the statistics, if any.  Call it when done with
+     * the document.
+     * @param document the document, or null if it was handled an element
+     * at a time, and there is nothing to count
+     */
+    public void endDocument(HtmlDocument document) {
+        if (document != null)
+            document.accept(new Counter());
+        if (statistics != null)
+            statistics.add(this);
+    }
+
+    /** Add to the time taken by the lexer. */
+    void lexed(long nanos) {
+        times[LEX] += nanos;
+    }
+
+    /**
+     * Count a token from the lexer, with any special tokens before it
+     * and any it made at the same time.
+     */
+    void token(Token t) {
+        for (Token s = t.specialToken; s != null; s = s.specialToken)
+            tokens[s.kind]++;
+        for (; t != null; t = t.next)
+            tokens[t.kind]++;
+    }
+
+    /** Note that the parser has been called. */
+    void startParse() {
+        parseStart = now();
+        parseLexed = times[LEX];
+    }
+
+    /**
+     * Note that the parser has returned.
+     * @param read how many characters it has read so far
+     */
+    void endParse(long read) {
+        times[PARSE] += now() - parseStart - (times[LEX] - parseLexed);
+        characters = read;
+    }
+
+    /**
+     * Count a recovery from malformed markup.
+     * @param kind the kind of token which could not be parsed
+     */
+    void recovered(int kind) {
+        recovered[kind]++;
+    }
+
+    /**
+     * @param phase LEX, PARSE, COLLECT, SCRUB or FORMAT
+     * @return the nanoseconds taken
+     */
+    public long getTime(int phase) {
+        return times[phase];
+    }
+
+    /**
+     * @param kind a kind of token, as in HtmlParserConstants
+     * @return how many tokens of that kind the lexer made
+     */
+    public long getTokens(int kind) {
+        return tokens[kind];
+    }
+
+    /** @return how many tokens the lexer made */
+    public long getTokens() {
+        return sum(tokens);
+    }
+
+    /**
+     * @param type TAG, END_TAG, TEXT, NEWLINE, COMMENT, ANNOTATION or
+     * TAG_BLOCK
+     * @return how many elements of that type the document had
+     */
+    public long getElements(int type) {
+        return elements[type];
+    }
+
+    /** @return how many elements the document had, at any depth */
+    public long getElements() {
+        return sum(elements);
+    }
+
+    /** @return how deeply the document's blocks nest */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /** @return how often the parser recovered from malformed markup */
+    public long getRecovered() {
+        return sum(recovered);
+    }
+
+    /**
+     * @param kind a kind of token, as in HtmlParserConstants
+     * @return how often the parser recovered from malformed markup on
+     * finding a token of that kind
+     */
+    public long getRecovered(int kind) {
+        return recovered[kind];
+    }
+
+    /** @return how many characters the parser read */
+    public long getCharacters() {
+        return characters;
+    }
+
+    static long sum(long[] counts) {
+        long sum = 0;
+        for (int i = 0; i < counts.length; i++)
+            sum += counts[i];
+        return sum;
+    }
+
+    /** @return the figures, on one line */
+    public String toString() {
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < PHASES.length; i++)
+            if (times[i] > 0)
+                sb.append(PHASES[i]).append(' ')
+                  .append(times[i] / 1000).append("us, ");
+        sb.append(getCharacters()).append(" chars, ")
+          .append(getTokens()).append(" tokens, ")
+          .append(getElements()).append(" elements, depth ")
+          .append(getMaxDepth()).append(", ")
+          .append(getRecovered()).append(" recovered");
+        return sb.toString();
+    }
+
+    /** Counts elements by type, and the depth of blocks. */
+    private class Counter extends HtmlVisitor {
+        private int depth;
+
+        public void visit(HtmlDocument.Tag t) {
+            elements[TAG]++;
+        }
+
+        public void visit(HtmlDocument.EndTag t) {
+            elements[END_TAG]++;
+        }
+
+        public void visit(HtmlDocument.Text t) {
+            elements[TEXT]++;
+        }
+
+        public void visit(HtmlDocument.Newline n) {
+            elements[NEWLINE]++;
+        }
+
+        public void visit(HtmlDocument.Comment c) {
+            elements[COMMENT]++;
+        }
+
+        public void visit(HtmlDocument.Annotation a) {
+            elements[ANNOTATION]++;
+        }
+
+        public void visit(HtmlDocument.TagBlock bl) {
+            elements[TAG_BLOCK]++;
+            if (++depth > maxDepth)
+                maxDepth = depth;
+            super.visit(bl);
+            depth--;
+        }
+    }
+}
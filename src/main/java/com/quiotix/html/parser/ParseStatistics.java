@@ -0,0 +1,154 @@
+/*
+ * ParseStatistics.java -- ParseMetrics totalled over many documents.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+/**
+ * Totals of the ParseMetrics for every document handled, by as many
+ * threads as like, which can be watched through JMX once registered:
+ * <pre>
+ *   ParseStatistics statistics = new ParseStatistics();
+ *   ManagementFactory.getPlatformMBeanServer().registerMBean(statistics,
+ *       new ObjectName("com.quiotix.html:type=ParseStatistics"));
+ * </pre>
+ * Each thread then handles its documents with its own
+ * <code>new ParseMetrics(statistics)</code>.
+ *
+ * @see ParseMetrics
+ */
+public class ParseStatistics implements ParseStatisticsMBean {
+
+    private long documents;
+    private long characters;
+    private int maxDepth;
+    private final long[] times = new long[ParseMetrics.PHASES.length];
+    private final long[] tokens =
+        new long[HtmlParserConstants.tokenImage.length];
+    private final long[] elements = new long[ParseMetrics.ELEMENTS.length];
+    private final long[] recovered =
+        new long[HtmlParserConstants.tokenImage.length];
+
+    /** Add the figures for a document. */
+    public synchronized void add(ParseMetrics metrics) {
+        documents++;
+        characters += metrics.getCharacters();
+        maxDepth = Math.max(maxDepth, metrics.getMaxDepth());
+        for (int i = 0; i < times.length; i++)
+            times[i] += metrics.getTime(i);
+        for (int i = 0; i < tokens.length; i++)
+            tokens[i] += metrics.getTokens(i);
+        for (int i = 0; i < elements.length; i++)
+            elements[i] += metrics.getElements(i);
+        for (int i = 0; i < recovered.length; i++)
+            recovered[i] += metrics.getRecovered(i);
+    }
+
+    public synchronized void reset() {
+        documents = characters = 0;
+        maxDepth = 0;
+        for (int i = 0; i < times.length; i++)
+            times[i] = 0;
+        for (int i = 0; i < tokens.length; i++)
+            tokens[i] = 0;
+        for (int i = 0; i < elements.length; i++)
+            elements[i] = 0;
+        for (int i = 0; i < recovered.length; i++)
+            recovered[i] = 0;
+    }
+
+    public synchronized long getDocuments() {
+        return documents;
+    }
+
+    public synchronized long getCharacters() {
+        return characters;
+    }
+
+    public synchronized long getTokens() {
+        return ParseMetrics.sum(tokens);
+    }
+
+    public synchronized long getElements() {
+        return ParseMetrics.sum(elements);
+    }
+
+    public synchronized long getRecovered() {
+        return ParseMetrics.sum(recovered);
+    }
+
+    public synchronized int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @param phase ParseMetrics.LEX, PARSE, COLLECT, SCRUB or FORMAT
+     * @return the nanoseconds spent in the phase
+     */
+    public synchronized long getTime(int phase) {
+        return times[phase];
+    }
+
+    public long getLexTime() {
+        return getTime(ParseMetrics.LEX);
+    }
+
+    public long getParseTime() {
+        return getTime(ParseMetrics.PARSE);
+    }
+
+    public long getCollectTime() {
+        return getTime(ParseMetrics.COLLECT);
+    }
+
+    public long getScrubTime() {
+        return getTime(ParseMetrics.SCRUB);
+    }
+
+    public long getFormatTime() {
+        return getTime(ParseMetrics.FORMAT);
+    }
+
+    public synchronized double getCharactersPerSecond() {
+        long nanos = times[ParseMetrics.LEX] + times[ParseMetrics.PARSE];
+        return nanos == 0 ? 0 : characters * 1e9 / nanos;
+    }
+
+    public String[] getTokenKinds() {
+        return (String[]) HtmlParserConstants.tokenImage.clone();
+    }
+
+    public synchronized long[] getTokensByKind() {
+        return (long[]) tokens.clone();
+    }
+
+    public String[] getElementTypes() {
+        return (String[]) ParseMetrics.ELEMENTS.clone();
+    }
+
+    public synchronized long[] getElementsByType() {
+        return (long[]) elements.clone();
+    }
+
+    public synchronized long[] getRecoveredByKind() {
+        return (long[]) recovered.clone();
+    }
+
+    /** @return the totals, on one line */
+    public synchronized String toString() {
+        return documents + " documents, " + characters + " chars, "
+            + getTokens() + " tokens, " + getElements() + " elements, "
+            + getRecovered() + " recovered, "
+            + (long) getCharactersPerSecond() + " chars/s";
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * ParseStatisticsMBean.java -- the management interface of ParseStatistics.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+/**
+ * What ParseStatistics shows through JMX, as a standard MBean: totals
+ * over all the documents so far.  Times are in nanoseconds.
+ *
+ * @see ParseStatistics
+ */
+public interface ParseStatisticsMBean {
+
+    /** @return how many documents have been handled */
+    long getDocuments();
+
+    /** @return how many characters have been read */
+    long getCharacters();
+
+    /** @return how many tokens the lexer has made */
+    long getTokens();
+
+    /** @return how many elements the documents have had */
+    long getElements();
+
+    /** @return how often the parser has recovered from malformed markup */
+    long getRecovered();
+
+    /** @return how deeply the most deeply nested document nests */
+    int getMaxDepth();
+
+    /** @return the time spent lexing */
+    long getLexTime();
+
+    /** @return the time spent parsing, less the lexing */
+    long getParseTime();
+
+    /** @return the time spent matching tags into blocks */
+    long getCollectTime();
+
+    /** @return the time spent cleaning up */
+    long getScrubTime();
+
+    /** @return the time spent writing out */
+    long getFormatTime();
+
+    /** @return the characters lexed and parsed a second */
+    double getCharactersPerSecond();
+
+    /** @return the names of the kinds of token, as in HtmlParserConstants */
+    String[] getTokenKinds();
+
+    /** @return how many tokens of each kind the lexer has made */
+    long[] getTokensByKind();
+
+    /** @return the names of the types of element */
+    String[] getElementTypes();
+
+    /** @return how many elements of each type the documents have had */
+    long[] getElementsByType();
+
+    /**
+     * @return how often the parser has recovered from malformed markup on
+     * finding each kind of token
+     */
+    long[] getRecoveredByKind();
+
+    /** Start the totals afresh. */
+    void reset();
+}
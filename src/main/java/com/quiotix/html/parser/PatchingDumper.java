@@ -0,0 +1,200 @@
+/*
+ * PatchingDumper.java -- dumps a document by copying what is unchanged.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+
+/**
+ * An HtmlDumper for documents which have been edited after parsing.
+ * Elements which are not dirty are copied straight from the text the
+ * document was parsed from, runs of neighbouring elements in a single
+ * write; only dirty elements, and elements added to the document, are
+ * written out as HtmlDumper would.
+ * <pre>
+ *   HtmlDocument d = new HtmlParser(new StringReader(text)).HtmlDocument();
+ *   d.accept(new HtmlScrubber(HtmlScrubber.ATTR_DOWNCASE));
+ *   d.accept(new PatchingDumper(out, text));
+ * </pre>
+ * An unchanged document is written out exactly as it was read, spacing
+ * and all, which HtmlDumper does not promise.  Elements must be changed
+ * through their setters, or marked with setDirty(), for the change to be
+ * seen.
+ *
+ * @see HtmlDocument.HtmlElement#isDirty()
+ */
+public class PatchingDumper extends HtmlDumper {
+    private final String source;
+    // The source from runStart up to copied has yet to be written; copied
+    // is -1 when where the last thing written came from is not known
+    private int runStart;
+    private int copied;
+    // Bare line ends seen since copied, and not yet written
+    private int newlines;
+
+    /**
+     * Constructor.
+     *
+     * @param source the text the document was parsed from
+     */
+    public PatchingDumper(OutputStream os, String source) {
+        super(os);
+        this.source = source;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param source the text the document was parsed from
+     */
+    public PatchingDumper(OutputStream os, String encoding, String source)
+            throws UnsupportedEncodingException {
+        super(os, encoding);
+        this.source = source;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param source the text the document was parsed from
+     */
+    public PatchingDumper(Writer w, String source) {
+        super(w);
+        this.source = source;
+    }
+
+    public void start() {
+        runStart = 0;
+        copied = 0;
+        newlines = 0;
+    }
+
+    public void finish() {
+        if (copied >= 0)
+            catchUp(source.length());
+        write();
+        super.finish();
+    }
+
+    /**
+     * Add the element to the run being copied, if it is clean and was
+     * parsed from the source.
+     *
+     * @return false if the element has to be written out instead
+     */
+    private boolean copy(HtmlDocument.HtmlElement e) {
+        int begin = e.getBeginOffset();
+        if (copied >= 0 && begin >= copied)
+            catchUp(begin);
+        else if (newlines > 0)
+            catchUp(-1);
+        if (begin < 0 || e.getEndOffset() > source.length()) {
+            write();
+            copied = -1;
+            return false;
+        }
+        if (e.isDirty()) {
+            // Written out afresh, but line ends after it are still copied
+            write();
+            runStart = copied = e.getEndOffset();
+            return false;
+        }
+        if (begin != copied) {
+            write();
+            runStart = begin;
+        }
+        copied = e.getEndOffset();
+        return true;
+    }
+
+    /**
+     * Carry the run being copied on to limit, if what lies between is
+     * just the line ends seen since; otherwise write the line ends out.
+     */
+    private void catchUp(int limit) {
+        if (limit >= 0 && lineEnds(copied, limit) == newlines)
+            copied = limit;
+        else {
+            write();
+            copied = -1;
+            for (; newlines > 0; newlines--)
+                out.println();
+        }
+        newlines = 0;
+    }
+
+    /**
+     * @return the number of line ends in the source between the offsets,
+     * or -1 if there is anything else there but skipped "=" line ends
+     */
+    private int lineEnds(int from, int to) {
+        int n = 0;
+        for (int i = from; i < to;) {
+            boolean skipped = source.charAt(i) == '=';
+            if (skipped && ++i == to)
+                return -1;
+            char c = source.charAt(i++);
+            if (c == '\r') {
+                if (i < to && source.charAt(i) == '\n')
+                    i++;
+            } else if (c != '\n')
+                return -1;
+            if (!skipped)
+                n++;
+        }
+        return n;
+    }
+
+    /** Write out the run copied so far. */
+    private void write() {
+        if (copied > runStart)
+            out.write(source, runStart, copied - runStart);
+        runStart = copied;
+    }
+
+    public void visit(HtmlDocument.Tag t) {
+        if (!copy(t))
+            super.visit(t);
+    }
+
+    public void visit(HtmlDocument.EndTag t) {
+        if (!copy(t))
+            super.visit(t);
+    }
+
+    public void visit(HtmlDocument.Comment c) {
+        if (!copy(c))
+            super.visit(c);
+    }
+
+    public void visit(HtmlDocument.Text t) {
+        if (!copy(t))
+            super.visit(t);
+    }
+
+    public void visit(HtmlDocument.Newline n) {
+        // Bare line ends carry no offsets of their own
+        if (n.bare && !n.isDirty() && copied >= 0)
+            newlines++;
+        else if (!copy(n))
+            super.visit(n);
+    }
+
+    public void visit(HtmlDocument.Annotation a) {
+        if (!copy(a))
+            super.visit(a);
+    }
+}
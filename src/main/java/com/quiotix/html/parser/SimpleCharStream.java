@@ -20,6 +20,31 @@ public class SimpleCharStream
 
   protected int column = 0;
   protected int line = 1;
+  /** The number of characters read, less any backed up over. */
+  protected int offset = 0;
+  /** One past the furthest character read, or looked for past the end. */
+  protected int furthestOffset = 0;
+  int tokenBeginOffset;
+  /** The most characters to read, and the longest token to hold. */
+  protected int maxInput = Integer.MAX_VALUE;
+  protected int maxTokenLength = Integer.MAX_VALUE;
+  /** The number of characters read from the input. */
+  protected int read = 0;
+  /** Why the input was ended short, if it was. */
+  protected String stopped;
+  /** 
+   * The elements the parser has admitted from the input, and whether it
+   * has left any out, kept here so that ReInit starts them afresh.
+   */
+  protected int elements = 0;
+  protected boolean truncated;
+  /** 
+   * How far the parser has searched the input, without finding it, for 
+   * the end tag of each kind of raw text tag, or null.
+   */
+  protected int[] searched;
+  /** Whether the input was stopped only for a token grown too long. */
+  protected boolean tokenTooLong;
 
   protected boolean prevCharIsCR = false;
   protected boolean prevCharIsLF = false;
@@ -30,16 +55,30 @@ public class SimpleCharStream
   protected int maxNextCharInd = 0;
   protected int inBuf = 0;
   protected int tabSize = 8;
+  /** The size the buffer starts at, and shrinks back to. */
+  protected int initialSize;
+  /** The most the buffer grows by at once. */
+  protected static final int MAX_GROWTH = 1 << 20;
 
   protected void setTabSize(int i) { tabSize = i; }
   protected int getTabSize(int i) { return tabSize; }
 
 
+  /**
+   * Grow the buffer to hold a longer token.  It doubles, so that a long
+   * token is copied only a few times over, but by no more than MAX_GROWTH
+   * at once, nor much past the longest token allowed.
+   */
   protected void ExpandBuff(boolean wrapAround)
   {
-     char[] newbuffer = new char[bufsize + 2048];
-     int newbufline[] = new int[bufsize + 2048];
-     int newbufcolumn[] = new int[bufsize + 2048];
+     int growth = Math.min(bufsize, MAX_GROWTH);
+     if (growth > maxTokenLength - bufsize)
+        growth = maxTokenLength - bufsize;
+     if (growth < 2048)
+        growth = 2048;
+     char[] newbuffer = new char[bufsize + growth];
+     int newbufline[] = new int[bufsize + growth];
+     int newbufcolumn[] = new int[bufsize + growth];
 
      try
      {
@@ -80,13 +119,40 @@ public class SimpleCharStream
      }
 
 
-     bufsize += 2048;
+     bufsize += growth;
      available = bufsize;
      tokenBegin = 0;
   }
 
+  /**
+   * Go back to a buffer of the initial size, once the token which grew
+   * it is done with, so that a parser kept for reuse does not hold on to
+   * a large buffer.  Only characters read but not yet used are kept, and
+   * only if they are few and have not wrapped around the buffer's end;
+   * none while characters backed up over are still to be read again.
+   */
+  protected void ShrinkBuff()
+  {
+     int kept = maxNextCharInd - bufpos - 1;
+     if (inBuf > 0 || bufpos >= maxNextCharInd || kept > initialSize / 2)
+        return;
+     char[] newbuffer = new char[initialSize];
+     int newbufline[] = new int[initialSize];
+     int newbufcolumn[] = new int[initialSize];
+     System.arraycopy(buffer, bufpos + 1, newbuffer, 0, kept);
+     System.arraycopy(bufline, bufpos + 1, newbufline, 0, kept);
+     System.arraycopy(bufcolumn, bufpos + 1, newbufcolumn, 0, kept);
+     buffer = newbuffer;
+     bufline = newbufline;
+     bufcolumn = newbufcolumn;
+     available = bufsize = initialSize;
+     maxNextCharInd = kept;
+     bufpos = -1;
+  }
+
   protected void FillBuff() throws java.io.IOException
   {
+     boolean full = false;
      if (maxNextCharInd == available)
      {
         if (available == bufsize)
@@ -98,27 +164,51 @@ public class SimpleCharStream
            }
            else if (tokenBegin < 0)
               bufpos = maxNextCharInd = 0;
+           else if (bufsize >= maxTokenLength)
+              full = true;
            else
               ExpandBuff(false);
         }
         else if (available > tokenBegin)
            available = bufsize;
         else if ((tokenBegin - available) < 2048)
-           ExpandBuff(true);
+        {
+           if (bufsize >= maxTokenLength)
+              full = true;
+           else
+              ExpandBuff(true);
+        }
         else
            available = tokenBegin;
      }
 
      int i;
      try {
-        if ((i = inputStream.read(buffer, maxNextCharInd,
-                                    available - maxNextCharInd)) == -1)
+        if (full && stopped == null)
+        {
+           stopped = "Token longer than " + maxTokenLength + " characters";
+           tokenTooLong = true;
+        }
+        if (stopped != null)
+           throw new java.io.IOException(stopped);
+        // At the limit, read one more to see whether the input goes past it
+        if (read == maxInput && inputStream.read() != -1)
+        {
+           stopped = "Input longer than " + maxInput + " characters";
+           throw new java.io.IOException(stopped);
+        }
+        if (read == maxInput
+            || (i = inputStream.read(buffer, maxNextCharInd, Math.min(
+                   available - maxNextCharInd, maxInput - read))) == -1)
         {
            inputStream.close();
            throw new java.io.IOException();
         }
         else
+        {
            maxNextCharInd += i;
+           read += i;
+        }
         return;
      }
      catch(java.io.IOException e) {
@@ -133,7 +223,10 @@ public class SimpleCharStream
 /** Start. */
   public char BeginToken() throws java.io.IOException
   {
+     if (bufsize > initialSize * 4)
+        ShrinkBuff();
      tokenBegin = -1;
+     tokenBeginOffset = offset;
      char c = readChar();
      tokenBegin = bufpos;
 
@@ -186,6 +279,7 @@ public class SimpleCharStream
      if (inBuf > 0)
      {
         --inBuf;
+        ++offset;
 
         if (++bufpos == bufsize)
            bufpos = 0;
@@ -193,10 +287,12 @@ public class SimpleCharStream
         return buffer[bufpos];
      }
 
+     furthestOffset = offset + 1;
      if (++bufpos >= maxNextCharInd)
         FillBuff();
 
      char c = buffer[bufpos];
+     ++offset;
 
      UpdateLineColumn(c);
      return c;
@@ -240,10 +336,71 @@ public class SimpleCharStream
      return bufline[tokenBegin];
   }
 
+  /** Get the offset in the input of the token's first character. */
+  public int getBeginOffset() {
+     return tokenBeginOffset;
+  }
+
+  /** Get the offset in the input just past the token's last character. */
+  public int getEndOffset() {
+     return offset;
+  }
+
+  /**
+   * Limit the input read, and the length of the tokens held.  When a
+   * limit is reached, the input is taken to end there.
+   */
+  void setLimits(int maxTokenLength, int maxInput) {
+     this.maxTokenLength = maxTokenLength;
+     this.maxInput = maxInput;
+  }
+
+  /** Take the input to end after what has been read already. */
+  void stop(String why) {
+     if (stopped == null)
+        stopped = why;
+  }
+
+  /**
+   * Take back a stop for a token grown too long, as when looking ahead 
+   * for something which is not there has run into the limit.  Nothing
+   * has been read past the limit, so the input can be read on from where
+   * it was backed up to.
+   * @return whether there was such a stop
+   */
+  boolean resume() {
+     if (!tokenTooLong)
+        return false;
+     stopped = null;
+     tokenTooLong = false;
+     return true;
+  }
+
+  /** @return why the input was ended short, or null if it was not */
+  String getStopped() {
+     return stopped;
+  }
+
+  /** Count offsets from start, for input which begins part way into a text. */
+  void setStartOffset(int start) {
+     offset = furthestOffset = start;
+  }
+
+  /**
+   * Get the offset just past the furthest character read so far, which
+   * is further than the end of the last token when the lexer has looked
+   * ahead for a longer match.  Reaching the end of the input counts as
+   * reading one more character.
+   */
+  public int getFurthestOffset() {
+     return furthestOffset;
+  }
+
 /** Backup a number of characters. */
   public void backup(int amount) {
 
     inBuf += amount;
+    offset -= amount;
     if ((bufpos -= amount) < 0)
        bufpos += bufsize;
   }
@@ -256,7 +413,7 @@ public class SimpleCharStream
     line = startline;
     column = startcolumn - 1;
 
-    available = bufsize = buffersize;
+    available = bufsize = initialSize = buffersize;
     buffer = new char[buffersize];
     bufline = new int[buffersize];
     bufcolumn = new int[buffersize];
@@ -285,13 +442,18 @@ public class SimpleCharStream
 
     if (buffer == null || buffersize != buffer.length)
     {
-      available = bufsize = buffersize;
+      available = bufsize = initialSize = buffersize;
       buffer = new char[buffersize];
       bufline = new int[buffersize];
       bufcolumn = new int[buffersize];
     }
     prevCharIsLF = prevCharIsCR = false;
     tokenBegin = inBuf = maxNextCharInd = 0;
+    offset = furthestOffset = tokenBeginOffset = 0;
+    read = elements = 0;
+    stopped = null;
+    searched = null;
+    truncated = tokenTooLong = false;
     bufpos = -1;
   }
 
@@ -394,6 +556,18 @@ public class SimpleCharStream
                               new String(buffer, 0, bufpos + 1);
   }
 
+  /** Get the token's image, less its last <code>less</code> characters. */
+  public String GetImage(int less)
+  {
+     int length = (bufpos >= tokenBegin ? bufpos - tokenBegin
+                   : bufsize - tokenBegin + bufpos) + 1 - less;
+     if (tokenBegin + length <= bufsize)
+        return new String(buffer, tokenBegin, length);
+     else
+        return new String(buffer, tokenBegin, bufsize - tokenBegin) +
+                    new String(buffer, 0, length - (bufsize - tokenBegin));
+  }
+
   /** Get the suffix. */
   public char[] GetSuffix(int len)
   {
@@ -0,0 +1,377 @@
+/*
+ * StreamingHtmlFormatter.java -- pretty-prints HTML an element at a time.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pretty-printer which, unlike HtmlFormatter, needs neither the whole
+ * document nor an HtmlCollector: it is given the flat elements the
+ * parser produces, one at a time, and writes its output as it goes.
+ * <pre>
+ *   StreamingHtmlFormatter f = new StreamingHtmlFormatter(out);
+ *   f.format(new HtmlParser(in), HtmlScrubber.DEFAULT_OPTIONS
+ *                                | HtmlScrubber.TRIM_SPACES);
+ * </pre>
+ * It keeps the stack of open tags HtmlCollector would, to match end
+ * tags to start tags.  A tag whose block HtmlFormatter would try to fit
+ * on one line is held back, with what follows it, only until its end tag
+ * comes or the held text outgrows the line; so at most a line's worth of
+ * elements are ever held.  Other blocks are formatted on the assumption
+ * that their start tags will be matched, which HtmlCollector only learns
+ * at the end tag.
+ * <p>
+ * For documents whose tags are all closed the output is that of
+ * HtmlFormatter on the collected document.  Where a start tag is never
+ * closed, the lines after it may be indented as though it were, until a
+ * tag enclosing it closes.  Only the innermost maxDepth open tags are
+ * remembered; end tags for any beyond that are treated as unmatched.
+ * </p>
+ *
+ * @see HtmlFormatter
+ * @see HtmlParser#nextElement()
+ */
+public class StreamingHtmlFormatter extends HtmlVisitor {
+
+    private static final int PLAIN = 0;
+    private static final int TRY_MATCH = 1;
+    private static final int INDENT = 2;
+    private static final int PREFORMAT = 3;
+
+    /** The most open tags remembered. */
+    protected int maxDepth = 1024;
+
+    // Renders each element as HtmlFormatter would
+    private final HtmlFormatter formatter;
+    private final TagBlockRenderer renderer = new TagBlockRenderer();
+    // The open tags, innermost last
+    private Open[] open = new Open[16];
+    private int depth;
+    // Elements held back while seeing if a block fits on the line,
+    // starting with the start tag open at heldAt
+    private final List held = new ArrayList();
+    private int heldAt;
+
+    /**
+     * An open tag, how its block is formatted, and the left margins
+     * before it and within it.
+     */
+    private static final class Open {
+        HtmlDocument.Tag tag;
+        int kind;
+        int margin;
+        int inner;
+    }
+
+    /** Constructor. */
+    public StreamingHtmlFormatter(OutputStream os) throws Exception {
+        formatter = new HtmlFormatter(os);
+    }
+
+    /** Constructor, writing to a Writer which does its own buffering. */
+    public StreamingHtmlFormatter(Writer w) {
+        formatter = new HtmlFormatter(w);
+    }
+
+    /**
+     * @param margin the right margin column to wrap at
+     */
+    public void setRightMargin(int margin) {
+        formatter.setRightMargin(margin);
+    }
+
+    /**
+     * @param indent the number of spaces to indent by
+     */
+    public void setIndent(int indent) {
+        formatter.setIndent(indent);
+    }
+
+    /**
+     * Scrub and format the rest of the parser's input, an element at a
+     * time.  Preformatted text is left unscrubbed, as it would be in a
+     * collected document.
+     *
+     * @param scrubberFlags HtmlScrubber options
+     */
+    public void format(HtmlParser parser, int scrubberFlags)
+            throws ParseException {
+        HtmlScrubber scrubber = new StreamScrubber(scrubberFlags);
+        scrubber.start();
+        start();
+        for (HtmlDocument.HtmlElement e; (e = parser.nextElement()) != null;) {
+            e.accept(scrubber);
+            e.accept(this);
+        }
+        finish();
+    }
+
+    public void start() {
+        depth = 0;
+        held.clear();
+        formatter.start();
+    }
+
+    public void finish() {
+        // Anything still held was never closed
+        while (!held.isEmpty())
+            replay(PLAIN);
+        formatter.finish();
+    }
+
+    public void visit(HtmlDocument.Tag t) {
+        element(t);
+    }
+
+    public void visit(HtmlDocument.EndTag t) {
+        element(t);
+    }
+
+    public void visit(HtmlDocument.Comment c) {
+        element(c);
+    }
+
+    public void visit(HtmlDocument.Text t) {
+        element(t);
+    }
+
+    public void visit(HtmlDocument.Newline n) {
+        element(n);
+    }
+
+    public void visit(HtmlDocument.Annotation a) {
+        element(a);
+    }
+
+    /** Script and style blocks come whole from the parser. */
+    public void visit(HtmlDocument.TagBlock bl) {
+        element(bl);
+    }
+
+    private void element(HtmlDocument.HtmlElement e) {
+        if (held.isEmpty())
+            write(e);
+        else
+            hold(e);
+    }
+
+    /** Format an element, or begin holding elements back. */
+    private void write(HtmlDocument.HtmlElement e) {
+        if (e instanceof HtmlDocument.Tag && matchable((HtmlDocument.Tag) e)) {
+            HtmlDocument.Tag t = (HtmlDocument.Tag) e;
+            int kind = kind(t, true);
+            if (kind != TRY_MATCH)
+                begin(t, kind);
+            else {
+                push(t, TRY_MATCH);
+                heldAt = depth - 1;
+                held.add(t);
+                renderer.start();
+                renderer.setTargetWidth(formatter.out.getRightMargin()
+                        - formatter.out.getLeftMargin());
+                t.accept(renderer);
+                if (renderer.hasBlownTarget())
+                    replay(kind(t, false));
+            }
+        } else if (e instanceof HtmlDocument.EndTag) {
+            HtmlDocument.EndTag t = (HtmlDocument.EndTag) e;
+            int i = match(t);
+            if (i < 0)
+                formatter.visit(t);
+            else
+                end(i, t);
+        } else
+            e.accept(formatter);
+    }
+
+    /** Hold an element back, and see whether that settles the block. */
+    private void hold(HtmlDocument.HtmlElement e) {
+        held.add(e);
+        if (e instanceof HtmlDocument.Tag && matchable((HtmlDocument.Tag) e))
+            push((HtmlDocument.Tag) e, PLAIN);
+        else if (e instanceof HtmlDocument.EndTag) {
+            HtmlDocument.EndTag t = (HtmlDocument.EndTag) e;
+            int i = match(t);
+            if (i >= 0 && i < heldAt) {
+                // Closes a tag outside the block, so the block is no block
+                replay(PLAIN);
+                return;
+            }
+            if (i >= 0) {
+                e = endTag(open[i], t);
+                depth = i;
+            }
+            if (i == heldAt) {
+                e.accept(renderer);
+                if (renderer.hasBlownTarget())
+                    replay(kind(open[heldAt].tag, false));
+                else {
+                    CharSequence s = renderer.getString();
+                    formatter.out.printAutoWrap(s, 0, s.length());
+                    formatter.previousElement = e;
+                    held.clear();
+                }
+                return;
+            }
+        }
+        e.accept(renderer);
+        if (renderer.hasBlownTarget())
+            replay(kind(open[heldAt].tag, false));
+    }
+
+    /**
+     * Stop holding elements back, and format them again, the first as
+     * the start of a block of the kind given.
+     */
+    private void replay(int kind) {
+        Object[] elements = held.toArray();
+        held.clear();
+        depth = heldAt;
+        begin((HtmlDocument.Tag) elements[0], kind);
+        for (int i = 1; i < elements.length; i++)
+            element((HtmlDocument.HtmlElement) elements[i]);
+    }
+
+    /** Open a block, and format its start tag. */
+    private void begin(HtmlDocument.Tag t, int kind) {
+        Open o = push(t, kind);
+        MarginWriter out = formatter.out;
+        switch (kind) {
+        case INDENT:
+            out.printlnSoft();
+            formatter.visit(t);
+            out.printlnSoft();
+            out.setLeftMargin(o.margin + formatter.indentSize);
+            break;
+        case PREFORMAT:
+            formatter.inPreBlock = true;
+            formatter.visit(t);
+            out.setLeftMargin(0);
+            break;
+        default:
+            formatter.visit(t);
+        }
+        o.inner = out.getLeftMargin();
+    }
+
+    /** Close the block open at i, and any left open within it. */
+    private void end(int i, HtmlDocument.EndTag t) {
+        Open o = open[i];
+        HtmlDocument.EndTag end = endTag(o, t);
+        MarginWriter out = formatter.out;
+        depth = i;
+        out.setLeftMargin(o.inner);
+        switch (o.kind) {
+        case INDENT:
+            out.setLeftMargin(o.margin);
+            out.printlnSoft();
+            formatter.visit(end);
+            out.printlnSoft();
+            formatter.inPreBlock = false;
+            break;
+        case PREFORMAT:
+            out.setLeftMargin(o.margin);
+            formatter.visit(end);
+            break;
+        default:
+            formatter.visit(end);
+        }
+    }
+
+    /**
+     * @return the end tag as HtmlCollector leaves it, named as the start
+     * tag is
+     */
+    private static HtmlDocument.EndTag endTag(Open o, HtmlDocument.EndTag t) {
+        return t.tagName.equals(o.tag.tagName)
+            ? t : new HtmlDocument.EndTag(o.tag.tagName);
+    }
+
+    /**
+     * @param tryMatch whether the block might yet fit on one line
+     * @return how HtmlFormatter would format the tag's block
+     */
+    private static int kind(HtmlDocument.Tag t, boolean tryMatch) {
+        String name = t.tagName;
+        if (tryMatch && HtmlFormatter.tagsTryMatch.contains(name))
+            return TRY_MATCH;
+        if (HtmlFormatter.tagsPreformatted.contains(name))
+            return PREFORMAT;
+        if (HtmlFormatter.tagsIndentBlock.contains(name))
+            return INDENT;
+        return PLAIN;
+    }
+
+    /** @return whether HtmlCollector would look for the tag's end tag */
+    private static boolean matchable(HtmlDocument.Tag t) {
+        return !t.emptyTag
+            && !HtmlCollector.dontMatch.contains(t.tagName.toUpperCase());
+    }
+
+    /** @return where the tag the end tag closes is open, or -1 */
+    private int match(HtmlDocument.EndTag t) {
+        for (int i = depth - 1; i >= 0; i--)
+            if (t.tagName.equalsIgnoreCase(open[i].tag.tagName))
+                return i;
+        return -1;
+    }
+
+    private Open push(HtmlDocument.Tag t, int kind) {
+        if (depth == maxDepth && held.isEmpty()) {
+            // Forget the outermost
+            Open oldest = open[0];
+            System.arraycopy(open, 1, open, 0, depth - 1);
+            open[--depth] = oldest;
+        }
+        if (depth == open.length) {
+            Open[] grown = new Open[depth * 2];
+            System.arraycopy(open, 0, grown, 0, depth);
+            open = grown;
+        }
+        Open o = open[depth];
+        if (o == null)
+            o = open[depth] = new Open();
+        o.tag = t;
+        o.kind = kind;
+        o.margin = o.inner = formatter.out.getLeftMargin();
+        depth++;
+        return o;
+    }
+
+    /**
+     * An HtmlScrubber which leaves the text of PRE blocks alone when
+     * they come as separate tags.
+     */
+    private static final class StreamScrubber extends HtmlScrubber {
+        StreamScrubber(int flags) {
+            super(flags);
+        }
+
+        public void visit(HtmlDocument.Tag t) {
+            super.visit(t);
+            if (t.tagName.equalsIgnoreCase("PRE") && !t.emptyTag)
+                inPreBlock = true;
+        }
+
+        public void visit(HtmlDocument.EndTag t) {
+            super.visit(t);
+            if (t.tagName.equalsIgnoreCase("PRE"))
+                inPreBlock = false;
+        }
+    }
+}
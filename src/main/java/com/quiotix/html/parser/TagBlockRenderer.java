@@ -0,0 +1,104 @@
+/*
+ * TagBlockRenderer.java -- trial rendering of a TagBlock for HtmlFormatter
+ * Copyright (C) 1999 Quiotix Corporation.  
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 2, as 
+ * published by the Free Software Foundation.  
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License (http://www.gnu.org/copyleft/gpl.txt)
+ * for more details.
+ */
+
+package com.quiotix.html.parser;
+
+/**
+ * Utility class, used by HtmlFormatter and StreamingHtmlFormatter, which
+ * tentatively tries to format the contents of an HtmlDocument.TagBlock to
+ * see if the entire block can fit on the rest of the line.  If it cannot, it gives up and indicates
+ * failure through the hasBlownTarget method; if it can, the contents can
+ * be retrieved through the getString method.
+ */
+
+class TagBlockRenderer extends HtmlVisitor {
+    protected StringBuffer s = new StringBuffer();
+    protected boolean multiLine;
+    protected boolean blownTarget;
+    protected int targetWidth = 80;
+
+    public void start() {
+        s.setLength(0);
+        multiLine = false;
+        blownTarget = false;
+    }
+
+    public void finish() {
+    }
+
+    void setTargetWidth(int w) {
+        targetWidth = w;
+    }
+
+    /** @return the block as rendered, until the next start() */
+    CharSequence getString() {
+        return s;
+    }
+
+    boolean isMultiLine() {
+        return multiLine;
+    }
+
+    boolean hasBlownTarget() {
+        return blownTarget;
+    }
+
+    public void visit(HtmlDocument.Tag t) {
+        if (s.length() < targetWidth) {
+            s.append('<').append(t.tagName);
+            for (int i = 0; i < t.attributeList.size(); i++) {
+                HtmlDocument.Attribute a = t.attributeList.get(i);
+                s.append(' ').append(a.name);
+                if (a.hasValue)
+                    s.append('=').append(a.value);
+            }
+            if (t.emptyTag) s.append('/');
+            s.append('>');
+        } else
+            blownTarget = true;
+    }
+
+    public void visit(HtmlDocument.EndTag t) {
+        if (s.length() < targetWidth)
+            s.append("</").append(t.tagName).append('>');
+        else
+            blownTarget = true;
+    }
+
+    public void visit(HtmlDocument.Comment c) {
+        if (s.length() < targetWidth)
+            s.append("<!").append(c.comment).append('>');
+        else
+            blownTarget = true;
+    }
+
+    public void visit(HtmlDocument.Text t) {
+        HtmlDocument.ElementSequence lines = t.lines();
+        if (lines != null)
+            visit(lines);
+        else if (s.length() < targetWidth)
+            s.append(t.text);
+        else
+            blownTarget = true;
+    }
+
+    public void visit(HtmlDocument.Newline n) {
+        multiLine = true;
+        if (s.length() < targetWidth)
+            s.append(' ');
+        else
+            blownTarget = true;
+    }
+}
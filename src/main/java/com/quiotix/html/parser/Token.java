@@ -22,6 +22,10 @@ public class Token {
   public int endLine;
   /** The column number of the last character of this Token. */
   public int endColumn;
+  /** The offset in the input of the first character of this Token. */
+  public int beginOffset;
+  /** The offset in the input just past the last character of this Token. */
+  public int endOffset;
 
   /**
    * The string image of the token.
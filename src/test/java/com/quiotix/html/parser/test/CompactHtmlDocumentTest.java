@@ -0,0 +1,197 @@
+/**
+ *
+ */
+package com.quiotix.html.parser.test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+
+import com.quiotix.html.parser.CompactHtmlDocument;
+import com.quiotix.html.parser.HtmlCollector;
+import com.quiotix.html.parser.HtmlDocument;
+import com.quiotix.html.parser.HtmlDumper;
+import com.quiotix.html.parser.HtmlFormatter;
+import com.quiotix.html.parser.HtmlScrubber;
+import com.quiotix.html.parser.HtmlVisitor;
+
+/**
+ * @author timp
+ *
+ */
+public class CompactHtmlDocumentTest extends TestCase {
+
+    static final String NL = System.getProperty("line.separator");
+
+    static final String PAGE =
+        "<!DOCTYPE html>" + NL +
+        "<html><head><title>T</title><style>p{}</style></head>" + NL +
+        "<body bgcolor=white><!-- note --> \t" + NL +
+        "<table border=1 CLASS='a b'><tr><td>x &amp; y<br/>" + 
+        "<td nowrap>z</td></tr></table>" + NL +
+        "<p>one<p>two</P><img src=\"i.png\" alt=''></bogus>" + NL +
+        "<script>if (a<b) x();</script></body></html>" + NL;
+
+    /**
+     * @param name
+     */
+    public CompactHtmlDocumentTest(String name) {
+        super(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#setUp()
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#tearDown()
+     */
+    protected void tearDown() throws Exception {
+        super.tearDown();
+    }
+
+    static String format(CompactHtmlDocument d) throws Exception {
+        ByteArrayOutputStream o = new ByteArrayOutputStream();
+        d.accept(new HtmlFormatter(o));
+        return o.toString();
+    }
+
+    static String format(HtmlDocument d) throws Exception {
+        ByteArrayOutputStream o = new ByteArrayOutputStream();
+        d.accept(new HtmlFormatter(o));
+        return o.toString();
+    }
+
+    /**
+     * Visitors see the same elements in a compact document.
+     */
+    public void testAccept() throws Exception {
+        HtmlDocument d = HtmlParserTest.parse(PAGE);
+        CompactHtmlDocument c = new CompactHtmlDocument(d);
+        assertEquals(HtmlParserTest.dump(d), dump(c));
+        assertEquals(HtmlParserTest.kinds(d), kinds(c));
+        assertEquals(HtmlParserTest.dump(d).length(), c.getLength());
+
+        d.accept(new HtmlScrubber());
+        d.accept(new HtmlCollector());
+        c = new CompactHtmlDocument(d);
+        assertEquals(HtmlParserTest.dump(d), dump(c));
+        assertEquals(HtmlParserTest.kinds(d), kinds(c));
+        assertEquals(format(d), format(c));
+
+        // Large enough to grow the arrays as it is built
+        HtmlDocument large = HtmlParserTest.parse(ParserBenchmark.brokenCorpus(50) 
+                + ParserBenchmark.tagDenseCorpus(50));
+        large.accept(new HtmlCollector());
+        assertEquals(HtmlParserTest.dump(large), 
+                dump(new CompactHtmlDocument(large)));
+
+        // Visitors do not change it
+        c.accept(new HtmlScrubber(HtmlScrubber.TAGS_UPCASE));
+        assertEquals(HtmlParserTest.dump(d), dump(c));
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.CompactHtmlDocument#toHtmlDocument()}.
+     */
+    public void testToHtmlDocument() throws Exception {
+        HtmlDocument d = HtmlParserTest.parse(PAGE);
+        d.accept(new HtmlCollector());
+        HtmlDocument.ElementSequence s = new HtmlDocument.ElementSequence();
+        s.addElement(new HtmlDocument.Annotation("check", "made up"));
+        s.addElement(new HtmlDocument.TagBlock("div", 
+                new HtmlDocument.AttributeList(), new HtmlDocument.ElementSequence()));
+        s.addElement(new HtmlDocument.Tag("p", new HtmlDocument.AttributeList()));
+        d = new HtmlDocument(s);
+        d.setEncoding("UTF-8");
+        
+        CompactHtmlDocument c = new CompactHtmlDocument(d);
+        HtmlDocument copy = c.toHtmlDocument();
+        assertEquals("UTF-8", copy.getEncoding());
+        assertEquals(HtmlParserTest.dump(d), HtmlParserTest.dump(copy));
+        assertEquals(HtmlParserTest.kinds(d), HtmlParserTest.kinds(copy));
+
+        d = HtmlParserTest.parse(PAGE);
+        d.accept(new HtmlCollector());
+        copy = new CompactHtmlDocument(d).toHtmlDocument();
+        assertEquals(HtmlParserTest.dump(d), HtmlParserTest.dump(copy));
+        assertEquals(format(d), format(copy));
+        copy.accept(new HtmlScrubber(HtmlScrubber.TAGS_UPCASE));
+        assertTrue(HtmlParserTest.dump(copy).indexOf("<TABLE") >= 0);
+    }
+
+    /**
+     * Elements can be looked at by number.
+     */
+    public void testIndexed() throws Exception {
+        HtmlDocument d = HtmlParserTest.parse("<ul><li>a</li><li>b<br></li></ul>x");
+        d.accept(new HtmlCollector());
+        CompactHtmlDocument c = new CompactHtmlDocument(d);
+        assertEquals(7, c.size());
+        assertEquals(CompactHtmlDocument.TAG_BLOCK, c.getKind(0));
+        assertEquals("ul", c.getTagName(0));
+        assertEquals(-1, c.getParent(0));
+        assertEquals(0, c.getParent(1));
+        assertEquals("li", c.getTagName(3));
+        assertEquals(CompactHtmlDocument.TEXT, c.getKind(4));
+        assertEquals("b", c.getText(4));
+        assertNull(c.getTagName(4));
+        assertEquals(CompactHtmlDocument.TAG, c.getKind(5));
+        assertEquals(3, c.getParent(5));
+        assertNull(c.getText(5));
+        assertEquals(-1, c.getParent(6));
+    }
+
+    /**
+     * The sequences a compact document shows are read only.
+     */
+    public void testReadOnly() throws Exception {
+        CompactHtmlDocument c = new CompactHtmlDocument(HtmlParserTest.parse("<b>x</b>"));
+        final HtmlDocument.ElementSequence[] top = new HtmlDocument.ElementSequence[1];
+        c.accept(new HtmlVisitor() {
+            public void visit(HtmlDocument.ElementSequence s) {
+                top[0] = s;
+            }
+        });
+        assertEquals(3, top[0].size());
+        assertEquals("x", top[0].get(1).toString());
+        try {
+            top[0].addElement(new HtmlDocument.Text("y"));
+            fail("Should have bombed");
+        } catch (UnsupportedOperationException e) {
+            e = null;
+        }
+        try {
+            Iterator it = top[0].iterator();
+            it.next();
+            it.remove();
+            fail("Should have bombed");
+        } catch (UnsupportedOperationException e) {
+            e = null;
+        }
+        try {
+            top[0].get(3);
+            fail("Should have bombed");
+        } catch (IndexOutOfBoundsException e) {
+            e = null;
+        }
+    }
+
+    static String dump(CompactHtmlDocument d) {
+        ByteArrayOutputStream o = new ByteArrayOutputStream();
+        d.accept(new HtmlDumper(o));
+        return o.toString();
+    }
+
+    static String kinds(CompactHtmlDocument d) {
+        HtmlParserTest.KindRecorder r = new HtmlParserTest.KindRecorder();
+        d.accept(r);
+        return r.kinds.toString().trim();
+    }
+}
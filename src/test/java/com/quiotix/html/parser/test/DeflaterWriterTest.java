@@ -0,0 +1,153 @@
+/**
+ *
+ */
+package com.quiotix.html.parser.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import junit.framework.TestCase;
+
+import com.quiotix.html.parser.DeflaterWriter;
+import com.quiotix.html.parser.HtmlCollector;
+import com.quiotix.html.parser.HtmlDocument;
+import com.quiotix.html.parser.HtmlDumper;
+import com.quiotix.html.parser.HtmlFormatter;
+
+/**
+ * @author timp
+ *
+ */
+public class DeflaterWriterTest extends TestCase {
+
+    /**
+     * @param name
+     */
+    public DeflaterWriterTest(String name) {
+        super(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#setUp()
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#tearDown()
+     */
+    protected void tearDown() throws Exception {
+        super.tearDown();
+    }
+
+    static String inflate(byte[] bytes, int format, String encoding)
+            throws IOException {
+        return new String(inflate(bytes, format), encoding);
+    }
+
+    static byte[] inflate(byte[] bytes, int format) throws IOException {
+        InputStream in = new ByteArrayInputStream(bytes);
+        in = format == DeflaterWriter.GZIP
+            ? (InputStream) new GZIPInputStream(in)
+            : new InflaterInputStream(in);
+        ByteArrayOutputStream o = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1000];
+        for (int n; (n = in.read(buffer)) > 0;)
+            o.write(buffer, 0, n);
+        return o.toByteArray();
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.DeflaterWriter#finish()}.
+     */
+    public void testRoundTrip() throws Exception {
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < 5000; i++)
+            sb.append("<p class=x>caf\u00e9 \u20ac").append(i)
+                .append(" \ud834\udd1e</p>\n");
+        String text = sb.toString();
+        int[] formats = { DeflaterWriter.GZIP, DeflaterWriter.DEFLATE };
+        for (int f = 0; f < formats.length; f++) {
+            ByteArrayOutputStream o = new ByteArrayOutputStream();
+            DeflaterWriter w = new DeflaterWriter(o, formats[f], "UTF-8");
+            // In pieces of every size, so surrogate pairs are split
+            // across writes and buffers
+            int i = 0;
+            for (int n = 1; i < text.length(); n = n % 97 + 1) {
+                int end = Math.min(text.length(), i + n);
+                if (n % 2 == 0)
+                    w.write(text, i, end - i);
+                else if (n == 1)
+                    w.write(text.charAt(i));
+                else
+                    w.write(text.substring(i, end).toCharArray());
+                i = end;
+            }
+            w.flush();
+            w.finish();
+            w.finish();
+            assertTrue(o.size() < text.length() / 10);
+            assertEquals(text, inflate(o.toByteArray(), formats[f], "UTF-8"));
+            try {
+                w.write("x");
+                fail("Should have bombed");
+            } catch (IOException e) {
+                e = null;
+            }
+        }
+    }
+
+    /**
+     * Characters the encoding cannot represent are replaced.
+     */
+    public void testEncoding() throws Exception {
+        ByteArrayOutputStream o = new ByteArrayOutputStream();
+        DeflaterWriter w = new DeflaterWriter(o, DeflaterWriter.GZIP, "ISO-8859-1");
+        w.write("caf\u00e9 \u20ac \ud834");
+        w.close();
+        assertEquals("caf\u00e9 ? ?",
+                inflate(o.toByteArray(), DeflaterWriter.GZIP, "ISO-8859-1"));
+        try {
+            new DeflaterWriter(o, DeflaterWriter.GZIP, "no such encoding");
+            fail("Should have bombed");
+        } catch (java.io.UnsupportedEncodingException e) {
+            e = null;
+        }
+    }
+
+    /**
+     * Dumpers and formatters write compressed output in one pass, the
+     * same as they would uncompressed.
+     */
+    public void testDumpers() throws Exception {
+        String html = "<html><body><p>Hello\n<b>w\u00f6rld</b></p></body></html>\n";
+        HtmlDocument document = HtmlParserTest.parse(html);
+
+        ByteArrayOutputStream o = new ByteArrayOutputStream();
+        DeflaterWriter w = new DeflaterWriter(o, DeflaterWriter.DEFLATE, "UTF-8");
+        document.accept(new HtmlDumper(w));
+        w.finish();
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        document.accept(new HtmlDumper(plain, "UTF-8"));
+        assertEquals(plain.toString("UTF-8"),
+                inflate(o.toByteArray(), DeflaterWriter.DEFLATE, "UTF-8"));
+
+        document.accept(new HtmlCollector());
+        o = new ByteArrayOutputStream();
+        w = new DeflaterWriter(o, DeflaterWriter.GZIP);
+        w.setLevel(9);
+        document.accept(new HtmlFormatter(w));
+        w.finish();
+        plain = new ByteArrayOutputStream();
+        document.accept(new HtmlFormatter(plain));
+        assertEquals(plain.toString(), new String(
+                inflate(o.toByteArray(), DeflaterWriter.GZIP)));
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ *
+ */
+package com.quiotix.html.parser.test;
+
+import junit.framework.TestCase;
+
+import com.quiotix.html.parser.HtmlDocument;
+import com.quiotix.html.parser.HtmlDocumentCache;
+import com.quiotix.html.parser.HtmlScrubber;
+
+/**
+ * @author timp
+ *
+ */
+public class HtmlDocumentCacheTest extends TestCase {
+
+    /**
+     * @param name
+     */
+    public HtmlDocumentCacheTest(String name) {
+        super(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#setUp()
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#tearDown()
+     */
+    protected void tearDown() throws Exception {
+        super.tearDown();
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.HtmlDocumentCache#parse(byte[], int)}.
+     */
+    public void testParse() throws Exception {
+        HtmlDocumentCache cache = new HtmlDocumentCache(1000);
+        byte[] page = "<html><body><P class=x>Hi</P></body></html>".getBytes();
+        HtmlDocument first = cache.parse(page);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.size());
+        assertEquals(first.getLength(), cache.getWeight());
+        assertEquals("TagBlock", HtmlParserTest.kinds(first));
+
+        HtmlDocument second = cache.parse(page);
+        assertEquals(1, cache.getHits());
+        assertNotSame(first, second);
+        assertEquals(HtmlParserTest.dump(first), HtmlParserTest.dump(second));
+
+        // Changing a document returned does not change the cache
+        second.accept(new HtmlScrubber(HtmlScrubber.TAGS_UPCASE));
+        first.accept(new HtmlScrubber(HtmlScrubber.TAGS_UPCASE));
+        HtmlDocument third = cache.parse(page);
+        assertEquals("<html><body><P class=x>Hi</P></body></html>", 
+                HtmlParserTest.dump(third));
+
+        // Options are part of the key
+        HtmlDocument flat = cache.parse(page, 0);
+        assertEquals("Tag Tag Tag Text EndTag EndTag EndTag", HtmlParserTest.kinds(flat));
+        HtmlDocument scrubbed = cache.parse(page, 
+                HtmlScrubber.DEFAULT_OPTIONS | HtmlDocumentCache.COLLECT);
+        assertEquals("<html><body><p class=\"x\">Hi</p></body></html>", 
+                HtmlParserTest.dump(scrubbed));
+        assertEquals(3, cache.size());
+        assertEquals(3, cache.getMisses());
+        cache.parse(page, 0);
+        assertEquals(3, cache.getHits());
+
+        // As is the content
+        cache.parse("<html><body><P class=y>Hi</P></body></html>".getBytes());
+        assertEquals(4, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    /**
+     * The least recently used documents are dropped to stay under the limit.
+     */
+    public void testEviction() throws Exception {
+        byte[] a = "<p>aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa</p>".getBytes();
+        byte[] b = "<p>bbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbb</p>".getBytes();
+        byte[] c = "<p>cccccccccccccccccccccccccccccccccccc</p>".getBytes();
+        HtmlDocumentCache cache = new HtmlDocumentCache(2 * a.length);
+        cache.parse(a);
+        cache.parse(b);
+        assertEquals(2, cache.size());
+        assertEquals(2 * a.length, cache.getWeight());
+        cache.parse(a);
+        assertEquals(1, cache.getHits());
+        // b is now the least recently used
+        cache.parse(c);
+        assertEquals(2, cache.size());
+        cache.parse(a);
+        assertEquals(2, cache.getHits());
+        cache.parse(b);
+        assertEquals(2, cache.getHits());
+        assertEquals(2 * a.length, cache.getWeight());
+
+        // Too big to hold at all
+        byte[] big = new byte[3 * a.length];
+        java.util.Arrays.fill(big, (byte) 'x');
+        HtmlDocument d = cache.parse(big);
+        assertEquals(big.length, d.getLength());
+        assertEquals(2, cache.size());
+        cache.parse(big);
+        assertEquals(2, cache.getHits());
+    }
+}
@@ -3,6 +3,12 @@
  */
 package com.quiotix.html.parser.test;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import com.quiotix.html.parser.HtmlCollector;
 import com.quiotix.html.parser.HtmlDocument;
 
 import junit.framework.TestCase;
@@ -111,4 +117,352 @@ public class HtmlDocumentTest extends TestCase {
     }
     
     
+    /**
+     * Test method for {@link com.quiotix.html.parser.HtmlDocument.Attribute#setQuote(char)}.
+     */
+    public void testAttributeQuote() { 
+        HtmlDocument.Attribute a = new HtmlDocument.Attribute("a", "'v'");
+        assertEquals('\'', a.getQuote());
+        assertEquals("v", a.getValue());
+        assertSame(a.getValue(), a.getValue());
+
+        a.setQuote('"');
+        assertEquals("\"v\"", a.value);
+        assertEquals("a=\"v\"", a.toString());
+        assertEquals("v", a.getValue());
+
+        String unquoted = a.getValue();
+        a.setQuote((char) 0);
+        assertSame(unquoted, a.value);
+        assertEquals(0, a.getQuote());
+
+        // Assigning the field directly is noticed
+        a.value = "\"w\"";
+        assertEquals("w", a.getValue());
+        assertEquals('"', a.getQuote());
+
+        // A lone quote is not a quoted value
+        a.setValue("'");
+        assertEquals("'", a.getValue());
+        assertEquals(0, a.getQuote());
+
+        HtmlDocument.Attribute n = new HtmlDocument.Attribute("n");
+        n.setQuote('"');
+        assertEquals("n", n.toString());
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.HtmlDocument.AttributeList}.
+     */
+    public void testAttributeList() {
+        HtmlDocument.AttributeList l = new HtmlDocument.AttributeList();
+        assertEquals(0, l.size());
+        assertFalse(l.contains("a"));
+        assertNull(l.getValue("a"));
+
+        l.addAttribute(new HtmlDocument.Attribute("Checked"));
+        l.addAttribute(new HtmlDocument.Attribute("HREF", "'x'"));
+        assertEquals(2, l.size());
+        assertEquals(2, l.attributes.size());
+        assertTrue(l.contains("checked"));
+        assertFalse(l.hasValue("checked"));
+        assertTrue(l.hasValue("href"));
+        assertEquals("x", l.getValue("Href"));
+        assertSame(l.get(1), l.getAttribute("href"));
+        assertSame(l.get(1), l.attributes.get(1));
+    }
+
+    /**
+     * Lists large enough to be looked up through the hash index.
+     */
+    public void testAttributeListIndexed() {
+        HtmlDocument.AttributeList l = new HtmlDocument.AttributeList();
+        for (int i = 0; i < 40; i++)
+            l.addAttribute(new HtmlDocument.Attribute("data-" + i, "\"" + i + "\""));
+        for (int i = 0; i < 40; i++) {
+            assertTrue(l.contains("DATA-" + i));
+            assertEquals("" + i, l.getValue("data-" + i));
+        }
+        assertFalse(l.contains("data-40"));
+        assertNull(l.getValue("data-40"));
+
+        // Repeated name, the first without a value
+        l.addAttribute(new HtmlDocument.Attribute("dup"));
+        l.addAttribute(new HtmlDocument.Attribute("DUP", "v"));
+        assertTrue(l.contains("dup"));
+        assertTrue(l.hasValue("dup"));
+        assertEquals("v", l.getValue("dup"));
+        assertSame(l.get(40), l.getAttribute("dup"));
+
+        // Changes through the List view are seen by lookups
+        l.attributes.remove(0);
+        assertFalse(l.contains("data-0"));
+        assertEquals("1", l.getValue("data-1"));
+        l.attributes.add(0, new HtmlDocument.Attribute("first", "1"));
+        assertEquals("1", l.getValue("FIRST"));
+        l.attributes.set(0, new HtmlDocument.Attribute("second", "2"));
+        assertFalse(l.contains("first"));
+        assertEquals("2", l.getValue("second"));
+
+        // Changing case in place does not need the index rebuilding
+        l.get(5).name = l.get(5).name.toUpperCase();
+        assertEquals("5", l.getValue("data-5"));
+
+        // Renaming through the setter discards it
+        l.get(6).setName("renamed");
+        assertEquals("6", l.getValue("renamed"));
+        assertFalse(l.contains("data-6"));
+        l.get(6).setName("data-6");
+        assertEquals("6", l.getValue("data-6"));
+        assertFalse(l.contains("renamed"));
+
+        // As does an attribute put in by the List view
+        HtmlDocument.Attribute a = new HtmlDocument.Attribute("third", "3");
+        l.attributes.set(0, a);
+        assertEquals("3", l.getValue("third"));
+        a.setName("fourth");
+        assertEquals("3", l.getValue("fourth"));
+
+        // Other renames in place need it discarding by hand
+        l.get(5).name = "renamed";
+        l.invalidateIndex();
+        assertEquals("5", l.getValue("renamed"));
+        assertFalse(l.contains("data-5"));
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.HtmlDocument.HtmlElement#isDirty()}.
+     */
+    public void testDirty() {
+        HtmlDocument.Tag t = new HtmlDocument.Tag("a", new HtmlDocument.AttributeList());
+        assertFalse(t.isDirty());
+        t.setTagName("a");
+        assertFalse(t.isDirty());
+        t.setTagName("A");
+        assertTrue(t.isDirty());
+        t.setDirty(false);
+
+        // Changes to attributes dirty their tag
+        t.attributeList.addAttribute(new HtmlDocument.Attribute("href", "x"));
+        assertTrue(t.isDirty());
+        t.setDirty(false);
+        HtmlDocument.Attribute a = t.attributeList.get(0);
+        a.setValue("x");
+        a.setName("href");
+        assertFalse(t.isDirty());
+        a.setQuote('"');
+        assertTrue(a.isDirty());
+        assertTrue(t.isDirty());
+        t.setDirty(false);
+        assertFalse(a.isDirty());
+        t.attributeList.attributes.remove(0);
+        assertTrue(t.isDirty());
+
+        HtmlDocument.Text x = new HtmlDocument.Text("x");
+        x.setText("x");
+        assertFalse(x.isDirty());
+        x.setText("y");
+        assertTrue(x.isDirty());
+
+        HtmlDocument.Newline.SHARED.setWhitespace("");
+        assertFalse(HtmlDocument.Newline.SHARED.isDirty());
+
+        // Writing to fields directly is not noticed
+        HtmlDocument.EndTag e = new HtmlDocument.EndTag("a");
+        e.tagName = "b";
+        assertFalse(e.isDirty());
+        e.setDirty(true);
+        assertTrue(e.isDirty());
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.HtmlDocument#getElementsByTagName(String)}.
+     */
+    public void testIndexes() throws Exception {
+        HtmlDocument d = HtmlParserTest.parse(
+                "<div id=a class='x y x'><p class=y>1</p><P id=b>2</p></div>" + 
+                "<br class=y><p id=a>3</p>");
+        assertEquals(3, d.getElementsByTagName("p").size());
+        assertEquals(1, d.getElementsByTagName("BR").size());
+        assertEquals(0, d.getElementsByTagName("table").size());
+        assertTrue(d.getElementById("a") instanceof HtmlDocument.Tag);
+        assertEquals("div", ((HtmlDocument.Tag) d.getElementById("a")).tagName);
+        assertNull(d.getElementById("c"));
+        assertEquals(3, d.getElementsByClassName("y").size());
+        assertEquals(1, d.getElementsByClassName("x").size());
+        try {
+            d.getElementsByClassName("x").clear();
+            fail("Should have bombed");
+        } catch (UnsupportedOperationException e) {
+            e = null;
+        }
+
+        // Collecting invalidates, after which blocks are found
+        d.accept(new HtmlCollector());
+        assertEquals(1, d.getElementsByTagName("div").size());
+        assertTrue(d.getElementById("a") instanceof HtmlDocument.TagBlock);
+        assertEquals("2", ((HtmlDocument.TagBlock) d.getElementById("b")).text());
+        assertEquals(3, d.getElementsByTagName("p").size());
+
+        // Direct changes need invalidating by hand
+        ((HtmlDocument.TagBlock) d.getElementById("b")).startTag.tagName = "span";
+        assertEquals(3, d.getElementsByTagName("p").size());
+        d.invalidateIndex();
+        assertEquals(2, d.getElementsByTagName("p").size());
+        assertEquals(1, d.getElementsByTagName("span").size());
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.HtmlDocument.HtmlElement#getParent()}.
+     */
+    public void testLinks() throws Exception {
+        HtmlDocument d = HtmlParserTest.parse(
+                "<table id=t><tr><td id=c>x<b id=b>y</b>z</td></tr></table><hr>");
+        d.accept(new HtmlCollector());
+        HtmlDocument.HtmlElement b = d.getElementById("b");
+        assertNull(b.getParent());
+        assertNull(b.nextSibling());
+
+        d.accept(new HtmlCollector(true));
+        b = d.getElementById("b");
+        HtmlDocument.TagBlock cell = (HtmlDocument.TagBlock) d.getElementById("c");
+        assertSame(cell, b.getParent());
+        assertSame(cell.body, b.getParent().body);
+        assertSame(cell, cell.body.getOwner());
+        assertEquals("x", b.previousSibling().toString());
+        assertEquals("z", b.nextSibling().toString());
+        assertNull(b.nextSibling().nextSibling());
+        assertNull(b.previousSibling().previousSibling());
+        assertEquals("y", ((HtmlDocument.TagBlock) b).body.get(0).toString());
+        assertSame(b, ((HtmlDocument.TagBlock) b).body.get(0).getParent());
+
+        HtmlDocument.HtmlElement e = b;
+        while (e.getParent() != null)
+            e = e.getParent();
+        assertSame(d.getElementById("t"), e);
+        assertNull(e.getParent());
+        assertNull(e.previousSibling());
+        assertEquals("<hr>", e.nextSibling().toString());
+
+        // Links made stale by a change to the tree are ignored
+        cell.body.setElements(new ArrayList());
+        assertNull(b.getParent());
+        assertNull(b.nextSibling());
+    }
+
+    /**
+     * Bare line ends, shared by the parser, are each given one of their 
+     * own when linked, so navigation carries on past them.
+     */
+    public void testLinkedNewlines() throws Exception {
+        String html = "<ul>\n<li>a</li>\r\n<li>b</li>\n</ul>\n";
+        HtmlDocument d = HtmlParserTest.parse(html);
+        d.accept(new HtmlCollector(true));
+        HtmlDocument.TagBlock ul = (HtmlDocument.TagBlock) 
+            d.getElementsByTagName("ul").get(0);
+        StringBuffer kinds = new StringBuffer();
+        for (HtmlDocument.HtmlElement e = ul.body.get(0); e != null; 
+                e = e.nextSibling()) {
+            assertSame(ul, e.getParent());
+            String name = e.getClass().getName();
+            kinds.append(name.substring(name.lastIndexOf('$') + 1)).append(' ');
+        }
+        assertEquals("Newline TagBlock Newline TagBlock Newline ", 
+                kinds.toString());
+        HtmlDocument.HtmlElement last = ul.body.get(4);
+        assertNotSame(HtmlDocument.Newline.SHARED, last);
+        assertNotSame(ul.body.get(0), last);
+        assertSame(ul.body.get(2), last.previousSibling().previousSibling());
+
+        // and are still copied from the source as they were
+        assertEquals(html, PatchingDumperTest.patch(d, html));
+        ((HtmlDocument.Newline) ul.body.get(2)).setWhitespace(" ");
+        assertEquals(html.replaceFirst("\r\n", " " + HtmlDocument.Newline.NL), 
+                PatchingDumperTest.patch(d, html));
+
+        // The shared one cannot be changed for every document at once
+        try {
+            HtmlDocument.Newline.SHARED.setDirty(true);
+            fail("Should have bombed");
+        } catch (UnsupportedOperationException e) {
+            e = null;
+        }
+    }
+
+    static HtmlDocument roundTrip(HtmlDocument d) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        d.writeTo(out);
+        return HtmlDocument.readFrom(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.HtmlDocument#writeTo(java.io.OutputStream)}.
+     */
+    public void testWriteTo() throws Exception {
+        String html = "<html><head><title>T\u00e9st \u20ac</title></head>\n" + 
+            "<body class=\"a b\" checked><!-- c --> \t\n<br/><p id='x'>1<p>2</p>\n" + 
+            "</bogus><script>if (a<b) x();</script>";
+        HtmlDocument d = HtmlParserTest.parse(html);
+        d.setEncoding("UTF-8");
+        HtmlDocument copy = roundTrip(d);
+        assertEquals(HtmlParserTest.dump(d), HtmlParserTest.dump(copy));
+        assertEquals(HtmlParserTest.kinds(d), HtmlParserTest.kinds(copy));
+        assertEquals("UTF-8", copy.getEncoding());
+
+        d.accept(new HtmlCollector());
+        d.setEncoding(null);
+        copy = roundTrip(d);
+        assertEquals(HtmlParserTest.dump(d), HtmlParserTest.dump(copy));
+        assertEquals(HtmlParserTest.kinds(d), HtmlParserTest.kinds(copy));
+        assertNull(copy.getEncoding());
+        HtmlDocument.Tag p = (HtmlDocument.Tag) copy.getElementById("x");
+        assertEquals("'x'", p.attributeList.get(0).value);
+        assertTrue(((HtmlDocument.Tag) copy.getElementsByTagName("br").get(0)).emptyTag);
+        assertTrue(copy.getElementsByTagName("body").get(0) instanceof HtmlDocument.Tag);
+
+        HtmlDocument.ElementSequence s = new HtmlDocument.ElementSequence();
+        s.addElement(new HtmlDocument.Annotation("type", "text"));
+        s.addElement(HtmlDocument.Newline.SHARED);
+        s.addElement(new HtmlDocument.Newline("  "));
+        copy = roundTrip(new HtmlDocument(s));
+        assertEquals(HtmlParserTest.dump(new HtmlDocument(s)), HtmlParserTest.dump(copy));
+
+        // Several documents in one buffer
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        d.writeTo(out);
+        new HtmlDocument(s).writeTo(out);
+        ByteBuffer in = ByteBuffer.wrap(out.toByteArray());
+        assertEquals(HtmlParserTest.dump(d), HtmlParserTest.dump(HtmlDocument.readFrom(in)));
+        assertEquals("Annotation Newline Newline", 
+                HtmlParserTest.kinds(HtmlDocument.readFrom(in)));
+        assertFalse(in.hasRemaining());
+        
+        // and in a direct buffer
+        ByteBuffer direct = ByteBuffer.allocateDirect(out.size());
+        direct.put(out.toByteArray());
+        direct.flip();
+        assertEquals(HtmlParserTest.dump(d), HtmlParserTest.dump(HtmlDocument.readFrom(direct)));
+        assertTrue(direct.hasRemaining());
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.HtmlDocument#readFrom(java.nio.ByteBuffer)}.
+     */
+    public void testReadFromBad() throws Exception {
+        try {
+            HtmlDocument.readFrom(ByteBuffer.wrap("<html>".getBytes()));
+            fail("Should have bombed");
+        } catch (IllegalArgumentException e) {
+            e = null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HtmlParserTest.parse("<p>Some text</p>").writeTo(out);
+        byte[] b = out.toByteArray();
+        try {
+            HtmlDocument.readFrom(ByteBuffer.wrap(b, 0, b.length - 3));
+            fail("Should have bombed");
+        } catch (BufferUnderflowException e) {
+            e = null;
+        }
+    }
 }
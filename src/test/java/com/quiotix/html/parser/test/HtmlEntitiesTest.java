@@ -0,0 +1,114 @@
+/**
+ * 
+ */
+package com.quiotix.html.parser.test;
+
+import com.quiotix.html.parser.HtmlDocument;
+import com.quiotix.html.parser.HtmlEntities;
+
+import junit.framework.TestCase;
+
+/**
+ * @author timp
+ *
+ */
+public class HtmlEntitiesTest extends TestCase {
+
+    /**
+     * @param name
+     */
+    public HtmlEntitiesTest(String name) {
+        super(name);
+    }
+
+    /** 
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#setUp()
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+    }
+
+    /** 
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#tearDown()
+     */
+    protected void tearDown() throws Exception {
+        super.tearDown();
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.HtmlEntities#decode(String)}.
+     */
+    public void testDecode() {
+        String plain = "no references here";
+        assertSame(plain, HtmlEntities.decode(plain));
+        assertNull(HtmlEntities.decode(null));
+
+        assertEquals("a & b", HtmlEntities.decode("a &amp; b"));
+        assertEquals("\u00a0x\u00a0", HtmlEntities.decode("&nbsp;x&nbsp;"));
+        assertEquals("<p>", HtmlEntities.decode("&lt;p&gt;"));
+        assertEquals("it's", HtmlEntities.decode("it&apos;s"));
+        assertEquals("\u03b8\u2666", HtmlEntities.decode("&theta;&diams;"));
+        assertEquals("\u03d1", HtmlEntities.decode("&thetasym;"));
+        assertEquals("\u00c6\u00e6", HtmlEntities.decode("&AElig;&aelig;"));
+    }
+
+    /**
+     * Numeric references.
+     */
+    public void testDecodeNumeric() {
+        assertEquals("'", HtmlEntities.decode("&#39;"));
+        assertEquals("'", HtmlEntities.decode("&#x27;"));
+        assertEquals("'", HtmlEntities.decode("&#X27;"));
+        assertEquals("'x", HtmlEntities.decode("&#39x"));
+        assertEquals("\ud83d\ude00", HtmlEntities.decode("&#x1F600;"));
+        assertEquals("\ufffd", HtmlEntities.decode("&#0;"));
+        assertEquals("\ufffd", HtmlEntities.decode("&#xD800;"));
+        assertEquals("\ufffd", HtmlEntities.decode("&#99999999999;"));
+    }
+
+    /**
+     * Things which look a little like references are left alone.
+     */
+    public void testNotReferences() {
+        String[] s = { "&", "a & b", "&amp", "&nosuch;", "&#;", "&#x;", 
+                       "&AMP;", "&averyverylongname;", "&&",
+                       "&#\u0661\u0662\u0663;", "&#x\uff11;" };
+        for (int i = 0; i < s.length; i++)
+            assertSame(s[i], HtmlEntities.decode(s[i]));
+        assertEquals("&&", HtmlEntities.decode("&&amp;"));
+        // Only ASCII digits count
+        assertEquals("{\u0664;", HtmlEntities.decode("&#123\u0664;"));
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.HtmlEntities#lookup(String, int, int)}.
+     */
+    public void testLookup() {
+        assertEquals(38, HtmlEntities.lookup("xampx", 1, 4));
+        assertEquals(-1, HtmlEntities.lookup("xampx", 1, 3));
+        assertEquals(-1, HtmlEntities.lookup("", 0, 0));
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.HtmlDocument.Text#decoded()}.
+     */
+    public void testTextDecoded() {
+        HtmlDocument.Text t = new HtmlDocument.Text("fish &amp; chips");
+        assertEquals("fish & chips", t.decoded());
+        assertSame(t.decoded(), t.decoded());
+        t.text = "plain";
+        assertSame(t.text, t.decoded());
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.HtmlDocument.Attribute#getDecodedValue()}.
+     */
+    public void testAttributeDecoded() {
+        HtmlDocument.Attribute a = new HtmlDocument.Attribute("href", "'?a=1&amp;b=2'");
+        assertEquals("?a=1&b=2", a.getDecodedValue());
+        assertSame(a.getDecodedValue(), a.getDecodedValue());
+        assertEquals("", new HtmlDocument.Attribute("x").getDecodedValue());
+    }
+}
@@ -156,8 +156,45 @@ public class HtmlFormatterTest extends TestCase {
     /**
      * Test method for {@link com.quiotix.html.parser.HtmlFormatter#setIndent(int)}.
      */
-    public void testSetIndent() {
-        
+    public void testSetIndent() throws Exception {
+        // Indents deeper than the formatter's array of spaces
+        String nl = System.getProperty("line.separator");
+        HtmlDocument document = HtmlParserTest.parse(
+                "<table><tr><td>A long cell of words</td></tr></table>");
+        document.accept(new HtmlCollector());
+        OutputStream o = new ByteArrayOutputStream();
+        HtmlFormatter f = new HtmlFormatter(o);
+        f.setIndent(150);
+        f.setRightMargin(20);
+        document.accept(f);
+        StringBuffer indent = new StringBuffer();
+        for (int i = 0; i < 450; i++)
+            indent.append(' ');
+        String text = indent.toString();
+        String td = text.substring(150);
+        String tr = text.substring(300);
+        assertEquals("<table>" + nl + tr + "<tr>" + nl + td + "<td>" + nl 
+                + text + "A " + nl + text + "long " + nl + text + "cell " + nl 
+                + text + "of " + nl + text + "words" + nl 
+                + td + "</td>" + nl + tr + "</tr>" + nl + "</table>" + nl, 
+                o.toString());
+    }
+
+    /**
+     * Text is wrapped a word at a time, and attributes with a hanging
+     * indent.
+     */
+    public void testWrap() throws Exception {
+        String nl = System.getProperty("line.separator");
+        HtmlDocument document = HtmlParserTest.parse(
+                "<p>Some words to wrap <img src=a.gif alt=picture>and more</p>");
+        OutputStream o = new ByteArrayOutputStream();
+        HtmlFormatter f = new HtmlFormatter(o);
+        f.setRightMargin(16);
+        document.accept(f);
+        assertEquals("<p>Some words " + nl + "to wrap " + nl 
+                + "<img src=a.gif" + nl + "     alt=picture>" + nl 
+                + "and more</p>" + nl + nl, o.toString());
     }
 
     /**
@@ -0,0 +1,178 @@
+/**
+ *
+ */
+package com.quiotix.html.parser.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+
+import com.quiotix.html.parser.HtmlCollector;
+import com.quiotix.html.parser.HtmlDocument;
+import com.quiotix.html.parser.HtmlMinifier;
+import com.quiotix.html.parser.HtmlParser;
+
+/**
+ * @author timp
+ *
+ */
+public class HtmlMinifierTest extends TestCase {
+
+    private static final String NL = System.getProperty("line.separator");
+
+    /**
+     * @param name
+     */
+    public HtmlMinifierTest(String name) {
+        super(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#setUp()
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#tearDown()
+     */
+    protected void tearDown() throws Exception {
+        super.tearDown();
+    }
+
+    static String minify(String html, int flags) throws Exception {
+        ByteArrayOutputStream o = new ByteArrayOutputStream();
+        HtmlParserTest.parse(html).accept(new HtmlMinifier(o, flags));
+        return o.toString();
+    }
+
+    static String minify(String html) throws Exception {
+        return minify(html, HtmlMinifier.DEFAULT_OPTIONS);
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.HtmlMinifier}.
+     */
+    public void testMinify() throws Exception {
+        String html = "<!DOCTYPE html>\n<html>\n <head> <title> A  page </title>\n"
+            + " <!-- note --><!--[if IE]> x <![endif]-->\n </head>\n"
+            + " <body class=\"main\" id=\"x y\">\n  <p>One  <b>two</b>\n"
+            + "  three</p>\n  <ul> <li> a </li> <li>b</li> </ul>\n"
+            + "  <pre>  keep\n   this </pre>\n  <script> if (a <  b) {}\n"
+            + "  </script>\n  <table><tr><td>1</td><td>2</td></tr></table>\n"
+            + "  <p>last</p>\n </body>\n</html>\n";
+        assertEquals("<!DOCTYPE html><html><head><title>A page</title>"
+                + "<!--[if IE]> x <![endif]--><body class=main id=\"x y\">"
+                + "<p>One <b>two</b> three<ul><li>a<li>b</ul>"
+                + "<pre>  keep" + NL + "   this </pre><SCRIPT> if (a <  b) {}"
+                + NL + "  </SCRIPT><table><tr><td>1<td>2</table><p>last",
+                minify(html));
+    }
+
+    /**
+     * Whitespace is kept, collapsed, where it may show.
+     */
+    public void testSpaces() throws Exception {
+        assertEquals("a <b>b</b> c <SCRIPT>x</SCRIPT> d",
+                minify("\n a \n<b>b</b>\t\tc <script>x</script>  d \n"));
+        assertEquals("<textarea> x\ty </textarea><div>z</div>",
+                minify(" <textarea> x\ty </textarea> <div> z </div> "));
+        assertEquals("<xmp> <b>x</b>\n\n  y </xmp>",
+                minify("<xmp> <b>x</b>\n\n  y </xmp>"));
+        assertEquals(NL + " a " + NL + "<b>b</b>",
+                minify("\n a \n<b>b</b>", HtmlMinifier.STRIP_COMMENTS));
+    }
+
+    /**
+     * Comments go, but for those on the keep list; declarations stay.
+     */
+    public void testComments() throws Exception {
+        String html = "<!DOCTYPE html><!-- a --><!--[if IE]>x<![endif]-->"
+            + "<!--<![endif]--><!--keep me-->";
+        assertEquals("<!DOCTYPE html><!--[if IE]>x<![endif]--><!--<![endif]-->",
+                minify(html));
+        ByteArrayOutputStream o = new ByteArrayOutputStream();
+        HtmlMinifier m = new HtmlMinifier(o);
+        m.keepComments("keep");
+        HtmlParserTest.parse(html).accept(m);
+        assertEquals("<!DOCTYPE html><!--[if IE]>x<![endif]--><!--<![endif]-->"
+                + "<!--keep me-->", o.toString());
+        assertEquals(html, minify(html, HtmlMinifier.COLLAPSE_SPACES));
+    }
+
+    /**
+     * Quotes go only where HtmlScrubber would remove them.
+     */
+    public void testQuotes() throws Exception {
+        assertEquals("<a href=x title=ABC id='Mixed' class=\"a b\" alt=\"\" "
+                + "rel=\"a.b\" checked>",
+                minify("<a  href=\"x\" title='ABC' id='Mixed' class=\"a b\" "
+                        + "alt=\"\" rel=\"a.b\" checked >"));
+        assertEquals("<a href=\"x\">",
+                minify("<a  href=\"x\" >", HtmlMinifier.COLLAPSE_SPACES));
+        // Not before the "/" of an empty tag, which would join the value
+        assertEquals("<br id=y class=\"x\"/>", 
+                minify("<br id=\"y\" class=\"x\"/>"));
+    }
+
+    /**
+     * End tags go only where what follows closes the element anyway.
+     */
+    public void testEndTags() throws Exception {
+        assertEquals("<ul><li>a<li>b</ul><ol><li>c</ol>",
+                minify("<ul><li>a</li><li>b</li></ul><ol><li>c</li></ol>"));
+        assertEquals("<p>a<p>b<div><p>c</div><p>d</p><a>e</a></p>x",
+                minify("<p>a</p><p>b</p><div><p>c</p></div><p>d</p><a>e</a></p>x"));
+        assertEquals("<table><thead><tr><th>h<tbody><tr><td>1<td>2<tr><td>3"
+                + "</table>",
+                minify("<table><thead><tr><th>h</th></tr></thead><tbody><tr>"
+                        + "<td>1</td><td>2</td></tr><tr><td>3</td></tr></tbody>"
+                        + "</table>"));
+        assertEquals("<dl><dt>a<dd>b<dt>c<dd>d</dl><select><option>1"
+                + "<optgroup><option>2</optgroup></select>",
+                minify("<dl><dt>a</dt><dd>b</dd><dt>c</dt><dd>d</dd></dl>"
+                        + "<select><option>1</option><optgroup><option>2"
+                        + "</option></optgroup></select>"));
+        assertEquals("<html><head><title>t</title><body>x",
+                minify("<html><head><title>t</title></head>\n<body>x</body>\n"
+                        + "</html>\n"));
+        // Not where text, or a comment, follows
+        assertEquals("<p>a</p>b<ul><li>c</li><!--[if IE]>-->",
+                minify("<p>a</p>b<ul><li>c</li><!--[if IE]>-->"));
+        // Nor in preformatted text
+        assertEquals("<pre><p>a</p></pre>", minify("<pre><p>a</p></pre>"));
+        assertEquals("<li>a</li><li>b</li>",
+                minify("<li>a</li><li>b</li>", HtmlMinifier.STRIP_COMMENTS));
+    }
+
+    /**
+     * The parser's elements may be minified as they come, with the same
+     * result as the document, whether collected or not.
+     */
+    public void testStream() throws Exception {
+        String html = "<html><body>\n<ul>\n  <li>a</li>\n  <li><b>b</b> c</li>\n"
+            + "</ul>\n<script>\nx\n</script><p>end</p></body></html>\n";
+        String expected = minify(html);
+        assertEquals("<html><body><ul><li>a<li><b>b</b> c</ul>"
+                + "<SCRIPT>" + NL + "x" + NL + "</SCRIPT><p>end", expected);
+
+        HtmlDocument d = HtmlParserTest.parse(html);
+        d.accept(new HtmlCollector());
+        ByteArrayOutputStream o = new ByteArrayOutputStream();
+        d.accept(new HtmlMinifier(o));
+        assertEquals(expected, o.toString());
+
+        o = new ByteArrayOutputStream();
+        HtmlMinifier m = new HtmlMinifier(o);
+        HtmlParser parser = new HtmlParser(new StringReader(html));
+        m.start();
+        for (HtmlDocument.HtmlElement e; (e = parser.nextElement()) != null;)
+            e.accept(m);
+        m.finish();
+        assertEquals(expected, o.toString());
+    }
+}
@@ -0,0 +1,429 @@
+/**
+ *
+ */
+package com.quiotix.html.parser.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.quiotix.html.parser.HtmlCollector;
+import com.quiotix.html.parser.HtmlDocument;
+import com.quiotix.html.parser.HtmlDumper;
+import com.quiotix.html.parser.HtmlParser;
+import com.quiotix.html.parser.HtmlScrubber;
+import com.quiotix.html.parser.HtmlVisitor;
+
+/**
+ * @author timp
+ *
+ */
+public class HtmlParserTest extends TestCase {
+
+    /**
+     * @param name
+     */
+    public HtmlParserTest(String name) {
+        super(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#setUp()
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#tearDown()
+     */
+    protected void tearDown() throws Exception {
+        super.tearDown();
+    }
+
+    static HtmlDocument parse(String html) throws Exception {
+        return new HtmlParser(new StringReader(html)).HtmlDocument();
+    }
+
+    static String dump(HtmlDocument document) {
+        ByteArrayOutputStream o = new ByteArrayOutputStream();
+        document.accept(new HtmlDumper(o));
+        return o.toString();
+    }
+
+    /**
+     * Visitor recording the class of each top level element visited.
+     */
+    static class KindRecorder extends HtmlVisitor {
+        StringBuffer kinds = new StringBuffer();
+        public void visit(HtmlDocument.ElementSequence s) {
+            for (Iterator it = s.iterator(); it.hasNext();) {
+                String name = it.next().getClass().getName();
+                kinds.append(name.substring(name.lastIndexOf('$') + 1));
+                kinds.append(' ');
+            }
+        }
+    }
+
+    static String kinds(HtmlDocument document) {
+        KindRecorder r = new KindRecorder();
+        document.accept(r);
+        return r.kinds.toString().trim();
+    }
+
+    /**
+     * Well formed tags are not affected by recovery.
+     */
+    public void testWellFormed() throws Exception {
+        HtmlDocument d = parse("<p class=x id='y' checked>Hi</p><br/>");
+        assertEquals("Tag Text EndTag Tag", kinds(d));
+        assertEquals("<p class=x id='y' checked>Hi</p><br/>", dump(d));
+    }
+
+    /**
+     * Malformed start tags become Text, with their text intact.
+     */
+    public void testMalformedTag() throws Exception {
+        HtmlDocument d = parse("<a href=>x</a>");
+        assertEquals("Text Text EndTag", kinds(d));
+        assertEquals("<a href=>x</a>", dump(d));
+
+        d = parse("<p \"stray\">x");
+        assertEquals("Text Text", kinds(d));
+        assertEquals("<p \"stray\">x", dump(d));
+    }
+
+    /**
+     * Malformed end tags become Text.
+     */
+    public void testMalformedEndTag() throws Exception {
+        HtmlDocument d = parse("x</p y>z</3>");
+        assertEquals("Text Text Text Text Text", kinds(d));
+        assertEquals("x</p y>z</3>", dump(d));
+    }
+
+    /**
+     * A script tag which is not closed by a plain TAG_END is recovered.
+     */
+    public void testMalformedScript() throws Exception {
+        HtmlDocument d = parse("<script src=x />after");
+        assertEquals("Text Text", kinds(d));
+        assertEquals("<script src=x />after", dump(d));
+    }
+
+    /**
+     * An unterminated script block runs to the end of the document
+     * and is recovered as a single Text.
+     */
+    public void testUnterminatedScript() throws Exception {
+        HtmlDocument d = parse("<script>var x;");
+        assertEquals("Text", kinds(d));
+        assertEquals("<script>var x;", dump(d));
+    }
+
+    /**
+     * When annotating, each recovery is followed by an Annotation saying
+     * which token could not be parsed, and where, which takes no room in
+     * the source.
+     */
+    public void testAnnotating() throws Exception {
+        String html = "<a href=>x</a></p y><script src=x />after<3<textarea>z";
+        HtmlParser parser = new HtmlParser(new StringReader(html));
+        parser.setAnnotating(true);
+        HtmlDocument d = parser.HtmlDocument();
+        assertEquals("Text Annotation Text EndTag Text Annotation Text "
+                + "Text Annotation Text Text Annotation Tag Annotation Text",
+                kinds(d));
+        assertEquals(html, PatchingDumperTest.patch(d, html));
+
+        // An element at a time, likewise
+        parser = new HtmlParser(new StringReader(html));
+        parser.setAnnotating(true);
+        List elements = elements(parser);
+        HtmlDocument.ElementSequence s = new HtmlDocument.ElementSequence();
+        s.setElements(elements);
+        assertEquals(dump(d), dump(new HtmlDocument(s)));
+
+        HtmlDocument.Annotation a = (HtmlDocument.Annotation) elements.get(1);
+        assertEquals(HtmlParser.RECOVERED, a.getType());
+        assertEquals("<LAV_ERROR> at 8", a.getText());
+        // Just after the Text recovered
+        assertEquals(9, a.getBeginOffset());
+        assertEquals(9, a.getEndOffset());
+        assertEquals("<!--NOTE(recovered) <ATTR_NAME> at 18-->", elements.get(5).toString());
+        assertEquals("<!--NOTE(recovered) \"/>\" at 34-->", elements.get(8).toString());
+        assertEquals("<!--NOTE(recovered) <LST_ERROR> at 42-->", elements.get(11).toString());
+        assertEquals("<!--NOTE(recovered) <EOF> at 54-->", elements.get(13).toString());
+
+        // Line ends after recoveries are still copied as read
+        String[] crlf = { "<p>\"<\r\n</p>", "<p><a <title>\r\n</p>" };
+        for (int i = 0; i < crlf.length; i++) {
+            parser = new HtmlParser(new StringReader(crlf[i]));
+            parser.setAnnotating(true);
+            assertEquals(crlf[i], 
+                    PatchingDumperTest.patch(parser.HtmlDocument(), crlf[i]));
+        }
+
+        // and by default, not at all
+        assertEquals("Text Text EndTag Text Text Text Text Text Tag Text",
+                kinds(parse(html)));
+    }
+
+    /**
+     * The contents of script, style, textarea, title and xmp blocks are 
+     * read as one Text, up to an end tag in any case, markup and all.
+     */
+    public void testRawText() throws Exception {
+        String nl = System.getProperty("line.separator");
+        String script = "for(i=0;i<n;i++)s+=\"<b>\"+'</scripts>'+\"</script\";";
+        HtmlDocument d = parse("<script>" + script + "</Script >x");
+        assertEquals("TagBlock Text", kinds(d));
+        assertEquals("<SCRIPT>" + script + nl + "</SCRIPT>x", dump(d));
+        HtmlDocument.TagBlock block = (HtmlDocument.TagBlock) 
+            elements("<script>" + script + "</Script >x").get(0);
+        assertEquals(2, block.body.size());
+        assertEquals(script, ((HtmlDocument.Text) block.body.get(0)).text);
+
+        String html = "<title>A <b>bold</b> &amp; new</TITLE>"
+            + "<textarea name=t>\n<p>\r\n</p>\n</textarea>"
+            + "<xmp><!-- x --></xmp>";
+        d = parse(html);
+        assertEquals("TagBlock TagBlock TagBlock", kinds(d));
+        assertEquals(html, dump(d));
+        List blocks = elements(html);
+        block = (HtmlDocument.TagBlock) blocks.get(0);
+        assertEquals("title", block.startTag.tagName);
+        assertEquals("TITLE", block.endTag.tagName);
+        block = (HtmlDocument.TagBlock) elements("<style></style>").get(0);
+        assertEquals(1, block.body.size());
+
+        // Split into lines only when asked, located where they came from
+        block = (HtmlDocument.TagBlock) blocks.get(1);
+        assertEquals(1, block.body.size());
+        HtmlDocument.Text text = (HtmlDocument.Text) block.body.get(0);
+        HtmlDocument.ElementSequence lines = text.lines();
+        assertEquals(5, lines.size());
+        assertSame(HtmlDocument.Newline.SHARED, lines.get(0));
+        assertEquals("<p>", html.substring(lines.get(1).getBeginOffset(), 
+                lines.get(1).getEndOffset()));
+        assertSame(HtmlDocument.Newline.SHARED, lines.get(2));
+        assertEquals("</p>", ((HtmlDocument.Text) lines.get(3)).text);
+        assertSame(lines, text.lines());
+        text.setText("one line");
+        assertNull(text.lines());
+
+        // With no end tag, a script runs to the end, and others are tags
+        d = parse("<title>x<b>y</b></titl>");
+        assertEquals("Tag Text Tag Text EndTag EndTag", kinds(d));
+        assertEquals("<title>x<b>y</b></titl>", dump(d));
+
+        // A stray end tag is still an end tag
+        d = parse("x</textarea>");
+        assertEquals("Text EndTag", kinds(d));
+    }
+
+    /** @return the top level elements parsed from html */
+    static List elements(String html) throws Exception {
+        return elements(new HtmlParser(new StringReader(html)));
+    }
+
+    /** @return the top level elements the parser returns */
+    static List elements(HtmlParser parser) throws Exception {
+        List elements = new ArrayList();
+        for (HtmlDocument.HtmlElement e; (e = parser.nextElement()) != null;)
+            elements.add(e);
+        return elements;
+    }
+
+    /**
+     * A tag or declaration cut short by the end of input.
+     */
+    public void testTruncatedTag() throws Exception {
+        HtmlDocument d = parse("x<a href");
+        assertEquals("Text Text", kinds(d));
+        assertEquals("x<a href", dump(d));
+        d = parse("x<!DOCTYPE html");
+        assertEquals("Text Text", kinds(d));
+        assertEquals("x<!DOCTYPE html", dump(d));
+    }
+
+    /**
+     * A lone "&lt;" at the end of input is Text, not a ParseException.
+     */
+    public void testTrailingLessThan() throws Exception {
+        HtmlDocument d = parse("x<");
+        assertEquals("Text Text", kinds(d));
+        assertEquals("x<", dump(d));
+    }
+
+    /**
+     * Script and style blocks are chosen by the token after "&lt;".
+     */
+    public void testBlocks() throws Exception {
+        HtmlDocument d = parse("<script>a<b</script><style>p{}</style><scripts>");
+        assertEquals("TagBlock TagBlock Tag", kinds(d));
+        assertEquals("< 3>", dump(parse("< 3>")));
+    }
+
+    /**
+     * Line ends with nothing before them share one Newline; spaces and 
+     * tabs before a line end are kept for the dump.
+     */
+    public void testNewlines() throws Exception {
+        String NL = HtmlDocument.Newline.NL;
+        HtmlDocument d = parse("<p>\n<b> \t\r\nx  \r \n");
+        assertEquals("Tag Newline Tag Newline Text Newline Newline", kinds(d));
+        assertEquals("<p>" + NL + "<b> \t" + NL + "x  " + NL + " " + NL, dump(d));
+
+        final List newlines = new ArrayList();
+        d.accept(new HtmlVisitor() {
+            public void visit(HtmlDocument.Newline n) {
+                newlines.add(n);
+            }
+        });
+        assertSame(HtmlDocument.Newline.SHARED, newlines.get(0));
+        assertEquals(" \t", ((HtmlDocument.Newline) newlines.get(1)).getWhitespace());
+        assertSame(HtmlDocument.Newline.SHARED, newlines.get(2));
+        assertEquals(" ", ((HtmlDocument.Newline) newlines.get(3)).getWhitespace());
+        assertEquals(2 + NL.length(), ((HtmlDocument.Newline) newlines.get(1)).getLength());
+
+        d.accept(new HtmlScrubber(HtmlScrubber.TRIM_SPACES));
+        assertEquals("<p>" + NL + "<b>" + NL + "x  " + NL + NL, dump(d));
+
+        // The shared Newline is not linked into any one document
+        d.accept(new HtmlCollector(true));
+        assertNull(HtmlDocument.Newline.SHARED.nextSibling());
+
+        try {
+            HtmlDocument.Newline.SHARED.setWhitespace(" ");
+            fail("Should have bombed");
+        } catch (UnsupportedOperationException e) {
+            e = null;
+        }
+    }
+
+    /**
+     * Elements know which part of the input they were parsed from.
+     */
+    public void testOffsets() throws Exception {
+        final String html = "<P class=x>Hello <b>you</b>\n<!-- note -->"
+            + "<script>a < b\nc</script><a href=x <br>\t\n</p>";
+        HtmlDocument d = parse(html);
+        final List slices = new ArrayList();
+        HtmlVisitor slicer = new HtmlVisitor() {
+            void slice(HtmlDocument.HtmlElement e) {
+                if (e.getBeginOffset() < 0)
+                    slices.add(null);
+                else
+                    slices.add(html.substring(e.getBeginOffset(), e.getEndOffset()));
+            }
+            public void visit(HtmlDocument.Tag t) { slice(t); }
+            public void visit(HtmlDocument.EndTag t) { slice(t); }
+            public void visit(HtmlDocument.Text t) { slice(t); }
+            public void visit(HtmlDocument.Comment c) { slice(c); }
+            public void visit(HtmlDocument.Newline n) { slice(n); }
+            public void visit(HtmlDocument.TagBlock bl) {
+                slice(bl);
+                super.visit(bl);
+            }
+        };
+        d.accept(slicer);
+        assertEquals("[<P class=x>, Hello , <b>, you, </b>, null, <!-- note -->, "
+                + "<script>a < b\nc</script>, <script>, a < b\nc, , "
+                + "</script>, <a href=x , <br>, \t\n, </p>]", slices.toString());
+
+        // Collected blocks run from their start to their end tag
+        d.accept(new HtmlCollector());
+        slices.clear();
+        d.accept(slicer);
+        assertEquals("[<P class=x>Hello <b>you</b>\n<!-- note -->"
+                + "<script>a < b\nc</script><a href=x <br>\t\n</p>, "
+                + "<P class=x>, Hello , <b>you</b>, <b>, you, </b>, null, "
+                + "<!-- note -->, <script>a < b\nc</script>, <script>, a < b\nc, "
+                + ", </script>, <a href=x , <br>, \t\n, null]", 
+                slices.toString());
+
+        assertEquals(-1, new HtmlDocument.Text("made").getBeginOffset());
+        try {
+            HtmlDocument.Newline.SHARED.setOffsets(0, 1);
+            fail("Should have bombed");
+        } catch (UnsupportedOperationException e) {
+            e = null;
+        }
+    }
+
+    /**
+     * Long tokens, which grow the parser's buffer, and what follows them,
+     * which it shrinks back for, are read whole and located right, 
+     * however the input comes.
+     */
+    public void testLongTokens() throws Exception {
+        StringBuffer sb = new StringBuffer();
+        for (int n = 1000; n < 300000; n *= 3) {
+            sb.append("<p a=\"");
+            for (int i = 0; i < n; i++)
+                sb.append((char) ('a' + i % 26));
+            sb.append("\">x\n<SCRIPT>");
+            for (int i = 0; i < n; i++)
+                sb.append((char) ('a' + i % 23));
+            sb.append("</SCRIPT>\n");
+        }
+        sb.append("<b>end</b>\n");
+        final String html = sb.toString();
+        String nl = System.getProperty("line.separator");
+        for (int chunk = 7; chunk < 100000; chunk *= 41) {
+            HtmlDocument d = new HtmlParser(new ChunkedReader(html, chunk))
+                .HtmlDocument();
+            // Blocks are dumped with a line end before their end tags
+            assertEquals(html.replaceAll("</SCRIPT>", "\n</SCRIPT>")
+                    .replaceAll("\n", nl), dump(d));
+            final int[] located = new int[1];
+            d.accept(new HtmlVisitor() {
+                public void visit(HtmlDocument.Tag t) {
+                    assertEquals(t.toString(), 
+                            html.substring(t.getBeginOffset(), t.getEndOffset()));
+                    located[0]++;
+                }
+            });
+            assertEquals(13, located[0]);
+        }
+    }
+
+    /**
+     * The input is searched once for the end of an unclosed raw text tag,
+     * not again for each later one of the same name, which would take 
+     * time growing with the square of the input.
+     */
+    public void testUnclosedRawTags() throws Exception {
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < 20000; i++)
+            sb.append("<title>x <XMP>");
+        sb.append("<textarea>a<b></TEXTAREA>");
+        String html = sb.toString();
+        long start = System.currentTimeMillis();
+        HtmlDocument d = parse(html);
+        long took = System.currentTimeMillis() - start;
+        assertEquals(html, dump(d));
+        assertTrue(kinds(d).endsWith("Tag Text Tag TagBlock"));
+        // Well over ten times as long before
+        assertTrue("Took " + took + "ms", took < 2000);
+    }
+
+    /** A Reader which gives no more than a few characters at a time. */
+    static class ChunkedReader extends StringReader {
+        private final int chunk;
+        ChunkedReader(String s, int chunk) {
+            super(s);
+            this.chunk = chunk;
+        }
+        public int read(char[] cbuf, int off, int len) throws java.io.IOException {
+            return super.read(cbuf, off, Math.min(len, chunk));
+        }
+    }
+}
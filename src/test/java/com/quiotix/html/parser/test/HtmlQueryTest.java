@@ -0,0 +1,147 @@
+/**
+ *
+ */
+package com.quiotix.html.parser.test;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.quiotix.html.parser.HtmlCollector;
+import com.quiotix.html.parser.HtmlDocument;
+import com.quiotix.html.parser.HtmlQuery;
+import com.quiotix.html.parser.HtmlSelector;
+
+/**
+ * @author timp
+ *
+ */
+public class HtmlQueryTest extends TestCase {
+
+    static final String PAGE =
+        "<html><body>" +
+        "<div id=main class='page wide'>" +
+        "<p class=intro>Hello <a href=/one>one</a></p>" +
+        "<ul><li><a href=\"/two\" class=x>two</a></li>" +
+        "<li><a name=anchor>three</a></li></ul>" +
+        "</div>" +
+        "<div class=pages><a href='/f&amp;q'>four</a><img src=i.png></div>" +
+        "</body></html>";
+
+    HtmlDocument document;
+
+    /**
+     * @param name
+     */
+    public HtmlQueryTest(String name) {
+        super(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#setUp()
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+        document = HtmlParserTest.parse(PAGE);
+        document.accept(new HtmlCollector());
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#tearDown()
+     */
+    protected void tearDown() throws Exception {
+        super.tearDown();
+    }
+
+    String select(String selector) {
+        List found = HtmlQuery.select(document, selector);
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < found.size(); i++) {
+            Object o = found.get(i);
+            if (i > 0)
+                sb.append(',');
+            if (o instanceof HtmlDocument.TagBlock)
+                sb.append(((HtmlDocument.TagBlock) o).text());
+            else
+                sb.append(o.toString());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Simple selectors.
+     */
+    public void testSimple() throws Exception {
+        assertEquals("one,two,three,four", select("a"));
+        assertEquals("one,two,three,four", select("A"));
+        assertEquals("<img src=i.png>", select("img"));
+        assertEquals("two", select(".x"));
+        assertEquals("Hello onetwothree", select(".page"));
+        assertEquals("", select(".pag"));
+        assertEquals(1, HtmlQuery.select(document, "div.page").size());
+        assertEquals(1, HtmlQuery.select(document, ".page.wide").size());
+        assertEquals(1, HtmlQuery.select(document, "#main").size());
+        assertEquals(0, HtmlQuery.select(document, "#MAIN").size());
+        assertEquals("one,two,four", select("a[href]"));
+        assertEquals("two", select("a[href=/two]"));
+        assertEquals("two", select("[HREF='/two']"));
+        assertEquals("four", select("a[href=\"/f&q\"]"));
+        assertEquals(9, HtmlQuery.select(document, "div *").size());
+    }
+
+    /**
+     * Descendant and child combinators.
+     */
+    public void testCombinators() throws Exception {
+        assertEquals("one,two,three", select("#main a"));
+        assertEquals("two,three", select("#main ul a"));
+        assertEquals("", select("#main > a"));
+        assertEquals("four", select("div > a"));
+        assertEquals("two,three", select("ul > li > a"));
+        assertEquals("two,three", select("div li>a"));
+        assertEquals("one", select("body div p > a"));
+        assertEquals("", select("p div a"));
+        assertEquals("one,two,three,four", select("body a, #main a"));
+        assertEquals("one,four", select("p a,div.pages>a"));
+    }
+
+    /**
+     * Many selectors are answered by one traversal.
+     */
+    public void testMany() throws Exception {
+        HtmlQuery q = new HtmlQuery();
+        int links = q.add("a[href]");
+        int items = q.add(HtmlSelector.compile("li"));
+        int none = q.add("table td");
+        int all = q.add("*");
+        document.accept(q);
+        assertEquals(3, q.getMatches(links).size());
+        assertEquals(2, q.getMatches(items).size());
+        assertEquals(0, q.getMatches(none).size());
+        assertEquals(13, q.getMatches(all).size());
+        assertTrue(q.getMatches(items).get(0) instanceof HtmlDocument.TagBlock);
+
+        // Reusable
+        document.accept(q);
+        assertEquals(3, q.getMatches(links).size());
+    }
+
+    /**
+     * Invalid selectors are rejected when compiled.
+     */
+    public void testInvalid() throws Exception {
+        String[] bad = { "", " ", "a >", "> a", "a,", "[href", "a[=x]",
+                         "#", "a..b", "a[href='x]", "#a#b", "a ! b" };
+        for (int i = 0; i < bad.length; i++) {
+            try {
+                HtmlSelector.compile(bad[i]);
+                fail("Compiled \"" + bad[i] + "\"");
+            } catch (IllegalArgumentException e) {
+                e = null;
+            }
+        }
+        assertEquals("div > a", HtmlSelector.compile("div > a").toString());
+    }
+}
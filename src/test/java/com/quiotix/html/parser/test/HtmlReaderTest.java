@@ -0,0 +1,135 @@
+/**
+ * 
+ */
+package com.quiotix.html.parser.test;
+
+import java.io.ByteArrayInputStream;
+
+import com.quiotix.html.parser.HtmlDocument;
+import com.quiotix.html.parser.HtmlParser;
+import com.quiotix.html.parser.HtmlReader;
+import com.quiotix.html.parser.HtmlVisitor;
+
+import junit.framework.TestCase;
+
+/**
+ * @author timp
+ *
+ */
+public class HtmlReaderTest extends TestCase {
+
+    /**
+     * @param name
+     */
+    public HtmlReaderTest(String name) {
+        super(name);
+    }
+
+    /** 
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#setUp()
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+    }
+
+    /** 
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#tearDown()
+     */
+    protected void tearDown() throws Exception {
+        super.tearDown();
+    }
+
+    static String sniff(String s) throws Exception {
+        byte[] b = s.getBytes("ISO-8859-1");
+        return HtmlReader.sniff(b, b.length);
+    }
+
+    static String read(byte[] b, String defaultEncoding) throws Exception {
+        HtmlReader r = new HtmlReader(new ByteArrayInputStream(b), defaultEncoding);
+        StringBuffer sb = new StringBuffer();
+        char[] buf = new char[7];
+        int n;
+        while ((n = r.read(buf, 0, buf.length)) > 0)
+            sb.append(buf, 0, n);
+        return r.getEncoding() + ":" + sb.toString();
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.HtmlReader#sniff(byte[], int)}.
+     */
+    public void testSniff() throws Exception {
+        assertNull(sniff("<html><head><title>x</title>"));
+        assertEquals("utf-8", sniff("<meta charset=utf-8>"));
+        assertEquals("UTF-8", sniff("<META CHARSET=\"UTF-8\"/>"));
+        assertEquals("windows-1252", sniff(
+                "<meta http-equiv=\"Content-Type\" " + 
+                "content=\"text/html; charset=windows-1252\">"));
+        assertEquals("ISO-8859-2", sniff(
+                "<meta content='text/html;charset=ISO-8859-2' " + 
+                "http-equiv='content-type'>"));
+        // content without http-equiv is not a declaration
+        assertNull(sniff("<meta content='text/html; charset=ISO-8859-2'>"));
+        // nor is a meta inside a comment
+        assertNull(sniff("<!-- <meta charset=utf-8> --><p>"));
+        assertEquals("koi8-r", sniff("<!-- x --><meta charset=koi8-r>"));
+        assertNull(sniff("<meta charset=no-such-charset>"));
+        assertNull(sniff("<metadata charset=utf-8>"));
+        assertEquals("UTF-8", sniff("<meta charset=utf-16>"));
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.HtmlReader#HtmlReader(java.io.InputStream, String)}.
+     */
+    public void testRead() throws Exception {
+        String s = "<meta charset=utf-8><p>caf\u00e9</p>";
+        assertEquals("UTF-8:" + s, read(s.getBytes("UTF-8"), "ISO-8859-1"));
+
+        s = "<p>caf\u00e9</p>";
+        assertEquals("ISO-8859-1:" + s, read(s.getBytes("ISO-8859-1"), "ISO-8859-1"));
+
+        byte[] b = s.getBytes("UTF-16LE");
+        byte[] bom = new byte[b.length + 2];
+        bom[0] = (byte) 0xFF;
+        bom[1] = (byte) 0xFE;
+        System.arraycopy(b, 0, bom, 2, b.length);
+        assertEquals("UTF-16LE:" + s, read(bom, null));
+
+        b = s.getBytes("UTF-8");
+        bom = new byte[b.length + 3];
+        bom[0] = (byte) 0xEF;
+        bom[1] = (byte) 0xBB;
+        bom[2] = (byte) 0xBF;
+        System.arraycopy(b, 0, bom, 3, b.length);
+        assertEquals("UTF-8:" + s, read(bom, "ISO-8859-1"));
+    }
+
+    /**
+     * Declarations beyond the prescan window are not seen.
+     */
+    public void testLongDocument() throws Exception {
+        StringBuffer sb = new StringBuffer();
+        while (sb.length() < HtmlReader.PRESCAN_LENGTH)
+            sb.append("<p>padding</p>\n");
+        sb.append("<meta charset=utf-8>\u00e9");
+        String s = sb.toString();
+        assertEquals("ISO-8859-1:" + s, read(s.getBytes("ISO-8859-1"), "ISO-8859-1"));
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.HtmlParser#parse(java.io.InputStream)}.
+     */
+    public void testParse() throws Exception {
+        String s = "<html><head><meta charset=\"utf-8\"></head><body>\u20ac</body>";
+        HtmlDocument d = HtmlParser.parse(new ByteArrayInputStream(s.getBytes("UTF-8")));
+        assertEquals("UTF-8", d.getEncoding());
+        final StringBuffer text = new StringBuffer();
+        d.accept(new HtmlVisitor() {
+            public void visit(HtmlDocument.Text t) {
+                text.append(t.text);
+            }
+        });
+        assertEquals("\u20ac", text.toString());
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ *
+ */
+package com.quiotix.html.parser.test;
+
+import junit.framework.TestCase;
+
+import com.quiotix.html.parser.HtmlDocument;
+import com.quiotix.html.parser.HtmlVisitor;
+import com.quiotix.html.parser.IncrementalParser;
+
+/**
+ * @author timp
+ *
+ */
+public class IncrementalParserTest extends TestCase {
+
+    /**
+     * @param name
+     */
+    public IncrementalParserTest(String name) {
+        super(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#setUp()
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#tearDown()
+     */
+    protected void tearDown() throws Exception {
+        super.tearDown();
+    }
+
+    /**
+     * @return the offsets of the elements of the document
+     */
+    private static String offsets(HtmlDocument d) {
+        final StringBuffer s = new StringBuffer();
+        d.accept(new HtmlVisitor() {
+            void offsets(HtmlDocument.HtmlElement e) {
+                s.append(e.getBeginOffset()).append('-');
+                s.append(e.getEndOffset()).append(' ');
+            }
+            public void visit(HtmlDocument.Tag t) { offsets(t); }
+            public void visit(HtmlDocument.EndTag t) { offsets(t); }
+            public void visit(HtmlDocument.Text t) { offsets(t); }
+            public void visit(HtmlDocument.Comment c) { offsets(c); }
+            public void visit(HtmlDocument.Newline n) { offsets(n); }
+            public void visit(HtmlDocument.TagBlock bl) {
+                offsets(bl);
+                super.visit(bl);
+            }
+        });
+        return s.toString();
+    }
+
+    /**
+     * Check an edit gives just what parsing the edited text would.
+     * @return the number of elements parsed again
+     */
+    private static int edit(IncrementalParser p, int offset, int removed, 
+                            String inserted) throws Exception {
+        String text = p.getSource();
+        text = text.substring(0, offset) + inserted 
+            + text.substring(offset + removed);
+        int n = p.edit(offset, removed, inserted);
+        assertEquals(text, p.getSource());
+        assertEquals(HtmlParserTest.kinds(HtmlParserTest.parse(text)), 
+                HtmlParserTest.kinds(p.getDocument()));
+        assertEquals(HtmlParserTest.dump(HtmlParserTest.parse(text)), 
+                HtmlParserTest.dump(p.getDocument()));
+        assertEquals(offsets(HtmlParserTest.parse(text)), 
+                offsets(p.getDocument()));
+        return n;
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.IncrementalParser#edit(int, int, java.lang.String)}.
+     */
+    public void testEdit() throws Exception {
+        String page = "<html>\n<body>\n<p class=a>One</p>\n<p>Two</p>\n</body>\n</html>\n";
+        IncrementalParser p = new IncrementalParser(page);
+        assertEquals(HtmlParserTest.dump(HtmlParserTest.parse(page)), 
+                HtmlParserTest.dump(p.getDocument()));
+
+        // Typing into text parses little more than the text
+        int at = page.indexOf("One") + 3;
+        assertTrue(edit(p, at, 0, "!") <= 2);
+        assertTrue(edit(p, at + 1, 0, " and a half") <= 2);
+        assertTrue(edit(p, at, 12, "") <= 2);
+        assertEquals(page, p.getSource());
+
+        // Into an attribute value
+        at = page.indexOf("class=a") + 7;
+        assertTrue(edit(p, at, 0, "b") <= 2);
+
+        // Text inserted right after an element lengthens it
+        edit(p, page.indexOf("Two") + 3, 0, "s");
+        edit(p, page.indexOf("\n"), 0, "\r");
+
+        // Edits which change how much follows is in one element
+        edit(p, page.indexOf("<body>"), 0, "<!--");
+        edit(p, p.getSource().indexOf("</p>"), 0, "-->");
+        edit(p, p.getSource().indexOf("<!--"), 4, "");
+        edit(p, p.getSource().indexOf("-->"), 3, "");
+        edit(p, p.getSource().indexOf("<p>"), 0, "<script>");
+        edit(p, p.getSource().indexOf("<script>"), 8, "<script");
+        edit(p, 0, 0, "'");
+        edit(p, p.getSource().length(), 0, "'<p");
+        edit(p, 0, p.getSource().length(), "");
+        edit(p, 0, 0, page);
+        assertEquals(page, p.getSource());
+    }
+
+    /**
+     * A quoted string in a comment can reach a long way past the element 
+     * it is part of.
+     */
+    public void testLookahead() throws Exception {
+        String page = "<!-- it's --> <b>a</b> x\n";
+        IncrementalParser p = new IncrementalParser(page);
+        assertEquals("Comment Text Tag Text EndTag Text Newline", 
+                HtmlParserTest.kinds(p.getDocument()));
+        edit(p, page.indexOf('x'), 0, "'");
+        assertEquals("Comment", HtmlParserTest.kinds(p.getDocument()));
+        edit(p, page.indexOf('x'), 1, "");
+        assertEquals("Comment Text Tag Text EndTag Text Newline", 
+                HtmlParserTest.kinds(p.getDocument()));
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.IncrementalParser#edit(int, int, java.lang.String)}.
+     */
+    public void testEditOutOfRange() throws Exception {
+        IncrementalParser p = new IncrementalParser("<p>text</p>");
+        try {
+            p.edit(5, 10, "");
+            fail("Should have bombed");
+        } catch (IndexOutOfBoundsException e) {
+            e = null;
+        }
+        assertEquals("<p>text</p>", p.getSource());
+    }
+}
@@ -0,0 +1,271 @@
+/**
+ *
+ */
+package com.quiotix.html.parser.test;
+
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+
+import com.quiotix.html.parser.HtmlCollector;
+import com.quiotix.html.parser.HtmlDocument;
+import com.quiotix.html.parser.HtmlDumper;
+import com.quiotix.html.parser.HtmlParser;
+import com.quiotix.html.parser.ParseLimitException;
+import com.quiotix.html.parser.ParseLimits;
+
+/**
+ * @author timp
+ *
+ */
+public class ParseLimitsTest extends TestCase {
+
+    private static final String NL = System.getProperty("line.separator");
+
+    /**
+     * @param name
+     */
+    public ParseLimitsTest(String name) {
+        super(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#setUp()
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#tearDown()
+     */
+    protected void tearDown() throws Exception {
+        super.tearDown();
+    }
+
+    static String repeat(String s, int n) {
+        StringBuffer sb = new StringBuffer(s.length() * n);
+        for (int i = 0; i < n; i++)
+            sb.append(s);
+        return sb.toString();
+    }
+
+    static HtmlParser parser(String html, ParseLimits limits) {
+        HtmlParser parser = new HtmlParser(new StringReader(html));
+        parser.setLimits(limits);
+        return parser;
+    }
+
+    static String dump(HtmlDocument d) {
+        java.io.ByteArrayOutputStream o = new java.io.ByteArrayOutputStream();
+        d.accept(new HtmlDumper(o));
+        return o.toString();
+    }
+
+    static void assertFails(String html, ParseLimits limits, String message)
+            throws Exception {
+        try {
+            parser(html, limits).HtmlDocument();
+            fail("Should have bombed");
+        } catch (ParseLimitException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    /**
+     * An attribute value whose quote is never closed is one token, which
+     * is not allowed to grow past the limit.
+     */
+    public void testTokenLength() throws Exception {
+        String html = "<p>ok</p><a href=\"" + repeat("x\n", 100000) + ">";
+        ParseLimits limits = new ParseLimits();
+        limits.setMaxTokenLength(10000);
+        assertFails(html, limits, "Token longer than 10000 characters");
+
+        limits.setTruncating(true);
+        HtmlParser parser = parser(html, limits);
+        HtmlDocument d = parser.HtmlDocument();
+        assertTrue(parser.isTruncated());
+        String dumped = dump(d);
+        assertTrue(dumped.startsWith("<p>ok</p><a href=\"x"));
+        assertTrue(dumped.length() < 20000);
+
+        // Nor may a comment, though it comes in many tokens
+        html = "<p>ok</p><!--" + repeat("a - b\n", 100000) + "-->";
+        limits.setTruncating(false);
+        assertFails(html, limits, "Token longer than 10000 characters");
+        limits.setTruncating(true);
+        parser = parser(html, limits);
+        dumped = dump(parser.HtmlDocument());
+        assertTrue(parser.isTruncated());
+        assertTrue(dumped.startsWith("<p>ok</p><!--a - b"));
+        assertTrue(dumped.length() < 20000);
+
+        // Nor a declaration
+        html = "<p>ok</p><!DOCTYPE " + repeat("x ", 100000);
+        limits.setTruncating(false);
+        assertFails(html, limits, "Token longer than 10000 characters");
+        limits.setTruncating(true);
+        parser = parser(html, limits);
+        dumped = dump(parser.HtmlDocument());
+        assertTrue(parser.isTruncated());
+        assertTrue(dumped.startsWith("<p>ok</p><!DOCTYPE x"));
+        assertTrue(dumped.length() < 20000);
+
+        // Nor a script
+        html = "<script>" + repeat("a < b; ", 100000) + "</script>";
+        limits.setTruncating(false);
+        assertFails(html, limits, "Token longer than 10000 characters");
+
+        // Short enough tokens are fine, however long the input
+        html = repeat("<p class=x>text</p>" + NL, 10000);
+        parser = parser(html, limits);
+        assertEquals(html, dump(parser.HtmlDocument()));
+        assertFalse(parser.isTruncated());
+    }
+
+    /**
+     * A title never closed is not one long token: the search for its end
+     * gives up within the limit, and the rest is parsed as markup.
+     */
+    public void testUnclosedTitle() throws Exception {
+        String html = "<title>Unclosed</head><body>"
+            + repeat("<p class=x>text</p>" + NL, 8000);
+        ParseLimits limits = new ParseLimits();
+        limits.setMaxTokenLength(65536);
+        HtmlParser parser = parser(html, limits);
+        assertEquals(html, dump(parser.HtmlDocument()));
+
+        limits.setTruncating(true);
+        parser = parser(html, limits);
+        assertEquals(html, dump(parser.HtmlDocument()));
+        assertFalse(parser.isTruncated());
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.ParseLimits#setMaxInput(int)}.
+     */
+    public void testInput() throws Exception {
+        ParseLimits limits = new ParseLimits();
+        limits.setMaxInput(20);
+        assertFails("<p>0123456789</p><br>", limits,
+                "Input longer than 20 characters");
+        HtmlParser parser = parser("<p>0123456789</p>xx", limits);
+        assertEquals("<p>0123456789</p>xx", dump(parser.HtmlDocument()));
+        assertFalse(parser.isTruncated());
+
+        limits.setTruncating(true);
+        parser = parser("<p>0123456789</p><br>", limits);
+        assertEquals("<p>0123456789</p><br", dump(parser.HtmlDocument()));
+        assertTrue(parser.isTruncated());
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.ParseLimits#setMaxAttributes(int)}.
+     */
+    public void testAttributes() throws Exception {
+        String html = "<p a=1 b c=3><p a b>";
+        ParseLimits limits = new ParseLimits();
+        limits.setMaxAttributes(2);
+        assertFails(html, limits, "More than 2 attributes");
+
+        limits.setTruncating(true);
+        HtmlParser parser = parser(html, limits);
+        assertEquals("<p a=1 b><p a b>", dump(parser.HtmlDocument()));
+        assertTrue(parser.isTruncated());
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.ParseLimits#setMaxElements(int)}.
+     */
+    public void testElements() throws Exception {
+        String html = "<p>one</p>" + NL + "<p>two</p>" + NL;
+        ParseLimits limits = new ParseLimits();
+        limits.setMaxElements(8);
+        HtmlParser parser = parser(html, limits);
+        assertEquals(html, dump(parser.HtmlDocument()));
+        assertFalse(parser.isTruncated());
+
+        limits.setMaxElements(5);
+        assertFails(html, limits, "More than 5 elements");
+        parser = parser(html, limits);
+        int n = 0;
+        try {
+            while (parser.nextElement() != null)
+                n++;
+            fail("Should have bombed");
+        } catch (ParseLimitException e) {
+            assertEquals(5, n);
+        }
+
+        limits.setTruncating(true);
+        parser = parser(html, limits);
+        assertEquals("<p>one</p>" + NL + "<p>", dump(parser.HtmlDocument()));
+        assertTrue(parser.isTruncated());
+        parser = parser(html, limits);
+        for (n = 0; parser.nextElement() != null; n++)
+            ;
+        assertEquals(5, n);
+        assertNull(parser.nextElement());
+        assertTrue(parser.isTruncated());
+    }
+
+    /**
+     * The limits apply afresh to each document a parser is reinitialised 
+     * with.
+     */
+    public void testReuse() throws Exception {
+        ParseLimits limits = new ParseLimits();
+        limits.setMaxElements(3);
+        HtmlParser parser = parser("<a><b><c>", limits);
+        assertEquals("<a><b><c>", dump(parser.HtmlDocument()));
+        parser.ReInit(new StringReader("<a><b><c>"));
+        assertEquals("<a><b><c>", dump(parser.HtmlDocument()));
+        assertFalse(parser.isTruncated());
+
+        limits.setTruncating(true);
+        parser.ReInit(new StringReader("<a><b><c><d>"));
+        assertEquals("<a><b><c>", dump(parser.HtmlDocument()));
+        assertTrue(parser.isTruncated());
+        parser.ReInit(new StringReader("<a><b>"));
+        assertEquals("<a><b>", dump(parser.HtmlDocument()));
+        assertFalse(parser.isTruncated());
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.HtmlCollector#setLimits(ParseLimits)}.
+     */
+    public void testDepth() throws Exception {
+        String html = repeat("<div>", 5000) + "x" + repeat("</div>", 5000);
+        ParseLimits limits = ParseLimits.forUntrustedInput();
+        HtmlDocument d = parser(html, limits).HtmlDocument();
+        HtmlCollector c = new HtmlCollector();
+        c.setLimits(limits);
+        d.accept(c);
+        assertEquals(html, dump(d));
+        assertEquals(512, depth(d));
+
+        limits.setMaxDepth(2);
+        d = HtmlParserTest.parse("<div><p><b>x</b></p></div><i>y</i>");
+        c.setLimits(limits);
+        d.accept(c);
+        assertEquals(2, depth(d));
+        assertEquals("<div><p><b>x</b></p></div><i>y</i>", dump(d));
+    }
+
+    /** @return how deeply tag blocks are nested */
+    static int depth(HtmlDocument d) {
+        final int[] depth = new int[2];
+        d.accept(new com.quiotix.html.parser.HtmlVisitor() {
+            public void visit(HtmlDocument.TagBlock bl) {
+                depth[0]++;
+                depth[1] = Math.max(depth[1], depth[0]);
+                super.visit(bl);
+                depth[0]--;
+            }
+        });
+        return depth[1];
+    }
+}
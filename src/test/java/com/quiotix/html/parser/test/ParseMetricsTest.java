@@ -0,0 +1,167 @@
+/**
+ *
+ */
+package com.quiotix.html.parser.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+
+import com.quiotix.html.parser.HtmlCollector;
+import com.quiotix.html.parser.HtmlDocument;
+import com.quiotix.html.parser.HtmlFormatter;
+import com.quiotix.html.parser.HtmlParser;
+import com.quiotix.html.parser.HtmlParserConstants;
+import com.quiotix.html.parser.HtmlParserTokenManager;
+import com.quiotix.html.parser.HtmlScrubber;
+import com.quiotix.html.parser.ParseMetrics;
+import com.quiotix.html.parser.ParseStatistics;
+
+/**
+ * @author timp
+ *
+ */
+public class ParseMetricsTest extends TestCase {
+
+    static final String HTML = "<html><head><title>T</title></head>\n"
+        + "<body><p class=x>Hello <b>there</b></p>\n"
+        + "<script>a < b</script><a href=>x</a><br></body></html>\n";
+
+    /**
+     * @param name
+     */
+    public ParseMetricsTest(String name) {
+        super(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#setUp()
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#tearDown()
+     */
+    protected void tearDown() throws Exception {
+        super.tearDown();
+    }
+
+    /** Metrics whose clock ticks once each time it is read. */
+    static class TickingMetrics extends ParseMetrics {
+        long ticks;
+
+        TickingMetrics(ParseStatistics statistics) {
+            super(statistics);
+        }
+
+        protected long now() {
+            return ++ticks;
+        }
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.ParseMetrics#endDocument(HtmlDocument)}.
+     */
+    public void testDocument() throws Exception {
+        ParseMetrics metrics = new TickingMetrics(null);
+        HtmlParser parser = new HtmlParser(new StringReader(HTML));
+        parser.setMetrics(metrics);
+        HtmlDocument d = parser.HtmlDocument();
+        assertEquals(HTML.length(), metrics.getCharacters());
+        assertEquals(9, metrics.getTokens(HtmlParserConstants.TAG_START));
+        // Those ending raw text are scanned for, not lexed
+        assertEquals(6, metrics.getTokens(HtmlParserConstants.ENDTAG_START));
+        assertEquals(1, metrics.getTokens(HtmlParserConstants.EOF));
+        assertEquals(1, metrics.getTokens(HtmlParserConstants.ATTR_VAL));
+        assertEquals(1, metrics.getRecovered());
+        // At the "=" with no value
+        assertEquals(1, metrics.getRecovered(HtmlParserConstants.LAV_ERROR));
+        assertTrue(metrics.getTime(ParseMetrics.LEX) > 0);
+        assertTrue(metrics.getTime(ParseMetrics.PARSE) > 0);
+        assertEquals(0, metrics.getTime(ParseMetrics.COLLECT));
+
+        metrics.time(ParseMetrics.COLLECT, d, new HtmlCollector());
+        metrics.time(ParseMetrics.SCRUB, d, new HtmlScrubber());
+        metrics.time(ParseMetrics.FORMAT, d,
+                new HtmlFormatter(new ByteArrayOutputStream()));
+        assertEquals(1, metrics.getTime(ParseMetrics.COLLECT));
+        assertEquals(1, metrics.getTime(ParseMetrics.FORMAT));
+        assertEquals(0, metrics.getElements());
+        metrics.endDocument(d);
+        assertEquals(7, metrics.getElements(ParseMetrics.TAG_BLOCK));
+        assertEquals(4, metrics.getElements(ParseMetrics.NEWLINE));
+        assertEquals(6, metrics.getElements(ParseMetrics.TEXT));
+        assertEquals(4, metrics.getMaxDepth());
+
+        // Given to a parser again, they start afresh
+        parser.ReInit(new StringReader("<p>"));
+        parser.setMetrics(metrics);
+        parser.HtmlDocument();
+        assertEquals(3, metrics.getCharacters());
+        assertEquals(0, metrics.getRecovered());
+        assertEquals(0, metrics.getElements());
+        assertEquals(1, metrics.getTokens(HtmlParserConstants.TAG_START));
+    }
+
+    /**
+     * Without metrics, the lexer is left as generated.
+     */
+    public void testDisabled() throws Exception {
+        HtmlParser parser = new HtmlParser(new StringReader(HTML));
+        assertSame(HtmlParserTokenManager.class, parser.token_source.getClass());
+        parser.setMetrics(null);
+        assertSame(HtmlParserTokenManager.class, parser.token_source.getClass());
+
+        ParseMetrics metrics = new ParseMetrics();
+        parser.setMetrics(metrics);
+        parser.setMetrics(null);
+        assertEquals(HtmlParserTest.dump(HtmlParserTest.parse(HTML)),
+                HtmlParserTest.dump(parser.HtmlDocument()));
+        assertEquals(0, metrics.getTokens());
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.ParseStatistics#add(ParseMetrics)}.
+     */
+    public void testStatistics() throws Exception {
+        ParseStatistics statistics = new ParseStatistics();
+        for (int i = 0; i < 3; i++) {
+            ParseMetrics metrics = new TickingMetrics(statistics);
+            HtmlParser parser = new HtmlParser(new StringReader(HTML));
+            parser.setMetrics(metrics);
+            if (i < 2) {
+                HtmlDocument d = parser.HtmlDocument();
+                metrics.time(ParseMetrics.COLLECT, d, new HtmlCollector());
+                metrics.endDocument(d);
+            } else {
+                // An element at a time
+                while (parser.nextElement() != null)
+                    ;
+                metrics.endDocument(null);
+            }
+        }
+        assertEquals(3, statistics.getDocuments());
+        assertEquals(3 * HTML.length(), statistics.getCharacters());
+        assertEquals(3, statistics.getRecovered());
+        assertEquals(3, statistics.getRecoveredByKind()[HtmlParserConstants.LAV_ERROR]);
+        assertEquals(4, statistics.getMaxDepth());
+        assertEquals(14, statistics.getElementsByType()[ParseMetrics.TAG_BLOCK]);
+        assertEquals(2, statistics.getCollectTime());
+        assertEquals(3 * 9, statistics.getTokensByKind()[HtmlParserConstants.TAG_START]);
+        assertEquals("<EOF>", statistics.getTokenKinds()[HtmlParserConstants.EOF]);
+        assertEquals("TagBlock", statistics.getElementTypes()[ParseMetrics.TAG_BLOCK]);
+        assertTrue(statistics.getLexTime() > 0);
+        assertTrue(statistics.getParseTime() > 0);
+        assertTrue(statistics.getCharactersPerSecond() > 0);
+
+        statistics.reset();
+        assertEquals(0, statistics.getDocuments());
+        assertEquals(0, statistics.getTokens());
+        assertEquals(0, statistics.getCharactersPerSecond(), 0);
+    }
+}
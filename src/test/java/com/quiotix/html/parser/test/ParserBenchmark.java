@@ -0,0 +1,408 @@
+/**
+ *
+ */
+package com.quiotix.html.parser.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPOutputStream;
+
+import com.quiotix.html.parser.CompactHtmlDocument;
+import com.quiotix.html.parser.DeflaterWriter;
+import com.quiotix.html.parser.HtmlCollector;
+import com.quiotix.html.parser.HtmlDocument;
+import com.quiotix.html.parser.HtmlDumper;
+import com.quiotix.html.parser.HtmlMinifier;
+import com.quiotix.html.parser.HtmlParser;
+import com.quiotix.html.parser.HtmlQuery;
+import com.quiotix.html.parser.HtmlScrubber;
+import com.quiotix.html.parser.IncrementalParser;
+import com.quiotix.html.parser.PatchingDumper;
+
+/**
+ * Crude throughput benchmarks for the parser, run by hand:
+ * <pre>
+ *   java com.quiotix.html.parser.test.ParserBenchmark [iterations]
+ * </pre>
+ * Each case parses a generated corpus repeatedly and reports
+ * documents and characters per second.
+ *
+ * @author timp
+ */
+public class ParserBenchmark {
+
+    static final String NL = System.getProperty("line.separator");
+
+    /**
+     * @return a page made up largely of malformed tags, each of
+     * which sends the parser down its recovery path
+     */
+    public static String brokenCorpus(int n) {
+        StringBuffer sb = new StringBuffer();
+        sb.append("<html><body>").append(NL);
+        for (int i = 0; i < n; i++) {
+            sb.append("<a href=>broken ").append(i).append("</a>");
+            sb.append("<p \"stray\">text</p x>").append(NL);
+            sb.append("<div class='c' / >junk</3>");
+            sb.append("<img src=x alt=\"unterminated>").append(NL);
+        }
+        sb.append("</body></html>").append(NL);
+        return sb.toString();
+    }
+
+    /**
+     * @return a page which is almost all small tags, with little text
+     */
+    public static String tagDenseCorpus(int n) {
+        StringBuffer sb = new StringBuffer();
+        sb.append("<html><body><table>").append(NL);
+        for (int i = 0; i < n; i++) {
+            sb.append("<tr class=r><td><a href=\"/p/").append(i);
+            sb.append("\"><b>").append(i).append("</b></a></td>");
+            sb.append("<td><i>x</i><br><span id=s").append(i);
+            sb.append("></span></td></tr>").append(NL);
+        }
+        sb.append("</table></body></html>").append(NL);
+        return sb.toString();
+    }
+
+    /**
+     * @return a page of short lines, many of them blank or indented, 
+     * as in hand edited or pretty printed HTML
+     */
+    public static String lineCorpus(int n) {
+        StringBuffer sb = new StringBuffer();
+        sb.append("<html>\n<body>\n");
+        for (int i = 0; i < n; i++) {
+            sb.append("<ul>\n\n");
+            sb.append("  <li>item ").append(i).append("</li>  \n");
+            sb.append("  <li>\n    text\n  </li>\n");
+            sb.append("\t\n</ul>\r\n\r\n");
+        }
+        sb.append("</body>\n</html>\n");
+        return sb.toString();
+    }
+
+    /**
+     * @return a page with two very long tokens, an inline script all on
+     * one line and an image with a data URI, each about 4n characters
+     */
+    public static String longTokenCorpus(int n) {
+        StringBuffer sb = new StringBuffer();
+        sb.append("<html><body><script>");
+        for (int i = 0; i < n; i++)
+            sb.append("x++;");
+        sb.append("</script>").append(NL);
+        sb.append("<img src=\"data:image/png;base64,");
+        for (int i = 0; i < n; i++)
+            sb.append("iVBO");
+        sb.append("\">").append(NL);
+        sb.append("</body></html>").append(NL);
+        return sb.toString();
+    }
+
+    /**
+     * @return a page of <code>n</code> lines of text, each followed by a
+     * minified script and style sheet, all on one line and full of 
+     * "&lt;", as bundled scripts are
+     */
+    public static String scriptCorpus(int n) {
+        StringBuffer sb = new StringBuffer();
+        sb.append("<html><head><title>Scripts</title></head><body>").append(NL);
+        for (int i = 0; i < n; i++) {
+            sb.append("<p>Paragraph ").append(i).append("</p><script>");
+            for (int j = 0; j < 20; j++)
+                sb.append("for(var i=0;i<a.length;i++)if(a[i]<'<b>')s+=\"<i>\"+a[i];");
+            sb.append("</script><style>a<b{color:red}p>q{margin:0}</style>");
+            sb.append(NL);
+        }
+        sb.append("</body></html>").append(NL);
+        return sb.toString();
+    }
+
+    /**
+     * Parse <code>html</code> <code>iterations</code> times, five times
+     * over after a warm up, and report the best round.
+     */
+    public static void time(String name, String html, int iterations)
+            throws Exception {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < iterations; i++)
+            parse(html);
+        for (int round = 0; round < 5; round++) {
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < iterations; i++)
+                parse(html);
+            best = Math.min(best, System.currentTimeMillis() - start);
+        }
+        report(name, html.length(), iterations, best);
+    }
+
+    static void report(String name, int length, int iterations, long elapsed) {
+        elapsed = Math.max(1, elapsed);
+        System.out.println(name + ": " + iterations + " docs of "
+                + length + " chars in " + elapsed + "ms, "
+                + (iterations * 1000L / elapsed) + " docs/s, "
+                + ((long) length * iterations / elapsed / 1000)
+                + " Mchars/s");
+    }
+
+    static final String[] SELECTORS = {
+        "a", "a[href]", "td > a", "tr.r td", "span", "#s1", "#s999",
+        "table tr > td > i", "b", "br", "td a > b", "body span[id]",
+    };
+
+    /**
+     * Run SELECTORS over a collected document, all in one traversal
+     * and then with one traversal each, and report both.
+     */
+    public static void timeQuery(String name, String html, int iterations)
+            throws Exception {
+        HtmlDocument document = parse(html);
+        document.accept(new HtmlCollector());
+        HtmlQuery all = new HtmlQuery();
+        HtmlQuery[] each = new HtmlQuery[SELECTORS.length];
+        for (int i = 0; i < SELECTORS.length; i++) {
+            all.add(SELECTORS[i]);
+            each[i] = new HtmlQuery();
+            each[i].add(SELECTORS[i]);
+        }
+        long bestAll = Long.MAX_VALUE, bestEach = Long.MAX_VALUE;
+        for (int round = -1; round < 5; round++) {
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < iterations; i++)
+                document.accept(all);
+            long middle = System.currentTimeMillis();
+            for (int i = 0; i < iterations; i++)
+                for (int j = 0; j < each.length; j++)
+                    document.accept(each[j]);
+            long end = System.currentTimeMillis();
+            if (round >= 0) {
+                bestAll = Math.min(bestAll, middle - start);
+                bestEach = Math.min(bestEach, end - middle);
+            }
+        }
+        report(name + " (one pass)", html.length(), iterations, bestAll);
+        report(name + " (pass each)", html.length(), iterations, bestEach);
+    }
+
+    /**
+     * Compare parsing and collecting a document with reading it back
+     * from its binary form.
+     */
+    public static void timeLoad(String name, String html, int iterations)
+            throws Exception {
+        HtmlDocument document = parse(html);
+        document.accept(new HtmlCollector());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        document.writeTo(out);
+        ByteBuffer binary = ByteBuffer.wrap(out.toByteArray());
+        long bestParse = Long.MAX_VALUE, bestRead = Long.MAX_VALUE;
+        for (int round = -1; round < 5; round++) {
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < iterations; i++)
+                parse(html).accept(new HtmlCollector());
+            long middle = System.currentTimeMillis();
+            for (int i = 0; i < iterations; i++)
+                HtmlDocument.readFrom(binary.duplicate());
+            long end = System.currentTimeMillis();
+            if (round >= 0) {
+                bestParse = Math.min(bestParse, middle - start);
+                bestRead = Math.min(bestRead, end - middle);
+            }
+        }
+        report(name + " (parse)", html.length(), iterations, bestParse);
+        report(name + " (read " + out.size() + " bytes)", 
+                html.length(), iterations, bestRead);
+    }
+
+    /**
+     * Compare parsing a document again after each keystroke with 
+     * parsing around each edit.  The edits type a word into the middle 
+     * of the document and delete it again.
+     */
+    public static void timeEdit(String name, String html, int iterations)
+            throws Exception {
+        String word = "keystrokes";
+        int at = html.indexOf('\n', html.length() / 2) + 1;
+        long bestParse = Long.MAX_VALUE, bestEdit = Long.MAX_VALUE;
+        for (int round = -1; round < 5; round++) {
+            long start = System.currentTimeMillis();
+            String text = html;
+            for (int i = 0; i < iterations; i++) {
+                int n = i % (2 * word.length());
+                text = n < word.length()
+                    ? text.substring(0, at + n) + word.charAt(n) + text.substring(at + n)
+                    : text.substring(0, at + 2 * word.length() - n - 1) 
+                      + text.substring(at + 2 * word.length() - n);
+                parse(text);
+            }
+            long middle = System.currentTimeMillis();
+            IncrementalParser p = new IncrementalParser(html);
+            for (int i = 0; i < iterations; i++) {
+                int n = i % (2 * word.length());
+                if (n < word.length())
+                    p.edit(at + n, 0, word.substring(n, n + 1));
+                else
+                    p.edit(at + 2 * word.length() - n - 1, 1, "");
+            }
+            long end = System.currentTimeMillis();
+            if (round >= 0) {
+                bestParse = Math.min(bestParse, middle - start);
+                bestEdit = Math.min(bestEdit, end - middle);
+            }
+        }
+        report(name + " (parse each)", html.length(), iterations, bestParse);
+        report(name + " (incremental)", html.length(), iterations, bestEdit);
+    }
+
+    /**
+     * Compare writing out a lightly scrubbed document with HtmlDumper
+     * and with a PatchingDumper, which copies what the scrub left alone.
+     */
+    public static void timeDump(String name, String html, int iterations)
+            throws Exception {
+        HtmlDocument document = parse(html);
+        document.accept(new HtmlScrubber(HtmlScrubber.TAGS_DOWNCASE));
+        long bestDump = Long.MAX_VALUE, bestPatch = Long.MAX_VALUE;
+        for (int round = -1; round < 5; round++) {
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < iterations; i++)
+                document.accept(new HtmlDumper(new ByteArrayOutputStream()));
+            long middle = System.currentTimeMillis();
+            for (int i = 0; i < iterations; i++)
+                document.accept(new PatchingDumper(new ByteArrayOutputStream(), html));
+            long end = System.currentTimeMillis();
+            if (round >= 0) {
+                bestDump = Math.min(bestDump, middle - start);
+                bestPatch = Math.min(bestPatch, end - middle);
+            }
+        }
+        report(name + " (dump)", html.length(), iterations, bestDump);
+        report(name + " (patch)", html.length(), iterations, bestPatch);
+    }
+
+    /**
+     * Compare gzipping a dumped document by way of a copy in a
+     * ByteArrayOutputStream, and with a DeflaterWriter in one pass.
+     */
+    public static void timeGzip(String name, String html, int iterations)
+            throws Exception {
+        HtmlDocument document = parse(html);
+        ByteArrayOutputStream o = new ByteArrayOutputStream();
+        long bestCopy = Long.MAX_VALUE, bestDirect = Long.MAX_VALUE;
+        for (int round = -1; round < 5; round++) {
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < iterations; i++) {
+                ByteArrayOutputStream copy = new ByteArrayOutputStream();
+                document.accept(new HtmlDumper(copy, "UTF-8"));
+                o.reset();
+                GZIPOutputStream gz = new GZIPOutputStream(o);
+                copy.writeTo(gz);
+                gz.finish();
+            }
+            long middle = System.currentTimeMillis();
+            for (int i = 0; i < iterations; i++) {
+                o.reset();
+                DeflaterWriter w = new DeflaterWriter(o, DeflaterWriter.GZIP,
+                        "UTF-8");
+                document.accept(new HtmlDumper(w));
+                w.finish();
+            }
+            long end = System.currentTimeMillis();
+            if (round >= 0) {
+                bestCopy = Math.min(bestCopy, middle - start);
+                bestDirect = Math.min(bestDirect, end - middle);
+            }
+        }
+        report(name + " (copy)", html.length(), iterations, bestCopy);
+        report(name + " (direct)", html.length(), iterations, bestDirect);
+    }
+
+    /**
+     * Minify a parsed document, and report the throughput and how much
+     * smaller the output is than the input.
+     */
+    public static void timeMinify(String name, String html, int iterations)
+            throws Exception {
+        HtmlDocument document = parse(html);
+        ByteArrayOutputStream o = new ByteArrayOutputStream();
+        long best = Long.MAX_VALUE;
+        for (int round = -1; round < 5; round++) {
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < iterations; i++) {
+                o.reset();
+                document.accept(new HtmlMinifier(o));
+            }
+            if (round >= 0)
+                best = Math.min(best, System.currentTimeMillis() - start);
+        }
+        report(name, html.length(), iterations, best);
+        System.out.println(name + ": " + html.length() + " chars to "
+                + o.size() + ", " + (100 - o.size() * 100L / html.length())
+                + "% smaller");
+    }
+
+    /**
+     * Report the heap retained by collected documents, 
+     * with and without links back to their containers.
+     */
+    public static void memory(String name, String html, int count)
+            throws Exception {
+        long unlinked = retained(html, count, false, false);
+        long linked = retained(html, count, true, false);
+        long compact = retained(html, count, false, true);
+        System.out.println(name + ": " + (unlinked / count) + " bytes/doc, " 
+                + (linked / count) + " bytes/doc linked, "
+                + (compact / count) + " bytes/doc compact");
+    }
+
+    static long retained(String html, int count, boolean linking, 
+                         boolean compact) throws Exception {
+        Object[] documents = new Object[count];
+        long before = used();
+        for (int i = 0; i < count; i++) {
+            HtmlDocument document = parse(html);
+            document.accept(new HtmlCollector(linking));
+            documents[i] = compact 
+                ? (Object) new CompactHtmlDocument(document) : document;
+        }
+        long after = used();
+        if (documents[count - 1] == null)
+            throw new IllegalStateException();
+        return after - before;
+    }
+
+    static long used() {
+        Runtime r = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++)
+            System.gc();
+        return r.totalMemory() - r.freeMemory();
+    }
+
+    static HtmlDocument parse(String html) throws Exception {
+        return new HtmlParser(new StringReader(html)).HtmlDocument();
+    }
+
+    /**
+     * Runnable.
+     */
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        time("broken", brokenCorpus(1000), iterations);
+        time("tag-dense", tagDenseCorpus(1000), iterations);
+        time("lines", lineCorpus(1000), iterations);
+        time("long tokens", longTokenCorpus(250000), iterations / 20);
+        time("scripts", scriptCorpus(1000), iterations / 5);
+        timeLoad("load", tagDenseCorpus(1000), iterations);
+        timeQuery("query", tagDenseCorpus(1000), iterations);
+        timeEdit("edit", tagDenseCorpus(1000), iterations);
+        timeDump("dump", tagDenseCorpus(1000), iterations);
+        timeGzip("gzip", tagDenseCorpus(1000), iterations);
+        timeMinify("minify broken", brokenCorpus(1000), iterations);
+        timeMinify("minify tag-dense", tagDenseCorpus(1000), iterations);
+        timeMinify("minify lines", lineCorpus(1000), iterations);
+        memory("memory", tagDenseCorpus(1000), 20);
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ *
+ */
+package com.quiotix.html.parser.test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+
+import com.quiotix.html.parser.HtmlCollector;
+import com.quiotix.html.parser.HtmlDocument;
+import com.quiotix.html.parser.HtmlScrubber;
+import com.quiotix.html.parser.HtmlVisitor;
+import com.quiotix.html.parser.PatchingDumper;
+
+/**
+ * @author timp
+ *
+ */
+public class PatchingDumperTest extends TestCase {
+
+    private static final String HTML = "<P  class=x>Hello <b>you</b>\n"
+        + "<!-- note -->\r\n<script>a < b\nc</script><a href=x <br>\t\n"
+        + "<IMG SRC='img' >=\n</P>\n";
+
+    /**
+     * @param name
+     */
+    public PatchingDumperTest(String name) {
+        super(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#setUp()
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#tearDown()
+     */
+    protected void tearDown() throws Exception {
+        super.tearDown();
+    }
+
+    static String patch(HtmlDocument d, String source) {
+        ByteArrayOutputStream o = new ByteArrayOutputStream();
+        d.accept(new PatchingDumper(o, source));
+        return o.toString();
+    }
+
+    /**
+     * An unchanged document is copied exactly.
+     */
+    public void testUnchanged() throws Exception {
+        HtmlDocument d = HtmlParserTest.parse(HTML);
+        assertEquals(HTML, patch(d, HTML));
+        d.accept(new HtmlCollector());
+        assertEquals(HTML, patch(d, HTML));
+
+        // A scrub which changes nothing leaves the document clean
+        String lower = "<p  class=x>hi</p>\n";
+        d = HtmlParserTest.parse(lower);
+        d.accept(new HtmlScrubber(HtmlScrubber.TAGS_DOWNCASE
+                | HtmlScrubber.ATTR_DOWNCASE));
+        assertEquals(lower, patch(d, lower));
+    }
+
+    /**
+     * Only the elements changed are written out afresh.
+     */
+    public void testScrubbed() throws Exception {
+        HtmlDocument d = HtmlParserTest.parse(HTML);
+        d.accept(new HtmlScrubber(HtmlScrubber.ATTR_DOWNCASE
+                | HtmlScrubber.STRIP_QUOTES));
+        assertEquals("<P  class=x>Hello <b>you</b>\n"
+                + "<!-- note -->\r\n<script>a < b\nc</script><a href=x <br>\t\n"
+                + "<IMG src=img>=\n</P>\n", patch(d, HTML));
+
+        // Script tags are named in capitals already, so left as they were
+        d = HtmlParserTest.parse(HTML);
+        d.accept(new HtmlScrubber(HtmlScrubber.TAGS_UPCASE));
+        assertEquals("<P  class=x>Hello <B>you</B>\n"
+                + "<!-- note -->\r\n<script>a < b\nc</script><A href=x><BR>\t\n"
+                + "<IMG SRC='img' >=\n</P>\n", patch(d, HTML));
+    }
+
+    /**
+     * Line ends are copied as they were read, before the first element
+     * and after changed ones.
+     */
+    public void testLineEnds() throws Exception {
+        String[] html = { "\r\n<p>x</p>\r\n", "=\n<p>x\r</p>", "\r\r\n\n",
+                          "<p>\r\n<A HREF=x>\r\n\r\n<b>x</b>\r\n" };
+        for (int i = 0; i < html.length; i++) {
+            HtmlDocument d = HtmlParserTest.parse(html[i]);
+            assertEquals(html[i], patch(d, html[i]));
+            d.accept(new HtmlScrubber(HtmlScrubber.TAGS_DOWNCASE));
+            assertEquals(html[i].replaceAll("<A", "<a"), patch(d, html[i]));
+        }
+    }
+
+    /**
+     * Removed elements are left out, and added ones written out.
+     */
+    public void testRemoveAndAdd() throws Exception {
+        String html = "<p>one\ntwo\n\nthree</p>";
+        String nl = System.getProperty("line.separator");
+        HtmlDocument.ElementSequence s = elements(HtmlParserTest.parse(html));
+        HtmlDocument d = new HtmlDocument(s);
+        // Drop "two" and the line end after it
+        s.replace(3, 5, new HtmlDocument.ElementSequence());
+        assertEquals("<p>one" + nl + nl + "three</p>", patch(d, html));
+
+        s.replace(1, 1, sequence(new HtmlDocument.Text("zero ")));
+        s.addElement(HtmlDocument.Newline.SHARED);
+        assertEquals("<p>zero one" + nl + nl + "three</p>" + nl, patch(d, html));
+
+        // A line end added between elements that had none
+        s.replace(1, 1, sequence(HtmlDocument.Newline.SHARED));
+        assertEquals("<p>" + nl + "zero one" + nl + nl + "three</p>" + nl,
+                patch(d, html));
+    }
+
+    /** The top level elements of a document, in a sequence of their own. */
+    static HtmlDocument.ElementSequence elements(HtmlDocument d) {
+        final HtmlDocument.ElementSequence s = new HtmlDocument.ElementSequence();
+        d.accept(new HtmlVisitor() {
+            public void visit(HtmlDocument.ElementSequence top) {
+                for (Iterator it = top.iterator(); it.hasNext();)
+                    s.addElement((HtmlDocument.HtmlElement) it.next());
+            }
+        });
+        return s;
+    }
+
+    static HtmlDocument.ElementSequence sequence(HtmlDocument.HtmlElement e) {
+        HtmlDocument.ElementSequence s = new HtmlDocument.ElementSequence();
+        s.addElement(e);
+        return s;
+    }
+}
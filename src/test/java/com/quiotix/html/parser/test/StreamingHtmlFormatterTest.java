@@ -0,0 +1,137 @@
+/**
+ *
+ */
+package com.quiotix.html.parser.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+import com.quiotix.html.parser.HtmlCollector;
+import com.quiotix.html.parser.HtmlDocument;
+import com.quiotix.html.parser.HtmlFormatter;
+import com.quiotix.html.parser.HtmlParser;
+import com.quiotix.html.parser.HtmlScrubber;
+import com.quiotix.html.parser.StreamingHtmlFormatter;
+
+/**
+ * @author timp
+ *
+ */
+public class StreamingHtmlFormatterTest extends TestCase {
+
+    private static final String NL = System.getProperty("line.separator");
+    private static final int FLAGS = HtmlScrubber.DEFAULT_OPTIONS
+        | HtmlScrubber.TRIM_SPACES;
+
+    /**
+     * @param name
+     */
+    public StreamingHtmlFormatterTest(String name) {
+        super(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#setUp()
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @see junit.framework.TestCase#tearDown()
+     */
+    protected void tearDown() throws Exception {
+        super.tearDown();
+    }
+
+    static String format(String html, int margin) throws Exception {
+        HtmlDocument document = HtmlParserTest.parse(html);
+        document.accept(new HtmlCollector());
+        document.accept(new HtmlScrubber(FLAGS));
+        ByteArrayOutputStream o = new ByteArrayOutputStream();
+        HtmlFormatter f = new HtmlFormatter(o);
+        f.setRightMargin(margin);
+        document.accept(f);
+        return o.toString();
+    }
+
+    static String stream(String html, int margin) throws Exception {
+        ByteArrayOutputStream o = new ByteArrayOutputStream();
+        StreamingHtmlFormatter f = new StreamingHtmlFormatter(o);
+        f.setRightMargin(margin);
+        f.format(new HtmlParser(new StringReader(html)), FLAGS);
+        return o.toString();
+    }
+
+    /**
+     * Test method for {@link com.quiotix.html.parser.StreamingHtmlFormatter#format(HtmlParser, int)}.
+     */
+    public void testFormat() throws Exception {
+        String html = "<HTML><body><table><tr><td>One</td><td><a href=x>Two</a>"
+            + "</td></tr>\n<tr><td>A cell with rather more text in it than "
+            + "will fit on a line <b>at all</b></td></tr></table>\n"
+            + "<pre>  kept   as\n  it is</pre><ul><li>x</li></ul>"
+            + "<script>if (a < b) {}</script><p>end</p></body></html>";
+        assertEquals("<html>" + NL
+                + "  <body>" + NL
+                + "    <table>" + NL
+                + "      <tr><td>One</td><td><a href=\"x\">Two</a></td></tr>" + NL
+                + "      <tr>" + NL
+                + "        <td>" + NL
+                + "          A cell with rather more text in it than will fit " + NL
+                + "          on a line <b>at all</b>" + NL
+                + "        </td>" + NL
+                + "      </tr>" + NL
+                + "    </table>" + NL
+                + "    <pre>  kept   as" + NL
+                + "  it is</pre><ul><li>x</li></ul><script>if (a < b) {}" + NL
+                + "    </script>" + NL
+                + "    <p>end</p>" + NL
+                + NL
+                + "  </body>" + NL
+                + "</html>" + NL, stream(html, 60));
+        for (int margin = 20; margin <= 80; margin += 10)
+            assertEquals(format(html, margin), stream(html, margin));
+    }
+
+    /**
+     * A tag never closed is indented as if it were, until what encloses
+     * it closes; one which might have fitted on a line is not.
+     */
+    public void testUnclosed() throws Exception {
+        String html = "<div><form><p>1</p></div>x";
+        assertEquals("<div><form>" + NL
+                + "<p>1</p>" + NL
+                + NL
+                + "</div>x", format(html, 80));
+        assertEquals("<div>" + NL
+                + "<form>" + NL
+                + "  <p>1</p>" + NL
+                + NL
+                + "</div>x", stream(html, 80));
+
+        html = "<div><table><tr><td>1<td>2</table></div>x";
+        assertEquals(format(html, 80), stream(html, 80));
+    }
+
+    /**
+     * Line ends held back after a tag which might fit on a line are let 
+     * go once they would not.
+     */
+    public void testHeldNewlines() throws Exception {
+        StringWriter w = new StringWriter();
+        StreamingHtmlFormatter f = new StreamingHtmlFormatter(w);
+        f.setRightMargin(80);
+        f.start();
+        new HtmlParser(new StringReader("<a href=x>")).nextElement().accept(f);
+        for (int i = 0; i < 200; i++)
+            f.visit(HtmlDocument.Newline.SHARED);
+        assertTrue(w.toString().startsWith("<a href=x>"));
+        f.finish();
+    }
+}